@@ -0,0 +1,38 @@
+package net.campspot.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Runs the benchmarks with JMH's command line options, e.g. {@code -p campsites=1000,100000} or a benchmark name.
+ * Unless -rf or -rff is given, results are written as JSON to target/jmh-result.json, to compare runs or load them
+ * into a JMH visualizer.
+ */
+public class Benchmarks {
+  public static final String DEFAULT_RESULT_FILE = "target/jmh-result.json";
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+    CommandLineOptions options = new CommandLineOptions(args);
+    if (options.shouldHelp()) {
+      options.showHelp();
+      return;
+    }
+    if (options.shouldList() || options.shouldListWithParams() || options.shouldListProfilers()
+        || options.shouldListResultFormats()) {
+      org.openjdk.jmh.Main.main(args);
+      return;
+    }
+    ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+    if (!options.getResultFormat().hasValue() && !options.getResult().hasValue()) {
+      builder.resultFormat(ResultFormatType.JSON).result(DEFAULT_RESULT_FILE);
+    }
+    new Runner(builder.build()).run();
+  }
+}
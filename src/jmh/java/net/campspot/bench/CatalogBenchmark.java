@@ -0,0 +1,70 @@
+package net.campspot.bench;
+
+import net.campspot.Helper;
+import net.campspot.catalog.CampsiteSnapshot;
+import net.campspot.catalog.CampsiteStore;
+import net.campspot.models.Park;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup cost of the campsite catalog: reading all-campsites.csv, either parsing the CSV file and writing the
+ * snapshot as on the first start, or reading the binary snapshot as on later starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class CatalogBenchmark {
+  @Param({"1000", "100000", "1000000", "10000000"})
+  public int campsites;
+
+  /**
+   * csv: no snapshot, the CSV file is parsed; snapshot: the snapshot is read.
+   */
+  @Param({"csv", "snapshot"})
+  public String source;
+
+  private Path campsitesCsv;
+  private Map<String, Park> parksMap;
+
+  @Setup(Level.Trial)
+  public void createCatalog() throws IOException {
+    Path folder = Fixtures.catalog(campsites);
+    campsitesCsv = folder.resolve("all-campsites.csv");
+    parksMap = new HashMap<>();
+    for (Park park : Helper.readParks(folder.resolve("parks.csv"))) {
+      parksMap.put(park.id, park);
+    }
+    if (source.equals("snapshot")) Helper.readAllCampsites(campsitesCsv); // writes the snapshot if missing
+  }
+
+  @Setup(Level.Invocation)
+  public void removeSnapshot() throws IOException {
+    if (source.equals("csv")) Files.deleteIfExists(CampsiteSnapshot.pathFor(campsitesCsv));
+  }
+
+  @Benchmark
+  public CampsiteStore readCampsites() {
+    return Helper.readCampsites(campsitesCsv, parksMap);
+  }
+}
@@ -0,0 +1,62 @@
+package net.campspot.bench;
+
+import net.campspot.catalog.CampsiteStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtering done on every click of the main window, like updateTotalLabel: the campsites of the selected park, of
+ * all types or of one type, and the number of rows they give for the selected nights.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class FilterBenchmark {
+  private static final int SELECTIONS = 1024;
+
+  @Param({"1000", "100000", "1000000", "10000000"})
+  public int campsites;
+
+  private CampsiteStore store;
+  private final String[] parkIds = new String[SELECTIONS]; // selected parks, one per click
+  private final String[] types = new String[SELECTIONS];
+  private int next;
+
+  @Setup(Level.Trial)
+  public void createStore() {
+    store = Fixtures.store(campsites);
+    SplittableRandom random = new SplittableRandom(1);
+    for (int i = 0; i < SELECTIONS; i++) {
+      parkIds[i] = Integer.toString(random.nextInt(Fixtures.parks(campsites)) + 1);
+      types[i] = Integer.toString(random.nextInt(4));
+    }
+  }
+
+  @Benchmark
+  public long allTypes() {
+    int i = next++ & (SELECTIONS - 1);
+    return 30L * store.range(parkIds[i]).size();
+  }
+
+  @Benchmark
+  public long oneType() {
+    int i = next++ & (SELECTIONS - 1);
+    return 30L * store.range(parkIds[i], types[i]).size();
+  }
+}
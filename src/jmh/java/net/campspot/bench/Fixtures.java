@@ -0,0 +1,110 @@
+package net.campspot.bench;
+
+import net.campspot.catalog.CampsiteStore;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic parks, campsites and result files for the benchmarks. Files are written once per size to the folder of
+ * the bench.fixtures system property, target/jmh-fixtures by default, and reused by later runs and forks.
+ */
+final class Fixtures {
+  static final int CAMPSITES_PER_PARK = 250;
+  static final String[] LABELS = {"Home", "Search", "Availability", "Add to Cart", "Checkout", "Confirm"};
+
+  private Fixtures() {
+  }
+
+  static Path folder(String name) throws IOException {
+    return Files.createDirectories(Paths.get(System.getProperty("bench.fixtures", "target/jmh-fixtures"), name));
+  }
+
+  static int parks(int campsites) {
+    return Math.max(1, campsites / CAMPSITES_PER_PARK);
+  }
+
+  /**
+   * @return folder with parks.csv and all-campsites.csv of a catalog, campsites are spread over the parks
+   */
+  static Path catalog(int campsites) throws IOException {
+    Path folder = folder("catalog-" + campsites);
+    Path parksCsv = folder.resolve("parks.csv");
+    Path campsitesCsv = folder.resolve("all-campsites.csv");
+    if (Files.exists(parksCsv) && Files.exists(campsitesCsv)) return folder;
+
+    int parks = parks(campsites);
+    write(parksCsv, writer -> {
+      writer.write("ParkID,name\n");
+      for (int park = 1; park <= parks; park++) {
+        writer.write(park + ",\"Park " + park + ", TX\"\n");
+      }
+    });
+    SplittableRandom random = new SplittableRandom(campsites);
+    write(campsitesCsv, writer -> {
+      writer.write("id,name,ParkID,type\n");
+      for (int id = 1; id <= campsites; id++) {
+        writer.write(id + ",Site " + id + "," + (random.nextInt(parks) + 1) + "," + random.nextInt(4) + "\n");
+      }
+    });
+    return folder;
+  }
+
+  /**
+   * @return store of a catalog built in memory, without files
+   */
+  static CampsiteStore store(int campsites) {
+    int parks = parks(campsites);
+    SplittableRandom random = new SplittableRandom(campsites);
+    CampsiteStore.Builder builder = new CampsiteStore.Builder();
+    for (int id = 1; id <= campsites; id++) {
+      builder.add(Integer.toString(id), "Site " + id, Integer.toString(random.nextInt(parks) + 1),
+          Integer.toString(random.nextInt(4)));
+    }
+    return builder.build();
+  }
+
+  /**
+   * @return result file in JMeter's default CSV format, one sample every few milliseconds
+   */
+  static Path results(int samples) throws IOException {
+    Path jtl = folder("results").resolve("samples-" + samples + ".jtl");
+    if (Files.exists(jtl)) return jtl;
+    SplittableRandom random = new SplittableRandom(samples);
+    write(jtl, writer -> {
+      writer.write("timeStamp,elapsed,label,responseCode,responseMessage,threadName,dataType,success,failureMessage,"
+          + "bytes,sentBytes,grpThreads,allThreads,URL,Latency,IdleTime,Connect\n");
+      long timeStamp = 1717200000000L;
+      for (int i = 0; i < samples; i++) {
+        timeStamp += random.nextInt(5);
+        int elapsed = 20 + random.nextInt(400);
+        boolean success = random.nextInt(100) != 0;
+        String label = LABELS[random.nextInt(LABELS.length)];
+        writer.write(timeStamp + "," + elapsed + "," + label + "," + (success ? "200,OK" : "500,Internal Server Error")
+            + ",Thread Group 1-" + (i % 100 + 1) + ",text," + success + ",," + (2000 + random.nextInt(8000))
+            + ",512,100,100,https://example.com/" + label + "," + (elapsed - 5) + ",0," + random.nextInt(10) + "\n");
+      }
+    });
+    return jtl;
+  }
+
+  private interface Content {
+    void write(BufferedWriter writer) throws IOException;
+  }
+
+  /**
+   * Write a file under a temporary name first, so a run stopped while writing does not leave a partial fixture.
+   */
+  private static void write(Path file, Content content) throws IOException {
+    Path part = file.resolveSibling(file.getFileName() + ".part");
+    try (BufferedWriter writer = Files.newBufferedWriter(part)) {
+      content.write(writer);
+    }
+    Files.move(part, file, StandardCopyOption.REPLACE_EXISTING);
+  }
+}
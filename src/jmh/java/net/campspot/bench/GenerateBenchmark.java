@@ -0,0 +1,72 @@
+package net.campspot.bench;
+
+import net.campspot.catalog.CampsiteStore;
+import net.campspot.generator.DataGenerator;
+import net.campspot.generator.TrafficSkew;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generation of a data file for all campsites of a catalog, with the row loop on one thread and on all cores. The
+ * number of rows is campsites times nights, booked in order or drawn with a Zipf skew.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class GenerateBenchmark {
+  @Param({"1000", "100000"})
+  public int campsites;
+
+  @Param({"1", "30", "365"})
+  public int nights;
+
+  @Param({"1", "0"})
+  public int threads; // 0 for the number of cores
+
+  @Param({"uniform", "zipf"})
+  public String traffic;
+
+  private DataGenerator generator;
+  private Path target;
+
+  @Setup(Level.Trial)
+  public void createGenerator() throws IOException {
+    CampsiteStore store = Fixtures.store(campsites);
+    generator = new DataGenerator(store, new CampsiteStore.Range(0, store.size()), LocalDate.of(2024, 6, 1), nights);
+    if (traffic.equals("zipf")) {
+      generator.setTrafficSkew(new TrafficSkew(1, 1, new double[]{4, 2, 3, 1}, new double[]{1, 1, 1, 1, 3, 3, 1}, 1));
+    }
+    generator.configure(); // not part of the measured generation
+    target = Fixtures.folder("generated").resolve("campsites-" + campsites + "-" + nights + ".csv");
+  }
+
+  @Benchmark
+  public long generate() throws IOException {
+    return generator.generate(target, null, threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteFile() throws IOException {
+    Files.deleteIfExists(target);
+  }
+}
@@ -0,0 +1,49 @@
+package net.campspot.bench;
+
+import net.campspot.results.JtlAnalyzer;
+import net.campspot.results.JtlReport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and aggregating a result file in JMeter's default CSV format, as done by View Details and the run history.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class JtlBenchmark {
+  @Param({"100000", "1000000", "10000000"})
+  public int samples;
+
+  @Param({"1", "0"})
+  public int threads; // 0 for the number of cores
+
+  private Path jtl;
+
+  @Setup(Level.Trial)
+  public void createResults() throws IOException {
+    jtl = Fixtures.results(samples);
+  }
+
+  @Benchmark
+  public JtlReport analyze() throws IOException {
+    return new JtlAnalyzer(jtl).analyze(null, threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+  }
+}
@@ -0,0 +1,47 @@
+package net.campspot.bench;
+
+import net.campspot.Helper;
+import net.campspot.models.Park;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup cost of reading parks.csv, with one park per 250 campsites of the catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParksBenchmark {
+  @Param({"1000", "100000", "1000000", "10000000"})
+  public int campsites;
+
+  private Path parksCsv;
+
+  @Setup(Level.Trial)
+  public void createCatalog() throws IOException {
+    parksCsv = Fixtures.catalog(campsites).resolve("parks.csv");
+  }
+
+  @Benchmark
+  public List<Park> readParks() {
+    return Helper.readParks(parksCsv);
+  }
+}
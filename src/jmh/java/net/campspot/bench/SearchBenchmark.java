@@ -0,0 +1,77 @@
+package net.campspot.bench;
+
+import net.campspot.catalog.CampsiteStore;
+import net.campspot.catalog.CatalogIndex;
+import net.campspot.models.Park;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The park search box: building the index once the catalog is loaded, and the search done on every keystroke, each
+ * prefix of a campsite id, of "site" and a campsite number, and of a park name.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class SearchBenchmark {
+  private static final int KEYSTROKES = 1024;
+
+  @Param({"1000", "100000", "1000000", "10000000"})
+  public int campsites;
+
+  private List<Park> parks;
+  private CampsiteStore store;
+  private CatalogIndex index;
+  private final String[] queries = new String[KEYSTROKES];
+  private int next;
+
+  @Setup(Level.Trial)
+  public void createIndex() {
+    store = Fixtures.store(campsites);
+    parks = new ArrayList<>();
+    for (int park = 1; park <= Fixtures.parks(campsites); park++) {
+      parks.add(new Park(Integer.toString(park), "Park " + park + ", TX"));
+    }
+    index = new CatalogIndex(parks, store);
+    SplittableRandom random = new SplittableRandom(1);
+    for (int i = 0; i < KEYSTROKES; ) {
+      String[] typed = {Integer.toString(random.nextInt(campsites) + 1),
+          "site " + (random.nextInt(campsites) + 1), "park " + (random.nextInt(parks.size()) + 1) + " tx"};
+      String text = typed[random.nextInt(typed.length)];
+      for (int length = 1; length <= text.length() && i < KEYSTROKES; length++) {
+        queries[i++] = text.substring(0, length);
+      }
+    }
+  }
+
+  @Benchmark
+  public BitSet keystroke() {
+    return index.search(queries[next++ & (KEYSTROKES - 1)]);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public CatalogIndex build() {
+    return new CatalogIndex(parks, store);
+  }
+}
@@ -2,11 +2,42 @@ package net.campspot;
 
 import com.intellij.uiDesigner.core.GridConstraints;
 import com.intellij.uiDesigner.core.GridLayoutManager;
-import com.opencsv.CSVWriter;
+import net.campspot.catalog.CampsiteStore;
+import net.campspot.catalog.CatalogChanges;
+import net.campspot.catalog.CatalogIndex;
+import net.campspot.catalog.CatalogSync;
+import net.campspot.components.DataPreviewPanel;
 import net.campspot.components.DateLabelFormatter;
-import net.campspot.components.ShowErrorCallback;
-import net.campspot.models.Campsite;
+import net.campspot.components.FileTableModel;
+import net.campspot.components.HistoryPanel;
+import net.campspot.components.LoadTestPanel;
+import net.campspot.components.ParkTableModel;
+import net.campspot.components.RemoteStatusPanel;
+import net.campspot.components.ReportPanel;
+import net.campspot.components.RunsPanel;
+import net.campspot.files.FileCatalog;
+import net.campspot.files.WatchedFolder;
+import net.campspot.generator.DataGenerator;
+import net.campspot.generator.IdentityAllocator;
+import net.campspot.generator.Segment;
+import net.campspot.generator.StayLengths;
+import net.campspot.generator.TrafficSkew;
+import net.campspot.load.LoadEngine;
+import net.campspot.load.RequestTemplate;
+import net.campspot.load.StubServer;
+import net.campspot.metrics.ToolMetrics;
 import net.campspot.models.Park;
+import net.campspot.models.ScenarioEntry;
+import net.campspot.remote.ControlPlaneClient;
+import net.campspot.results.JtlAnalyzer;
+import net.campspot.results.JtlReport;
+import net.campspot.results.RunHistory;
+import net.campspot.results.RunSummary;
+import net.campspot.runner.DistributedRun;
+import net.campspot.runner.HostMonitor;
+import net.campspot.runner.LocalRun;
+import net.campspot.runner.RunFolder;
+import net.campspot.runner.RunManager;
 import okhttp3.*;
 import org.jdatepicker.impl.JDatePanelImpl;
 import org.jdatepicker.impl.JDatePickerImpl;
@@ -14,33 +45,43 @@ import org.jdatepicker.impl.UtilDateModel;
 
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileFilter;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableColumnModel;
 import java.awt.*;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.*;
-import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class CampspotGui extends JFrame {
-  private final OkHttpClient client = new OkHttpClient.Builder()
-      .connectTimeout(60, TimeUnit.SECONDS)
-      .writeTimeout(60, TimeUnit.SECONDS)
-      .readTimeout(60, TimeUnit.SECONDS)
-      .build();
-  private final List<Park> parks; // list of all parks
-  private final Map<String, Park> parksMap; // map of all parks, key is park Id, value is park
-  private final Map<String, List<Campsite>> campsites; // list of all campsites
+  // shared by all HTTP calls of the application, so connections are kept alive and reused
+  private final OkHttpClient client = ControlPlaneClient.newHttpClient();
+  private List<Park> parks; // list of all parks
+  private Map<String, Park> parksMap; // map of all parks, key is park Id, value is park
+  private CampsiteStore campsites; // all campsites, grouped by park and type, null until loaded
+  private CatalogIndex catalogIndex; // search over parks and campsites, null until built
   // in case we need to convert from campsite type number to text
   // it is not used anywhere now because in the generated CSV file, we are using campsite type number
   private final Map<String, String> campsiteTypes = new HashMap<>();
@@ -50,6 +91,7 @@ public class CampspotGui extends JFrame {
   private JTable testsTable;
   private JTable dataTable;
   private JTable parkTable;
+  private JTextField parkSearchField;
   private JRadioButton rvRadioButton;
   private JRadioButton lodgingRadioButton;
   private JButton generateButton;
@@ -64,82 +106,196 @@ public class CampspotGui extends JFrame {
   private JRadioButton localRadioButton;
   private JRadioButton remoteRadioButton;
   private Properties config;
-  private List<Campsite> selectedCampsites; // list of selected campsites
+  private CampsiteStore.Range selectedCampsites = CampsiteStore.Range.EMPTY; // selected campsites in store
   private ButtonGroup campsiteTypeButtonGroup;
   private ButtonGroup localRemoteButtonGroup;
+  private JMenuItem scenarioItem;
+  private JMenuItem syncItem;
+  private JMenuItem nativeLoadItem;
+  private JMenuItem distributedItem;
+  private JLabel statusLabel;
+  private JProgressBar loadProgressBar;
+  private final RunManager runManager = new RunManager();
+  private JDialog runsDialog;
+  private RunsPanel runsPanel;
+  private final RunHistory runHistory = new RunHistory(Paths.get("Results"));
+  private JDialog historyDialog;
+  private HistoryPanel historyPanel;
+  private WatchedFolder testsFolder; // watched folders, null until listed
+  private WatchedFolder dataFolder;
+  private WatchedFolder resultsFolder;
+  private FileTableModel testsModel;
+  private final ParkTableModel parksModel = new ParkTableModel();
+  private ControlPlaneClient controlPlane; // client of the remote test server, null until configuration is loaded
+  private JDialog remoteStatusDialog;
+  private RemoteStatusPanel remoteStatusPanel;
+  private JDialog previewDialog;
+  private DataPreviewPanel previewPanel;
 
   public CampspotGui(String title) {
     super(title);
     $$$setupUI$$$();
 
     initializeUi();
-    loadConfiguration();
+    setConfigControlsEnabled(false);
+    setCatalogControlsEnabled(false);
+    load();
+  }
+
+  /**
+   * Load configuration, parks, campsites and folders concurrently on a background executor, so the frame can be
+   * shown right away. Each part is shown as soon as it is ready: parks fill the park table first, controls that need
+   * campsites are enabled once the catalog is loaded.
+   */
+  private void load() {
+    ExecutorService executor = Executors.newFixedThreadPool(4, runnable -> {
+      Thread thread = new Thread(runnable, "loader");
+      thread.setDaemon(true);
+      return thread;
+    });
+    Executor edt = SwingUtilities::invokeLater;
 
+    CompletableFuture<Properties> configFuture = CompletableFuture.supplyAsync(Helper::readConfiguration, executor);
     // read parks from parks.csv file
-    this.parks = Helper.readParks();
-    parksMap = new HashMap<>();
-    for (Park i : parks) {
-      parksMap.put(i.id, i);
-    }
+    CompletableFuture<List<Park>> parksFuture = CompletableFuture.supplyAsync(Helper::readParks, executor);
     // prepare campsite data, so that we can quickly display them when a park and a campsite type is selected
-    this.campsites = Helper.readCampsites(parksMap);
+    CompletableFuture<CampsiteStore> campsitesFuture = CompletableFuture.supplyAsync(Helper::readAllCampsites, executor);
+    // list Tests, Data and Results once, then follow their changes
+    CompletableFuture<FileCatalog> foldersFuture = CompletableFuture.supplyAsync(this::openFileCatalog, executor);
+    // index parks and campsites for the search box, after the window is ready to use
+    CompletableFuture<CatalogIndex> indexFuture = parksFuture.thenCombineAsync(campsitesFuture, CatalogIndex::new,
+        executor);
+
+    CompletableFuture<Void> configDone = configFuture.thenAcceptAsync(config -> {
+      this.config = config;
+      controlPlane = Helper.createControlPlane(client, config);
+      setConfigControlsEnabled(true);
+      loadStepDone("configuration");
+    }, edt);
+    CompletableFuture<Void> parksDone = parksFuture.thenAcceptAsync(parks -> {
+      this.parks = parks;
+      parksMap = new HashMap<>();
+      for (Park i : parks) {
+        parksMap.put(i.id, i);
+      }
+      // show parks from parks.csv file
+      showParks();
+      loadStepDone("parks");
+    }, edt);
+    CompletableFuture<Void> campsitesDone = campsitesFuture
+        .thenCombine(parksFuture, (store, parks) -> {
+          // only accept campsites belong to existing parks
+          Set<String> parkIds = new HashSet<>();
+          for (Park park : parks) {
+            parkIds.add(park.id);
+          }
+          return store.retainParks(parkIds::contains);
+        })
+        .thenAcceptAsync(store -> {
+          this.campsites = store;
+          setCatalogControlsEnabled(true);
+          updateTotalLabel();
+          loadStepDone("campsites");
+        }, edt);
+    indexFuture.whenCompleteAsync((index, e) -> {
+      if (e != null) {
+        e.printStackTrace();
+        return;
+      }
+      catalogIndex = index;
+      parkSearchField.setEnabled(true);
+      if (!parkSearchField.getText().trim().isEmpty()) searchParks();
+    }, edt);
+    CompletableFuture<Void> filesDone = foldersFuture.thenAcceptAsync(catalog -> {
+      // show tests files from Tests folder
+      showLocalTests();
+      // show files from Data folder
+      showData();
+      loadStepDone("files");
+    }, edt);
+
+    CompletableFuture.allOf(configDone, parksDone, campsitesDone, filesDone).whenCompleteAsync((ignored, e) -> {
+      executor.shutdown();
+      loadProgressBar.setVisible(false);
+      if (e != null) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        cause.printStackTrace();
+        statusLabel.setText("Loading failed: " + cause.getMessage());
+        JOptionPane.showMessageDialog(this, "Cannot load data: " + cause.getMessage(), "Error",
+            JOptionPane.ERROR_MESSAGE);
+      } else {
+        statusLabel.setText("Ready: " + parks.size() + " parks, " + campsites.size() + " campsites");
+      }
+    }, edt);
+  }
+
+  private void loadStepDone(String step) {
+    loadProgressBar.setValue(loadProgressBar.getValue() + 1);
+    statusLabel.setText("Loaded " + step);
+  }
+
+  /**
+   * Enable controls that need the configuration file.
+   */
+  private void setConfigControlsEnabled(boolean enabled) {
+    runBtn.setEnabled(enabled);
+    nativeLoadItem.setEnabled(enabled);
+    distributedItem.setEnabled(enabled);
+    localRadioButton.setEnabled(enabled);
+    remoteRadioButton.setEnabled(enabled);
+  }
 
-    // show parks from parks.csv file
-    showParks();
+  /**
+   * Enable controls that need the campsite catalog.
+   */
+  private void setCatalogControlsEnabled(boolean enabled) {
+    allRadioButton.setEnabled(enabled);
+    rvRadioButton.setEnabled(enabled);
+    lodgingRadioButton.setEnabled(enabled);
+    tentRadioButton.setEnabled(enabled);
+    storageRadioButton.setEnabled(enabled);
+    scenarioItem.setEnabled(enabled);
+    syncItem.setEnabled(enabled);
+  }
 
-    // show tests files from Tests folder
-    showLocalTests();
-    // show files from Data folder
-    showData();
+  /**
+   * Create the folders and start watching them. Called on a loader thread, the folders are listed here.
+   */
+  private FileCatalog openFileCatalog() {
+    Helper.createFolders();
+    try {
+      FileCatalog catalog = new FileCatalog();
+      testsFolder = catalog.watch(Paths.get("Tests"), name -> name.toLowerCase().endsWith(".jmx"));
+      dataFolder = catalog.watch(Paths.get("Data"), name -> true);
+      resultsFolder = catalog.watch(Paths.get("Results"), name -> name.toLowerCase().endsWith(".jtl"));
+      return catalog;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 
   private void showLocalTests() {
-    File testDir = new File("Tests");
-    if (!testDir.exists()) testDir.mkdirs();
-    File resultdir = new File("Results");
-    if (!resultdir.exists()) resultdir.mkdirs();
-    File dataDir = new File("Data");
-    if (!dataDir.exists()) dataDir.mkdirs();
-    //List of all jmx files
-    String[] contents = testDir.list();
+    // List of all jmx files, kept up to date by the catalog
+    if (testsModel == null) testsModel = new FileTableModel(testsFolder, false);
     testsTable.getTableHeader().setUI((null));
-    DefaultTableModel model = (DefaultTableModel) testsTable.getModel();
-    model.setRowCount(0);
-    if (model.getColumnCount() == 0) {
-      model.addColumn("Name");
-    }
-    for (String content : contents) {
-      if (content.toLowerCase().endsWith(".jmx")) {
-        model.addRow(new Object[]{content});
-      }
-    }
+    testsTable.setModel(testsModel);
   }
 
   private void showData() {
-    DefaultTableModel model = (DefaultTableModel) dataTable.getModel();
-    File dataDir = new File("Data");
-    String[] contents = dataDir.list();
-    dataTable.getTableHeader().setUI((null));
-    model.addColumn("Name");
-    for (String content : contents) {
-      model.addRow(new Object[]{content});
-    }
+    dataTable.setModel(new FileTableModel(dataFolder, true));
+    dataTable.getColumnModel().getColumn(0).setPreferredWidth(200);
   }
 
   public static void main(String[] args) {
+    ToolMetrics.register();
     JFrame frame = new CampspotGui("Campspot Ad Hoc Load Generator");
     frame.setVisible(true);
   }
 
   private void showParks() {
     parkTable.getTableHeader().setUI((null));
-    DefaultTableModel model = (DefaultTableModel) parkTable.getModel();
-    model.addColumn("Id");
-    model.addColumn("Name");
-    if (this.parks != null) {
-      for (Park val : parks)
-        model.addRow(new Object[]{val.id, val.name});
-    }
+    parkTable.setModel(parksModel);
+    fillParks();
     TableColumnModel columnModel = parkTable.getColumnModel();
     columnModel.getColumn(0).setPreferredWidth(60);
     columnModel.getColumn(0).setMaxWidth(60);
@@ -154,6 +310,26 @@ public class CampspotGui extends JFrame {
     });
   }
 
+  /**
+   * Put the parks that match the search box in the park table, keeping the selected park if it is still there. The
+   * rows are replaced at once, so a keystroke repaints the table once.
+   */
+  private void fillParks() {
+    String selected = getSelectedParkId();
+    BitSet matches = catalogIndex != null && parks != null ? catalogIndex.search(parkSearchField.getText()) : null;
+    parksModel.show(parks != null ? parks : Collections.emptyList(), matches);
+    int selectedRow = selected != null ? parksModel.indexOf(selected) : -1;
+    if (selectedRow > -1) parkTable.setRowSelectionInterval(selectedRow, selectedRow);
+  }
+
+  private void searchParks() {
+    fillParks();
+    if (parks == null) return;
+    String query = parkSearchField.getText().trim();
+    statusLabel.setText(query.isEmpty() ? parks.size() + " parks" :
+        parkTable.getRowCount() + " of " + parks.size() + " parks match \"" + query + "\"");
+  }
+
   private String getSelectedParkId() {
     return parkTable.getSelectedRow() > -1 ?
         parkTable.getValueAt(parkTable.getSelectedRow(), 0).toString() : null;
@@ -171,15 +347,14 @@ public class CampspotGui extends JFrame {
 
   private void updateTotalLabel() {
     String parkId = getSelectedParkId();
-    selectedCampsites = new ArrayList<>();
+    selectedCampsites = CampsiteStore.Range.EMPTY;
     long day = getDays();
-    if (parkId != null && day > 0) {
+    if (parkId != null && day > 0 && campsites != null) {
       if (allRadioButton.isSelected()) {
-        selectedCampsites = campsites.get(parkId);
+        selectedCampsites = campsites.range(parkId);
       } else {
         String typeId = campsiteTypeButtonGroup.getSelection().getActionCommand();
-        selectedCampsites = campsites.get(parkId).stream()
-            .filter(p -> typeId.equals(p.type)).collect(Collectors.toList());
+        selectedCampsites = campsites.range(parkId, typeId);
       }
     }
     totalLabel.setText("Total: " + day * selectedCampsites.size());
@@ -187,24 +362,6 @@ public class CampspotGui extends JFrame {
     repaint();
   }
 
-  /**
-   * Load configuration file to config object.
-   */
-  private void loadConfiguration() {
-    FileReader inputStream;
-    try {
-      inputStream = new FileReader("config.properties");
-    } catch (FileNotFoundException e) {
-      throw new RuntimeException(e);
-    }
-    this.config = new Properties();
-    try {
-      this.config.load(inputStream);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
-  }
-
   private void generateData() {
     String filename;
     if (testsTable.getSelectedRow() != -1) { // if user selected a jmx file, then use the filename with CSV extension
@@ -223,51 +380,153 @@ public class CampspotGui extends JFrame {
     if (selectedCampsites.size() > 0 && day > 0) {
       // append csv extension if user has not provide the csv extension
       if (!filename.toLowerCase().endsWith(".csv")) filename += ".csv";
-      try (
-          Writer writer = Files.newBufferedWriter(Paths.get("Data", filename));
-          CSVWriter csvWriter = new CSVWriter(writer,
-              CSVWriter.DEFAULT_SEPARATOR,
-              CSVWriter.NO_QUOTE_CHARACTER,
-              CSVWriter.DEFAULT_ESCAPE_CHARACTER,
-              CSVWriter.DEFAULT_LINE_END)
-      ) {
-        String[] headerRecord = {"email", "campsite id", "park id", "type", "check in day", "check in month", "checkin year",
-            "checkout day", "checkout date", "checkout year"};
-        csvWriter.writeNext(headerRecord);
-
-        Date inDate = (Date) checkinDatePicker.getJDateInstantPanel().getModel().getValue();
-        int emailIndex = 1; // start of index in email address
-        int maxEmailIndex = 1000; // end of index in email address
-        String emailTemplate = "LoadtestUser+%d@campspot.com";
-        for (Campsite campsite : selectedCampsites) {
-          for (int i = 0; i < day; i++) {
-            Calendar inCalendar = Calendar.getInstance();
-            inCalendar.setTime(inDate);
-            inCalendar.add(Calendar.DATE, i);
-            Calendar outCalendar = Calendar.getInstance();
-            outCalendar.setTime(inDate);
-            outCalendar.add(Calendar.DATE, i + 1);
-            String[] row = new String[]{
-                String.format(emailTemplate, ((emailIndex - 1) % maxEmailIndex) + 1), // email index is increased to 1000 and comeback to 1 again
-                campsite.id, campsite.parkId, campsite.type,
-                String.valueOf(inCalendar.get(Calendar.DAY_OF_MONTH)),
-                String.valueOf(inCalendar.get(Calendar.MONTH) + 1),
-                String.valueOf(inCalendar.get(Calendar.YEAR)),
-                String.valueOf(outCalendar.get(Calendar.DAY_OF_MONTH)),
-                String.valueOf(outCalendar.get(Calendar.MONTH) + 1),
-                String.valueOf(outCalendar.get(Calendar.YEAR)),
-            };
-            csvWriter.writeNext(row);
-            emailIndex++;
+      Date inDate = (Date) checkinDatePicker.getJDateInstantPanel().getModel().getValue();
+      LocalDate checkin = inDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+      DataGenerator generator = new DataGenerator(campsites, selectedCampsites, checkin, (int) day);
+      runGenerator(generator, Paths.get("Data", filename));
+    }
+  }
+
+  /**
+   * Generate one data file from a scenario file listing parks, campsite types, date ranges and shares.
+   */
+  private void generateScenarioData() {
+    JFileChooser chooser = new JFileChooser(new File("Scenarios"));
+    if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+    File scenario = chooser.getSelectedFile();
+    List<Segment> segments = new ArrayList<>();
+    try {
+      for (ScenarioEntry entry : Helper.readScenario(scenario)) {
+        segments.add(Segment.of(entry, campsites));
+      }
+    } catch (IOException | RuntimeException e) {
+      e.printStackTrace();
+      JOptionPane.showMessageDialog(this, "Cannot read scenario " + scenario.getName() + ": " + e.getMessage(),
+          "Error", JOptionPane.ERROR_MESSAGE);
+      return;
+    }
+    String filename = JOptionPane.showInputDialog(this, "Please enter new filename:", scenario.getName());
+    if (filename == null) return;
+    if (!filename.toLowerCase().endsWith(".csv")) filename += ".csv";
+    runGenerator(new DataGenerator(segments), Paths.get("Data", filename));
+  }
+
+  /**
+   * Run data generator in background, show its progress and let user cancel it.
+   *
+   * @param generator configured generator
+   * @param target    target file
+   */
+  private void runGenerator(DataGenerator generator, Path target) {
+    try {
+      generator.setIdentities(IdentityAllocator.fromConfig(config));
+      generator.setTrafficSkew(TrafficSkew.fromConfig(config));
+      generator.setStayLengths(StayLengths.fromConfig(config));
+    } catch (IllegalArgumentException e) {
+      JOptionPane.showMessageDialog(this, "Invalid generator settings: " + e.getMessage(), "Error",
+          JOptionPane.ERROR_MESSAGE);
+      return;
+    }
+    ProgressMonitor monitor = new ProgressMonitor(this, "Generating " + target.getFileName(), null, 0, 100);
+    generateButton.setEnabled(false);
+    new SwingWorker<Long, Long>() {
+      private volatile long total;
+
+      @Override
+      protected Long doInBackground() throws Exception {
+        generator.configure(); // counting stays or building the skewed sampler takes a while
+        total = generator.getTotalRows();
+        return generator.generate(target, this::publish, Helper.getGeneratorThreads(config));
+      }
+
+      @Override
+      protected void process(List<Long> chunks) {
+        long rows = chunks.get(chunks.size() - 1);
+        monitor.setProgress((int) (rows * 100 / Math.max(total, 1)));
+        monitor.setNote(rows + " / " + total + " rows");
+        if (monitor.isCanceled()) generator.cancel();
+      }
+
+      @Override
+      protected void done() {
+        monitor.close();
+        updateTotalLabel();
+        try {
+          System.out.println("Generated file: " + target.getFileName() + " (" + get() + " rows)");
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof CancellationException) {
+            System.out.println("Cancelled generating file: " + target.getFileName());
+          } else if (e.getCause() instanceof IllegalArgumentException) {
+            JOptionPane.showMessageDialog(CampspotGui.this, "Invalid generator settings: " +
+                e.getCause().getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+          } else {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(CampspotGui.this, "Cannot generate " + target.getFileName(), "Error",
+                JOptionPane.ERROR_MESSAGE);
           }
         }
-        System.out.println("Generated file: " + filename);
+      }
+    }.execute();
+  }
+
+  /**
+   * Merge the catalog changes of the server into the catalog files in the background, then show the merged parks
+   * and campsites.
+   */
+  private void syncCatalog() {
+    if (controlPlane == null) return; // configuration not loaded yet
+    syncItem.setEnabled(false);
+    statusLabel.setText("Syncing catalog...");
+    new SwingWorker<CatalogChanges, Void>() {
+      private List<Park> syncedParks;
+      private Map<String, Park> syncedParksMap;
+      private CampsiteStore syncedCampsites;
+      private CatalogIndex syncedIndex;
 
-        refreshDataTable();
-      } catch (IOException e) {
-        throw new RuntimeException(e);
+      @Override
+      protected CatalogChanges doInBackground() throws Exception {
+        CatalogSync.Result synced = Helper.syncCatalog(controlPlane);
+        syncedParks = synced.parks;
+        syncedParksMap = new HashMap<>();
+        for (Park park : syncedParks) {
+          syncedParksMap.put(park.id, park);
+        }
+        // only accept campsites belong to existing parks
+        syncedCampsites = synced.store.retainParks(syncedParksMap::containsKey);
+        syncedIndex = new CatalogIndex(syncedParks, synced.store);
+        return synced.changes;
       }
-    }
+
+      @Override
+      protected void done() {
+        syncItem.setEnabled(true);
+        CatalogChanges changes;
+        try {
+          changes = get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+          cause.printStackTrace();
+          statusLabel.setText("Catalog sync failed");
+          JOptionPane.showMessageDialog(CampspotGui.this, "Cannot sync catalog: " + cause.getMessage(), "Error",
+              JOptionPane.ERROR_MESSAGE);
+          return;
+        }
+        parks = syncedParks;
+        parksMap = syncedParksMap;
+        campsites = syncedCampsites;
+        catalogIndex = syncedIndex;
+        parkSearchField.setEnabled(true);
+        fillParks();
+        updateTotalLabel();
+        statusLabel.setText("Catalog at version " + changes.getVersion() + ": " +
+            (changes.isEmpty() ? "up to date" : changes.toString()));
+      }
+    }.execute();
   }
 
   private void initializeUi() {
@@ -276,7 +535,20 @@ public class CampspotGui extends JFrame {
 
     testsTable.setDefaultEditor(Object.class, null);
     dataTable.setDefaultEditor(Object.class, null);
-    exitBtn.addActionListener(e -> System.exit(0));
+    dataTable.addMouseListener(new MouseAdapter() {
+      @Override
+      public void mouseClicked(MouseEvent e) {
+        if (e.getClickCount() == 2) previewDataFile();
+      }
+    });
+    // an open preview follows the selected data file
+    dataTable.getSelectionModel().addListSelectionListener(e -> {
+      if (!e.getValueIsAdjusting() && previewDialog != null && previewDialog.isVisible()) previewDataFile();
+    });
+    exitBtn.addActionListener(e -> {
+      runManager.cancelAll();
+      System.exit(0);
+    });
     exitBtn.setMnemonic(KeyEvent.VK_X);
     runBtn.addActionListener(e -> {
       if (testsTable.getSelectedRow() != -1) {
@@ -289,6 +561,37 @@ public class CampspotGui extends JFrame {
     });
     generateButton.addActionListener(e -> generateData());
     generateButton.setEnabled(false);
+    viewDetailBtn.addActionListener(e -> viewTestResults());
+    viewDetailBtn.setVisible(true);
+
+    // search box above the park table, filtering it on every keystroke
+    parkSearchField = new JTextField();
+    parkSearchField.setToolTipText("Park id or name, campsite id or name");
+    parkSearchField.setEnabled(false);
+    parkSearchField.getDocument().addDocumentListener(new DocumentListener() {
+      @Override
+      public void insertUpdate(DocumentEvent e) {
+        searchParks();
+      }
+
+      @Override
+      public void removeUpdate(DocumentEvent e) {
+        searchParks();
+      }
+
+      @Override
+      public void changedUpdate(DocumentEvent e) {
+      }
+    });
+    JScrollPane parkScrollPane = (JScrollPane) SwingUtilities.getAncestorOfClass(JScrollPane.class, parkTable);
+    Container parkPanel = parkScrollPane.getParent();
+    GridConstraints parkConstraints = ((GridLayoutManager) parkPanel.getLayout())
+        .getConstraintsForComponent(parkScrollPane);
+    JPanel searchPanel = new JPanel(new BorderLayout(0, 2));
+    parkPanel.remove(parkScrollPane);
+    searchPanel.add(parkSearchField, BorderLayout.NORTH);
+    searchPanel.add(parkScrollPane, BorderLayout.CENTER);
+    parkPanel.add(searchPanel, parkConstraints);
 
     // when user selects item in workflow table, set name text field to selected value
     testsTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -313,6 +616,45 @@ public class CampspotGui extends JFrame {
     iconLabel.setIcon(new ImageIcon(Objects.requireNonNull(getClass().getClassLoader().getResource("icon.png"))));
     iconLabel.setText("");
 
+    JMenuBar menuBar = new JMenuBar();
+    JMenu dataMenu = new JMenu("Data");
+    dataMenu.setMnemonic(KeyEvent.VK_D);
+    scenarioItem = new JMenuItem("Generate from Scenario...");
+    scenarioItem.addActionListener(e -> generateScenarioData());
+    dataMenu.add(scenarioItem);
+    JMenuItem previewItem = new JMenuItem("Preview Data File");
+    previewItem.addActionListener(e -> previewDataFile());
+    dataMenu.add(previewItem);
+    dataMenu.addSeparator();
+    syncItem = new JMenuItem("Sync Catalog");
+    syncItem.addActionListener(e -> syncCatalog());
+    dataMenu.add(syncItem);
+    menuBar.add(dataMenu);
+    JMenu runMenu = new JMenu("Run");
+    runMenu.setMnemonic(KeyEvent.VK_R);
+    JMenuItem runsItem = new JMenuItem("Local Runs");
+    runsItem.addActionListener(e -> showRuns(null));
+    runMenu.add(runsItem);
+    distributedItem = new JMenuItem("Distributed Run...");
+    distributedItem.addActionListener(e -> runDistributedJmeterTest());
+    runMenu.add(distributedItem);
+    nativeLoadItem = new JMenuItem("Native Load Test...");
+    nativeLoadItem.addActionListener(e -> runNativeLoadTest());
+    runMenu.add(nativeLoadItem);
+    JMenuItem historyItem = new JMenuItem("Run History");
+    historyItem.addActionListener(e -> showHistory());
+    runMenu.add(historyItem);
+    menuBar.add(runMenu);
+    this.setJMenuBar(menuBar);
+
+    // status bar showing load progress
+    JPanel statusPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+    loadProgressBar = new JProgressBar(0, 4);
+    statusLabel = new JLabel("Loading...");
+    statusPanel.add(loadProgressBar);
+    statusPanel.add(statusLabel);
+    mainPanel.add(statusPanel, BorderLayout.SOUTH);
+
     this.pack();
   }
 
@@ -334,74 +676,60 @@ public class CampspotGui extends JFrame {
     if (localRadioButton.isSelected()) {
       showLocalTests();
     } else {
-      requestData(testsTable, config.getProperty("campspotServer") + "/internal/ViewTestList.aspx?tool=JMeter&a=" +
-          config.getProperty("accountId"));
+      showRemoteTests();
     }
   }
 
   /**
-   * Call the RunJMeterTest.aspx URL to run the tests, then open browser ViewTestStatus.aspx?cancel=no
+   * Show the tests of the remote server. The list is cached by the client, so switching between local and remote
+   * only asks the server again when the cached list is old.
    */
-  private void runRemoteJmeterTest(String testName) {
-    try {
-      testName = URLEncoder.encode(testName, StandardCharsets.UTF_8.toString());
-    } catch (UnsupportedEncodingException ex) {
-      throw new RuntimeException(ex);
-    }
-    String url = config.get("campspotServer")
-        + "/internal/RunJMeterTest.aspx?name=" + testName
-        + "&accountID=" + config.getProperty("accountId");
-
-    System.out.println("Requesting: " + url);
-    Request request = new Request.Builder().url(url).build();
-    Call call = client.newCall(request);
-    call.enqueue(new ShowErrorCallback("Cannot run test") {
-      public void onResponse(Call call, Response response)
-          throws IOException {
-        try (ResponseBody responseBody = response.body()) {
-          if (!response.isSuccessful()) throw new IOException("Unexpected code " + response);
-          // open browser for user to view status of the test
-          String url = config.get("campspotServer")
-              + "/internal/ViewTestStatus.aspx?cancel=no";
-          Helper.openWebpage(new URL(url));
-        } catch (MalformedURLException e) {
-          throw new RuntimeException(e);
-        }
+  private void showRemoteTests() {
+    controlPlane.getTests(false).whenCompleteAsync((tests, e) -> {
+      if (!remoteRadioButton.isSelected()) return; // switched back to local meanwhile
+      if (e != null) {
+        e.printStackTrace();
+        JOptionPane.showMessageDialog(this, "Cannot get tests from " + config.getProperty("campspotServer") + ": " +
+            e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        return;
       }
-    });
+      DefaultTableModel model = new DefaultTableModel(new Object[]{"Name"}, 0);
+      for (String test : tests) {
+        model.addRow(new Object[]{test});
+      }
+      testsTable.setModel(model);
+    }, SwingUtilities::invokeLater);
   }
 
   /**
-   * Get data for the tests list.
+   * Ask the remote server to run a test, then follow its status in the remote status window.
    */
-  private void requestData(JTable table, String url) {
-    Request request = new Request.Builder().url(url).build();
-
-    Call call = client.newCall(request);
-    call.enqueue(new ShowErrorCallback("Cannot get data from " + url) {
-      public void onResponse(Call call, Response response)
-          throws IOException {
-        try (ResponseBody responseBody = response.body()) {
-          if (!response.isSuccessful()) throw new IOException("Unexpected code " + response);
-          String text = responseBody.string();
-          // only get the raw text part, ignore the HTML part
-          int index = text.indexOf("<!DOCTYPE");
-          if (index > -1) {
-            text = text.substring(0, index - 1);
-          }
-          List<String> tokens = Arrays.asList(text.split(","));
-          table.getTableHeader().setUI((null));
-          DefaultTableModel model = (DefaultTableModel) table.getModel();
-          model.setRowCount(0);
-          if (model.getColumnCount() == 0) {
-            model.addColumn("Name");
-          }
-          for (int i = 0; i < tokens.size() / 2; i++) {
-            model.addRow(new Object[]{tokens.get(i * 2 + 1)});
+  private void runRemoteJmeterTest(String testName) {
+    controlPlane.runTest(testName).whenCompleteAsync((ignored, e) -> {
+      if (e != null) {
+        e.printStackTrace();
+        JOptionPane.showMessageDialog(this, "Cannot run test: " + e.getMessage(), "Error",
+            JOptionPane.ERROR_MESSAGE);
+        return;
+      }
+      if (remoteStatusDialog == null) {
+        remoteStatusPanel = new RemoteStatusPanel(controlPlane,
+            ControlPlaneClient.finishedWhen(config.getProperty("remoteFinishedPattern", "finished")));
+        remoteStatusDialog = new JDialog(this, "Remote Run Status", false);
+        remoteStatusDialog.setContentPane(remoteStatusPanel);
+        remoteStatusDialog.setDefaultCloseOperation(WindowConstants.HIDE_ON_CLOSE);
+        remoteStatusDialog.addWindowListener(new WindowAdapter() {
+          @Override
+          public void windowClosing(WindowEvent event) {
+            remoteStatusPanel.stop();
           }
-        }
+        });
+        remoteStatusDialog.pack();
+        remoteStatusDialog.setLocationRelativeTo(this);
       }
-    });
+      remoteStatusPanel.follow(testName);
+      remoteStatusDialog.setVisible(true);
+    }, SwingUtilities::invokeLater);
   }
 
   /**
@@ -409,65 +737,267 @@ public class CampspotGui extends JFrame {
    * @param jmxFile name of jmx file in Tests folder
    */
   private void runJmeterTest(String jmxFile) {
-    // when somebody selects a test to run and data file to use, copy the datafile to "campsites.csv" before running the test
-    if (dataTable.getSelectedRow() != -1 &&
-        !dataTable.getValueAt(dataTable.getSelectedRow(), 0).toString().equals("campsites.csv")) {
-      try {
-        Files.copy(Paths.get("Data/" + dataTable.getValueAt(dataTable.getSelectedRow(), 0).toString()),
-            Paths.get("Data/campsites.csv"), StandardCopyOption.REPLACE_EXISTING);
-        refreshDataTable();
-      } catch (IOException e) {
-        throw new RuntimeException(e);
+    // when somebody selects a test to run and data file to use, the run reads it through a link in its own folder
+    String dataFile = dataTable.getSelectedRow() != -1 ?
+        dataTable.getValueAt(dataTable.getSelectedRow(), 0).toString() : "campsites.csv";
+    RunFolder runFolder;
+    try {
+      runFolder = Helper.createRunFolder(jmxFile, dataFile);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    String command = Helper.getJmeterCommand(config, jmxFile, runFolder);
+
+    // the run manager owns the process, so the UI is not blocked while the test runs
+    LocalRun run = runManager.start(jmxFile, RunManager.shellCommand(command), runFolder.getDirectory().toFile(),
+        Helper.getResultFile(jmxFile));
+    run.getLog().append("Working folder " + runFolder);
+    String selection = getSelectionDescription();
+    run.getCompletion().thenAccept(finished -> {
+      runFolder.release();
+      saveRunSummary(finished, dataFile, selection);
+    });
+    showRuns(run);
+  }
+
+  /**
+   * Run the selected test on several JMeter engines, each with its own shard of the selected data file. Engines are
+   * the remoteEngines hosts of the config file, or jmeter-server processes started on this machine.
+   */
+  private void runDistributedJmeterTest() {
+    if (testsTable.getSelectedRow() == -1) {
+      JOptionPane.showMessageDialog(this, "Please select a test.", "Distributed Run", JOptionPane.WARNING_MESSAGE);
+      return;
+    }
+    String jmxFile = testsTable.getValueAt(testsTable.getSelectedRow(), 0).toString();
+    String dataFile = dataTable.getSelectedRow() != -1 ?
+        dataTable.getValueAt(dataTable.getSelectedRow(), 0).toString() : "campsites.csv";
+    List<String> hosts = new ArrayList<>();
+    for (String host : config.getProperty("remoteEngines", "").split(",")) {
+      if (!host.trim().isEmpty()) hosts.add(host.trim());
+    }
+    int engines = hosts.size();
+    if (hosts.isEmpty()) {
+      JSpinner enginesSpinner = new JSpinner(new SpinnerNumberModel(
+          Math.max(2, Runtime.getRuntime().availableProcessors() / 2), 1, 64, 1));
+      if (JOptionPane.showConfirmDialog(this, enginesSpinner, "Number of local engines", JOptionPane.OK_CANCEL_OPTION,
+          JOptionPane.PLAIN_MESSAGE) != JOptionPane.OK_OPTION) {
+        return;
       }
+      engines = (Integer) enginesSpinner.getValue();
     }
-    String os = System.getProperty("os.name").toLowerCase();
-    String command = config.getProperty("jmeter_home") + System.getProperty("file.separator") +
-        "jmeter -n -t Tests" + System.getProperty("file.separator") + jmxFile +
-        " -l Results" + System.getProperty("file.separator") + jmxFile.replaceAll(".jmx", ".jtl");
-
-    // invoke the command by SwingUtilities so that the UI is not blocked when the new command runs
-    SwingUtilities.invokeLater(() -> {
-      try {
-        Process process;
-        System.out.println("Running command: " + command);
-        ProcessBuilder processBuilder = new ProcessBuilder();
-        if (os.contains("win")) {
-          processBuilder.command("cmd.exe", "/c", command);
-        } else {
-          processBuilder.command("bash", "-c", command);
+    String basePort = config.getProperty("engineBasePort", "");
+    Path resultFile = Helper.getResultFile(jmxFile);
+    DistributedRun task = new DistributedRun(config.getProperty("jmeter_home"), jmxFile, Paths.get("Data", dataFile),
+        resultFile, engines, hosts, basePort.trim().isEmpty() ? 2099 : Integer.parseInt(basePort.trim()));
+    LocalRun run = runManager.startTask(jmxFile + " x" + task.getEngineCount(),
+        Arrays.asList(jmxFile, "on", task.getEngineCount() + " engines", "with", dataFile), task, resultFile);
+    String selection = getSelectionDescription();
+    run.getCompletion().thenAccept(finished -> saveRunSummary(finished, dataFile, selection));
+    showRuns(run);
+  }
+
+  /**
+   * Send requests built from a data file at a fixed rate from this JVM, instead of running JMeter.
+   */
+  private void runNativeLoadTest() {
+    List<String> dataFiles = new ArrayList<>();
+    String[] contents = new File("Data").list();
+    if (contents != null) {
+      for (String content : contents) {
+        if (content.toLowerCase().endsWith(".csv")) dataFiles.add(content);
+      }
+    }
+    Collections.sort(dataFiles);
+    String selectedFile = dataTable.getSelectedRow() != -1 ?
+        dataTable.getValueAt(dataTable.getSelectedRow(), 0).toString() : null;
+    LoadTestPanel form = new LoadTestPanel(dataFiles, selectedFile, config);
+    if (JOptionPane.showConfirmDialog(this, form, "Native Load Test", JOptionPane.OK_CANCEL_OPTION,
+        JOptionPane.PLAIN_MESSAGE) != JOptionPane.OK_OPTION || form.getDataFile() == null) {
+      return;
+    }
+
+    String dataFile = form.getDataFile();
+    RequestTemplate template = new RequestTemplate(form.getMethod(), form.getUrl(), form.getBody());
+    StubServer stub = null;
+    try {
+      if (form.getStubDelay() >= 0) {
+        stub = new StubServer(0, form.getStubDelay());
+        template = template.withBaseUrl(stub.getUrl());
+      }
+    } catch (IOException e) {
+      JOptionPane.showMessageDialog(this, "Cannot start stub server: " + e.getMessage(), "Error",
+          JOptionPane.ERROR_MESSAGE);
+      return;
+    }
+    Path resultFile = Paths.get("Results", dataFile.replaceAll("\\.csv$", "") + "-native.jtl");
+    LoadEngine engine = new LoadEngine(client, template, Paths.get("Data", dataFile), resultFile,
+        config.getProperty("loadLabel", "Booking"), form.getRate(), form.getDuration(), form.getMaxConcurrency());
+    String name = "native " + dataFile;
+    LocalRun run = runManager.startTask(name, Arrays.asList(template.getMethod(), template.getUrl(),
+        form.getRate() + "/s", form.getDuration() + "s"), engine, resultFile);
+    String selection = getSelectionDescription();
+    StubServer startedStub = stub;
+    run.getCompletion().thenAccept(finished -> {
+      if (startedStub != null) startedStub.close();
+      saveRunSummary(finished, dataFile, selection);
+    });
+    showRuns(run);
+  }
+
+  /**
+   * @return selected park and campsite type, for the run history
+   */
+  private String getSelectionDescription() {
+    String parkId = getSelectedParkId();
+    if (parkId == null) return "";
+    String type = campsiteTypes.get(campsiteTypeButtonGroup.getSelection().getActionCommand());
+    Park park = parksMap != null ? parksMap.get(parkId) : null;
+    return "Park " + parkId + (park != null ? " " + park.name : "") + ", " + type;
+  }
+
+  /**
+   * Summarize the samples a finished run appended to its result file and store the summary in the run history.
+   * Called from the run manager's thread.
+   */
+  private void saveRunSummary(LocalRun run, String dataFile, String selection) {
+    try {
+      RunSummary summary = Helper.saveRunSummary(runHistory, run, dataFile, selection);
+      if (summary == null) return;
+      run.getLog().append("Saved run summary #" + summary.getId() + " to run history");
+      SwingUtilities.invokeLater(() -> {
+        if (historyPanel != null) historyPanel.refresh();
+      });
+    } catch (IOException | RuntimeException e) {
+      run.getLog().append("Cannot save run summary: " + e);
+    }
+  }
+
+  /**
+   * Show the rows of the selected data file in a window that follows the selection.
+   */
+  private void previewDataFile() {
+    if (dataFolder == null) return;
+    if (dataTable.getSelectedRow() == -1) {
+      JOptionPane.showMessageDialog(this, "Please select a data file.", "Preview", JOptionPane.WARNING_MESSAGE);
+      return;
+    }
+    if (previewDialog == null) {
+      previewPanel = new DataPreviewPanel(dataFolder);
+      previewDialog = new JDialog(this, "Data Preview", false);
+      previewDialog.setContentPane(previewPanel);
+      previewDialog.addWindowListener(new WindowAdapter() {
+        @Override
+        public void windowClosing(WindowEvent e) {
+          previewPanel.close(); // stops indexing and searching the file
+        }
+      });
+      previewDialog.pack();
+      previewDialog.setLocationRelativeTo(this);
+    }
+    previewPanel.show(dataTable.getValueAt(dataTable.getSelectedRow(), 0).toString());
+    previewDialog.setVisible(true);
+  }
+
+  /**
+   * Show window with past runs and their comparison with a baseline.
+   */
+  private void showHistory() {
+    if (historyDialog == null) {
+      historyPanel = new HistoryPanel(runHistory);
+      historyDialog = new JDialog(this, "Run History", false);
+      historyDialog.setContentPane(historyPanel);
+      historyDialog.pack();
+      historyDialog.setLocationRelativeTo(this);
+    } else {
+      historyPanel.refresh();
+    }
+    historyDialog.setVisible(true);
+  }
+
+  /**
+   * Analyze the result file of the selected test, or a result file chosen by user, and show the detailed results.
+   */
+  private void viewTestResults() {
+    File resultFile = null;
+    if (testsTable.getSelectedRow() != -1) {
+      String jmxFile = testsTable.getValueAt(testsTable.getSelectedRow(), 0).toString();
+      resultFile = Helper.getResultFile(jmxFile).toFile();
+    }
+    if (resultFile == null || !resultsFolder.contains(resultFile.getName())) {
+      JFileChooser chooser = new JFileChooser(new File("Results"));
+      FileNameExtensionFilter results = new FileNameExtensionFilter("JMeter results", "jtl", "csv");
+      chooser.setFileFilter(new FileFilter() {
+        @Override
+        public boolean accept(File file) {
+          return results.accept(file) && !HostMonitor.isTimeline(file.toPath()); // also CSV, but not samples
         }
-        process = processBuilder.start();
-        BufferedReader reader = new BufferedReader(
-            new InputStreamReader(process.getInputStream()));
-        String line;
-        while ((line = reader.readLine()) != null) {
-          System.out.println(line);
+
+        @Override
+        public String getDescription() {
+          return results.getDescription();
         }
-        int exitVal = process.waitFor();
-        if (exitVal == 0) {
-          System.out.println("Success!");
-        } else {
-          System.out.println("Abnormal!");
+      });
+      if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+      resultFile = chooser.getSelectedFile();
+    }
+    Path target = resultFile.toPath();
+    long size = resultFile.length();
+    JtlAnalyzer analyzer = new JtlAnalyzer(target);
+    ProgressMonitor monitor = new ProgressMonitor(this, "Analyzing " + target.getFileName(), null, 0, 100);
+    viewDetailBtn.setEnabled(false);
+    new SwingWorker<JtlReport, Long>() {
+      @Override
+      protected JtlReport doInBackground() throws Exception {
+        return analyzer.analyze(this::publish, Runtime.getRuntime().availableProcessors());
+      }
+
+      @Override
+      protected void process(List<Long> chunks) {
+        long bytes = chunks.get(chunks.size() - 1);
+        monitor.setProgress((int) (bytes * 100 / Math.max(size, 1)));
+        monitor.setNote(bytes / (1 << 20) + " / " + size / (1 << 20) + " MB");
+        if (monitor.isCanceled()) analyzer.cancel();
+      }
+
+      @Override
+      protected void done() {
+        monitor.close();
+        viewDetailBtn.setEnabled(true);
+        try {
+          JDialog dialog = new JDialog(CampspotGui.this, "Test Results: " + target.getFileName(), false);
+          dialog.setContentPane(new ReportPanel(get()));
+          dialog.pack();
+          dialog.setLocationRelativeTo(CampspotGui.this);
+          dialog.setVisible(true);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+          if (!(e.getCause() instanceof CancellationException)) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(CampspotGui.this, "Cannot analyze " + target.getFileName() + ": " +
+                e.getCause().getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+          }
         }
-      } catch (IOException | InterruptedException e) {
-        e.printStackTrace();
-        throw new RuntimeException(e);
       }
-    });
+    }.execute();
   }
 
-  private void refreshDataTable() {
-    // refresh list of file in Data folder
-    DefaultTableModel model = (DefaultTableModel) dataTable.getModel();
-    model.setRowCount(0);
-    File dataDir = new File("Data");
-    String[] contents = dataDir.list();
-    for (String content : contents) {
-      System.out.println(content);
-      model.addRow(new Object[]{content});
+  /**
+   * Show window with local runs and their logs.
+   *
+   * @param run run to select, may be null
+   */
+  private void showRuns(LocalRun run) {
+    if (runsDialog == null) {
+      runsPanel = new RunsPanel(runManager);
+      runsDialog = new JDialog(this, "Local Runs", false);
+      runsDialog.setContentPane(runsPanel);
+      runsDialog.pack();
+      runsDialog.setLocationRelativeTo(this);
     }
-    model.fireTableDataChanged();
-    dataTable.repaint();
+    if (run != null) runsPanel.select(run);
+    runsDialog.setVisible(true);
   }
 
   private void addRadioButtonToCampsiteGroup(ButtonGroup group, JRadioButton button, ActionListener listener, String actionCommand) {
@@ -2,20 +2,41 @@ package net.campspot;
 
 import com.opencsv.CSVReader;
 import com.opencsv.bean.CsvToBeanBuilder;
-import com.opencsv.bean.CsvToBeanFilter;
-import net.campspot.models.Campsite;
+import com.opencsv.exceptions.CsvValidationException;
+import net.campspot.catalog.CampsiteSnapshot;
+import net.campspot.catalog.CatalogChanges;
+import net.campspot.catalog.CatalogSync;
+import net.campspot.catalog.CampsiteStore;
+import net.campspot.metrics.CatalogLoadEvent;
+import net.campspot.metrics.ToolMetrics;
 import net.campspot.models.Park;
+import net.campspot.models.ScenarioEntry;
+import net.campspot.remote.ControlPlaneClient;
+import net.campspot.remote.ControlPlaneStub;
+import net.campspot.results.JtlAnalyzer;
+import net.campspot.results.JtlReport;
+import net.campspot.results.RunHistory;
+import net.campspot.results.RunSummary;
+import net.campspot.runner.LocalRun;
+import net.campspot.runner.RunFolder;
+import okhttp3.OkHttpClient;
 
 import java.awt.*;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 public class Helper {
   private static void openWebpage(URI uri) {
@@ -48,8 +69,18 @@ public class Helper {
    * @return result list of parks
    */
   public static List<Park> readParks() {
+    return readParks(Paths.get("parks.csv"));
+  }
+
+  /**
+   * Read a parks CSV file.
+   *
+   * @param csv parks CSV file
+   * @return result list of parks
+   */
+  public static List<Park> readParks(Path csv) {
     try {
-      return new CsvToBeanBuilder<Park>(new FileReader("parks.csv"))
+      return new CsvToBeanBuilder<Park>(new FileReader(csv.toFile()))
           .withType(Park.class).build().parse();
     } catch (FileNotFoundException e) {
       e.printStackTrace();
@@ -58,35 +89,247 @@ public class Helper {
   }
 
   /**
-   * Read all campsites to a map with key as parkId, value as list of campsites
+   * Read all campsites to a columnar store grouped by park and type
+   * @param parksMap list of parks
+   * @return store of campsites
+   */
+  public static CampsiteStore readCampsites(Map<String, Park> parksMap) {
+    return readCampsites(Paths.get("all-campsites.csv"), parksMap);
+  }
+
+  /**
+   * Read all campsites to a columnar store grouped by park and type.
+   * @param csv campsites CSV file
    * @param parksMap list of parks
-   * @return map of list of campsites
+   * @return store of campsites, only campsites belong to existing parks
    */
-  public static Map<String, List<Campsite>> readCampsites(Map<String, Park> parksMap) {
-    // convert parks list to map list and initiate the result map
-    Map<String, List<Campsite>> result = new HashMap<>();
-    for (String id : parksMap.keySet()) {
-      result.put(id, new ArrayList<>());
+  public static CampsiteStore readCampsites(Path csv, Map<String, Park> parksMap) {
+    // only accept campsites belong to existing parks
+    return readAllCampsites(csv).retainParks(parksMap::containsKey);
+  }
+
+  /**
+   * Read campsites of all parks from all-campsites.csv to a columnar store grouped by park and type.
+   * @return store of campsites
+   */
+  public static CampsiteStore readAllCampsites() {
+    return readAllCampsites(Paths.get("all-campsites.csv"));
+  }
+
+  /**
+   * Read campsites of all parks to a columnar store grouped by park and type. Campsites are loaded from the
+   * binary snapshot next to the CSV file, the snapshot is rebuilt when the CSV file has changed.
+   * @param csv campsites CSV file
+   * @return store of campsites
+   */
+  public static CampsiteStore readAllCampsites(Path csv) {
+    CatalogLoadEvent event = new CatalogLoadEvent();
+    event.begin();
+    long start = System.nanoTime();
+    Path snapshot = CampsiteSnapshot.pathFor(csv);
+    CampsiteStore store = CampsiteSnapshot.read(snapshot, csv);
+    event.source = store == null ? "csv" : "snapshot";
+    if (store == null) {
+      store = parseCampsites(csv);
+      try {
+        CampsiteSnapshot.write(snapshot, csv, store);
+      } catch (IOException e) {
+        System.err.println("Cannot write campsite snapshot " + snapshot);
+        e.printStackTrace();
+      }
     }
+    ToolMetrics.get().catalogLoaded(store.size(), System.nanoTime() - start);
+    event.file = csv.toString();
+    event.campsites = store.size();
+    event.commit();
+    return store;
+  }
 
-    // parse all-campsites.csv, only accept campsites belong to existing parks
-    CSVReader reader;
-    try {
-      reader = new CSVReader(new FileReader("all-campsites.csv"));
-    } catch (FileNotFoundException e) {
+  /**
+   * Parse campsites CSV file, columns are looked up by name in the header line.
+   * @param csv campsites CSV file
+   * @return store of campsites of all parks
+   */
+  private static CampsiteStore parseCampsites(Path csv) {
+    CampsiteStore.Builder builder = new CampsiteStore.Builder();
+    try (CSVReader reader = new CSVReader(Files.newBufferedReader(csv))) {
+      String[] header = reader.readNext();
+      if (header == null) return builder.build();
+      int idColumn = indexOf(header, "id");
+      int nameColumn = indexOf(header, "name");
+      int parkColumn = indexOf(header, "ParkID");
+      int typeColumn = indexOf(header, "type");
+      String[] line;
+      while ((line = reader.readNext()) != null) {
+        boolean blankLine = line.length <= parkColumn || line.length == 1 && line[0].trim().isEmpty();
+        if (blankLine) continue;
+        builder.add(line[idColumn],
+            nameColumn >= 0 && nameColumn < line.length ? line[nameColumn] : null,
+            line[parkColumn],
+            typeColumn >= 0 && typeColumn < line.length ? line[typeColumn] : null);
+      }
+    } catch (IOException | CsvValidationException e) {
+      throw new RuntimeException(e);
+    }
+    if (builder.getSkipped() > 0) {
+      System.err.println("Skipped " + builder.getSkipped() + " campsites of " + csv +
+          " whose id is not a number without leading zeros, first: \"" + builder.getFirstSkipped() + "\"");
+    }
+    return builder.build();
+  }
+
+  private static int indexOf(String[] header, String column) {
+    for (int i = 0; i < header.length; i++) {
+      if (column.equalsIgnoreCase(header[i].trim())) return i;
+    }
+    if ("id".equals(column) || "ParkID".equals(column)) {
+      throw new IllegalArgumentException("Missing column " + column + " in campsites file");
+    }
+    return -1;
+  }
+
+  /**
+   * Read scenario file, one line per park, campsite type and date range to generate data for.
+   *
+   * @param file scenario CSV file
+   * @return scenario lines
+   */
+  public static List<ScenarioEntry> readScenario(File file) throws FileNotFoundException {
+    return new CsvToBeanBuilder<ScenarioEntry>(new FileReader(file))
+        .withType(ScenarioEntry.class).build().parse();
+  }
+
+  /**
+   * Load configuration file.
+   *
+   * @return configuration from config.properties
+   */
+  public static Properties readConfiguration() {
+    Properties config = new Properties();
+    try (FileReader inputStream = new FileReader("config.properties")) {
+      config.load(inputStream);
+    } catch (IOException e) {
       throw new RuntimeException(e);
     }
-    CsvToBeanFilter filter = line -> {
-      boolean blankLine = line.length == 0 || line[0].isEmpty() || parksMap.get(line[2]) == null;
-      return !blankLine;
-    };
-    List<Campsite> campsites = new CsvToBeanBuilder<Campsite>(reader)
-        .withType(Campsite.class).withFilter(filter).build().parse();
-
-    // return result
-    for (Campsite i : campsites) {
-      result.get(i.parkId).add(i);
+    return config;
+  }
+
+  /**
+   * Create Tests, Results, Data and Scenarios folders if they do not exist.
+   */
+  public static void createFolders() {
+    for (String folder : new String[]{"Tests", "Results", "Data", "Scenarios"}) {
+      File dir = new File(folder);
+      if (!dir.exists()) dir.mkdirs();
     }
-    return result;
+  }
+
+  /**
+   * @return number of threads used to generate data, from generatorThreads in config file or number of cores
+   */
+  public static int getGeneratorThreads(Properties config) {
+    String threads = config.getProperty("generatorThreads");
+    return threads == null || threads.trim().isEmpty() ?
+        Runtime.getRuntime().availableProcessors() : Integer.parseInt(threads.trim());
+  }
+
+  /**
+   * @param jmxFile name of jmx file in Tests folder
+   * @return result file JMeter writes for the test
+   */
+  public static Path getResultFile(String jmxFile) {
+    return Paths.get("Results", jmxFile.replaceAll(".jmx", ".jtl"));
+  }
+
+  /**
+   * @param config    configuration with jmeter_home
+   * @param jmxFile   name of jmx file in Tests folder
+   * @param runFolder working folder the test runs in
+   * @return command line running the test in non-GUI mode in its run folder, with the path of its data file as
+   * JMeter property dataFile
+   */
+  public static String getJmeterCommand(Properties config, String jmxFile, RunFolder runFolder) {
+    String separator = System.getProperty("file.separator");
+    return config.getProperty("jmeter_home") + separator + "jmeter -n -t " +
+        quote(Paths.get("Tests", jmxFile).toAbsolutePath()) + " -l " + quote(getResultFile(jmxFile).toAbsolutePath()) +
+        " -JdataFile=" + quote(runFolder.getDataFile());
+  }
+
+  private static String quote(Path path) {
+    return "\"" + path + "\"";
+  }
+
+  /**
+   * Bind a data file to a run without copying it: the run gets its own working folder, in which
+   * Data/campsites.csv is a link to the file.
+   *
+   * @param jmxFile  name of jmx file in Tests folder
+   * @param dataFile name of file in Data folder
+   */
+  public static RunFolder createRunFolder(String jmxFile, String dataFile) throws IOException {
+    return RunFolder.create(Paths.get("Results"), jmxFile, Paths.get("Data", dataFile));
+  }
+
+  /**
+   * @param client shared HTTP client
+   * @param config configuration with campspotServer, accountId and remoteCacheSeconds
+   * @return client of the campspotServer, or of a local stub server listing the local tests and answering catalog
+   * changes from catalog-changes.csv if campspotServer is "stub"
+   */
+  public static ControlPlaneClient createControlPlane(OkHttpClient client, Properties config) {
+    String server = config.getProperty("campspotServer", "").trim();
+    if (server.equals("stub")) {
+      List<String> tests = new ArrayList<>();
+      String[] files = new File("Tests").list();
+      for (String file : files == null ? new String[0] : files) {
+        if (file.toLowerCase().endsWith(".jmx")) tests.add(file);
+      }
+      try {
+        ControlPlaneStub stub = new ControlPlaneStub(0, tests, 60);
+        stub.serveCatalogChanges(Paths.get("catalog-changes.csv"));
+        server = stub.getUrl();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    String ttl = config.getProperty("remoteCacheSeconds", "").trim();
+    return new ControlPlaneClient(client, server, config.getProperty("accountId"),
+        ttl.isEmpty() ? 60 : Long.parseLong(ttl));
+  }
+
+  /**
+   * Fetch the changes of the campsite catalog since the version of the local catalog and merge them into parks.csv,
+   * all-campsites.csv and its snapshot. Without local files, or without catalog.version, the whole catalog is
+   * fetched.
+   *
+   * @param controlPlane client of the server
+   * @return changes merged, empty if the catalog was up to date, with the merged parks and campsites
+   */
+  public static CatalogSync.Result syncCatalog(ControlPlaneClient controlPlane) throws IOException {
+    Path parksCsv = Paths.get("parks.csv");
+    Path campsitesCsv = Paths.get("all-campsites.csv");
+    CatalogSync sync = new CatalogSync(parksCsv, campsitesCsv);
+    CatalogChanges changes = controlPlane.getCatalogChanges(sync.readVersion()).join();
+    return sync.apply(changes, Files.exists(parksCsv) ? readParks(parksCsv) : new ArrayList<>(),
+        Files.exists(campsitesCsv) ? readAllCampsites(campsitesCsv) : new CampsiteStore.Builder().build());
+  }
+
+  /**
+   * Summarize the samples a finished run appended to its result file and store the summary in the run history.
+   *
+   * @param history   run history
+   * @param run       finished run
+   * @param dataFile  data file used by the run
+   * @param selection description of the selected park and campsite type
+   * @return the summary, null if the run wrote no samples
+   */
+  public static RunSummary saveRunSummary(RunHistory history, LocalRun run, String dataFile, String selection)
+      throws IOException {
+    if (run.getStats().getSampleCount() == 0) return null;
+    JtlReport report = new JtlAnalyzer(run.getResultFile(), run.getResultOffset())
+        .analyze(null, Runtime.getRuntime().availableProcessors());
+    RunSummary summary = RunSummary.of(report, run.getName(), dataFile, selection, run.getState().name());
+    history.append(summary);
+    return summary;
   }
 }
@@ -0,0 +1,20 @@
+package net.campspot;
+
+import net.campspot.cli.CommandLine;
+import net.campspot.metrics.ToolMetrics;
+
+/**
+ * Entry point of the jar: without arguments the Swing application is started, with a command the headless command
+ * line runs it without loading AWT or Swing.
+ */
+public class Main {
+  public static void main(String[] args) {
+    ToolMetrics.register();
+    if (args.length == 0) {
+      CampspotGui.main(args);
+      return;
+    }
+    System.setProperty("java.awt.headless", "true");
+    System.exit(new CommandLine(System.out, System.err).run(args));
+  }
+}
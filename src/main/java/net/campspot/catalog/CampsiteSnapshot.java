@@ -0,0 +1,198 @@
+package net.campspot.catalog;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Binary copy of all-campsites.csv holding the columns of a {@link CampsiteStore}, so startup does not reparse
+ * the CSV.
+ * <p>
+ * Layout: header (magic, version, CSV modified time, size and CRC32), park ids, type numbers and name pool as
+ * length prefixed UTF-8, then the int columns: (park, type) range starts, which are the per-park offset table,
+ * ids, type codes and name references. The snapshot is valid while the CSV has the same modified time and size,
+ * or the same size and CRC32.
+ */
+public class CampsiteSnapshot {
+  private static final int MAGIC = 0x43535054; // "CSPT"
+  private static final int VERSION = 2;
+  private static final int MODIFIED_OFFSET = 8;
+
+  private CampsiteSnapshot() {
+
+  }
+
+  /**
+   * @param csv campsites CSV file
+   * @return snapshot file next to the CSV file
+   */
+  public static Path pathFor(Path csv) {
+    String name = csv.getFileName().toString();
+    int dot = name.lastIndexOf('.');
+    return csv.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".bin");
+  }
+
+  /**
+   * Read snapshot with a memory-mapped read.
+   *
+   * @param snapshot snapshot file
+   * @param csv      CSV file the snapshot was built from
+   * @return store of all campsites, or null if snapshot is missing, stale or unreadable
+   */
+  public static CampsiteStore read(Path snapshot, Path csv) {
+    if (!Files.exists(snapshot) || !Files.exists(csv)) return null;
+    try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return null;
+      long modified = buffer.getLong();
+      long size = buffer.getLong();
+      long crc = buffer.getLong();
+
+      long csvModified = Files.getLastModifiedTime(csv).toMillis();
+      if (size != Files.size(csv)) return null;
+      if (modified != csvModified) {
+        // CSV was touched, it is still valid if the content is the same
+        if (crc != checksum(csv)) return null;
+        touch(snapshot, csvModified);
+      }
+
+      String[] parkIds = getStrings(buffer);
+      String[] typeNames = getStrings(buffer);
+      String[] names = getStrings(buffer);
+      int count = buffer.getInt();
+      int[] rangeStarts = getInts(buffer, parkIds.length * typeNames.length + 1);
+      int[] ids = getInts(buffer, count);
+      byte[] types = new byte[count];
+      buffer.get(types);
+      int[] nameRefs = getInts(buffer, count);
+      return new CampsiteStore(parkIds, typeNames, rangeStarts, ids, types, nameRefs, names);
+    } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+      System.err.println("Cannot read campsite snapshot " + snapshot + ", rebuilding it");
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+  /**
+   * Write snapshot of a store. The file is written to a temporary file first and then moved in place.
+   *
+   * @param snapshot snapshot file
+   * @param csv      CSV file the campsites were read from
+   * @param store    store of all campsites
+   */
+  public static void write(Path snapshot, Path csv, CampsiteStore store) throws IOException {
+    Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+    byte[][] parkIds = encode(store.parkIds);
+    byte[][] typeNames = encode(store.typeNames);
+    byte[][] names = encode(store.names);
+    long length = 4 + 4 + 8 + 8 + 8
+        + sizeOf(parkIds) + sizeOf(typeNames) + sizeOf(names) + 4
+        + 4L * store.rangeStarts.length + 4L * store.ids.length + store.types.length + 4L * store.nameRefs.length;
+
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+      buffer.putInt(MAGIC);
+      buffer.putInt(VERSION);
+      buffer.putLong(Files.getLastModifiedTime(csv).toMillis());
+      buffer.putLong(Files.size(csv));
+      buffer.putLong(checksum(csv));
+      putStrings(buffer, parkIds);
+      putStrings(buffer, typeNames);
+      putStrings(buffer, names);
+      buffer.putInt(store.ids.length);
+      putInts(buffer, store.rangeStarts);
+      putInts(buffer, store.ids);
+      buffer.put(store.types);
+      putInts(buffer, store.nameRefs);
+      buffer.force();
+    }
+    Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Store new CSV modified time in snapshot header, so the checksum is not computed on next start.
+   */
+  private static void touch(Path snapshot, long modified) {
+    try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.WRITE)) {
+      ByteBuffer stamp = ByteBuffer.allocate(8);
+      stamp.putLong(0, modified);
+      channel.write(stamp, MODIFIED_OFFSET);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * @return CRC32 of file content
+   */
+  static long checksum(Path file) throws IOException {
+    CRC32 crc = new CRC32();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+      while (channel.read(buffer) > 0) {
+        buffer.flip();
+        crc.update(buffer);
+        buffer.clear();
+      }
+    }
+    return crc.getValue();
+  }
+
+  private static byte[][] encode(String[] values) throws IOException {
+    byte[][] result = new byte[values.length][];
+    for (int i = 0; i < values.length; i++) {
+      result[i] = values[i].getBytes(StandardCharsets.UTF_8);
+      if (result[i].length > 0xFFFF) throw new IOException("Value is too long for campsite snapshot: " + values[i]);
+    }
+    return result;
+  }
+
+  private static long sizeOf(byte[][] values) {
+    long size = 4;
+    for (byte[] value : values) {
+      size += 2 + value.length;
+    }
+    return size;
+  }
+
+  private static void putStrings(ByteBuffer buffer, byte[][] values) {
+    buffer.putInt(values.length);
+    for (byte[] value : values) {
+      buffer.putShort((short) value.length);
+      buffer.put(value);
+    }
+  }
+
+  private static String[] getStrings(ByteBuffer buffer) {
+    String[] values = new String[buffer.getInt()];
+    byte[] scratch = new byte[256];
+    for (int i = 0; i < values.length; i++) {
+      int length = buffer.getShort() & 0xFFFF;
+      byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+      buffer.get(bytes, 0, length);
+      values[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+    return values;
+  }
+
+  private static void putInts(ByteBuffer buffer, int[] values) {
+    buffer.asIntBuffer().put(values);
+    buffer.position(buffer.position() + 4 * values.length);
+  }
+
+  private static int[] getInts(ByteBuffer buffer, int count) {
+    int[] values = new int[count];
+    buffer.asIntBuffer().get(values);
+    buffer.position(buffer.position() + 4 * count);
+    return values;
+  }
+}
@@ -0,0 +1,458 @@
+package net.campspot.catalog;
+
+import net.campspot.models.Campsite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Columnar, read only store of all campsites.
+ * <p>
+ * Campsites are stored in primitive columns (int id, byte type code, index into an interned name pool), grouped by
+ * park and sorted by type inside each park. The start of every (park, type) range is precomputed, so counting the
+ * campsites of a park and type is a lookup and selecting them is a {@link Range} over the columns.
+ */
+public class CampsiteStore {
+  /**
+   * Type numbers known by the tool, they always get the codes 0 to 3.
+   */
+  public static final String[] KNOWN_TYPES = {"0", "1", "2", "3"};
+
+  final String[] parkIds; // park ids in store order
+  final String[] typeNames; // type number of each type code
+  final int[] rangeStarts; // start of (park, type) range at park * types + type, end of the store at the end
+  final int[] ids;
+  final byte[] types;
+  final int[] nameRefs; // index into names
+  final String[] names;
+  private final Map<String, Integer> parkIndex = new HashMap<>();
+
+  CampsiteStore(String[] parkIds, String[] typeNames, int[] rangeStarts, int[] ids, byte[] types, int[] nameRefs,
+                String[] names) {
+    this.parkIds = parkIds;
+    this.typeNames = typeNames;
+    this.rangeStarts = rangeStarts;
+    this.ids = ids;
+    this.types = types;
+    this.nameRefs = nameRefs;
+    this.names = names;
+    for (int p = 0; p < parkIds.length; p++) {
+      parkIndex.put(parkIds[p], p);
+    }
+  }
+
+  /**
+   * @return number of campsites in the store
+   */
+  public int size() {
+    return ids.length;
+  }
+
+  /**
+   * @return number of parks in the store
+   */
+  public int getParkCount() {
+    return parkIds.length;
+  }
+
+  public String getParkId(int park) {
+    return parkIds[park];
+  }
+
+  /**
+   * @return park index of park id, or -1 if the park has no campsites in the store
+   */
+  public int indexOfPark(String parkId) {
+    Integer index = parkIndex.get(parkId);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * @return number of type codes
+   */
+  public int getTypeCount() {
+    return typeNames.length;
+  }
+
+  /**
+   * @return type code of type number, or -1 if no campsite has this type
+   */
+  public int typeCode(String type) {
+    for (int i = 0; i < typeNames.length; i++) {
+      if (typeNames[i].equals(type)) return i;
+    }
+    return -1;
+  }
+
+  /**
+   * @return type number of type code
+   */
+  public String getTypeName(int code) {
+    return typeNames[code];
+  }
+
+  /**
+   * @return campsites of a park
+   */
+  public Range range(String parkId) {
+    int park = indexOfPark(parkId);
+    if (park < 0) return Range.EMPTY;
+    return new Range(rangeStarts[park * typeNames.length], rangeStarts[(park + 1) * typeNames.length]);
+  }
+
+  /**
+   * @param parkId park id
+   * @param type   type number, null for all types
+   * @return campsites of a park with a type
+   */
+  public Range range(String parkId, String type) {
+    if (type == null) return range(parkId);
+    int park = indexOfPark(parkId);
+    int code = typeCode(type);
+    if (park < 0 || code < 0) return Range.EMPTY;
+    int start = park * typeNames.length + code;
+    return new Range(rangeStarts[start], rangeStarts[start + 1]);
+  }
+
+  /**
+   * @return number of campsites of a park with a type, without creating a range
+   */
+  public int count(String parkId, String type) {
+    int park = indexOfPark(parkId);
+    if (park < 0) return 0;
+    int start = park * typeNames.length;
+    if (type == null) return rangeStarts[start + typeNames.length] - rangeStarts[start];
+    int code = typeCode(type);
+    return code < 0 ? 0 : rangeStarts[start + code + 1] - rangeStarts[start + code];
+  }
+
+  public int getId(int index) {
+    return ids[index];
+  }
+
+  public String getName(int index) {
+    return names[nameRefs[index]];
+  }
+
+  /**
+   * @return type number of campsite
+   */
+  public String getType(int index) {
+    return typeNames[types[index]];
+  }
+
+  public int getTypeCode(int index) {
+    return types[index];
+  }
+
+  /**
+   * @return park index of campsite, by binary search over park ranges
+   */
+  public int getPark(int index) {
+    int low = 0;
+    int high = parkIds.length - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (rangeStarts[mid * typeNames.length] <= index) low = mid;
+      else high = mid - 1;
+    }
+    return low;
+  }
+
+  /**
+   * @return campsite at index as a model object
+   */
+  public Campsite get(int index) {
+    Campsite campsite = new Campsite();
+    campsite.id = String.valueOf(ids[index]);
+    campsite.name = getName(index);
+    campsite.parkId = parkIds[getPark(index)];
+    campsite.type = getType(index);
+    return campsite;
+  }
+
+  /**
+   * Copy parks accepted by filter into a new store. Columns are copied per park, the order is kept.
+   *
+   * @param parkFilter parks to keep
+   * @return new store, or this store if all parks are kept
+   */
+  public CampsiteStore retainParks(Predicate<String> parkFilter) {
+    List<Integer> kept = new ArrayList<>();
+    int size = 0;
+    for (int p = 0; p < parkIds.length; p++) {
+      if (parkFilter.test(parkIds[p])) {
+        kept.add(p);
+        size += range(parkIds[p]).size();
+      }
+    }
+    if (kept.size() == parkIds.length) return this;
+
+    int typeCount = typeNames.length;
+    String[] newParkIds = new String[kept.size()];
+    int[] newRangeStarts = new int[kept.size() * typeCount + 1];
+    int[] newIds = new int[size];
+    byte[] newTypes = new byte[size];
+    int[] newNameRefs = new int[size];
+    int position = 0;
+    for (int k = 0; k < kept.size(); k++) {
+      int p = kept.get(k);
+      newParkIds[k] = parkIds[p];
+      int from = rangeStarts[p * typeCount];
+      for (int t = 0; t < typeCount; t++) {
+        newRangeStarts[k * typeCount + t] = rangeStarts[p * typeCount + t] - from + position;
+      }
+      int length = rangeStarts[(p + 1) * typeCount] - from;
+      System.arraycopy(ids, from, newIds, position, length);
+      System.arraycopy(types, from, newTypes, position, length);
+      System.arraycopy(nameRefs, from, newNameRefs, position, length);
+      position += length;
+    }
+    newRangeStarts[newRangeStarts.length - 1] = position;
+    return new CampsiteStore(newParkIds, typeNames, newRangeStarts, newIds, newTypes, newNameRefs, names);
+  }
+
+  /**
+   * Apply catalog changes to a copy of the store: removed campsites and the campsites of removed parks are left out,
+   * changed campsites are moved to the end of their park and type range and new campsites are added there. The
+   * columns are copied range by range like {@link #retainParks}, names of kept campsites are not interned again.
+   *
+   * @param changes changes from the server
+   * @return new store
+   */
+  public CampsiteStore merge(CatalogChanges changes) {
+    List<String> newTypeNames = new ArrayList<>(Arrays.asList(typeNames));
+    Map<String, Integer> newParks = new LinkedHashMap<>(); // new park index by id, in store order
+    for (String parkId : parkIds) {
+      if (!changes.removedParks.contains(parkId)) newParks.put(parkId, newParks.size());
+    }
+    List<Campsite> added = new ArrayList<>();
+    for (Campsite campsite : changes.campsites.values()) {
+      if (changes.removedParks.contains(campsite.parkId)) continue;
+      added.add(campsite);
+      newParks.putIfAbsent(campsite.parkId, newParks.size());
+      String type = campsite.type == null ? "" : campsite.type;
+      if (!newTypeNames.contains(type)) newTypeNames.add(type);
+    }
+    if (newTypeNames.size() > Byte.MAX_VALUE) throw new IllegalArgumentException("Too many campsite types");
+
+    // kept campsites, counted and copied by (park, type) like the builder's counting sort
+    int typeCount = newTypeNames.size();
+    int[] newParkOf = new int[parkIds.length];
+    BitSet dropped = new BitSet(ids.length);
+    boolean campsitesChanged = !changes.removedCampsites.isEmpty() || !changes.campsites.isEmpty();
+    int[] newRangeStarts = new int[newParks.size() * typeCount + 1];
+    for (int p = 0; p < parkIds.length; p++) {
+      int from = rangeStarts[p * typeNames.length];
+      int to = rangeStarts[(p + 1) * typeNames.length];
+      Integer newPark = newParks.get(parkIds[p]);
+      if (newPark == null) {
+        dropped.set(from, to);
+        continue;
+      }
+      newParkOf[p] = newPark;
+      for (int i = from; i < to; i++) {
+        if (campsitesChanged && (changes.removedCampsites.contains(ids[i]) || changes.campsites.containsKey(ids[i]))) {
+          dropped.set(i);
+        } else {
+          newRangeStarts[newPark * typeCount + types[i] + 1]++;
+        }
+      }
+    }
+    for (Campsite campsite : added) {
+      newRangeStarts[newParks.get(campsite.parkId) * typeCount + codeOf(newTypeNames, campsite) + 1]++;
+    }
+    for (int i = 1; i < newRangeStarts.length; i++) {
+      newRangeStarts[i] += newRangeStarts[i - 1];
+    }
+
+    int size = newRangeStarts[newRangeStarts.length - 1];
+    int[] next = Arrays.copyOf(newRangeStarts, newRangeStarts.length);
+    int[] newIds = new int[size];
+    byte[] newTypes = new byte[size];
+    int[] newNameRefs = new int[size];
+    for (int p = 0; p < parkIds.length; p++) {
+      for (int i = rangeStarts[p * typeNames.length]; i < rangeStarts[(p + 1) * typeNames.length]; i++) {
+        if (dropped.get(i)) continue;
+        int position = next[newParkOf[p] * typeCount + types[i]]++;
+        newIds[position] = ids[i];
+        newTypes[position] = types[i];
+        newNameRefs[position] = nameRefs[i];
+      }
+    }
+    // names of removed campsites stay in the pool until the CSV file is parsed again
+    String[] newNames = Arrays.copyOf(names, names.length + added.size());
+    int nameCount = names.length;
+    for (Campsite campsite : added) {
+      int code = codeOf(newTypeNames, campsite);
+      int position = next[newParks.get(campsite.parkId) * typeCount + code]++;
+      newIds[position] = Integer.parseInt(campsite.id);
+      newTypes[position] = (byte) code;
+      newNameRefs[position] = nameCount;
+      newNames[nameCount++] = campsite.name == null ? "" : campsite.name;
+    }
+    return new CampsiteStore(newParks.keySet().toArray(new String[0]), newTypeNames.toArray(new String[0]),
+        newRangeStarts, newIds, newTypes, newNameRefs, newNames);
+  }
+
+  private static int codeOf(List<String> typeNames, Campsite campsite) {
+    return typeNames.indexOf(campsite.type == null ? "" : campsite.type);
+  }
+
+  /**
+   * Contiguous campsites [from, to) of the store.
+   */
+  public static class Range {
+    public static final Range EMPTY = new Range(0, 0);
+
+    public final int from;
+    public final int to;
+
+    public Range(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    public int size() {
+      return to - from;
+    }
+  }
+
+  /**
+   * Campsite ids are kept as ints and written back as decimal numbers, so only ids that read back the same are taken:
+   * blank ids, ids with other characters and ids with leading zeros or a plus sign are not.
+   *
+   * @return id as a number, null if the id is not such a number
+   */
+  static Integer parseId(String id) {
+    if (id == null) return null;
+    String text = id.trim();
+    try {
+      int value = Integer.parseInt(text);
+      return Integer.toString(value).equals(text) ? value : null;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Builds a store from campsites in any order. Campsites whose id is not a number are skipped and counted.
+   */
+  public static class Builder {
+    private final Map<String, Integer> parks = new HashMap<>();
+    private final List<String> parkIds = new ArrayList<>();
+    private final Map<String, Integer> typeCodes = new HashMap<>();
+    private final List<String> typeNames = new ArrayList<>();
+    private final Map<String, Integer> nameIndex = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private int[] ids = new int[1024];
+    private int[] parkRefs = new int[1024];
+    private byte[] types = new byte[1024];
+    private int[] nameRefs = new int[1024];
+    private int size;
+    private int skipped;
+    private String firstSkipped; // id of the first skipped campsite
+
+    public Builder() {
+      for (String type : KNOWN_TYPES) {
+        typeCode(type);
+      }
+    }
+
+    /**
+     * Add a campsite, or skip it if its id is not a number, see {@link #getSkipped()}.
+     *
+     * @param id     numeric campsite id
+     * @param name   campsite name
+     * @param parkId park id
+     * @param type   type number
+     */
+    public Builder add(String id, String name, String parkId, String type) {
+      Integer number = parseId(id);
+      if (number == null) {
+        if (skipped++ == 0) firstSkipped = id;
+        return this;
+      }
+      if (size == ids.length) {
+        int capacity = size * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        parkRefs = Arrays.copyOf(parkRefs, capacity);
+        types = Arrays.copyOf(types, capacity);
+        nameRefs = Arrays.copyOf(nameRefs, capacity);
+      }
+      ids[size] = number;
+      Integer park = parks.get(parkId);
+      if (park == null) {
+        park = parkIds.size();
+        parks.put(parkId, park);
+        parkIds.add(parkId);
+      }
+      parkRefs[size] = park;
+      types[size] = (byte) typeCode(type == null ? "" : type.trim());
+      String key = name == null ? "" : name;
+      Integer ref = nameIndex.get(key);
+      if (ref == null) {
+        ref = names.size();
+        nameIndex.put(key, ref);
+        names.add(key);
+      }
+      nameRefs[size] = ref;
+      size++;
+      return this;
+    }
+
+    /**
+     * @return number of campsites skipped because their id is not a number
+     */
+    public int getSkipped() {
+      return skipped;
+    }
+
+    /**
+     * @return id of the first skipped campsite, null if none
+     */
+    public String getFirstSkipped() {
+      return firstSkipped;
+    }
+
+    private int typeCode(String type) {
+      Integer code = typeCodes.get(type);
+      if (code == null) {
+        if (typeNames.size() == Byte.MAX_VALUE) throw new IllegalArgumentException("Too many campsite types");
+        code = typeNames.size();
+        typeCodes.put(type, code);
+        typeNames.add(type);
+      }
+      return code;
+    }
+
+    public CampsiteStore build() {
+      int typeCount = typeNames.size();
+      int[] rangeStarts = new int[parkIds.size() * typeCount + 1];
+      for (int i = 0; i < size; i++) {
+        rangeStarts[parkRefs[i] * typeCount + types[i] + 1]++;
+      }
+      for (int i = 1; i < rangeStarts.length; i++) {
+        rangeStarts[i] += rangeStarts[i - 1];
+      }
+      int[] next = Arrays.copyOf(rangeStarts, rangeStarts.length);
+      int[] sortedIds = new int[size];
+      byte[] sortedTypes = new byte[size];
+      int[] sortedNameRefs = new int[size];
+      for (int i = 0; i < size; i++) {
+        int position = next[parkRefs[i] * typeCount + types[i]]++;
+        sortedIds[position] = ids[i];
+        sortedTypes[position] = types[i];
+        sortedNameRefs[position] = nameRefs[i];
+      }
+      return new CampsiteStore(parkIds.toArray(new String[0]), typeNames.toArray(new String[0]), rangeStarts,
+          sortedIds, sortedTypes, sortedNameRefs, names.toArray(new String[0]));
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package net.campspot.catalog;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import net.campspot.models.Campsite;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Changes of the campsite catalog since a catalog version, as the server answers them: a first line
+ * {@code version,<catalog version>}, then one line per change, a later line about the same park or campsite wins.
+ * <pre>
+ * park,&lt;ParkID&gt;,&lt;name&gt;                    new or renamed park
+ * park-,&lt;ParkID&gt;                           removed park, with its campsites
+ * site,&lt;id&gt;,&lt;name&gt;,&lt;ParkID&gt;,&lt;type&gt;        new or changed campsite
+ * site-,&lt;id&gt;                               removed campsite
+ * </pre>
+ */
+public class CatalogChanges {
+  final Map<String, String> parks = new LinkedHashMap<>(); // name of new or renamed parks by id
+  final Set<String> removedParks = new HashSet<>();
+  final Map<Integer, Campsite> campsites = new LinkedHashMap<>(); // new or changed campsites by id
+  final Set<Integer> removedCampsites = new HashSet<>();
+  private long version;
+
+  /**
+   * @param text changes, values are quoted like in CSV files
+   * @throws IOException if a line is not a change
+   */
+  public static CatalogChanges parse(String text) throws IOException {
+    CatalogChanges changes = new CatalogChanges();
+    boolean versioned = false;
+    try (CSVReader reader = new CSVReader(new StringReader(text))) {
+      String[] line;
+      while ((line = reader.readNext()) != null) {
+        if (line.length == 1 && line[0].trim().isEmpty()) continue;
+        String kind = line[0].trim();
+        if (kind.equals("version") && line.length == 2) {
+          changes.version = Long.parseLong(line[1].trim());
+          versioned = true;
+        } else if (kind.equals("park") && line.length == 3) {
+          changes.addPark(line[1].trim(), line[2]);
+        } else if (kind.equals("park-") && line.length == 2) {
+          changes.removePark(line[1].trim());
+        } else if (kind.equals("site") && line.length == 5) {
+          Campsite campsite = new Campsite();
+          campsite.id = line[1].trim();
+          campsite.name = line[2];
+          campsite.parkId = line[3].trim();
+          campsite.type = line[4].trim();
+          changes.addCampsite(campsite);
+        } else if (kind.equals("site-") && line.length == 2) {
+          Integer id = CampsiteStore.parseId(line[1]);
+          if (id == null) throw new NumberFormatException("Campsite id is not a number: " + line[1]);
+          changes.removeCampsite(id);
+        } else {
+          throw new IOException("Invalid catalog change on line " + reader.getLinesRead() + ": " +
+              String.join(",", line));
+        }
+      }
+    } catch (CsvValidationException | NumberFormatException e) {
+      throw new IOException("Invalid catalog changes: " + e.getMessage(), e);
+    }
+    if (!versioned) throw new IOException("Catalog changes have no version line");
+    return changes;
+  }
+
+  private void addPark(String parkId, String name) {
+    removedParks.remove(parkId);
+    parks.put(parkId, name);
+  }
+
+  private void removePark(String parkId) {
+    parks.remove(parkId);
+    removedParks.add(parkId);
+  }
+
+  private void addCampsite(Campsite campsite) {
+    Integer id = CampsiteStore.parseId(campsite.id);
+    if (id == null) throw new NumberFormatException("Campsite id is not a number: " + campsite.id);
+    removedCampsites.remove(id);
+    campsites.remove(id); // a changed campsite moves to the end, like in the store
+    campsites.put(id, campsite);
+  }
+
+  private void removeCampsite(int id) {
+    campsites.remove(id);
+    removedCampsites.add(id);
+  }
+
+  /**
+   * @return catalog version after the changes
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  public boolean isEmpty() {
+    return parks.isEmpty() && removedParks.isEmpty() && campsites.isEmpty() && removedCampsites.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return parks.size() + " parks new or changed, " + removedParks.size() + " removed, " + campsites.size() +
+        " campsites new or changed, " + removedCampsites.size() + " removed";
+  }
+}
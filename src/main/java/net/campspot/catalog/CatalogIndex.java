@@ -0,0 +1,283 @@
+package net.campspot.catalog;
+
+import net.campspot.models.Park;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Type-ahead search over the catalog: park ids and names, campsite ids and names, split in words of letters and
+ * digits. A query matches a park when each of its words starts a word of the park or of one of its campsites, so
+ * {@code pine 12} finds the Pine parks that have campsite 12, 120 or "Site 12".
+ * <p>
+ * No campsite is looked at when searching: words are kept sorted with the parks they appear in, so the words a query
+ * word starts are one range found by binary search. Numbers, most words of a large catalog, are not kept as strings
+ * but as one long of number and park, and the numbers a query word starts are one range per number of digits. The
+ * parks of the numbers starting with each of 0 to 999 are kept as well, as those ranges are too long to walk on every
+ * keystroke.
+ */
+public class CatalogIndex {
+  private static final int MAX_DIGITS = 9; // longer numbers are words
+  private static final int SHORT_NUMBERS = 1000; // numbers up to three digits, parks of the numbers they start are kept
+  private static final int CHECK_EVERY = 1024; // numbers walked between checks whether all candidates are found
+
+  private final int parkCount;
+  private final String[] words; // sorted, lower case
+  private final int[] wordStarts; // parks of words[w] are wordParks[wordStarts[w]] to wordParks[wordStarts[w + 1] - 1]
+  private final int[] wordParks;
+  private final long[] numbers; // sorted, number in the high int and park in the low int
+  private final BitSet[] shortNumbers; // by number up to three digits, parks of the numbers it starts, null for none
+
+  /**
+   * Index the catalog, campsites of parks that are not in the list are left out.
+   *
+   * @param parks parks, found by their position in the list
+   * @param store all campsites
+   */
+  public CatalogIndex(List<Park> parks, CampsiteStore store) {
+    parkCount = parks.size();
+    Map<String, Integer> wordIds = new HashMap<>();
+    Pairs wordPairs = new Pairs();
+    Pairs numberPairs = new Pairs(store.size() + parkCount);
+    Map<String, Integer> positions = new HashMap<>();
+    for (int park = 0; park < parkCount; park++) {
+      Park p = parks.get(park);
+      positions.putIfAbsent(p.id, park);
+      add(p.id, park, wordIds, wordPairs, numberPairs);
+      add(p.name, park, wordIds, wordPairs, numberPairs);
+    }
+    // names are shared by campsites of many parks, each is split once per park
+    int[] namedIn = new int[store.names.length];
+    for (int storePark = 0; storePark < store.parkIds.length; storePark++) {
+      Integer park = positions.get(store.parkIds[storePark]);
+      if (park == null) continue;
+      for (int i = store.rangeStarts[storePark * store.typeNames.length];
+           i < store.rangeStarts[(storePark + 1) * store.typeNames.length]; i++) {
+        if (store.ids[i] >= 0 && store.ids[i] < 1_000_000_000) {
+          numberPairs.add(store.ids[i], park);
+        } else {
+          add(Integer.toString(store.ids[i]), park, wordIds, wordPairs, numberPairs);
+        }
+        int name = store.nameRefs[i];
+        if (namedIn[name] == park + 1) continue;
+        namedIn[name] = park + 1;
+        add(store.names[name], park, wordIds, wordPairs, numberPairs);
+      }
+    }
+
+    words = wordIds.keySet().toArray(new String[0]);
+    Arrays.sort(words);
+    int[] ranks = new int[words.length];
+    for (int w = 0; w < words.length; w++) {
+      ranks[wordIds.get(words[w])] = w;
+    }
+    long[] pairs = wordPairs.sorted(ranks);
+    wordStarts = new int[words.length + 1];
+    wordParks = new int[pairs.length];
+    for (int k = 0; k < pairs.length; k++) {
+      wordStarts[(int) (pairs[k] >>> 32) + 1]++;
+      wordParks[k] = (int) pairs[k];
+    }
+    for (int w = 0; w < words.length; w++) {
+      wordStarts[w + 1] += wordStarts[w];
+    }
+    numbers = numberPairs.sorted(null);
+    shortNumbers = new BitSet[SHORT_NUMBERS];
+    for (long pair : numbers) {
+      int start = (int) (pair >>> 32);
+      while (start >= SHORT_NUMBERS) start /= 10;
+      do {
+        if (shortNumbers[start] == null) shortNumbers[start] = new BitSet(parkCount);
+        shortNumbers[start].set((int) pair);
+        start /= 10;
+      } while (start > 0);
+    }
+  }
+
+  private static void add(String text, int park, Map<String, Integer> wordIds, Pairs wordPairs, Pairs numberPairs) {
+    if (text == null) return;
+    for (String word : split(text)) {
+      if (isNumber(word)) {
+        numberPairs.add(Integer.parseInt(word), park);
+      } else {
+        Integer id = wordIds.get(word);
+        if (id == null) {
+          id = wordIds.size();
+          wordIds.put(word, id);
+        }
+        wordPairs.add(id, park);
+      }
+    }
+  }
+
+  /**
+   * @return lower case words of letters and digits
+   */
+  static List<String> split(String text) {
+    List<String> words = new ArrayList<>(2);
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+      if (inWord && start < 0) {
+        start = i;
+      } else if (!inWord && start >= 0) {
+        words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+        start = -1;
+      }
+    }
+    return words;
+  }
+
+  /**
+   * @return true for digits without leading zeros that fit in {@link #MAX_DIGITS}, kept as numbers
+   */
+  private static boolean isNumber(String word) {
+    if (word.length() > MAX_DIGITS || word.length() > 1 && word.charAt(0) == '0') return false;
+    for (int i = 0; i < word.length(); i++) {
+      char c = word.charAt(i);
+      if (c < '0' || c > '9') return false;
+    }
+    return true;
+  }
+
+  /**
+   * Find the parks of a query.
+   *
+   * @param query words, each the start of a word of the park or of one of its campsites
+   * @return positions of the matching parks in the park list, all parks if the query has no words
+   */
+  public BitSet search(String query) {
+    BitSet found = new BitSet(parkCount);
+    found.set(0, parkCount);
+    for (String word : split(query)) {
+      found = search(word, found);
+      if (found.isEmpty()) break;
+    }
+    return found;
+  }
+
+  /**
+   * @return the candidates that have a word starting with a query word
+   */
+  private BitSet search(String word, BitSet candidates) {
+    Matches matches = new Matches(candidates);
+    int first = Arrays.binarySearch(words, word);
+    if (first < 0) first = -first - 1;
+    for (int w = first; w < words.length && words[w].startsWith(word) && !matches.complete(); w++) {
+      matches.addAll(wordParks, wordStarts[w], wordStarts[w + 1]);
+    }
+    if (isNumber(word)) {
+      long prefix = Long.parseLong(word);
+      if (prefix < SHORT_NUMBERS) {
+        if (shortNumbers[(int) prefix] != null) matches.addAll(shortNumbers[(int) prefix]);
+        return matches.parks;
+      }
+      // numbers of each length starting with the digits
+      long from = prefix;
+      long to = prefix + 1;
+      for (int digits = word.length(); digits <= MAX_DIGITS && !matches.complete(); digits++) {
+        int start = lowerBound(numbers, from << 32);
+        int end = lowerBound(numbers, to << 32);
+        for (int k = start; k < end && !matches.complete(); k += CHECK_EVERY) {
+          matches.addNumbers(numbers, k, Math.min(end, k + CHECK_EVERY));
+        }
+        from *= 10;
+        to *= 10;
+      }
+    }
+    return matches.parks;
+  }
+
+  private static int lowerBound(long[] values, long key) {
+    int position = Arrays.binarySearch(values, key);
+    return position < 0 ? -position - 1 : position;
+  }
+
+  /**
+   * Parks found among candidates for one query word, complete once all candidates are found.
+   */
+  private static class Matches {
+    final BitSet candidates;
+    final BitSet parks = new BitSet();
+    final int wanted;
+    int found;
+
+    Matches(BitSet candidates) {
+      this.candidates = candidates;
+      this.wanted = candidates.cardinality();
+    }
+
+    void addAll(int[] parkList, int from, int to) {
+      for (int k = from; k < to; k++) {
+        add(parkList[k]);
+      }
+    }
+
+    void addAll(BitSet more) {
+      BitSet added = (BitSet) more.clone();
+      added.and(candidates);
+      parks.or(added);
+      found = parks.cardinality();
+    }
+
+    void addNumbers(long[] numbers, int from, int to) {
+      for (int k = from; k < to; k++) {
+        add((int) numbers[k]);
+      }
+    }
+
+    private void add(int park) {
+      if (candidates.get(park) && !parks.get(park)) {
+        parks.set(park);
+        found++;
+      }
+    }
+
+    boolean complete() {
+      return found == wanted;
+    }
+  }
+
+  /**
+   * Growing list of (key, park) pairs packed in longs, sorted and without duplicates in the end.
+   */
+  private static class Pairs {
+    private long[] pairs;
+    private int size;
+
+    Pairs() {
+      this(16);
+    }
+
+    Pairs(int capacity) {
+      pairs = new long[Math.max(16, capacity)];
+    }
+
+    void add(int key, int park) {
+      if (size == pairs.length) pairs = Arrays.copyOf(pairs, size * 2);
+      pairs[size++] = (long) key << 32 | park;
+    }
+
+    /**
+     * @param ranks new key of each key, null to keep the keys
+     */
+    long[] sorted(int[] ranks) {
+      if (ranks != null) {
+        for (int k = 0; k < size; k++) {
+          pairs[k] = (long) ranks[(int) (pairs[k] >>> 32)] << 32 | (int) pairs[k];
+        }
+      }
+      Arrays.sort(pairs, 0, size);
+      int distinct = 0;
+      for (int k = 0; k < size; k++) {
+        if (distinct == 0 || pairs[k] != pairs[distinct - 1]) pairs[distinct++] = pairs[k];
+      }
+      return Arrays.copyOf(pairs, distinct);
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package net.campspot.catalog;
+
+import com.opencsv.CSVWriter;
+import net.campspot.models.Park;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Merges catalog changes from the server into the local catalog: parks.csv, all-campsites.csv, its snapshot and
+ * catalog.version, the version the files are at.
+ * <p>
+ * The changes are applied to the store in memory, so nothing is reparsed: the CSV files are written from the merged
+ * parks and store, and the snapshot is written right after, so the next start reads the snapshot as usual. Every
+ * file is written to a temporary file and moved in place, and the version is written last, so an interrupted sync
+ * fetches the same changes again.
+ */
+public class CatalogSync {
+  public static final String VERSION_FILE = "catalog.version";
+
+  private final Path parksCsv;
+  private final Path campsitesCsv;
+  private final Path versionFile;
+
+  /**
+   * Local catalog after a sync.
+   */
+  public static class Result {
+    public final CatalogChanges changes;
+    public final List<Park> parks;
+    public final CampsiteStore store;
+
+    public Result(CatalogChanges changes, List<Park> parks, CampsiteStore store) {
+      this.changes = changes;
+      this.parks = parks;
+      this.store = store;
+    }
+  }
+
+  /**
+   * @param parksCsv     parks CSV file
+   * @param campsitesCsv campsites CSV file, the snapshot is next to it
+   */
+  public CatalogSync(Path parksCsv, Path campsitesCsv) {
+    this.parksCsv = parksCsv;
+    this.campsitesCsv = campsitesCsv;
+    this.versionFile = campsitesCsv.resolveSibling(VERSION_FILE);
+  }
+
+  /**
+   * @return catalog version of the local files, 0 if never synced
+   */
+  public long readVersion() throws IOException {
+    if (!Files.exists(versionFile)) return 0;
+    String text = new String(Files.readAllBytes(versionFile), StandardCharsets.UTF_8).trim();
+    try {
+      return text.isEmpty() ? 0 : Long.parseLong(text);
+    } catch (NumberFormatException e) {
+      throw new IOException("Invalid catalog version in " + versionFile + ": " + text);
+    }
+  }
+
+  /**
+   * Merge changes into the local files.
+   *
+   * @param changes changes since {@link #readVersion()}
+   * @param parks   parks of parks.csv
+   * @param store   store of all campsites of all-campsites.csv
+   * @return merged parks and store, the same parks and store if there were no changes
+   */
+  public Result apply(CatalogChanges changes, List<Park> parks, CampsiteStore store) throws IOException {
+    if (changes.isEmpty()) {
+      if (changes.getVersion() != readVersion()) writeVersion(changes.getVersion());
+      return new Result(changes, parks, store);
+    }
+    CampsiteStore merged = store.merge(changes);
+    List<Park> mergedParks = mergeParks(parks, changes);
+    writeParks(mergedParks);
+    writeCampsites(merged);
+    CampsiteSnapshot.write(CampsiteSnapshot.pathFor(campsitesCsv), campsitesCsv, merged);
+    writeVersion(changes.getVersion());
+    return new Result(changes, mergedParks, merged);
+  }
+
+  /**
+   * @return parks in the same order, renamed parks keep their place and new parks are added at the end
+   */
+  public static List<Park> mergeParks(List<Park> parks, CatalogChanges changes) {
+    List<Park> merged = new ArrayList<>(parks.size() + changes.parks.size());
+    Set<String> known = new HashSet<>();
+    for (Park park : parks) {
+      if (changes.removedParks.contains(park.id)) continue;
+      String name = changes.parks.get(park.id);
+      merged.add(name == null ? park : new Park(park.id, name));
+      known.add(park.id);
+    }
+    changes.parks.forEach((id, name) -> {
+      if (!known.contains(id)) merged.add(new Park(id, name));
+    });
+    return merged;
+  }
+
+  private void writeParks(List<Park> parks) throws IOException {
+    write(parksCsv, writer -> {
+      writer.writeNext(new String[]{"ParkID", "name"}, false);
+      for (Park park : parks) {
+        writer.writeNext(new String[]{park.id, park.name}, false);
+      }
+    });
+  }
+
+  private void writeCampsites(CampsiteStore store) throws IOException {
+    write(campsitesCsv, writer -> {
+      writer.writeNext(new String[]{"id", "name", "ParkID", "type"}, false);
+      String[] line = new String[4];
+      for (int p = 0; p < store.parkIds.length; p++) {
+        line[2] = store.parkIds[p];
+        for (int i = store.rangeStarts[p * store.typeNames.length];
+             i < store.rangeStarts[(p + 1) * store.typeNames.length]; i++) {
+          line[0] = Integer.toString(store.ids[i]);
+          line[1] = store.names[store.nameRefs[i]];
+          line[3] = store.typeNames[store.types[i]];
+          writer.writeNext(line, false);
+        }
+      }
+    });
+  }
+
+  private void writeVersion(long version) throws IOException {
+    Path temp = versionFile.resolveSibling(VERSION_FILE + ".tmp");
+    Files.write(temp, (version + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+    Files.move(temp, versionFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private interface Content {
+    void write(CSVWriter writer) throws IOException;
+  }
+
+  private static void write(Path file, Content content) throws IOException {
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8);
+         CSVWriter writer = new CSVWriter(out, CSVWriter.DEFAULT_SEPARATOR, CSVWriter.DEFAULT_QUOTE_CHARACTER,
+             CSVWriter.DEFAULT_ESCAPE_CHARACTER, "\n")) {
+      content.write(writer);
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+}
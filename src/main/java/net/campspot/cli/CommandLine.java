@@ -0,0 +1,351 @@
+package net.campspot.cli;
+
+import net.campspot.Helper;
+import net.campspot.catalog.CampsiteStore;
+import net.campspot.catalog.CatalogChanges;
+import net.campspot.generator.DataGenerator;
+import net.campspot.generator.IdentityAllocator;
+import net.campspot.generator.Segment;
+import net.campspot.generator.StayLengths;
+import net.campspot.generator.TrafficSkew;
+import net.campspot.models.Park;
+import net.campspot.models.ScenarioEntry;
+import net.campspot.remote.ControlPlaneClient;
+import net.campspot.remote.StatusPoller;
+import net.campspot.results.JtlAnalyzer;
+import net.campspot.results.JtlReport;
+import net.campspot.results.RunComparison;
+import net.campspot.results.RunHistory;
+import net.campspot.results.RunSummary;
+import net.campspot.runner.LocalRun;
+import net.campspot.runner.RunFolder;
+import net.campspot.runner.RunManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Headless commands for load-generator hosts and pipelines: generate data files, list and run tests locally or on
+ * the remote server, summarize result files and sync the campsite catalog. Uses the same configuration, folders and
+ * run history as the Swing application, without loading AWT or Swing.
+ */
+public class CommandLine {
+  public static final int OK = 0;
+  public static final int FAILED = 1;
+  public static final int USAGE = 2;
+  public static final int REGRESSION = 3;
+
+  private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+  private static final Set<String> FLAGS = new HashSet<>(Arrays.asList("remote", "no-wait", "no-history"));
+  private static final long LOG_INTERVAL_MILLIS = 500;
+  private static final String USAGE_TEXT = String.join(System.lineSeparator(),
+      "Usage: java -jar Campspot.jar <command> [options], without command the application window is opened",
+      "  generate --park <id> [--type <0-3>] --checkin <MM/dd/yyyy> --checkout <MM/dd/yyyy>",
+      "           (--file <name.csv> | --test <test.jmx>) [--threads <n>]",
+      "  generate --scenario <scenario.csv> --file <name.csv> [--threads <n>]",
+      "  tests [--remote]",
+      "  run --test <test.jmx> [--data <file.csv>] [--no-history]",
+      "  run --remote --test <name> [--no-wait]",
+      "  summarize (--test <test.jmx> | --result <file.jtl>) [--threshold <percent>]",
+      "  sync-catalog",
+      "Exit codes: 0 success, 1 failure, 2 usage error, 3 regression against the baseline of the test");
+
+  private final PrintStream out;
+  private final PrintStream err;
+  private final Map<String, String> options = new HashMap<>();
+  private Properties config;
+
+  /**
+   * @param out receives results and progress
+   * @param err receives errors
+   */
+  public CommandLine(PrintStream out, PrintStream err) {
+    this.out = out;
+    this.err = err;
+  }
+
+  /**
+   * @param args command and options
+   * @return exit code
+   */
+  public int run(String[] args) {
+    if (args.length == 0) {
+      err.println(USAGE_TEXT);
+      return USAGE;
+    }
+    try {
+      parseOptions(args);
+      config = Helper.readConfiguration();
+      Helper.createFolders();
+      switch (args[0]) {
+        case "generate":
+          return generate();
+        case "tests":
+          return listTests();
+        case "run":
+          return isSet("remote") ? runRemote() : runLocal();
+        case "summarize":
+          return summarize();
+        case "sync-catalog":
+          return syncCatalog();
+        case "help":
+        case "--help":
+          out.println(USAGE_TEXT);
+          return OK;
+        default:
+          throw new IllegalArgumentException("Unknown command: " + args[0]);
+      }
+    } catch (IllegalArgumentException | DateTimeParseException e) {
+      err.println(e.getMessage());
+      err.println(USAGE_TEXT);
+      return USAGE;
+    } catch (Exception e) {
+      Throwable cause = e instanceof CompletionException || e instanceof ExecutionException ? e.getCause() : e;
+      err.println("Error: " + cause);
+      return FAILED;
+    }
+  }
+
+  private void parseOptions(String[] args) {
+    for (int i = 1; i < args.length; i++) {
+      if (!args[i].startsWith("--")) throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+      String name = args[i].substring(2);
+      if (FLAGS.contains(name)) {
+        options.put(name, "true");
+      } else if (i + 1 < args.length) {
+        options.put(name, args[++i]);
+      } else {
+        throw new IllegalArgumentException("Missing value of --" + name);
+      }
+    }
+  }
+
+  private boolean isSet(String flag) {
+    return options.containsKey(flag);
+  }
+
+  private String option(String name) {
+    String value = options.get(name);
+    if (value == null) throw new IllegalArgumentException("Missing --" + name);
+    return value;
+  }
+
+  /**
+   * Generate a data file for one park, campsite type and date range, or for a scenario file.
+   */
+  private int generate() throws IOException {
+    String filename = options.get("file");
+    if (filename == null && options.containsKey("test")) filename = option("test").replaceAll(".jmx", ".csv");
+    if (filename == null) throw new IllegalArgumentException("Missing --file or --test");
+    if (!filename.toLowerCase().endsWith(".csv")) filename += ".csv";
+
+    long start = System.nanoTime();
+    CampsiteStore campsites = readCampsites();
+    DataGenerator generator;
+    if (options.containsKey("scenario")) {
+      List<Segment> segments = new ArrayList<>();
+      for (ScenarioEntry entry : Helper.readScenario(new File(option("scenario")))) {
+        segments.add(Segment.of(entry, campsites));
+      }
+      generator = new DataGenerator(segments);
+    } else {
+      String parkId = option("park");
+      if (campsites.indexOfPark(parkId) < 0) throw new IllegalArgumentException("Unknown park: " + parkId);
+      String type = options.get("type");
+      CampsiteStore.Range range = type == null || type.equals("-1") ?
+          campsites.range(parkId) : campsites.range(parkId, type);
+      LocalDate checkin = LocalDate.parse(option("checkin"), DATE_FORMAT);
+      LocalDate checkout = LocalDate.parse(option("checkout"), DATE_FORMAT);
+      long days = ChronoUnit.DAYS.between(checkin, checkout) + 1; // checkout is the last night, like in the window
+      if (days <= 0) throw new IllegalArgumentException("Checkout is before checkin");
+      if (range.size() == 0) throw new IllegalArgumentException("No campsites of type " + type + " in park " + parkId);
+      generator = new DataGenerator(campsites, range, checkin, (int) days);
+    }
+
+    generator.setIdentities(IdentityAllocator.fromConfig(config));
+    generator.setTrafficSkew(TrafficSkew.fromConfig(config));
+    generator.setStayLengths(StayLengths.fromConfig(config));
+    generator.configure();
+    Path target = Paths.get("Data", filename);
+    int threads = options.containsKey("threads") ? Integer.parseInt(option("threads")) :
+        Helper.getGeneratorThreads(config);
+    long total = generator.getTotalRows();
+    long[] reported = {0};
+    long rows = generator.generate(target, written -> {
+      long percent = written * 100 / Math.max(total, 1);
+      if (percent >= reported[0] + 10) {
+        reported[0] = percent - percent % 10;
+        out.println("Generating " + target.getFileName() + ": " + reported[0] + "%");
+      }
+    }, threads);
+    out.printf("Generated file: %s (%d rows) in %.1f s%n", target, rows, (System.nanoTime() - start) / 1e9);
+    return OK;
+  }
+
+  /**
+   * @return campsites of the parks of parks.csv, like the window shows them
+   */
+  private static CampsiteStore readCampsites() {
+    Set<String> parkIds = new HashSet<>();
+    for (Park park : Helper.readParks()) {
+      parkIds.add(park.id);
+    }
+    return Helper.readAllCampsites().retainParks(parkIds::contains);
+  }
+
+  /**
+   * Merge the catalog changes of the server since the last sync into the local catalog.
+   */
+  private int syncCatalog() throws IOException {
+    long start = System.nanoTime();
+    ControlPlaneClient controlPlane = Helper.createControlPlane(ControlPlaneClient.newHttpClient(), config);
+    CatalogChanges changes = Helper.syncCatalog(controlPlane).changes;
+    out.printf("Catalog at version %d: %s in %.1f s%n", changes.getVersion(),
+        changes.isEmpty() ? "up to date" : changes.toString(), (System.nanoTime() - start) / 1e9);
+    return OK;
+  }
+
+  private int listTests() {
+    List<String> tests;
+    if (isSet("remote")) {
+      tests = Helper.createControlPlane(ControlPlaneClient.newHttpClient(), config).getTests(true).join();
+    } else {
+      tests = new ArrayList<>();
+      String[] files = new File("Tests").list();
+      for (String file : files == null ? new String[0] : files) {
+        if (file.toLowerCase().endsWith(".jmx")) tests.add(file);
+      }
+      Collections.sort(tests);
+    }
+    tests.forEach(out::println);
+    return OK;
+  }
+
+  /**
+   * Run a test with JMeter on this host, print its log while it runs, then store and print its summary.
+   */
+  private int runLocal() throws IOException, InterruptedException {
+    String jmxFile = option("test");
+    if (!Files.isRegularFile(Paths.get("Tests", jmxFile))) throw new IllegalArgumentException("No test Tests/" + jmxFile);
+    String dataFile = options.getOrDefault("data", "campsites.csv");
+    RunFolder runFolder = Helper.createRunFolder(jmxFile, dataFile);
+    out.println("Working folder " + runFolder);
+
+    RunManager runManager = new RunManager();
+    Runtime.getRuntime().addShutdownHook(new Thread(runManager::cancelAll)); // Ctrl+C stops JMeter too
+    String command = Helper.getJmeterCommand(config, jmxFile, runFolder);
+    LocalRun run = runManager.start(jmxFile, RunManager.shellCommand(command), runFolder.getDirectory().toFile(),
+        Helper.getResultFile(jmxFile));
+    long sequence = 0;
+    List<String> lines = new ArrayList<>();
+    while (!run.getCompletion().isDone()) {
+      Thread.sleep(LOG_INTERVAL_MILLIS);
+      sequence = run.getLog().linesSince(sequence, lines);
+      lines.forEach(out::println);
+      lines.clear();
+    }
+    run.getLog().linesSince(sequence, lines);
+    lines.forEach(out::println);
+    runFolder.release();
+    out.println(jmxFile + " " + run.getState() + " in " + run.getElapsed() / 1000 + " s");
+
+    int exitCode = run.getState() == LocalRun.State.SUCCEEDED ? OK : FAILED;
+    if (!isSet("no-history")) {
+      RunHistory history = new RunHistory(Paths.get("Results"));
+      RunSummary summary = Helper.saveRunSummary(history, run, dataFile, "");
+      if (summary != null) {
+        out.println("Saved run summary #" + summary.getId() + " to run history");
+        printSummary(summary);
+        if (compareWithBaseline(history, summary) && exitCode == OK) exitCode = REGRESSION;
+      }
+    }
+    return exitCode;
+  }
+
+  /**
+   * Start a test on the remote server and print its status until it is finished.
+   */
+  private int runRemote() throws InterruptedException {
+    String test = option("test");
+    ControlPlaneClient controlPlane = Helper.createControlPlane(ControlPlaneClient.newHttpClient(), config);
+    controlPlane.runTest(test).join();
+    out.println("Started " + test + " on " + config.getProperty("campspotServer"));
+    if (isSet("no-wait")) return OK;
+
+    StatusPoller poller = controlPlane.pollStatus(
+        ControlPlaneClient.finishedWhen(config.getProperty("remoteFinishedPattern", "finished")),
+        out::println, e -> err.println("Cannot get status: " + e.getMessage()));
+    Runtime.getRuntime().addShutdownHook(new Thread(poller::stop));
+    while (!poller.isStopped()) {
+      Thread.sleep(LOG_INTERVAL_MILLIS);
+    }
+    return OK;
+  }
+
+  /**
+   * Print the summary of a whole result file and compare it with the baseline of its test.
+   */
+  private int summarize() throws IOException {
+    String test = options.get("test");
+    Path resultFile = options.containsKey("result") ? Paths.get(option("result")) :
+        Helper.getResultFile(option("test"));
+    if (!Files.isRegularFile(resultFile)) throw new IllegalArgumentException("No result file " + resultFile);
+    JtlReport report = new JtlAnalyzer(resultFile).analyze(null, Runtime.getRuntime().availableProcessors());
+    RunSummary summary = RunSummary.of(report, test != null ? test : resultFile.getFileName().toString(), "", "",
+        LocalRun.State.SUCCEEDED.name());
+    printSummary(summary);
+    return test != null && compareWithBaseline(new RunHistory(Paths.get("Results")), summary) ? REGRESSION : OK;
+  }
+
+  private void printSummary(RunSummary summary) {
+    out.printf("%-30s %10s %8s %10s %8s %8s %8s %8s %8s%n", "Label", "Samples", "Error %", "Per sec", "Mean", "p50",
+        "p95", "p99", "Max");
+    List<RunSummary.LabelSummary> labels = new ArrayList<>(summary.getLabels());
+    labels.add(summary.getTotal());
+    for (RunSummary.LabelSummary label : labels) {
+      out.printf("%-30s %10d %8.2f %10.1f %8.0f %8d %8d %8d %8d%n", label.label, label.samples,
+          label.getErrorRate(), label.throughput, label.mean, label.p50, label.p95, label.p99, label.max);
+    }
+  }
+
+  /**
+   * Print the labels that regressed against the baseline of the test, if the test has one.
+   *
+   * @return whether a label regressed
+   */
+  private boolean compareWithBaseline(RunHistory history, RunSummary summary) throws IOException {
+    long baselineId = history.getBaseline(summary.getTestName());
+    if (baselineId <= 0 || baselineId == summary.getId()) return false;
+    double threshold = options.containsKey("threshold") ? Double.parseDouble(option("threshold")) :
+        RunComparison.DEFAULT_THRESHOLD;
+    RunComparison comparison = new RunComparison(history.get(baselineId), summary, threshold);
+    out.println("Compared with baseline #" + baselineId + ", threshold " + threshold + "%");
+    for (RunComparison.Row row : comparison.getRows()) {
+      if (!row.isRegression()) continue;
+      out.printf("REGRESSION %-30s p95 %d -> %d ms, p99 %d -> %d ms, %.1f -> %.1f/s%n", row.label,
+          row.baseline.p95, row.candidate.p95, row.baseline.p99, row.candidate.p99, row.baseline.throughput,
+          row.candidate.throughput);
+    }
+    if (!comparison.hasRegression()) out.println("No regression");
+    return comparison.hasRegression();
+  }
+}
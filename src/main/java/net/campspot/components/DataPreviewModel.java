@@ -0,0 +1,85 @@
+package net.campspot.components;
+
+import net.campspot.files.LineIndex;
+import net.campspot.generator.FieldScanner;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rows of a CSV file indexed by a {@link LineIndex}. Only rows the table asks for, i.e. the visible ones, are decoded,
+ * and a few hundred of them are cached, so memory use does not depend on the size of the file.
+ */
+public class DataPreviewModel extends AbstractTableModel {
+  private static final int CACHED_ROWS = 512;
+
+  private final LineIndex index;
+  private final String[] header;
+  private int rows; // rows indexed so far, changed on the event dispatch thread only
+  private final Map<Integer, String[]> cache = new LinkedHashMap<Integer, String[]>(CACHED_ROWS, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+      return size() > CACHED_ROWS;
+    }
+  };
+
+  /**
+   * @param index index of the file, the first line is the header
+   */
+  public DataPreviewModel(LineIndex index) {
+    this.index = index;
+    this.header = index.getLines() == 0 ? new String[0] : FieldScanner.split(index.line(0));
+  }
+
+  public LineIndex getIndex() {
+    return index;
+  }
+
+  public String[] getHeader() {
+    return header;
+  }
+
+  /**
+   * Show the rows indexed since the last call.
+   */
+  public void update() {
+    int indexed = (int) Math.min(Integer.MAX_VALUE, Math.max(0, index.getLines() - 1));
+    if (indexed > rows) {
+      int first = rows;
+      rows = indexed;
+      fireTableRowsInserted(first, indexed - 1);
+    }
+  }
+
+  @Override
+  public int getRowCount() {
+    return rows;
+  }
+
+  @Override
+  public int getColumnCount() {
+    return header.length + 1;
+  }
+
+  @Override
+  public String getColumnName(int column) {
+    return column == 0 ? "#" : header[column - 1];
+  }
+
+  @Override
+  public Object getValueAt(int rowIndex, int columnIndex) {
+    if (columnIndex == 0) return rowIndex + 1;
+    String[] fields = cache.get(rowIndex);
+    if (fields == null) {
+      try {
+        fields = FieldScanner.split(index.line(rowIndex + 1L));
+      } catch (RuntimeException | InternalError e) {
+        // the file was truncated or deleted while shown, it is reloaded when the folder reports it
+        fields = new String[0];
+      }
+      cache.put(rowIndex, fields);
+    }
+    return columnIndex <= fields.length ? fields[columnIndex - 1] : "";
+  }
+}
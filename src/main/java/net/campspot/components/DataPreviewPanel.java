@@ -0,0 +1,246 @@
+package net.campspot.components;
+
+import net.campspot.files.FileInfo;
+import net.campspot.files.LineIndex;
+import net.campspot.files.WatchedFolder;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Preview of a data file of any size. The file is memory mapped and indexed in the background, the table shows rows
+ * as soon as they are indexed and decodes only the rows it displays. Rows can be found by number, by the value of a
+ * column such as campsite id, or by check in or checkout date.
+ */
+public class DataPreviewPanel extends JPanel implements WatchedFolder.Listener {
+  private static final String ROW = "Row";
+  private static final String CHECKIN_DATE = "Check in date";
+  private static final String CHECKOUT_DATE = "Checkout date";
+  private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
+  private final WatchedFolder folder;
+  private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "data-preview");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final JLabel fileLabel = new JLabel(" ");
+  private final JLabel statusLabel = new JLabel(" ");
+  private final JTable table = new JTable();
+  private final JComboBox<String> findColumnBox = new JComboBox<>();
+  private final JTextField findField = new JTextField(12);
+  private final JButton findButton = new JButton("Find Next");
+  private String name;
+  private LineIndex index;
+  private DataPreviewModel model;
+  private AtomicBoolean searchCancelled = new AtomicBoolean();
+
+  /**
+   * @param folder folder of the data files, the shown file is reloaded when it changes
+   */
+  public DataPreviewPanel(WatchedFolder folder) {
+    super(new BorderLayout(0, 5));
+    this.folder = folder;
+    folder.addListener(this);
+
+    table.setDefaultEditor(Object.class, null);
+    table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+    table.setAutoCreateRowSorter(false); // sorting would decode every row
+    JScrollPane scrollPane = new JScrollPane(table);
+    scrollPane.setPreferredSize(new Dimension(900, 450));
+
+    findButton.addActionListener(e -> find());
+    findField.addActionListener(e -> find());
+    JPanel findPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+    findPanel.add(new JLabel("Find"));
+    findPanel.add(findColumnBox);
+    findPanel.add(findField);
+    findPanel.add(findButton);
+    findPanel.add(statusLabel);
+
+    add(fileLabel, BorderLayout.NORTH);
+    add(scrollPane, BorderLayout.CENTER);
+    add(findPanel, BorderLayout.SOUTH);
+  }
+
+  /**
+   * Show a file of the folder.
+   *
+   * @param name name of the file
+   */
+  public void show(String name) {
+    if (name.equals(this.name) && index != null) return;
+    load(name);
+  }
+
+  private void load(String name) {
+    closeIndex();
+    this.name = name;
+    fileLabel.setText(folder.getDirectory().resolve(name).toString());
+    LineIndex opened;
+    try {
+      opened = new LineIndex(folder.getDirectory().resolve(name));
+    } catch (IOException e) {
+      statusLabel.setText("Cannot open " + name + ": " + e.getMessage());
+      return;
+    }
+    index = opened;
+    model = new DataPreviewModel(opened);
+    table.setModel(model);
+    table.getColumnModel().getColumn(0).setPreferredWidth(80);
+    updateFindColumns(model.getHeader());
+    statusLabel.setText("Indexing...");
+    executor.execute(() -> {
+      try {
+        opened.build(lines -> SwingUtilities.invokeLater(() -> indexed(opened)));
+      } catch (RuntimeException | InternalError e) {
+        // truncated or closed meanwhile
+        if (index == opened) SwingUtilities.invokeLater(() -> statusLabel.setText("Cannot index: " + e));
+      }
+    });
+  }
+
+  private void indexed(LineIndex indexed) {
+    if (indexed != index) return; // another file is shown meanwhile
+    model.update();
+    statusLabel.setText(String.format("%,d rows%s", model.getRowCount(), indexed.isComplete() ? "" : ", indexing..."));
+  }
+
+  private void updateFindColumns(String[] header) {
+    List<String> columns = new ArrayList<>();
+    columns.add(ROW);
+    columns.addAll(Arrays.asList(header));
+    List<String> headerList = Arrays.asList(header);
+    if (headerList.containsAll(FileInfo.CHECKIN_COLUMNS)) columns.add(CHECKIN_DATE);
+    if (headerList.containsAll(FileInfo.CHECKOUT_COLUMNS)) columns.add(CHECKOUT_DATE);
+    Object selected = findColumnBox.getSelectedItem();
+    findColumnBox.setModel(new DefaultComboBoxModel<>(columns.toArray(new String[0])));
+    if (selected != null && columns.contains(selected)) findColumnBox.setSelectedItem(selected);
+  }
+
+  /**
+   * Go to a row, or to the next row after the selected one with the value, starting over at the top.
+   */
+  private void find() {
+    if (model == null) return;
+    String column = (String) findColumnBox.getSelectedItem();
+    String value = findField.getText().trim();
+    if (column == null || value.isEmpty()) return;
+    if (column.equals(ROW)) {
+      try {
+        long row = Long.parseLong(value.replace(",", ""));
+        if (row < 1 || row > model.getRowCount()) {
+          statusLabel.setText("No row " + value + (index.isComplete() ? "" : " indexed yet"));
+        } else {
+          select((int) row - 1);
+        }
+      } catch (NumberFormatException e) {
+        statusLabel.setText("Not a row number: " + value);
+      }
+      return;
+    }
+
+    List<String> header = Arrays.asList(model.getHeader());
+    int[] columns;
+    String[] values;
+    if (column.equals(CHECKIN_DATE) || column.equals(CHECKOUT_DATE)) {
+      LocalDate date;
+      try {
+        date = LocalDate.parse(value, DATE_FORMAT);
+      } catch (DateTimeParseException e) {
+        statusLabel.setText("Date is mm/dd/yyyy: " + value);
+        return;
+      }
+      List<String> names = column.equals(CHECKIN_DATE) ? FileInfo.CHECKIN_COLUMNS : FileInfo.CHECKOUT_COLUMNS;
+      columns = new int[]{header.indexOf(names.get(0)), header.indexOf(names.get(1)), header.indexOf(names.get(2))};
+      values = new String[]{Integer.toString(date.getDayOfMonth()), Integer.toString(date.getMonthValue()),
+          Integer.toString(date.getYear())};
+    } else {
+      columns = new int[]{header.indexOf(column)};
+      values = new String[]{value};
+    }
+
+    searchCancelled.set(true);
+    AtomicBoolean cancelled = new AtomicBoolean();
+    searchCancelled = cancelled;
+    LineIndex searched = index;
+    long from = table.getSelectedRow() + 2L; // line after the selected row, line 0 is the header
+    statusLabel.setText("Searching...");
+    executor.execute(() -> {
+      long line = -1;
+      try {
+        if (from < searched.getLines()) line = searched.find(from, columns, values, cancelled::get);
+        if (line < 0 && from > 1 && searched.getLines() > 1) line = searched.find(1, columns, values, cancelled::get);
+      } catch (RuntimeException | InternalError e) {
+        line = -1;
+      }
+      long found = line;
+      SwingUtilities.invokeLater(() -> {
+        if (cancelled.get() || searched != index) return;
+        if (found < 1) {
+          statusLabel.setText("No row with " + column + " " + value);
+        } else if (found > model.getRowCount()) {
+          statusLabel.setText(String.format("Found at row %,d, not indexed yet", found));
+        } else {
+          select((int) found - 1);
+        }
+      });
+    });
+  }
+
+  private void select(int row) {
+    table.setRowSelectionInterval(row, row);
+    table.scrollRectToVisible(table.getCellRect(row, 0, true));
+    statusLabel.setText(String.format("Row %,d of %,d%s", row + 1, model.getRowCount(),
+        index.isComplete() ? "" : ", indexing..."));
+  }
+
+  @Override
+  public void changed(WatchedFolder folder, String name, WatchedFolder.Change change) {
+    if (change == WatchedFolder.Change.INFO) return;
+    SwingUtilities.invokeLater(() -> {
+      if (!name.equals(this.name) || index == null) return;
+      if (folder.contains(name)) {
+        load(name);
+      } else {
+        closeIndex();
+        statusLabel.setText(name + " was deleted");
+      }
+    });
+  }
+
+  private void closeIndex() {
+    searchCancelled.set(true);
+    model = null;
+    table.setModel(new DefaultTableModel());
+    if (index != null) {
+      try {
+        index.close();
+      } catch (IOException e) {
+        System.err.println("Cannot close " + index.getFile() + ": " + e);
+      }
+      index = null;
+    }
+  }
+
+  /**
+   * Close the file, e.g. when the preview is hidden.
+   */
+  public void close() {
+    closeIndex();
+    name = null;
+    fileLabel.setText(" ");
+    statusLabel.setText(" ");
+  }
+}
@@ -0,0 +1,107 @@
+package net.campspot.components;
+
+import net.campspot.files.FileInfo;
+import net.campspot.files.WatchedFolder;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Table of the files of a watched folder. Rows are inserted, removed and updated one by one as the folder changes,
+ * so the selection is kept and the folder is never listed again. Metadata columns are filled in when the metadata
+ * of a shown file has been computed.
+ */
+public class FileTableModel extends AbstractTableModel implements WatchedFolder.Listener {
+  private static final String[] DETAIL_COLUMNS = {"Name", "Size", "Rows", "Dates"};
+  private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
+  private final WatchedFolder folder;
+  private final boolean details;
+  private final List<String> names; // changed on the event dispatch thread only
+
+  /**
+   * @param folder  watched folder
+   * @param details whether to show size, rows and dates, or only names
+   */
+  public FileTableModel(WatchedFolder folder, boolean details) {
+    this.folder = folder;
+    this.details = details;
+    folder.addListener(this); // before listing, changes applied twice are ignored
+    this.names = folder.getNames();
+  }
+
+  @Override
+  public void changed(WatchedFolder folder, String name, WatchedFolder.Change change) {
+    SwingUtilities.invokeLater(() -> apply(name, change));
+  }
+
+  private void apply(String name, WatchedFolder.Change change) {
+    int index = Collections.binarySearch(names, name);
+    switch (change) {
+      case ADDED:
+        if (index < 0) {
+          index = -index - 1;
+          names.add(index, name);
+          fireTableRowsInserted(index, index);
+        }
+        break;
+      case REMOVED:
+        if (index >= 0) {
+          names.remove(index);
+          fireTableRowsDeleted(index, index);
+        }
+        break;
+      default:
+        if (index >= 0) fireTableRowsUpdated(index, index);
+    }
+  }
+
+  /**
+   * Stop following the folder.
+   */
+  public void dispose() {
+    folder.removeListener(this);
+  }
+
+  @Override
+  public int getRowCount() {
+    return names.size();
+  }
+
+  @Override
+  public int getColumnCount() {
+    return details ? DETAIL_COLUMNS.length : 1;
+  }
+
+  @Override
+  public String getColumnName(int column) {
+    return DETAIL_COLUMNS[column];
+  }
+
+  @Override
+  public Object getValueAt(int rowIndex, int columnIndex) {
+    String name = names.get(rowIndex);
+    if (columnIndex == 0) return name;
+    FileInfo info = folder.getInfo(name);
+    if (info == null) return "...";
+    switch (columnIndex) {
+      case 1:
+        return formatSize(info.getSize());
+      case 2:
+        return info.getRows() < 0 ? "" : String.format("%,d", info.getRows());
+      default:
+        return info.getFirstDate() == null ? "" :
+            DATE_FORMAT.format(info.getFirstDate()) + " - " + DATE_FORMAT.format(info.getLastDate());
+    }
+  }
+
+  private static String formatSize(long bytes) {
+    if (bytes < 1024) return bytes + " B";
+    if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+    if (bytes < 1024L * 1024 * 1024) return String.format("%.1f MB", bytes / (1024.0 * 1024));
+    return String.format("%.2f GB", bytes / (1024.0 * 1024 * 1024));
+  }
+}
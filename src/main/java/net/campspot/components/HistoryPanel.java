@@ -0,0 +1,190 @@
+package net.campspot.components;
+
+import net.campspot.results.RunComparison;
+import net.campspot.results.RunHistory;
+import net.campspot.results.RunSummary;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Past runs from the {@link RunHistory}, and the comparison of the selected run with the baseline of its test.
+ * Labels whose p95, p99 or throughput regressed are shown in red.
+ */
+public class HistoryPanel extends JPanel {
+  private static final String[] RUN_COLUMNS = {"#", "Date", "Test", "Data File", "Selection", "State", "Samples",
+      "Throughput/s", "Error %", "p95 (ms)", "p99 (ms)"};
+  private static final String[] COMPARISON_COLUMNS = {"Label", "Base p95", "p95", "p95 %", "Base p99", "p99", "p99 %",
+      "Base Throughput/s", "Throughput/s", "Throughput %"};
+
+  private final RunHistory history;
+  private final DefaultTableModel runsModel = new DefaultTableModel(RUN_COLUMNS, 0);
+  private final JTable runsTable = new JTable(runsModel);
+  private final DefaultTableModel comparisonModel = new DefaultTableModel(COMPARISON_COLUMNS, 0);
+  private final JSpinner thresholdSpinner = new JSpinner(
+      new SpinnerNumberModel(RunComparison.DEFAULT_THRESHOLD, 1.0, 100.0, 1.0));
+  private final JLabel statusLabel = new JLabel(" ");
+  private List<RunSummary> runs = new ArrayList<>();
+  private final List<Boolean> regressions = new ArrayList<>(); // per comparison row
+
+  public HistoryPanel(RunHistory history) {
+    super(new BorderLayout(0, 5));
+    this.history = history;
+
+    runsTable.setDefaultEditor(Object.class, null);
+    runsTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+    runsTable.getSelectionModel().addListSelectionListener(e -> {
+      if (!e.getValueIsAdjusting()) compare();
+    });
+    runsTable.getColumnModel().getColumn(0).setMaxWidth(40);
+    JScrollPane runsScrollPane = new JScrollPane(runsTable);
+    runsScrollPane.setPreferredSize(new Dimension(900, 200));
+
+    JTable comparisonTable = new JTable(comparisonModel);
+    comparisonTable.setDefaultEditor(Object.class, null);
+    comparisonTable.setDefaultRenderer(Object.class, new DefaultTableCellRenderer() {
+      @Override
+      public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus,
+                                                     int row, int column) {
+        Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+        boolean regression = row < regressions.size() && regressions.get(row);
+        c.setForeground(regression ? Color.RED : table.getForeground());
+        return c;
+      }
+    });
+    comparisonTable.getColumnModel().getColumn(0).setPreferredWidth(200);
+    JScrollPane comparisonScrollPane = new JScrollPane(comparisonTable);
+    comparisonScrollPane.setPreferredSize(new Dimension(900, 250));
+
+    JButton baselineButton = new JButton("Set as Baseline");
+    baselineButton.addActionListener(e -> setBaseline());
+    JButton refreshButton = new JButton("Refresh");
+    refreshButton.addActionListener(e -> refresh());
+    thresholdSpinner.addChangeListener(e -> compare());
+    JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+    buttons.add(refreshButton);
+    buttons.add(baselineButton);
+    buttons.add(new JLabel("Regression threshold %:"));
+    buttons.add(thresholdSpinner);
+    buttons.add(statusLabel);
+
+    JPanel bottom = new JPanel(new BorderLayout(0, 5));
+    bottom.add(buttons, BorderLayout.NORTH);
+    bottom.add(comparisonScrollPane, BorderLayout.CENTER);
+
+    add(runsScrollPane, BorderLayout.NORTH);
+    add(bottom, BorderLayout.CENTER);
+    refresh();
+  }
+
+  /**
+   * Reload runs from the history, newest first.
+   */
+  public void refresh() {
+    new SwingWorker<List<RunSummary>, Void>() {
+      @Override
+      protected List<RunSummary> doInBackground() throws IOException {
+        return history.list();
+      }
+
+      @Override
+      protected void done() {
+        try {
+          List<RunSummary> list = get();
+          runs = new ArrayList<>();
+          for (int i = list.size() - 1; i >= 0; i--) {
+            runs.add(list.get(i));
+          }
+          runsModel.setRowCount(0);
+          SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+          for (RunSummary run : runs) {
+            RunSummary.LabelSummary total = run.getTotal();
+            runsModel.addRow(new Object[]{run.getId(), format.format(new Date(run.getStartTime())), run.getTestName(),
+                run.getDataFile(), run.getSelection(), run.getState(), total.samples,
+                String.format("%.1f", total.throughput), String.format("%.2f", total.getErrorRate()), total.p95,
+                total.p99});
+          }
+          if (!runs.isEmpty()) runsTable.getSelectionModel().setSelectionInterval(0, 0);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } catch (Exception e) {
+          statusLabel.setText("Cannot read run history: " + e.getMessage());
+        }
+      }
+    }.execute();
+  }
+
+  private RunSummary getSelectedRun() {
+    int row = runsTable.getSelectedRow();
+    return row >= 0 && row < runs.size() ? runs.get(row) : null;
+  }
+
+  private void setBaseline() {
+    RunSummary run = getSelectedRun();
+    if (run == null) return;
+    try {
+      history.setBaseline(run.getTestName(), run.getId());
+    } catch (IOException e) {
+      JOptionPane.showMessageDialog(this, "Cannot save baseline: " + e.getMessage(), "Error",
+          JOptionPane.ERROR_MESSAGE);
+    }
+    compare();
+  }
+
+  /**
+   * Compare the selected run with the baseline of its test.
+   */
+  private void compare() {
+    comparisonModel.setRowCount(0);
+    regressions.clear();
+    RunSummary run = getSelectedRun();
+    if (run == null) {
+      statusLabel.setText(" ");
+      return;
+    }
+    RunSummary baseline;
+    try {
+      baseline = history.get(history.getBaseline(run.getTestName()));
+    } catch (IOException e) {
+      statusLabel.setText("Cannot read baseline: " + e.getMessage());
+      return;
+    }
+    if (baseline == null) {
+      statusLabel.setText("No baseline for " + run.getTestName());
+      return;
+    }
+    if (baseline.getId() == run.getId()) {
+      statusLabel.setText("Run #" + run.getId() + " is the baseline");
+      return;
+    }
+    RunComparison comparison = new RunComparison(baseline, run, (Double) thresholdSpinner.getValue());
+    for (RunComparison.Row row : comparison.getRows()) {
+      RunSummary.LabelSummary base = row.baseline;
+      RunSummary.LabelSummary current = row.candidate;
+      comparisonModel.addRow(new Object[]{row.label,
+          base == null ? "" : base.p95, current == null ? "" : current.p95, change(base, current, s -> s.p95),
+          base == null ? "" : base.p99, current == null ? "" : current.p99, change(base, current, s -> s.p99),
+          base == null ? "" : String.format("%.1f", base.throughput),
+          current == null ? "" : String.format("%.1f", current.throughput),
+          change(base, current, s -> s.throughput)});
+      regressions.add(row.isRegression());
+    }
+    statusLabel.setText((comparison.hasRegression() ? "Regressions" : "No regressions") + " against baseline run #" +
+        baseline.getId());
+  }
+
+  private static String change(RunSummary.LabelSummary base, RunSummary.LabelSummary current,
+                               ToDoubleFunction<RunSummary.LabelSummary> value) {
+    if (base == null || current == null) return "";
+    double change = RunComparison.change(value.applyAsDouble(base), value.applyAsDouble(current));
+    return Double.isNaN(change) ? "" : String.format("%+.1f", change);
+  }
+}
@@ -0,0 +1,104 @@
+package net.campspot.components;
+
+import net.campspot.results.LiveStats;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Table of live per-label statistics of a run: throughput, error rate and percentiles over a sliding window.
+ */
+public class LiveResultsPanel extends JPanel {
+  private static final int REFRESH_MILLIS = 1000;
+  private static final Integer[] WINDOWS = {10, 30, 60};
+
+  private final StatsTableModel model = new StatsTableModel();
+  private final JComboBox<Integer> windowComboBox = new JComboBox<>(WINDOWS);
+  private final JLabel samplesLabel = new JLabel();
+  private final Timer timer = new Timer(REFRESH_MILLIS, e -> refresh());
+  private LiveStats stats;
+
+  public LiveResultsPanel() {
+    super(new BorderLayout(0, 5));
+    JTable table = new JTable(model);
+    table.getColumnModel().getColumn(0).setPreferredWidth(250);
+
+    windowComboBox.setSelectedItem(LiveStats.MAX_WINDOW_SECONDS);
+    windowComboBox.addActionListener(e -> refresh());
+    JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+    top.add(new JLabel("Window (seconds):"));
+    top.add(windowComboBox);
+    top.add(samplesLabel);
+
+    add(top, BorderLayout.NORTH);
+    add(new JScrollPane(table), BorderLayout.CENTER);
+    timer.start();
+  }
+
+  /**
+   * Show statistics of a run, null to clear.
+   */
+  public void setStats(LiveStats stats) {
+    if (stats == this.stats) return;
+    this.stats = stats;
+    refresh();
+  }
+
+  private void refresh() {
+    if (stats == null) {
+      model.rows = new ArrayList<>();
+      samplesLabel.setText("");
+    } else {
+      model.rows = stats.getRows((Integer) windowComboBox.getSelectedItem());
+      samplesLabel.setText("Samples: " + stats.getSampleCount());
+    }
+    model.fireTableDataChanged();
+  }
+
+  private static class StatsTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {"Label", "Samples", "Errors", "Throughput/s", "Error %", "p50 (ms)",
+        "p95 (ms)", "p99 (ms)"};
+    private List<LiveStats.Row> rows = new ArrayList<>();
+
+    @Override
+    public int getRowCount() {
+      return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+      return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+      return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int column) {
+      LiveStats.Row row = rows.get(rowIndex);
+      switch (column) {
+        case 0:
+          return row.label;
+        case 1:
+          return row.samples;
+        case 2:
+          return row.errors;
+        case 3:
+          return String.format("%.1f", row.throughput);
+        case 4:
+          return String.format("%.2f", row.errorRate);
+        case 5:
+          return row.p50;
+        case 6:
+          return row.p95;
+        default:
+          return row.p99;
+      }
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package net.campspot.components;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Form of a native load test: data file, request template, arrival rate and duration. Defaults come from the
+ * load* entries of the configuration file.
+ */
+public class LoadTestPanel extends JPanel {
+  private final JComboBox<String> dataFileComboBox;
+  private final JTextField urlField;
+  private final JComboBox<String> methodComboBox = new JComboBox<>(new String[]{"GET", "POST", "PUT"});
+  private final JTextArea bodyArea;
+  private final JSpinner rateSpinner;
+  private final JSpinner durationSpinner;
+  private final JSpinner concurrencySpinner;
+  private final JCheckBox stubCheckBox = new JCheckBox("Send to local stub server, delay (ms):");
+  private final JSpinner stubDelaySpinner = new JSpinner(new SpinnerNumberModel(20, 0, 60000, 10));
+
+  /**
+   * @param dataFiles    files of the Data folder
+   * @param selectedFile file to select, may be null
+   * @param config       configuration
+   */
+  public LoadTestPanel(List<String> dataFiles, String selectedFile, Properties config) {
+    super(new GridBagLayout());
+    dataFileComboBox = new JComboBox<>(dataFiles.toArray(new String[0]));
+    if (selectedFile != null) dataFileComboBox.setSelectedItem(selectedFile);
+    urlField = new JTextField(config.getProperty("loadUrl", ""), 50);
+    methodComboBox.setSelectedItem(config.getProperty("loadMethod", "GET").trim().toUpperCase());
+    bodyArea = new JTextArea(config.getProperty("loadBody", ""), 4, 50);
+    rateSpinner = new JSpinner(new SpinnerNumberModel(getDouble(config, "loadRate", 100), 0.1, 1000000, 10));
+    durationSpinner = new JSpinner(new SpinnerNumberModel((int) getDouble(config, "loadDuration", 60), 1, 864000,
+        10));
+    concurrencySpinner = new JSpinner(new SpinnerNumberModel((int) getDouble(config, "loadMaxConcurrency", 500), 1,
+        100000, 50));
+
+    addRow(0, "Data file:", dataFileComboBox);
+    addRow(1, "Method:", methodComboBox);
+    addRow(2, "URL:", urlField);
+    addRow(3, "Body:", new JScrollPane(bodyArea));
+    addRow(4, "Requests per second:", rateSpinner);
+    addRow(5, "Duration (s):", durationSpinner);
+    addRow(6, "Max requests in flight:", concurrencySpinner);
+    JPanel stub = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+    stub.add(stubCheckBox);
+    stub.add(stubDelaySpinner);
+    addRow(7, "", stub);
+    GridBagConstraints gbc = new GridBagConstraints();
+    gbc.gridx = 1;
+    gbc.gridy = 8;
+    gbc.anchor = GridBagConstraints.WEST;
+    add(new JLabel("${column} in URL and body is replaced with the value of the data file column"), gbc);
+  }
+
+  private static double getDouble(Properties config, String key, double defaultValue) {
+    String value = config.getProperty(key);
+    return value == null || value.trim().isEmpty() ? defaultValue : Double.parseDouble(value.trim());
+  }
+
+  private void addRow(int row, String label, JComponent component) {
+    GridBagConstraints gbc = new GridBagConstraints();
+    gbc.gridx = 0;
+    gbc.gridy = row;
+    gbc.anchor = GridBagConstraints.WEST;
+    gbc.insets = new Insets(2, 0, 2, 5);
+    add(new JLabel(label), gbc);
+    gbc = new GridBagConstraints();
+    gbc.gridx = 1;
+    gbc.gridy = row;
+    gbc.weightx = 1.0;
+    gbc.fill = GridBagConstraints.HORIZONTAL;
+    gbc.insets = new Insets(2, 0, 2, 0);
+    add(component, gbc);
+  }
+
+  public String getDataFile() {
+    return (String) dataFileComboBox.getSelectedItem();
+  }
+
+  public String getMethod() {
+    return (String) methodComboBox.getSelectedItem();
+  }
+
+  public String getUrl() {
+    return urlField.getText();
+  }
+
+  public String getBody() {
+    return bodyArea.getText();
+  }
+
+  public double getRate() {
+    return ((Number) rateSpinner.getValue()).doubleValue();
+  }
+
+  public int getDuration() {
+    return ((Number) durationSpinner.getValue()).intValue();
+  }
+
+  public int getMaxConcurrency() {
+    return ((Number) concurrencySpinner.getValue()).intValue();
+  }
+
+  /**
+   * @return delay of the local stub server in milliseconds, -1 to send to the URL as it is
+   */
+  public long getStubDelay() {
+    return stubCheckBox.isSelected() ? ((Number) stubDelaySpinner.getValue()).longValue() : -1;
+  }
+}
@@ -0,0 +1,69 @@
+package net.campspot.components;
+
+import net.campspot.models.Park;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parks that match a search, as indexes into the list of all parks, so a search does not copy the parks into rows.
+ */
+public class ParkTableModel extends AbstractTableModel {
+  private static final String[] COLUMNS = {"Id", "Name"};
+
+  private List<Park> parks = Collections.emptyList();
+  private int[] rows = new int[0]; // indexes of the shown parks, changed on the event dispatch thread only
+
+  /**
+   * @param parks   all parks
+   * @param matches indexes of the parks to show, null for all
+   */
+  public void show(List<Park> parks, BitSet matches) {
+    this.parks = parks;
+    int[] shown = new int[parks.size()];
+    int count = 0;
+    for (int i = 0; i < parks.size(); i++) {
+      if (matches == null || matches.get(i)) shown[count++] = i;
+    }
+    rows = Arrays.copyOf(shown, count);
+    fireTableDataChanged();
+  }
+
+  public Park getPark(int row) {
+    return parks.get(rows[row]);
+  }
+
+  /**
+   * @return row of a park, -1 if it is not shown
+   */
+  public int indexOf(String parkId) {
+    for (int row = 0; row < rows.length; row++) {
+      if (getPark(row).id.equals(parkId)) return row;
+    }
+    return -1;
+  }
+
+  @Override
+  public int getRowCount() {
+    return rows.length;
+  }
+
+  @Override
+  public int getColumnCount() {
+    return COLUMNS.length;
+  }
+
+  @Override
+  public String getColumnName(int column) {
+    return COLUMNS[column];
+  }
+
+  @Override
+  public Object getValueAt(int rowIndex, int columnIndex) {
+    Park park = getPark(rowIndex);
+    return columnIndex == 0 ? park.id : park.name;
+  }
+}
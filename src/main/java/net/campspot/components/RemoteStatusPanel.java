@@ -0,0 +1,100 @@
+package net.campspot.components;
+
+import net.campspot.Helper;
+import net.campspot.remote.ControlPlaneClient;
+import net.campspot.remote.StatusPoller;
+
+import javax.swing.*;
+import java.awt.*;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.function.Predicate;
+
+/**
+ * Status of a test run on the remote server, polled in the background. Each change of the status is added to the
+ * log with its time, so the progress of the run can be followed without a browser.
+ */
+public class RemoteStatusPanel extends JPanel {
+  private final ControlPlaneClient controlPlane;
+  private final Predicate<String> finished;
+  private final JTextArea logArea = new JTextArea();
+  private final JLabel nextPollLabel = new JLabel(" ");
+  private final JButton stopButton = new JButton("Stop Polling");
+  private final Timer timer = new Timer(1000, e -> updateNextPollLabel());
+  private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss");
+  private StatusPoller poller;
+
+  /**
+   * @param controlPlane client of the remote server
+   * @param finished     whether a status is the last one of a run
+   */
+  public RemoteStatusPanel(ControlPlaneClient controlPlane, Predicate<String> finished) {
+    super(new BorderLayout(0, 5));
+    this.controlPlane = controlPlane;
+    this.finished = finished;
+
+    logArea.setEditable(false);
+    logArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+    JScrollPane logScrollPane = new JScrollPane(logArea);
+    logScrollPane.setPreferredSize(new Dimension(600, 250));
+
+    stopButton.addActionListener(e -> stop());
+    JButton browserButton = new JButton("Open in Browser");
+    browserButton.addActionListener(e -> {
+      try {
+        Helper.openWebpage(controlPlane.pageUrl("ViewTestStatus.aspx").newBuilder()
+            .addQueryParameter("cancel", "no").build().url());
+      } catch (RuntimeException ex) {
+        JOptionPane.showMessageDialog(this, "Cannot open browser: " + ex.getMessage(), "Error",
+            JOptionPane.ERROR_MESSAGE);
+      }
+    });
+    JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+    buttons.add(browserButton);
+    buttons.add(stopButton);
+    JPanel south = new JPanel(new BorderLayout());
+    south.add(nextPollLabel, BorderLayout.WEST);
+    south.add(buttons, BorderLayout.EAST);
+
+    add(logScrollPane, BorderLayout.CENTER);
+    add(south, BorderLayout.SOUTH);
+  }
+
+  /**
+   * Follow the status of a test that was just started, polling of an earlier test stops.
+   */
+  public void follow(String testName) {
+    stop();
+    append("Started " + testName);
+    poller = controlPlane.pollStatus(finished,
+        status -> SwingUtilities.invokeLater(() -> append(status)),
+        error -> SwingUtilities.invokeLater(() -> append("Cannot get status: " + error.getMessage())));
+    stopButton.setEnabled(true);
+    timer.start();
+  }
+
+  /**
+   * Stop polling, called when the panel is closed.
+   */
+  public void stop() {
+    if (poller != null) poller.stop();
+    timer.stop();
+    stopButton.setEnabled(false);
+    nextPollLabel.setText(" ");
+  }
+
+  private void append(String line) {
+    logArea.append(timeFormat.format(new Date()) + "  " + line + "\n");
+    logArea.setCaretPosition(logArea.getDocument().getLength());
+  }
+
+  private void updateNextPollLabel() {
+    if (poller == null || poller.isStopped()) {
+      stop();
+      nextPollLabel.setText("Run finished");
+      return;
+    }
+    long seconds = Math.max(0, (poller.getNextPoll() - System.currentTimeMillis() + 999) / 1000);
+    nextPollLabel.setText("Next check in " + seconds + " s");
+  }
+}
@@ -0,0 +1,60 @@
+package net.campspot.components;
+
+import net.campspot.results.JtlReport;
+import net.campspot.results.LatencyHistogram;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.util.Map;
+
+/**
+ * Detailed results of a finished test: statistics per label, throughput timeline and response codes.
+ */
+public class ReportPanel extends JPanel {
+  private static final String[] LABEL_COLUMNS = {"Label", "Samples", "Errors", "Error %", "Throughput/s", "Mean (ms)",
+      "p50 (ms)", "p90 (ms)", "p95 (ms)", "p99 (ms)", "Max (ms)"};
+
+  public ReportPanel(JtlReport report) {
+    super(new BorderLayout(0, 5));
+    JtlReport.LabelStats total = report.getTotal();
+    JLabel summary = new JLabel(String.format("%s: %d samples in %d s, %.1f/s, %.2f%% errors",
+        report.getFile().getFileName(), total.getCount(), report.getDuration() / 1000, total.getThroughput(),
+        total.getErrorRate()));
+
+    DefaultTableModel labels = new DefaultTableModel(LABEL_COLUMNS, 0);
+    for (JtlReport.LabelStats stats : report.getLabels()) {
+      labels.addRow(row(stats));
+    }
+    labels.addRow(row(total));
+
+    DefaultTableModel codes = new DefaultTableModel(new String[]{"Response Code", "Samples", "%"}, 0);
+    for (Map.Entry<String, Long> entry : report.getResponseCodes().entrySet()) {
+      codes.addRow(new Object[]{entry.getKey(), entry.getValue(),
+          String.format("%.2f", 100.0 * entry.getValue() / Math.max(total.getCount(), 1))});
+    }
+
+    JTable labelsTable = new JTable(labels);
+    labelsTable.setDefaultEditor(Object.class, null);
+    labelsTable.getColumnModel().getColumn(0).setPreferredWidth(250);
+    JTable codesTable = new JTable(codes);
+    codesTable.setDefaultEditor(Object.class, null);
+
+    JTabbedPane tabs = new JTabbedPane();
+    tabs.addTab("Labels", new JScrollPane(labelsTable));
+    tabs.addTab("Timeline", new TimelineChart(report.getTimeline()));
+    tabs.addTab("Response Codes", new JScrollPane(codesTable));
+    tabs.setPreferredSize(new Dimension(900, 400));
+
+    add(summary, BorderLayout.NORTH);
+    add(tabs, BorderLayout.CENTER);
+  }
+
+  private static Object[] row(JtlReport.LabelStats stats) {
+    LatencyHistogram histogram = stats.getHistogram();
+    return new Object[]{stats.getLabel(), stats.getCount(), stats.getErrors(),
+        String.format("%.2f", stats.getErrorRate()), String.format("%.1f", stats.getThroughput()),
+        String.format("%.1f", histogram.getMean()), histogram.getPercentile(50), histogram.getPercentile(90),
+        histogram.getPercentile(95), histogram.getPercentile(99), histogram.getMax()};
+  }
+}
@@ -0,0 +1,172 @@
+package net.campspot.components;
+
+import net.campspot.runner.HostSample;
+import net.campspot.runner.LocalRun;
+import net.campspot.runner.RunManager;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.text.BadLocationException;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Panel listing local runs with their state, and the live log and results of the selected run.
+ * It polls the run manager on a Swing timer, so runs never touch Swing components themselves.
+ */
+public class RunsPanel extends JPanel {
+  private static final int REFRESH_MILLIS = 500;
+  private static final int MAX_LOG_LINES = 5000;
+
+  private final RunManager runManager;
+  private final RunsTableModel model = new RunsTableModel();
+  private final JTable runsTable = new JTable(model);
+  private final JTextArea logArea = new JTextArea();
+  private final LiveResultsPanel resultsPanel = new LiveResultsPanel();
+  private final Timer timer = new Timer(REFRESH_MILLIS, e -> refresh());
+  private LocalRun shownRun; // run whose log is shown
+  private long shownSequence; // next log line of shown run to append
+
+  public RunsPanel(RunManager runManager) {
+    super(new BorderLayout(0, 5));
+    this.runManager = runManager;
+
+    runsTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+    runsTable.getSelectionModel().addListSelectionListener(e -> {
+      if (!e.getValueIsAdjusting()) showLog(getSelectedRun());
+    });
+    runsTable.getColumnModel().getColumn(0).setMaxWidth(40);
+    runsTable.getColumnModel().getColumn(5).setPreferredWidth(380);
+    JScrollPane runsScrollPane = new JScrollPane(runsTable);
+    runsScrollPane.setPreferredSize(new Dimension(900, 120));
+
+    logArea.setEditable(false);
+    logArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+    JScrollPane logScrollPane = new JScrollPane(logArea);
+    logScrollPane.setPreferredSize(new Dimension(900, 350));
+
+    JButton cancelButton = new JButton("Cancel Run");
+    cancelButton.addActionListener(e -> {
+      LocalRun run = getSelectedRun();
+      if (run != null) run.cancel();
+    });
+    JButton clearButton = new JButton("Clear Finished");
+    clearButton.addActionListener(e -> {
+      runManager.clearFinished();
+      refresh();
+    });
+    JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+    buttons.add(clearButton);
+    buttons.add(cancelButton);
+
+    add(runsScrollPane, BorderLayout.NORTH);
+    JTabbedPane tabs = new JTabbedPane();
+    tabs.addTab("Log", logScrollPane);
+    tabs.addTab("Live Results", resultsPanel);
+
+    add(tabs, BorderLayout.CENTER);
+    add(buttons, BorderLayout.SOUTH);
+    timer.start();
+  }
+
+  /**
+   * Select a run and show its log.
+   */
+  public void select(LocalRun run) {
+    refresh();
+    int row = model.runs.indexOf(run);
+    if (row >= 0) runsTable.getSelectionModel().setSelectionInterval(row, row);
+  }
+
+  private LocalRun getSelectedRun() {
+    int row = runsTable.getSelectedRow();
+    return row >= 0 && row < model.runs.size() ? model.runs.get(row) : null;
+  }
+
+  private void refresh() {
+    LocalRun selected = getSelectedRun();
+    List<LocalRun> runs = runManager.getRuns();
+    if (runs.equals(model.runs)) {
+      if (!runs.isEmpty()) model.fireTableRowsUpdated(0, runs.size() - 1);
+    } else {
+      model.runs = runs;
+      model.fireTableDataChanged();
+      int row = runs.indexOf(selected);
+      if (row >= 0) runsTable.getSelectionModel().setSelectionInterval(row, row);
+    }
+    appendNewLines();
+  }
+
+  private void showLog(LocalRun run) {
+    if (run == shownRun) return;
+    shownRun = run;
+    shownSequence = 0;
+    resultsPanel.setStats(run == null ? null : run.getStats());
+    logArea.setText("");
+    appendNewLines();
+  }
+
+  private void appendNewLines() {
+    if (shownRun == null) return;
+    List<String> lines = new ArrayList<>();
+    shownSequence = shownRun.getLog().linesSince(shownSequence, lines);
+    if (lines.isEmpty()) return;
+    StringBuilder sb = new StringBuilder();
+    for (String line : lines) {
+      sb.append(line).append('\n');
+    }
+    logArea.append(sb.toString());
+    // keep the text area bounded like the log buffer
+    int extra = logArea.getLineCount() - MAX_LOG_LINES;
+    if (extra > 0) {
+      try {
+        logArea.replaceRange("", 0, logArea.getLineEndOffset(extra - 1));
+      } catch (BadLocationException e) {
+        logArea.setText("");
+      }
+    }
+    logArea.setCaretPosition(logArea.getDocument().getLength());
+  }
+
+  private static class RunsTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {"#", "Test", "State", "Elapsed", "Exit Code", "Load Generator"};
+    private List<LocalRun> runs = new ArrayList<>();
+
+    @Override
+    public int getRowCount() {
+      return runs.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+      return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+      return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+      LocalRun run = runs.get(row);
+      switch (column) {
+        case 0:
+          return run.getId();
+        case 1:
+          return run.getName();
+        case 2:
+          return run.getState();
+        case 3:
+          long seconds = run.getElapsed() / 1000;
+          return String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+        case 4:
+          return run.isActive() ? "" : run.getExitCode();
+        default:
+          HostSample sample = run.getHostSample();
+          return sample == null ? "" : sample.toString();
+      }
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package net.campspot.components;
+
+import net.campspot.results.Timeline;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Chart of samples and errors per second. When the test has more seconds than the chart has pixels, each column
+ * shows the average of the seconds it covers.
+ */
+public class TimelineChart extends JComponent {
+  private static final int MARGIN = 40;
+
+  private final Timeline timeline;
+
+  public TimelineChart(Timeline timeline) {
+    this.timeline = timeline;
+    setPreferredSize(new Dimension(700, 300));
+  }
+
+  @Override
+  protected void paintComponent(Graphics g) {
+    Graphics2D g2 = (Graphics2D) g;
+    g2.setColor(getBackground() != null ? getBackground() : Color.WHITE);
+    g2.fillRect(0, 0, getWidth(), getHeight());
+    int width = getWidth() - 2 * MARGIN;
+    int height = getHeight() - 2 * MARGIN;
+    int length = timeline.getLength();
+    if (length == 0 || width <= 0 || height <= 0) return;
+
+    int columns = Math.min(width, length);
+    double[] counts = new double[columns];
+    double[] errors = new double[columns];
+    double max = 1;
+    for (int column = 0; column < columns; column++) {
+      int from = (int) ((long) column * length / columns);
+      int to = (int) ((long) (column + 1) * length / columns);
+      long count = 0;
+      long error = 0;
+      for (int i = from; i < to; i++) {
+        count += timeline.getCount(i);
+        error += timeline.getErrors(i);
+      }
+      counts[column] = (double) count / (to - from);
+      errors[column] = (double) error / (to - from);
+      max = Math.max(max, counts[column]);
+    }
+
+    double columnWidth = (double) width / columns;
+    for (int column = 0; column < columns; column++) {
+      int x = MARGIN + (int) (column * columnWidth);
+      int w = Math.max(1, (int) ((column + 1) * columnWidth) - (int) (column * columnWidth));
+      int h = (int) (counts[column] / max * height);
+      g2.setColor(new Color(70, 130, 180));
+      g2.fillRect(x, MARGIN + height - h, w, h);
+      int e = (int) (errors[column] / max * height);
+      g2.setColor(Color.RED);
+      g2.fillRect(x, MARGIN + height - e, w, e);
+    }
+
+    g2.setColor(Color.DARK_GRAY);
+    g2.drawLine(MARGIN, MARGIN + height, MARGIN + width, MARGIN + height);
+    g2.drawLine(MARGIN, MARGIN, MARGIN, MARGIN + height);
+    g2.drawString("0", MARGIN, MARGIN + height + 15);
+    String end = length + " s";
+    g2.drawString(end, MARGIN + width - g2.getFontMetrics().stringWidth(end), MARGIN + height + 15);
+    g2.drawString(String.format("samples/s, max %.0f/s (errors in red)", max), MARGIN, MARGIN - 5);
+  }
+}
@@ -0,0 +1,139 @@
+package net.campspot.files;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Watches folders such as Data, Tests and Results with one {@link WatchService}. Each folder is listed once; after
+ * that only files that were created, changed or deleted are looked at, and listeners get one event per file. Events
+ * of a file that is being written are coalesced until it has been quiet for a moment.
+ * <p>
+ * Metadata of files is computed on demand on a background thread and cached until the file changes.
+ */
+public class FileCatalog implements Closeable {
+  private static final long QUIET_MILLIS = 300; // events of a file are delivered after this time without events
+  private static final long MAX_DELAY_MILLIS = 1000; // or at the latest after this time
+
+  private final WatchService watchService;
+  private final Map<WatchKey, WatchedFolder> folders = new HashMap<>();
+  private final ExecutorService metadataExecutor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "file-metadata");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    return thread;
+  });
+  private final Thread watcher;
+
+  public FileCatalog() throws IOException {
+    watchService = FileSystems.getDefault().newWatchService();
+    watcher = new Thread(this::watch, "file-catalog");
+    watcher.setDaemon(true);
+    watcher.start();
+  }
+
+  /**
+   * Start watching a folder.
+   *
+   * @param directory folder, created if it does not exist
+   * @param filter    names of files to list, hidden files and folders are never listed
+   * @return the folder with its current files
+   */
+  public WatchedFolder watch(Path directory, Predicate<String> filter) throws IOException {
+    Files.createDirectories(directory);
+    WatchedFolder folder = new WatchedFolder(directory, filter, metadataExecutor);
+    WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+    synchronized (folders) {
+      folders.put(key, folder);
+    }
+    folder.rescan(); // after registering, so no file created meanwhile is missed
+    return folder;
+  }
+
+  private void watch() {
+    Map<WatchedFolder, Set<String>> pending = new HashMap<>();
+    long firstPending = 0;
+    try {
+      while (true) {
+        WatchKey key = pending.isEmpty() ? watchService.take() :
+            watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+        if (key != null) {
+          WatchedFolder folder;
+          synchronized (folders) {
+            folder = folders.get(key);
+          }
+          for (WatchEvent<?> event : key.pollEvents()) {
+            if (folder == null) continue;
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+              folder.rescan();
+            } else {
+              if (pending.isEmpty()) firstPending = System.currentTimeMillis();
+              pending.computeIfAbsent(folder, f -> new LinkedHashSet<>()).add(event.context().toString());
+            }
+          }
+          if (!key.reset() && folder != null) {
+            synchronized (folders) {
+              folders.remove(key);
+            }
+          }
+        }
+        if (!pending.isEmpty() && (key == null || System.currentTimeMillis() - firstPending >= MAX_DELAY_MILLIS)) {
+          for (Map.Entry<WatchedFolder, Set<String>> entry : pending.entrySet()) {
+            for (String name : entry.getValue()) {
+              entry.getKey().refresh(name);
+            }
+          }
+          pending.clear();
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // closed
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    watcher.interrupt();
+    watchService.close();
+    metadataExecutor.shutdownNow();
+  }
+
+  /**
+   * @return names of the regular, not hidden, files of a directory that pass a filter, sorted
+   */
+  static List<String> list(Path directory, Predicate<String> filter) throws IOException {
+    List<String> names = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (Path path : stream) {
+        String name = path.getFileName().toString();
+        if (accept(name, filter) && Files.isRegularFile(path)) names.add(name);
+      }
+    }
+    Collections.sort(names);
+    return names;
+  }
+
+  static boolean accept(String name, Predicate<String> filter) {
+    return !name.startsWith(".") && filter.test(name);
+  }
+}
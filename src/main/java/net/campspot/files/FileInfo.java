@@ -0,0 +1,197 @@
+package net.campspot.files;
+
+import net.campspot.generator.FieldScanner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Metadata of a file of a watched folder: size and, for CSV data files and result files, number of rows and the
+ * dates they cover. Data files cover check in to checkout, result files the days of their samples.
+ */
+public class FileInfo {
+  private static final int BUFFER_SIZE = 1 << 20;
+  public static final List<String> CHECKIN_COLUMNS = Arrays.asList("check in day", "check in month", "checkin year");
+  public static final List<String> CHECKOUT_COLUMNS = Arrays.asList("checkout day", "checkout date", "checkout year");
+
+  private final long size;
+  private final long lastModified;
+  private final long rows;
+  private final LocalDate firstDate;
+  private final LocalDate lastDate;
+
+  FileInfo(long size, long lastModified, long rows, LocalDate firstDate, LocalDate lastDate) {
+    this.size = size;
+    this.lastModified = lastModified;
+    this.rows = rows;
+    this.firstDate = firstDate;
+    this.lastDate = lastDate;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  public long getLastModified() {
+    return lastModified;
+  }
+
+  /**
+   * @return number of rows without header, -1 if the file is not a CSV file
+   */
+  public long getRows() {
+    return rows;
+  }
+
+  /**
+   * @return first check in or sample date, null if unknown
+   */
+  public LocalDate getFirstDate() {
+    return firstDate;
+  }
+
+  /**
+   * @return last checkout or sample date, null if unknown
+   */
+  public LocalDate getLastDate() {
+    return lastDate;
+  }
+
+  /**
+   * @return whether the info was computed for the file as it is now
+   */
+  boolean isCurrent(BasicFileAttributes attributes) {
+    return attributes.size() == size && attributes.lastModifiedTime().toMillis() == lastModified;
+  }
+
+  /**
+   * Compute the metadata of a file. CSV files are scanned once as bytes, without decoding lines to Strings.
+   */
+  static FileInfo scan(Path file, BasicFileAttributes attributes) throws IOException {
+    long size = attributes.size();
+    long lastModified = attributes.lastModifiedTime().toMillis();
+    String name = file.getFileName().toString().toLowerCase();
+    if (!name.endsWith(".csv") && !name.endsWith(".jtl")) return new FileInfo(size, lastModified, -1, null, null);
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      byte[] bytes = buffer.array();
+      Scanner scanner = null;
+      long rows = 0;
+      boolean endOfInput = false;
+      while (!endOfInput) {
+        endOfInput = channel.read(buffer) < 0;
+        int limit = buffer.position();
+        int start = 0;
+        while (start < limit) {
+          int end = start;
+          while (end < limit && bytes[end] != '\n') end++;
+          if (end == limit && !endOfInput) break; // incomplete line, read more
+          if (scanner == null) {
+            String header = new String(bytes, start, end - start, StandardCharsets.UTF_8).trim();
+            scanner = new Scanner(FieldScanner.split(header));
+          } else if (end > start) {
+            scanner.line(bytes, start, end);
+            rows++;
+          }
+          start = end + 1;
+        }
+        if (start == 0 && limit == bytes.length) throw new IOException("Line longer than " + BUFFER_SIZE + " bytes");
+        buffer.position(Math.min(start, limit));
+        buffer.limit(limit);
+        buffer.compact();
+      }
+      return scanner == null ? new FileInfo(size, lastModified, 0, null, null) :
+          new FileInfo(size, lastModified, rows, scanner.firstDate(), scanner.lastDate());
+    }
+  }
+
+  /**
+   * Reads the numeric fields holding dates from CSV lines, fields are separated by {@link FieldScanner}.
+   */
+  private static class Scanner {
+    private final int[] checkin; // columns of day, month, year
+    private final int[] checkout;
+    private final int timeStamp; // column of epoch milliseconds of result files
+    private final int maxColumn;
+    private final long[] fields;
+    private long first = Long.MAX_VALUE; // epoch day or epoch millisecond
+    private long last = Long.MIN_VALUE;
+
+    Scanner(String[] header) {
+      List<String> columns = Arrays.asList(header);
+      int[] checkinColumns = indexes(columns, CHECKIN_COLUMNS);
+      int[] checkoutColumns = indexes(columns, CHECKOUT_COLUMNS);
+      boolean dataFile = checkinColumns != null && checkoutColumns != null;
+      checkin = dataFile ? checkinColumns : null;
+      checkout = dataFile ? checkoutColumns : null;
+      timeStamp = dataFile ? -1 : columns.indexOf("timeStamp");
+      int max = timeStamp;
+      if (dataFile) {
+        for (int column : checkin) max = Math.max(max, column);
+        for (int column : checkout) max = Math.max(max, column);
+      }
+      maxColumn = max;
+      fields = new long[Math.max(max + 1, 0)];
+    }
+
+    private static int[] indexes(List<String> columns, List<String> names) {
+      int[] indexes = new int[names.size()];
+      for (int i = 0; i < indexes.length; i++) {
+        indexes[i] = columns.indexOf(names.get(i));
+        if (indexes[i] < 0) return null;
+      }
+      return indexes;
+    }
+
+    void line(byte[] bytes, int from, int to) {
+      if (maxColumn < 0) return;
+      Arrays.fill(fields, -1);
+      int start = from;
+      for (int field = 0; field <= maxColumn && start <= to; field++) {
+        int end = FieldScanner.fieldEnd(bytes, start, to);
+        fields[field] = FieldScanner.number(bytes, start, end);
+        start = end + 1;
+      }
+      try {
+        if (checkin != null) {
+          first = Math.min(first, epochDay(checkin));
+          last = Math.max(last, epochDay(checkout));
+        } else if (fields[timeStamp] >= 0) {
+          first = Math.min(first, fields[timeStamp]);
+          last = Math.max(last, fields[timeStamp]);
+        }
+      } catch (RuntimeException e) {
+        // not a date, ignore the line
+      }
+    }
+
+    private long epochDay(int[] columns) {
+      return LocalDate.of((int) fields[columns[2]], (int) fields[columns[1]], (int) fields[columns[0]]).toEpochDay();
+    }
+
+    LocalDate firstDate() {
+      return toDate(first);
+    }
+
+    LocalDate lastDate() {
+      return toDate(last);
+    }
+
+    private LocalDate toDate(long value) {
+      if (value == Long.MAX_VALUE || value == Long.MIN_VALUE) return null;
+      if (checkin != null) return LocalDate.ofEpochDay(value);
+      return Instant.ofEpochMilli(value).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+  }
+}
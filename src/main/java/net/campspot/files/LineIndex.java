@@ -0,0 +1,215 @@
+package net.campspot.files;
+
+import net.campspot.generator.FieldScanner;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+/**
+ * Lines of a text file of any size, read through memory mappings. The index keeps the offset of every 1024th line
+ * only, so it takes 8 bytes per 1024 lines, and a line is found by scanning forward from the nearest indexed line.
+ * Lines are decoded only when they are asked for; the file itself is never loaded on the heap.
+ * <p>
+ * The index is built by {@link #build} on a background thread while lines already indexed can be read.
+ */
+public class LineIndex implements Closeable {
+  private static final int SEGMENT_SHIFT = 30; // files are mapped in 1 GB segments
+  private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+  private static final int STEP_SHIFT = 10; // offset of every 1024th line is indexed
+  private static final long STEP_MASK = (1L << STEP_SHIFT) - 1;
+  private static final int PUBLISH_LINES = 1 << 20; // progress is reported every million lines
+  private static final int MAX_LINE_LENGTH = 64 * 1024; // longer lines are cut when decoded
+
+  private final Path file;
+  private final FileChannel channel;
+  private final long size;
+  private final MappedByteBuffer[] segments;
+  private volatile long[] checkpoints = new long[256]; // offset of line k << STEP_SHIFT
+  private volatile long lines; // lines indexed so far
+  private volatile boolean complete;
+  private volatile boolean closed;
+  private long cachedLine = -1; // last line looked up and its offset, so neighbouring lines are found quickly
+  private long cachedOffset;
+
+  public LineIndex(Path file) throws IOException {
+    this.file = file;
+    this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      size = channel.size();
+      segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+      for (int i = 0; i < segments.length; i++) {
+        long start = (long) i << SEGMENT_SHIFT;
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+    if (size > 0) lines = 1; // the first line starts at 0 and is readable at once, e.g. a CSV header
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * @return number of lines indexed so far, all lines once {@link #isComplete()}
+   */
+  public long getLines() {
+    return lines;
+  }
+
+  public boolean isComplete() {
+    return complete;
+  }
+
+  /**
+   * Index the whole file, one sequential pass over the mapping.
+   *
+   * @param progress gets the number of lines indexed so far, every million lines and at the end
+   */
+  public void build(LongConsumer progress) {
+    long line = 0;
+    long[] offsets = checkpoints;
+    for (int s = 0; s < segments.length && !closed; s++) {
+      MappedByteBuffer segment = segments[s];
+      long base = (long) s << SEGMENT_SHIFT;
+      int limit = segment.limit();
+      for (int i = 0; i < limit; i++) {
+        if (segment.get(i) != '\n') continue;
+        long next = base + i + 1;
+        if (next == size) break;
+        line++;
+        if ((line & STEP_MASK) == 0) {
+          int k = (int) (line >>> STEP_SHIFT);
+          if (k == offsets.length) {
+            offsets = Arrays.copyOf(offsets, k * 2);
+            checkpoints = offsets;
+          }
+          offsets[k] = next;
+        }
+        if ((line & (PUBLISH_LINES - 1)) == 0) {
+          lines = line + 1;
+          progress.accept(line + 1);
+          if (closed) return;
+        }
+      }
+    }
+    if (closed) return;
+    lines = size == 0 ? 0 : line + 1;
+    complete = true;
+    progress.accept(lines);
+  }
+
+  /**
+   * @param line line number, starting at 0, below {@link #getLines()}
+   * @return the line without its line break
+   */
+  public String line(long line) {
+    long start = start(line);
+    long end = start;
+    while (end < size && end - start < MAX_LINE_LENGTH && get(end) != '\n') end++;
+    if (end > start && get(end - 1) == '\r') end--;
+    byte[] bytes = new byte[(int) (end - start)];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = get(start + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Find the next line, from a line on, whose fields have some values. Lines are compared as bytes, without
+   * decoding them, with fields separated by {@link FieldScanner}. Like {@link #line}, only the start of a line longer
+   * than the maximum is looked at.
+   *
+   * @param from      first line to look at
+   * @param columns   fields to compare, 0-based
+   * @param values    value of each field
+   * @param cancelled stops the search when true
+   * @return line number, -1 if no line from there on matches
+   */
+  public long find(long from, int[] columns, String[] values, BooleanSupplier cancelled) {
+    byte[][] expected = new byte[values.length][];
+    for (int i = 0; i < values.length; i++) {
+      expected[i] = values[i].getBytes(StandardCharsets.UTF_8);
+    }
+    byte[] bytes = new byte[MAX_LINE_LENGTH];
+    long line = from;
+    long position = start(from);
+    while (position < size) {
+      if ((line & 0xFFFF) == 0 && cancelled.getAsBoolean()) return -1;
+      long end = position;
+      int length = 0;
+      byte b;
+      while (end < size && (b = get(end)) != '\n') {
+        if (length < bytes.length) bytes[length++] = b;
+        end++;
+      }
+      if (length > 0 && bytes[length - 1] == '\r') length--;
+      if (matches(bytes, length, columns, expected)) return line;
+      line++;
+      position = end + 1;
+    }
+    return -1;
+  }
+
+  private static boolean matches(byte[] bytes, int length, int[] columns, byte[][] expected) {
+    for (int i = 0; i < columns.length; i++) {
+      int start = FieldScanner.fieldStart(bytes, 0, length, columns[i]);
+      if (start < 0 || !FieldScanner.matches(bytes, start, FieldScanner.fieldEnd(bytes, start, length), expected[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return offset of the first byte of a line
+   */
+  private synchronized long start(long line) {
+    if (line < 0 || line >= lines) throw new IndexOutOfBoundsException("Line " + line + " of " + lines);
+    long checkpoint = line & ~STEP_MASK;
+    long current;
+    long offset;
+    if (cachedLine >= checkpoint && cachedLine <= line) {
+      current = cachedLine;
+      offset = cachedOffset;
+    } else {
+      current = checkpoint;
+      offset = checkpoint == 0 ? 0 : checkpoints[(int) (checkpoint >>> STEP_SHIFT)];
+    }
+    while (current < line) {
+      while (get(offset) != '\n') offset++;
+      offset++;
+      current++;
+    }
+    cachedLine = line;
+    cachedOffset = offset;
+    return offset;
+  }
+
+  private byte get(long position) {
+    return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & (SEGMENT_SIZE - 1)));
+  }
+
+  /**
+   * Stop building the index and close the file. The mapping itself is released when it is garbage collected.
+   */
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    channel.close();
+  }
+}
@@ -0,0 +1,170 @@
+package net.campspot.files;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+
+/**
+ * Files of a folder watched by a {@link FileCatalog}, kept sorted by name, with their metadata computed on demand.
+ */
+public class WatchedFolder {
+  public enum Change {
+    ADDED, REMOVED, MODIFIED,
+    /**
+     * Metadata of the file was computed.
+     */
+    INFO
+  }
+
+  /**
+   * Receives changes of a folder, on a background thread.
+   */
+  public interface Listener {
+    void changed(WatchedFolder folder, String name, Change change);
+  }
+
+  private final Path directory;
+  private final Predicate<String> filter;
+  private final Executor metadataExecutor;
+  private final List<String> names = new ArrayList<>(); // sorted
+  private final Map<String, FileInfo> infos = new ConcurrentHashMap<>();
+  private final Set<String> computing = ConcurrentHashMap.newKeySet();
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  WatchedFolder(Path directory, Predicate<String> filter, Executor metadataExecutor) {
+    this.directory = directory;
+    this.filter = filter;
+    this.metadataExecutor = metadataExecutor;
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @return names of the files, sorted
+   */
+  public synchronized List<String> getNames() {
+    return new ArrayList<>(names);
+  }
+
+  public synchronized boolean contains(String name) {
+    return Collections.binarySearch(names, name) >= 0;
+  }
+
+  public void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(Listener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Get the metadata of a file. If it is not known yet, it is computed in background and listeners get
+   * {@link Change#INFO} when it is ready.
+   *
+   * @return metadata, null while it is computed
+   */
+  public FileInfo getInfo(String name) {
+    FileInfo info = infos.get(name);
+    if (info == null && computing.add(name)) {
+      metadataExecutor.execute(() -> {
+        boolean changed = false;
+        try {
+          Path file = directory.resolve(name);
+          BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+          FileInfo computed = FileInfo.scan(file, attributes);
+          // a refresh while the file was scanned found nothing to clear, the scan must not be kept
+          changed = !computed.isCurrent(Files.readAttributes(file, BasicFileAttributes.class));
+          if (!changed && contains(name)) {
+            infos.put(name, computed);
+            fire(name, Change.INFO);
+          }
+        } catch (NoSuchFileException e) {
+          // deleted meanwhile, the watcher reports it
+        } catch (IOException | RuntimeException e) {
+          System.err.println("Cannot read " + directory.resolve(name) + ": " + e);
+        } finally {
+          computing.remove(name);
+        }
+        if (changed && contains(name)) getInfo(name);
+      });
+    }
+    return info;
+  }
+
+  /**
+   * List the folder again and report the differences, after the watcher lost events.
+   */
+  void rescan() {
+    List<String> current;
+    try {
+      current = FileCatalog.list(directory, filter);
+    } catch (IOException e) {
+      System.err.println("Cannot list " + directory + ": " + e);
+      return;
+    }
+    List<String> previous = getNames();
+    for (String name : previous) {
+      if (Collections.binarySearch(current, name) < 0) refresh(name);
+    }
+    for (String name : current) {
+      if (Collections.binarySearch(previous, name) < 0) {
+        refresh(name);
+      } else {
+        FileInfo info = infos.get(name);
+        if (info != null && !isCurrent(name, info)) refresh(name);
+      }
+    }
+  }
+
+  private boolean isCurrent(String name, FileInfo info) {
+    try {
+      return info.isCurrent(Files.readAttributes(directory.resolve(name), BasicFileAttributes.class));
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Look at one file after the watcher reported an event for it.
+   */
+  void refresh(String name) {
+    boolean exists = FileCatalog.accept(name, filter) && Files.isRegularFile(directory.resolve(name));
+    Change change;
+    synchronized (this) {
+      int index = Collections.binarySearch(names, name);
+      if (exists && index < 0) {
+        names.add(-index - 1, name);
+        change = Change.ADDED;
+      } else if (!exists && index >= 0) {
+        names.remove(index);
+        change = Change.REMOVED;
+      } else if (exists) {
+        change = Change.MODIFIED;
+      } else {
+        return;
+      }
+      infos.remove(name);
+    }
+    fire(name, change);
+  }
+
+  private void fire(String name, Change change) {
+    for (Listener listener : listeners) {
+      listener.changed(this, name, change);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package net.campspot.generator;
+
+import java.util.SplittableRandom;
+
+/**
+ * Walker's alias table, built with Vose's method: draws index i with probability weight[i] / sum of weights in
+ * constant time, from one random long per draw, whatever the number of weights.
+ */
+final class AliasTable {
+  private static final double SCALE = 0x1p31; // thresholds are probabilities scaled to 31 bits
+
+  // per column, threshold in the high int and alias in the low int, in one array so a draw reads one cache line:
+  // keep the column if the 31 low bits of the draw are below the threshold, else take the alias
+  private final long[] columns;
+
+  /**
+   * @param weights non-negative weights, at least one of them positive
+   * @throws IllegalArgumentException if all weights are 0
+   */
+  AliasTable(double[] weights) {
+    int n = weights.length;
+    double sum = 0;
+    for (double weight : weights) {
+      if (!(weight >= 0) || Double.isInfinite(weight)) throw new IllegalArgumentException("Invalid weight: " + weight);
+      sum += weight;
+    }
+    if (!(sum > 0)) throw new IllegalArgumentException("All weights are 0");
+    columns = new long[n];
+    double[] scaled = new double[n];
+    int[] work = new int[n]; // small columns from the start, large columns from the end
+    int small = 0;
+    int large = n;
+    for (int i = 0; i < n; i++) {
+      scaled[i] = weights[i] * n / sum;
+      if (scaled[i] < 1) work[small++] = i;
+      else work[--large] = i;
+    }
+    while (small > 0 && large < n) {
+      int less = work[--small];
+      int more = work[large++];
+      set(less, (int) (scaled[less] * SCALE), more);
+      scaled[more] += scaled[less] - 1;
+      if (scaled[more] < 1) work[small++] = more;
+      else work[--large] = more;
+    }
+    // what is left is 1 up to rounding errors
+    while (small > 0) keep(work[--small]);
+    while (large < n) keep(work[large++]);
+  }
+
+  private void keep(int column) {
+    set(column, Integer.MAX_VALUE, column);
+  }
+
+  private void set(int column, int threshold, int alias) {
+    columns[column] = (long) threshold << 32 | alias;
+  }
+
+  int size() {
+    return columns.length;
+  }
+
+  int sample(SplittableRandom random) {
+    long bits = random.nextLong();
+    int column = (int) (((bits >>> 32) * columns.length) >>> 32);
+    long entry = columns[column];
+    return ((int) bits & Integer.MAX_VALUE) < (int) (entry >>> 32) ? column : (int) entry;
+  }
+}
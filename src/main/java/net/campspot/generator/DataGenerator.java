@@ -0,0 +1,565 @@
+package net.campspot.generator;
+
+import net.campspot.catalog.CampsiteStore;
+import net.campspot.metrics.GenerateEvent;
+import net.campspot.metrics.ToolMetrics;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Headless generator of booking data files: one row per campsite per night, stays of several nights, or rows drawn
+ * with a {@link TrafficSkew}.
+ * Every row fragment is rendered once up front, so the row loop only copies bytes into a reused buffer.
+ */
+public class DataGenerator {
+  public static final String[] HEADER = {"email", "campsite id", "park id", "type", "check in day", "check in month",
+      "checkin year", "checkout day", "checkout date", "checkout year"};
+  private static final int PROGRESS_INTERVAL = 1 << 16; // report progress every 65536 rows
+  private static final int CHUNKS_PER_THREAD = 4; // more chunks than threads to even out uneven chunks
+  private static final int MIN_CAMPSITES_PER_CHUNK = 64;
+
+  private final List<Segment> segments;
+  private long totalRows;
+  private IdentityAllocator identities = IdentityAllocator.DEFAULT;
+  private StayLengths stayLengths;
+  private TrafficSkew skew;
+  private StayAllocator stays; // null for one-night stays or skewed rows
+  private int[][] stayCounts; // per segment, stays of each campsite of its range
+  private SkewedSampler sampler; // null for every campsite and night once
+  private boolean configured = true; // rows counted with the stay lengths and skew set
+  private volatile boolean cancelled;
+
+  /**
+   * @param store     campsite store
+   * @param campsites campsites to book
+   * @param checkin   first check in date
+   * @param days      number of nights per campsite
+   */
+  public DataGenerator(CampsiteStore store, CampsiteStore.Range campsites, LocalDate checkin, int days) {
+    this(Collections.singletonList(new Segment(store, campsites, 100, checkin, days)));
+  }
+
+  /**
+   * @param segments segments written one after another into the same file
+   */
+  public DataGenerator(List<Segment> segments) {
+    this.segments = segments;
+    this.totalRows = countOneNightRows();
+  }
+
+  private long countOneNightRows() {
+    long rows = 0;
+    for (Segment segment : segments) {
+      rows += segment.countRows();
+    }
+    return rows;
+  }
+
+  /**
+   * @return number of rows, excluding header, the generator will write, once {@link #configure()} was called after
+   * setting stay lengths or skew
+   */
+  public long getTotalRows() {
+    return totalRows;
+  }
+
+  /**
+   * @param identities users assigned to the rows, {@link IdentityAllocator#DEFAULT} if not set
+   */
+  public void setIdentities(IdentityAllocator identities) {
+    this.identities = identities;
+  }
+
+  /**
+   * Book stays of several nights instead of one row per campsite and night. Stays are allocated by
+   * {@link #configure()} once to count the rows, and again while writing.
+   *
+   * @param lengths distribution of stay lengths, null for one-night stays
+   */
+  public void setStayLengths(StayLengths lengths) {
+    this.stayLengths = lengths;
+    configured = false;
+  }
+
+  /**
+   * Draw rows at random with hot spots instead of booking every campsite and night once. The file books as many
+   * nights as it would without skew, and campsite-nights can be booked several times, like popular ones are.
+   *
+   * @param skew weights of parks, campsites, types and days, null to book every campsite and night once
+   */
+  public void setTrafficSkew(TrafficSkew skew) {
+    this.skew = skew;
+    configured = false;
+  }
+
+  /**
+   * Count the rows of the stay lengths and skew set, by allocating every stay or building the skewed sampler. Takes
+   * seconds for a large catalog, so call it in the background before {@link #getTotalRows()}; {@link #generate} calls
+   * it if needed.
+   *
+   * @throws IllegalArgumentException if no campsite or no night of a segment has a weight
+   */
+  public void configure() {
+    if (configured) return;
+    stays = null;
+    stayCounts = null;
+    sampler = null;
+    if (skew != null) {
+      sampler = new SkewedSampler(segments, skew, stayLengths);
+      totalRows = sampler.getRows();
+    } else if (stayLengths != null) {
+      countStays();
+    } else {
+      totalRows = countOneNightRows();
+    }
+    configured = true;
+  }
+
+  private void countStays() {
+    stays = new StayAllocator(segments, stayLengths);
+    stayCounts = new int[segments.size()][];
+    NightInventory inventory = stays.newInventory();
+    long rows = 0;
+    for (int k = 0; k < segments.size(); k++) {
+      Segment segment = segments.get(k);
+      stayCounts[k] = new int[segment.to - segment.from];
+      for (int campsite = segment.from; campsite < segment.to; campsite++) {
+        if (!segment.selected(campsite - segment.from)) continue;
+        stayCounts[k][campsite - segment.from] = stays.allocate(k, campsite, inventory, null);
+        rows += stayCounts[k][campsite - segment.from];
+      }
+    }
+    totalRows = rows;
+  }
+
+  /**
+   * Ask a running generation to stop. The partially written file is deleted.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * Write header and all rows to target file.
+   *
+   * @param target   target CSV file, replaced if it exists
+   * @param progress receives number of rows written so far, may be null
+   * @return number of rows written
+   * @throws CancellationException if {@link #cancel()} was called during generation
+   */
+  public long generate(Path target, LongConsumer progress) throws IOException {
+    return generate(target, progress, 1);
+  }
+
+  /**
+   * Write header and all rows to target file. With more than one thread the campsites are split into chunks,
+   * each chunk is encoded to its own part file by a fork-join task, and the parts are appended to the target in
+   * campsite order, so the output is the same as with a single thread.
+   *
+   * @param target      target CSV file, replaced if it exists
+   * @param progress    receives number of rows written so far, must be thread safe, may be null
+   * @param parallelism number of threads
+   * @return number of rows written
+   * @throws CancellationException if {@link #cancel()} was called during generation
+   */
+  public long generate(Path target, LongConsumer progress, int parallelism) throws IOException {
+    configure();
+    GenerateEvent event = new GenerateEvent();
+    event.begin();
+    long start = System.nanoTime();
+    List<Chunk> chunks = plan(Math.max(parallelism, 1) * CHUNKS_PER_THREAD);
+    boolean serial = parallelism <= 1 || chunks.size() <= 1;
+    long rows = serial ? generateSerial(target, chunks, progress) :
+        generateParallel(target, chunks, progress, parallelism);
+    long bytes = Files.size(target);
+    ToolMetrics.get().generated(rows, bytes, System.nanoTime() - start);
+    event.file = target.toString();
+    event.rows = rows;
+    event.bytes = bytes;
+    event.threads = serial ? 1 : parallelism;
+    event.commit();
+    return rows;
+  }
+
+  /**
+   * Split segments into chunks of about the same number of campsites, in one pass over the campsites.
+   *
+   * @param count wanted number of chunks
+   * @return chunks in output order
+   */
+  private List<Chunk> plan(int count) {
+    if (sampler != null) return planSamples(count);
+    long campsites = 0;
+    for (Segment segment : segments) {
+      campsites += segment.to - segment.from;
+    }
+    int chunkSize = (int) Math.max(MIN_CAMPSITES_PER_CHUNK, (campsites + count - 1) / count);
+    List<Chunk> chunks = new ArrayList<>();
+    long[] partitionRows = new long[identities.getPartitions()]; // rows of each partition before the next chunk
+    for (int k = 0; k < segments.size(); k++) {
+      Segment segment = segments.get(k);
+      byte[][] dates = renderDates(segment.checkin, segment.days + 1);
+      for (int from = segment.from; from < segment.to; from += chunkSize) {
+        int to = Math.min(from + chunkSize, segment.to);
+        chunks.add(new Chunk(segment, k, dates, from, to, partitionRows.clone()));
+        if (stays != null) {
+          for (int campsite = from; campsite < to; campsite++) {
+            int stayCount = stayCounts[k][campsite - segment.from];
+            if (stayCount > 0) partitionRows[identities.partitionOf(segment.store.getId(campsite))] += stayCount;
+          }
+        } else if (partitionRows.length == 1) {
+          partitionRows[0] += (segment.countSelected(to - segment.from) - segment.countSelected(from - segment.from))
+              * segment.days;
+        } else {
+          for (int campsite = from; campsite < to; campsite++) {
+            if (segment.selected(campsite - segment.from)) {
+              partitionRows[identities.partitionOf(segment.store.getId(campsite))] += segment.days;
+            }
+          }
+        }
+      }
+    }
+    return chunks;
+  }
+
+  /**
+   * Split the rows of a skewed file into chunks of whole blocks. With several identity partitions the rows are drawn
+   * once here to count the rows of each partition before each chunk.
+   */
+  private List<Chunk> planSamples(int count) {
+    long blocks = (totalRows + SkewedSampler.BLOCK - 1) / SkewedSampler.BLOCK;
+    long chunkRows = Math.max(1, (blocks + count - 1) / count) * SkewedSampler.BLOCK;
+    List<Chunk> chunks = new ArrayList<>();
+    long[] partitionRows = new long[identities.getPartitions()];
+    int[] sample = new int[5];
+    for (long first = 0; first < totalRows; first += chunkRows) {
+      long to = Math.min(first + chunkRows, totalRows);
+      chunks.add(new Chunk(first, to, partitionRows.clone()));
+      if (partitionRows.length == 1) {
+        partitionRows[0] += to - first;
+        continue;
+      }
+      SplittableRandom random = null;
+      for (long row = first; row < to; row++) {
+        if (row % SkewedSampler.BLOCK == 0) random = sampler.random(row / SkewedSampler.BLOCK);
+        sampler.sample(random, sample);
+        partitionRows[identities.partitionOf(segments.get(sample[0]).store.getId(sample[1]))]++;
+      }
+    }
+    return chunks;
+  }
+
+  private long generateSerial(Path target, List<Chunk> chunks, LongConsumer progress) throws IOException {
+    boolean completed = false;
+    try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+         RowWriter writer = new RowWriter(channel)) {
+      writeHeader(writer);
+      byte[][][] emails = identities.render();
+      AtomicLong written = new AtomicLong();
+      long rows = 0;
+      for (Chunk chunk : chunks) {
+        rows += writeRows(writer, chunk, emails, written, progress);
+      }
+      if (progress != null) progress.accept(rows);
+      completed = true;
+      return rows;
+    } finally {
+      if (!completed) Files.deleteIfExists(target);
+    }
+  }
+
+  private long generateParallel(Path target, List<Chunk> chunks, LongConsumer progress, int parallelism)
+      throws IOException {
+    List<Path> parts = new ArrayList<>();
+    List<ForkJoinTask<Long>> tasks = new ArrayList<>();
+    byte[][][] emails = identities.render();
+    AtomicLong written = new AtomicLong();
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    boolean completed = false;
+    try {
+      for (Chunk chunk : chunks) {
+        Path part = target.resolveSibling("." + target.getFileName() + ".part" + parts.size());
+        parts.add(part);
+        tasks.add(pool.submit(() -> writePart(part, chunk, emails, written, progress)));
+      }
+      long rows = 0;
+      for (ForkJoinTask<Long> task : tasks) {
+        rows += joinPart(task);
+      }
+
+      // concatenate parts in campsite order
+      try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING)) {
+        try (RowWriter writer = new RowWriter(channel, 1024)) {
+          writeHeader(writer);
+        }
+        for (Path part : parts) {
+          try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+              position += in.transferTo(position, size - position, channel);
+            }
+          }
+        }
+      }
+      if (progress != null) progress.accept(rows);
+      completed = true;
+      return rows;
+    } finally {
+      cancelled |= !completed; // stop remaining tasks when one of them failed
+      pool.shutdown();
+      try {
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      for (Path part : parts) {
+        Files.deleteIfExists(part);
+      }
+      if (!completed) Files.deleteIfExists(target);
+    }
+  }
+
+  private long writePart(Path part, Chunk chunk, byte[][][] emails, AtomicLong written, LongConsumer progress)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+         RowWriter writer = new RowWriter(channel)) {
+      return writeRows(writer, chunk, emails, written, progress);
+    }
+  }
+
+  private static long joinPart(ForkJoinTask<Long> task) throws IOException {
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Data generation interrupted");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw new IOException(cause);
+    }
+  }
+
+  private static void writeHeader(RowWriter writer) throws IOException {
+    writer.put(RowWriter.encode(HEADER));
+    writer.endLine();
+  }
+
+  /**
+   * Write rows of one chunk. The email of a row only depends on its partition and its number among the rows of the
+   * partition, which keeps the emails the same however campsites are split.
+   *
+   * @param written rows written by all writers, used for progress
+   * @return number of rows written
+   */
+  private long writeRows(RowWriter writer, Chunk chunk, byte[][][] emails, AtomicLong written, LongConsumer progress)
+      throws IOException {
+    if (chunk.segment == null) return writeSampledRows(writer, chunk, emails, written, progress);
+    Segment segment = chunk.segment;
+    CampsiteStore store = segment.store;
+    byte[][] dates = chunk.dates;
+    byte[][] types = new byte[store.getTypeCount()][];
+    for (int t = 0; t < types.length; t++) {
+      types[t] = RowWriter.encode(store.getTypeName(t));
+    }
+    byte[] site = new byte[256]; // "id,park id,type" of the current campsite
+    byte[] park = null;
+    int parkIndex = -1;
+    long[] partitionRows = chunk.firstPartitionRows.clone();
+    NightInventory inventory = stays == null ? null : stays.newInventory();
+    int[] stayNights = stays == null ? null : new int[2 * segment.days];
+    long rows = 0;
+    int pending = 0;
+    for (int campsite = chunk.from; campsite < chunk.to; campsite++) {
+      if (!segment.selected(campsite - segment.from)) continue;
+      if (parkIndex < 0 || store.getPark(campsite) != parkIndex) {
+        parkIndex = store.getPark(campsite);
+        park = RowWriter.encode(store.getParkId(parkIndex));
+      }
+      int partition = identities.partitionOf(store.getId(campsite));
+      byte[][] partitionEmails = emails[partition];
+      byte[] type = types[store.getTypeCode(campsite)];
+      if (site.length < 12 + park.length + type.length) site = new byte[12 + park.length + type.length];
+      int length = putSite(site, store.getId(campsite), park, type);
+      int count = stays == null ? segment.days : stays.allocate(chunk.segmentIndex, campsite, inventory, stayNights);
+      for (int i = 0; i < count; i++) {
+        int checkin = stays == null ? i : stayNights[2 * i];
+        int checkout = stays == null ? i + 1 : checkin + stayNights[2 * i + 1];
+        writer.put(partitionEmails[(int) (partitionRows[partition]++ % partitionEmails.length)]);
+        writer.separator();
+        writer.put(site, 0, length);
+        writer.separator();
+        writer.put(dates[checkin]);
+        writer.separator();
+        writer.put(dates[checkout]);
+        writer.endLine();
+        rows++;
+        if (++pending == PROGRESS_INTERVAL) {
+          report(pending, written, progress);
+          pending = 0;
+        }
+      }
+    }
+    written.addAndGet(pending);
+    return rows;
+  }
+
+  /**
+   * Write the rows of a chunk of a skewed file, drawing each row from the random numbers of its block.
+   */
+  private long writeSampledRows(RowWriter writer, Chunk chunk, byte[][][] emails, AtomicLong written,
+                                LongConsumer progress) throws IOException {
+    byte[][][] dates = new byte[segments.size()][][];
+    byte[][][] parks = new byte[segments.size()][][]; // park ids by park index, encoded on first use
+    byte[][][] types = new byte[segments.size()][][];
+    for (int k = 0; k < segments.size(); k++) {
+      CampsiteStore store = segments.get(k).store;
+      dates[k] = renderDates(segments.get(k).checkin, segments.get(k).days + 1);
+      boolean sameStore = k > 0 && segments.get(k - 1).store == store;
+      parks[k] = sameStore ? parks[k - 1] : new byte[store.getParkCount()][];
+      types[k] = sameStore ? types[k - 1] : new byte[store.getTypeCount()][];
+      for (int t = 0; t < types[k].length; t++) {
+        if (types[k][t] == null) types[k][t] = RowWriter.encode(store.getTypeName(t));
+      }
+    }
+    byte[] site = new byte[256];
+    long[] partitionRows = chunk.firstPartitionRows.clone();
+    int[] sample = new int[5];
+    SplittableRandom random = null;
+    int pending = 0;
+    for (long row = chunk.firstRow; row < chunk.toRow; row++) {
+      if (row % SkewedSampler.BLOCK == 0) random = sampler.random(row / SkewedSampler.BLOCK);
+      sampler.sample(random, sample);
+      int k = sample[0];
+      CampsiteStore store = segments.get(k).store;
+      byte[] park = parks[k][sample[2]];
+      if (park == null) park = parks[k][sample[2]] = RowWriter.encode(store.getParkId(sample[2]));
+      byte[] type = types[k][store.getTypeCode(sample[1])];
+      if (site.length < 12 + park.length + type.length) site = new byte[12 + park.length + type.length];
+      int id = store.getId(sample[1]);
+      int partition = identities.partitionOf(id);
+      byte[][] partitionEmails = emails[partition];
+      int length = putSite(site, id, park, type);
+      writer.put(partitionEmails[(int) (partitionRows[partition]++ % partitionEmails.length)]);
+      writer.separator();
+      writer.put(site, 0, length);
+      writer.separator();
+      writer.put(dates[k][sample[3]]);
+      writer.separator();
+      writer.put(dates[k][sample[3] + sample[4]]);
+      writer.endLine();
+      if (++pending == PROGRESS_INTERVAL) {
+        report(pending, written, progress);
+        pending = 0;
+      }
+    }
+    written.addAndGet(pending);
+    return chunk.toRow - chunk.firstRow;
+  }
+
+  /**
+   * Put "id,park id,type" of a campsite.
+   *
+   * @return length
+   */
+  private static int putSite(byte[] site, int id, byte[] park, byte[] type) {
+    int length = RowWriter.putDigits(id, site, 0);
+    site[length++] = ',';
+    System.arraycopy(park, 0, site, length, park.length);
+    length += park.length;
+    site[length++] = ',';
+    System.arraycopy(type, 0, site, length, type.length);
+    return length + type.length;
+  }
+
+  /**
+   * Add rows written since the last report and publish the total.
+   *
+   * @throws CancellationException if {@link #cancel()} was called
+   */
+  private void report(int rows, AtomicLong written, LongConsumer progress) {
+    if (cancelled) throw new CancellationException("Data generation cancelled");
+    long total = written.addAndGet(rows);
+    if (progress != null) progress.accept(total);
+  }
+
+  /**
+   * Render "day,month,year" fragments for consecutive dates, stepping by epoch day.
+   *
+   * @param first first date
+   * @param count number of dates
+   * @return fragments, index i is first + i days
+   */
+  static byte[][] renderDates(LocalDate first, int count) {
+    byte[][] dates = new byte[count][];
+    long epochDay = first.toEpochDay();
+    for (int i = 0; i < count; i++) {
+      LocalDate date = LocalDate.ofEpochDay(epochDay + i);
+      dates[i] = RowWriter.encode(String.valueOf(date.getDayOfMonth()), String.valueOf(date.getMonthValue()),
+          String.valueOf(date.getYear()));
+    }
+    return dates;
+  }
+
+  /**
+   * Campsites [from, to) of the store in a segment, or rows [firstRow, toRow) of a skewed file, with the number of
+   * rows of each identity partition before the chunk, to write them independently of other chunks.
+   */
+  private static class Chunk {
+    final Segment segment;
+    final int segmentIndex;
+    final byte[][] dates;
+    final int from;
+    final int to;
+    final long firstRow;
+    final long toRow;
+    final long[] firstPartitionRows;
+
+    Chunk(Segment segment, int segmentIndex, byte[][] dates, int from, int to, long[] firstPartitionRows) {
+      this.segment = segment;
+      this.segmentIndex = segmentIndex;
+      this.dates = dates;
+      this.from = from;
+      this.to = to;
+      this.firstRow = 0;
+      this.toRow = 0;
+      this.firstPartitionRows = firstPartitionRows;
+    }
+
+    Chunk(long firstRow, long toRow, long[] firstPartitionRows) {
+      this.segment = null;
+      this.segmentIndex = -1;
+      this.dates = null;
+      this.from = 0;
+      this.to = 0;
+      this.firstRow = firstRow;
+      this.toRow = toRow;
+      this.firstPartitionRows = firstPartitionRows;
+    }
+  }
+}
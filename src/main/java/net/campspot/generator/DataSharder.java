@@ -0,0 +1,108 @@
+package net.campspot.generator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits a generated data file into disjoint shards, one per load engine. Rows are assigned by campsite id, so all
+ * nights of a campsite go to the same shard and two engines never book the same campsite-night. Lines are copied as
+ * bytes, a row is never decoded into Strings.
+ */
+public class DataSharder {
+  public static final String SHARD_COLUMN = "campsite id";
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  private DataSharder() {
+  }
+
+  /**
+   * Write every row of source to one of the targets, each target gets the header.
+   *
+   * @param source  data file with header line
+   * @param targets shard files, replaced if they exist
+   * @return number of rows written to each target
+   */
+  public static long[] shard(Path source, List<Path> targets) throws IOException {
+    int count = targets.size();
+    long[] rows = new long[count];
+    RowWriter[] writers = new RowWriter[count];
+    FileChannel[] channels = new FileChannel[count];
+    try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+      for (int i = 0; i < count; i++) {
+        Files.createDirectories(targets.get(i).toAbsolutePath().getParent());
+        channels[i] = FileChannel.open(targets.get(i), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        writers[i] = new RowWriter(channels[i]);
+      }
+
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      byte[] bytes = buffer.array();
+      int column = -1;
+      boolean endOfInput = false;
+      while (!endOfInput) {
+        endOfInput = in.read(buffer) < 0;
+        int limit = buffer.position();
+        int start = 0;
+        while (start < limit) {
+          int end = lineEnd(bytes, start, limit);
+          if (end < 0) {
+            if (!endOfInput) break;
+            end = limit; // last line without line end
+          }
+          int next = Math.min(end + 1, limit);
+          if (column < 0) {
+            column = findColumn(new String(bytes, start, end - start, StandardCharsets.UTF_8));
+            for (RowWriter writer : writers) {
+              writer.put(bytes, start, next - start);
+            }
+          } else if (end > start) {
+            int shard = (int) Math.floorMod(fieldValue(bytes, start, end, column), (long) count);
+            writers[shard].put(bytes, start, next - start);
+            if (next == end) writers[shard].endLine();
+            rows[shard]++;
+          }
+          start = next;
+        }
+        if (start == 0 && limit == bytes.length) throw new IOException("Line longer than " + BUFFER_SIZE + " bytes");
+        buffer.position(start);
+        buffer.limit(limit);
+        buffer.compact();
+      }
+      if (column < 0) throw new IOException("Data file is empty: " + source);
+    } finally {
+      for (int i = 0; i < count; i++) {
+        if (writers[i] != null) writers[i].close();
+        if (channels[i] != null) channels[i].close();
+      }
+    }
+    return rows;
+  }
+
+  private static int lineEnd(byte[] bytes, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (bytes[i] == '\n') return i;
+    }
+    return -1;
+  }
+
+  private static int findColumn(String header) throws IOException {
+    int column = Arrays.asList(FieldScanner.split(header.trim())).indexOf(SHARD_COLUMN);
+    if (column < 0) throw new IOException("Data file has no " + SHARD_COLUMN + " column: " + header);
+    return column;
+  }
+
+  /**
+   * @return number in a column of the line [from, to), fields are separated as written by {@link RowWriter}
+   */
+  private static long fieldValue(byte[] bytes, int from, int to, int column) {
+    int start = FieldScanner.fieldStart(bytes, from, to, column);
+    return start < 0 ? 0 : FieldScanner.number(bytes, start, FieldScanner.fieldEnd(bytes, start, to));
+  }
+}
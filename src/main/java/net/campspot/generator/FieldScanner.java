@@ -0,0 +1,106 @@
+package net.campspot.generator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the fields of a CSV line as {@link RowWriter} writes them: fields are not quoted, a separator, escape
+ * character or line break inside a field is prefixed by the escape character. Lines are scanned as bytes; only
+ * {@link #decode} and {@link #split} make Strings.
+ * <p>
+ * The fields of a result file before its first quoted field, such as timeStamp, read the same.
+ */
+public class FieldScanner {
+  private FieldScanner() {
+  }
+
+  /**
+   * @param bytes line
+   * @param from  start of a field
+   * @param to    end of the line, without line break
+   * @return end of the field: its separator, or the end of the line
+   */
+  public static int fieldEnd(byte[] bytes, int from, int to) {
+    for (int i = from; i < to; i++) {
+      byte b = bytes[i];
+      if (b == RowWriter.ESCAPE) {
+        i++; // escaped byte is part of the field
+      } else if (b == RowWriter.SEPARATOR) {
+        return i;
+      }
+    }
+    return to;
+  }
+
+  /**
+   * @param column field number, starting at 0
+   * @return start of a field of the line [from, to), -1 if the line has fewer fields
+   */
+  public static int fieldStart(byte[] bytes, int from, int to, int column) {
+    int start = from;
+    for (int field = 0; field < column; field++) {
+      start = fieldEnd(bytes, start, to) + 1;
+      if (start > to) return -1;
+    }
+    return start;
+  }
+
+  /**
+   * @return the digits of the field [from, to) as a number, other bytes are skipped, 0 if there are none
+   */
+  public static long number(byte[] bytes, int from, int to) {
+    long value = 0;
+    for (int i = from; i < to; i++) {
+      byte b = bytes[i];
+      if (b == RowWriter.ESCAPE && i + 1 < to) b = bytes[++i];
+      if (b >= '0' && b <= '9') value = value * 10 + (b - '0');
+    }
+    return value;
+  }
+
+  /**
+   * @param value UTF-8 bytes of a field value, without escapes
+   * @return whether the field [from, to) holds the value
+   */
+  public static boolean matches(byte[] bytes, int from, int to, byte[] value) {
+    int k = 0;
+    for (int i = from; i < to; i++) {
+      byte b = bytes[i];
+      if (b == RowWriter.ESCAPE && i + 1 < to) b = bytes[++i];
+      if (k == value.length || value[k++] != b) return false;
+    }
+    return k == value.length;
+  }
+
+  /**
+   * @return value of the field [from, to), without escapes
+   */
+  public static String decode(byte[] bytes, int from, int to) {
+    byte[] value = new byte[to - from];
+    int length = 0;
+    for (int i = from; i < to; i++) {
+      byte b = bytes[i];
+      if (b == RowWriter.ESCAPE && i + 1 < to) b = bytes[++i];
+      value[length++] = b;
+    }
+    return new String(value, 0, length, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @param line line without line break
+   * @return values of its fields
+   */
+  public static String[] split(String line) {
+    byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+    List<String> fields = new ArrayList<>();
+    int start = 0;
+    while (true) {
+      int end = fieldEnd(bytes, start, bytes.length);
+      fields.add(decode(bytes, start, end));
+      if (end == bytes.length) break;
+      start = end + 1;
+    }
+    return fields.toArray(new String[0]);
+  }
+}
@@ -0,0 +1,238 @@
+package net.campspot.generator;
+
+import java.util.Locale;
+import java.util.Properties;
+import java.util.SplittableRandom;
+
+/**
+ * Assigns virtual users (emails) to the rows of a data file so that rows executed at the same time book as different
+ * users, and the target system does not serialize them on account locks.
+ * <p>
+ * The pool of users is split into contiguous partitions, one per load engine: a row belongs to partition
+ * {@code campsite id mod partitions}, the same rule {@link DataSharder} uses to split a file between engines, so two
+ * engines never use the same user. Within a partition the n-th row gets slot {@code n mod partition size}, mapped to
+ * a user by the assignment. Every assignment is a permutation of the partition, so any partition-size consecutive
+ * rows of a partition get distinct users: as long as a partition has at least as many users as rows its JMeter
+ * threads execute at once, concurrent rows never share a user.
+ */
+public class IdentityAllocator {
+  public static final String DEFAULT_TEMPLATE = "LoadtestUser+%d@campspot.com";
+  public static final int DEFAULT_POOL_SIZE = 1000;
+  /**
+   * Same users in the same order as the generator always used: LoadtestUser+1 to +1000, then again.
+   */
+  public static final IdentityAllocator DEFAULT =
+      new IdentityAllocator(DEFAULT_TEMPLATE, DEFAULT_POOL_SIZE, 1, Assignment.SEQUENTIAL, 0);
+
+  public enum Assignment {
+    /**
+     * Slot k is user k of the partition.
+     */
+    SEQUENTIAL,
+    /**
+     * Slot k is user {@code k * stride mod size}, the stride is coprime to the size and close to size / golden ratio,
+     * so consecutive rows use users far apart in the pool.
+     */
+    STRIDE,
+    /**
+     * Slots are a random permutation of the partition, the same for every run with the same seed.
+     */
+    HASH
+  }
+
+  private final String template;
+  private final int poolSize;
+  private final int partitions;
+  private final Assignment assignment;
+  private final long seed;
+  private final int[][] slots; // per partition, user of each slot relative to the partition start
+
+  /**
+   * @param template   email format with one %d for the user number, starting at 1
+   * @param poolSize   number of users
+   * @param partitions number of partitions, usually the number of load engines
+   * @param assignment how slots of a partition map to its users
+   * @param seed       seed of the {@link Assignment#HASH} permutation
+   */
+  public IdentityAllocator(String template, int poolSize, int partitions, Assignment assignment, long seed) {
+    if (partitions < 1) throw new IllegalArgumentException("Number of partitions must be positive: " + partitions);
+    if (poolSize < partitions) {
+      throw new IllegalArgumentException("Pool of " + poolSize + " users is smaller than " + partitions + " partitions");
+    }
+    if (!template.contains("%d")) throw new IllegalArgumentException("Email template has no %d: " + template);
+    this.template = template;
+    this.poolSize = poolSize;
+    this.partitions = partitions;
+    this.assignment = assignment;
+    this.seed = seed;
+    this.slots = new int[partitions][];
+    for (int p = 0; p < partitions; p++) {
+      slots[p] = computeSlots(p);
+    }
+  }
+
+  /**
+   * Create an allocator from the identity* entries of the configuration file, missing entries keep the defaults.
+   * With identityConcurrency, the number of rows executed at once per engine, the pool is checked to be large enough.
+   *
+   * @throws IllegalArgumentException if an entry is invalid or the pool is too small for the concurrency
+   */
+  public static IdentityAllocator fromConfig(Properties config) {
+    String assignment = config.getProperty("identityAssignment", "").trim();
+    IdentityAllocator allocator = new IdentityAllocator(
+        getString(config, "identityTemplate", DEFAULT_TEMPLATE),
+        Integer.parseInt(getString(config, "identityPoolSize", Integer.toString(DEFAULT_POOL_SIZE))),
+        Integer.parseInt(getString(config, "identityPartitions", "1")),
+        assignment.isEmpty() ? Assignment.SEQUENTIAL : Assignment.valueOf(assignment.toUpperCase(Locale.ROOT)),
+        Long.parseLong(getString(config, "identitySeed", "0")));
+    String concurrency = config.getProperty("identityConcurrency", "").trim();
+    if (!concurrency.isEmpty()) allocator.checkConcurrency(Integer.parseInt(concurrency));
+    return allocator;
+  }
+
+  private static String getString(Properties config, String key, String defaultValue) {
+    String value = config.getProperty(key);
+    return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+  }
+
+  public int getPoolSize() {
+    return poolSize;
+  }
+
+  public int getPartitions() {
+    return partitions;
+  }
+
+  public Assignment getAssignment() {
+    return assignment;
+  }
+
+  /**
+   * @return partition of the rows of a campsite
+   */
+  public int partitionOf(int campsiteId) {
+    return Math.floorMod(campsiteId, partitions);
+  }
+
+  /**
+   * @return first user of a partition, 0-based
+   */
+  private int partitionStart(int partition) {
+    return (int) ((long) partition * poolSize / partitions);
+  }
+
+  public int getPartitionSize(int partition) {
+    return partitionStart(partition + 1) - partitionStart(partition);
+  }
+
+  /**
+   * @return number of consecutive rows of any partition that are guaranteed to get distinct users
+   */
+  public int getMaxConcurrency() {
+    return poolSize / partitions;
+  }
+
+  /**
+   * @param concurrentRows rows executed at the same time by the threads of one engine
+   * @throws IllegalArgumentException if some of them could get the same user
+   */
+  public void checkConcurrency(int concurrentRows) {
+    if (concurrentRows > getMaxConcurrency()) {
+      throw new IllegalArgumentException("Pool of " + poolSize + " users in " + partitions + " partitions cannot give " +
+          concurrentRows + " concurrent rows distinct users, at least " + (long) concurrentRows * partitions +
+          " users are needed");
+    }
+  }
+
+  /**
+   * @param partition partition of the row
+   * @param row       number of the row among the rows of its partition, starting at 0
+   * @return user number, starting at 1
+   */
+  public int user(int partition, long row) {
+    return partitionStart(partition) + slots[partition][(int) (row % slots[partition].length)] + 1;
+  }
+
+  /**
+   * @return email of a user number
+   */
+  public String email(int user) {
+    return String.format(template, user);
+  }
+
+  /**
+   * Render the emails of all slots up front, so writing a row only copies bytes.
+   *
+   * @return per partition, the email of each slot
+   */
+  byte[][][] render() {
+    byte[][][] emails = new byte[partitions][][];
+    for (int p = 0; p < partitions; p++) {
+      int start = partitionStart(p);
+      emails[p] = new byte[slots[p].length][];
+      for (int k = 0; k < slots[p].length; k++) {
+        emails[p][k] = RowWriter.encode(email(start + slots[p][k] + 1));
+      }
+    }
+    return emails;
+  }
+
+  /**
+   * @return user of each slot of a partition, relative to the partition start
+   */
+  private int[] computeSlots(int partition) {
+    int size = getPartitionSize(partition);
+    int[] slots = new int[size];
+    switch (assignment) {
+      case STRIDE:
+        long stride = stride(size);
+        for (int k = 0; k < size; k++) {
+          slots[k] = (int) (k * stride % size);
+        }
+        break;
+      case HASH:
+        for (int k = 0; k < size; k++) {
+          slots[k] = k;
+        }
+        SplittableRandom random = new SplittableRandom(seed * 31 + partition);
+        for (int k = size - 1; k > 0; k--) {
+          int j = random.nextInt(k + 1);
+          int swap = slots[k];
+          slots[k] = slots[j];
+          slots[j] = swap;
+        }
+        break;
+      default:
+        for (int k = 0; k < size; k++) {
+          slots[k] = k;
+        }
+    }
+    return slots;
+  }
+
+  /**
+   * @return number coprime to size near size / golden ratio, 1 for small sizes
+   */
+  static long stride(int size) {
+    if (size <= 2) return 1;
+    long stride = Math.max(1, Math.round(size * 0.6180339887));
+    while (gcd(stride, size) != 1) {
+      stride++;
+    }
+    return stride;
+  }
+
+  private static long gcd(long a, long b) {
+    while (b != 0) {
+      long t = a % b;
+      a = b;
+      b = t;
+    }
+    return a;
+  }
+
+  @Override
+  public String toString() {
+    return poolSize + " users, " + partitions + " partitions, " + assignment.name().toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,59 @@
+package net.campspot.generator;
+
+import java.util.Arrays;
+
+/**
+ * Nights of one campsite that are already booked, one bit per night of the date range of a generation. A writer
+ * thread keeps one inventory and clears it for each campsite, so its size only depends on the date range: a full
+ * season takes six longs.
+ */
+class NightInventory {
+  private final long[] words;
+  private final int nights;
+
+  /**
+   * @param nights number of nights of the date range
+   */
+  NightInventory(int nights) {
+    this.nights = nights;
+    this.words = new long[(nights + 63) >>> 6];
+  }
+
+  void clear() {
+    Arrays.fill(words, 0);
+  }
+
+  boolean isFree(int night) {
+    return (words[night >>> 6] & (1L << night)) == 0;
+  }
+
+  /**
+   * @param night first night
+   * @param max   maximum number of nights to look at
+   * @return number of consecutive free nights from a night on, at most max
+   */
+  int freeNights(int night, int max) {
+    int end = Math.min(nights, night + max);
+    int n = night;
+    while (n < end) {
+      long word = words[n >>> 6] >>> n; // shifts by n mod 64
+      if (word != 0) return Math.min(end, n + Long.numberOfTrailingZeros(word)) - night;
+      n = (n | 63) + 1; // rest of the word is free
+    }
+    return end - night;
+  }
+
+  /**
+   * Mark nights [night, night + length) as booked.
+   */
+  void book(int night, int length) {
+    int end = night + length;
+    for (int n = night; n < end; ) {
+      int bit = n & 63;
+      int count = Math.min(64 - bit, end - n);
+      long mask = count == 64 ? -1L : ((1L << count) - 1) << bit;
+      words[n >>> 6] |= mask;
+      n += count;
+    }
+  }
+}
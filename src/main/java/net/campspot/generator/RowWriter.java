@@ -0,0 +1,159 @@
+package net.campspot.generator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes pre-encoded CSV fragments to a channel through one reused direct buffer.
+ * Output is byte-compatible with CSVWriter using NO_QUOTE_CHARACTER and the default escape character.
+ */
+public class RowWriter implements Closeable {
+  public static final int DEFAULT_BUFFER_SIZE = 1 << 20; // 1 MB
+
+  static final byte SEPARATOR = ',';
+  private static final byte LINE_END = '\n';
+  static final byte ESCAPE = '"'; // read back by FieldScanner
+
+  private final WritableByteChannel channel;
+  private final ByteBuffer buffer;
+  private long bytesWritten;
+
+  public RowWriter(WritableByteChannel channel) {
+    this(channel, DEFAULT_BUFFER_SIZE);
+  }
+
+  public RowWriter(WritableByteChannel channel, int bufferSize) {
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocateDirect(bufferSize);
+  }
+
+  /**
+   * Append raw bytes, flushing the buffer to the channel when it is full.
+   *
+   * @param bytes pre-encoded fragment
+   */
+  public void put(byte[] bytes) throws IOException {
+    if (buffer.remaining() < bytes.length) {
+      flush();
+      if (bytes.length > buffer.capacity()) {
+        writeFully(ByteBuffer.wrap(bytes));
+        return;
+      }
+    }
+    buffer.put(bytes);
+  }
+
+  /**
+   * Append part of a byte array, flushing the buffer to the channel when it is full.
+   *
+   * @param bytes  pre-encoded fragment
+   * @param offset start of fragment
+   * @param length length of fragment
+   */
+  public void put(byte[] bytes, int offset, int length) throws IOException {
+    if (buffer.remaining() < length) {
+      flush();
+      if (length > buffer.capacity()) {
+        writeFully(ByteBuffer.wrap(bytes, offset, length));
+        return;
+      }
+    }
+    buffer.put(bytes, offset, length);
+  }
+
+  /**
+   * Append a single byte, flushing the buffer to the channel when it is full.
+   */
+  public void put(byte b) throws IOException {
+    if (!buffer.hasRemaining()) flush();
+    buffer.put(b);
+  }
+
+  public void separator() throws IOException {
+    put(SEPARATOR);
+  }
+
+  public void endLine() throws IOException {
+    put(LINE_END);
+  }
+
+  /**
+   * Write buffered bytes to the channel.
+   */
+  public void flush() throws IOException {
+    buffer.flip();
+    writeFully(buffer);
+    buffer.clear();
+  }
+
+  /**
+   * @return number of bytes handed to the channel so far, excluding bytes still buffered
+   */
+  public long getBytesWritten() {
+    return bytesWritten;
+  }
+
+  private void writeFully(ByteBuffer src) throws IOException {
+    while (src.hasRemaining()) {
+      bytesWritten += channel.write(src);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    flush();
+  }
+
+  /**
+   * Write decimal digits of a number into a byte array.
+   *
+   * @param value  number
+   * @param target target array
+   * @param offset position of first digit
+   * @return position after last digit
+   */
+  public static int putDigits(int value, byte[] target, int offset) {
+    long magnitude = value; // -Integer.MIN_VALUE does not fit in an int
+    if (magnitude < 0) {
+      target[offset++] = '-';
+      magnitude = -magnitude;
+    }
+    int digits = 1;
+    for (long rest = magnitude / 10; rest > 0; rest /= 10) {
+      digits++;
+    }
+    int position = offset + digits;
+    do {
+      target[--position] = (byte) ('0' + magnitude % 10);
+      magnitude /= 10;
+    } while (magnitude > 0);
+    return offset + digits;
+  }
+
+  /**
+   * Encode fields as one CSV fragment (without line end) the same way CSVWriter does without quotes:
+   * separators, escape characters and line breaks are prefixed by the escape character.
+   *
+   * @param fields fields, null is written as empty
+   * @return UTF-8 bytes of the fragment
+   */
+  public static byte[] encode(String... fields) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < fields.length; i++) {
+      if (i > 0) sb.append((char) SEPARATOR);
+      String field = fields[i];
+      if (field == null) continue;
+      for (int j = 0; j < field.length(); j++) {
+        char c = field.charAt(j);
+        if (c == SEPARATOR || c == ESCAPE || c == '\n' || c == '\r') {
+          sb.append((char) ESCAPE);
+        }
+        sb.append(c);
+      }
+    }
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+}
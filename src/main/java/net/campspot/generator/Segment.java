@@ -0,0 +1,82 @@
+package net.campspot.generator;
+
+import net.campspot.catalog.CampsiteStore;
+import net.campspot.models.ScenarioEntry;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Part of a data file: a range of campsites of the store, optionally a share of them, booked for a date range.
+ * The range is a slice of the store's columns and is never copied.
+ */
+public class Segment {
+  private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
+  final CampsiteStore store;
+  final int from;
+  final int to;
+  final int share;
+  final LocalDate checkin;
+  final int days;
+
+  /**
+   * @param store   campsite store
+   * @param range   campsites to pick from
+   * @param share   percentage of campsites in range to book, spread evenly over the range
+   * @param checkin first check in date
+   * @param days    number of nights per campsite
+   */
+  public Segment(CampsiteStore store, CampsiteStore.Range range, int share, LocalDate checkin, int days) {
+    if (share < 0 || share > 100) throw new IllegalArgumentException("Share must be between 0 and 100: " + share);
+    this.store = store;
+    this.from = range.from;
+    this.to = range.to;
+    this.share = share;
+    this.checkin = checkin;
+    this.days = days;
+  }
+
+  /**
+   * Create segment from a scenario line.
+   *
+   * @param entry scenario line
+   * @param store campsite store
+   * @return segment
+   */
+  public static Segment of(ScenarioEntry entry, CampsiteStore store) {
+    if (store.indexOfPark(entry.parkId) < 0) throw new IllegalArgumentException("Unknown park: " + entry.parkId);
+    String type = entry.type == null || entry.type.trim().isEmpty() || "-1".equals(entry.type.trim()) ?
+        null : entry.type.trim();
+    LocalDate checkin = LocalDate.parse(entry.checkin.trim(), DATE_FORMAT);
+    LocalDate checkout = LocalDate.parse(entry.checkout.trim(), DATE_FORMAT);
+    long days = ChronoUnit.DAYS.between(checkin, checkout) + 1;
+    if (days <= 0) throw new IllegalArgumentException("Checkout is before checkin: " + entry);
+    return new Segment(store, store.range(entry.parkId, type), entry.share == null ? 100 : entry.share,
+        checkin, (int) days);
+  }
+
+  /**
+   * @param index index of the campsite in the range
+   * @return whether the campsite is part of the share
+   */
+  boolean selected(long index) {
+    return (index + 1) * share / 100 > index * share / 100;
+  }
+
+  /**
+   * @param count number of campsites from the start of the range
+   * @return number of selected campsites among them
+   */
+  long countSelected(long count) {
+    return count * share / 100;
+  }
+
+  /**
+   * @return number of rows of this segment
+   */
+  public long countRows() {
+    return countSelected(to - from) * days;
+  }
+}
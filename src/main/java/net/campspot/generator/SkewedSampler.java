@@ -0,0 +1,169 @@
+package net.campspot.generator;
+
+import net.campspot.catalog.CampsiteStore;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Draws the rows of a file with {@link TrafficSkew}: a campsite among the selected campsites of all segments from
+ * one alias table, then a check in night of its segment from the segment's alias table, so a row takes constant
+ * time however many campsites there are.
+ * <p>
+ * Rows are drawn in blocks of {@link #BLOCK} rows, each from its own random numbers seeded by the block number, so
+ * any chunk of blocks can be written by any thread and the file is the same for every number of threads.
+ */
+class SkewedSampler {
+  static final int BLOCK = 1 << 16;
+
+  private final List<Segment> segments;
+  private final StayLengths lengths;
+  private final long seed;
+  private final long rows;
+  // candidates are grouped in pieces, the campsites of one park in one segment
+  private final int[] pieceSegments;
+  private final int[] pieceParks; // park index in the store
+  private final long[] campsites; // piece in the high int and store index in the low int of each candidate
+  private final AliasTable candidates;
+  private final AliasTable[] nights; // per segment, check in night
+
+  /**
+   * @param segments segments of the file, their selected campsites are the candidates
+   * @param skew     weights of parks, campsites, types and days
+   * @param lengths  stay lengths, null for one-night stays
+   * @throws IllegalArgumentException if no campsite or no night of a segment has a weight
+   */
+  SkewedSampler(List<Segment> segments, TrafficSkew skew, StayLengths lengths) {
+    this.segments = segments;
+    this.lengths = lengths;
+    this.seed = skew.getSeed();
+    long count = 0;
+    long bookedNights = 0;
+    for (Segment segment : segments) {
+      count += segment.countSelected(segment.to - segment.from);
+      bookedNights += segment.countRows();
+      if (count > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Too many campsites: " + count);
+    }
+    // same number of booked nights as every campsite and night once
+    rows = lengths == null ? bookedNights : Math.round(bookedNights / lengths.getMeanNights());
+    campsites = new long[(int) count];
+
+    // rank parks by first appearance, number the candidates of each park
+    Map<String, Integer> parkRanks = new HashMap<>();
+    List<Integer> parkSizes = new ArrayList<>();
+    List<int[]> pieces = new ArrayList<>(); // segment, park index, park rank, first candidate
+    int[] positions = new int[(int) count];
+    int candidate = 0;
+    for (int k = 0; k < segments.size(); k++) {
+      Segment segment = segments.get(k);
+      CampsiteStore store = segment.store;
+      int parkEnd = -1;
+      int rank = -1;
+      for (int campsite = segment.from; campsite < segment.to; campsite++) {
+        if (!segment.selected(campsite - segment.from)) continue;
+        if (campsite >= parkEnd) {
+          int park = store.getPark(campsite);
+          String parkId = store.getParkId(park);
+          parkEnd = store.range(parkId).to;
+          rank = parkRanks.computeIfAbsent(parkId, id -> parkRanks.size());
+          if (rank == parkSizes.size()) parkSizes.add(0);
+          pieces.add(new int[]{k, park, rank, candidate});
+        }
+        campsites[candidate] = (long) (pieces.size() - 1) << 32 | campsite;
+        positions[candidate++] = parkSizes.get(rank);
+        parkSizes.set(rank, positions[candidate - 1] + 1);
+      }
+    }
+    pieceSegments = new int[pieces.size()];
+    pieceParks = new int[pieces.size()];
+    for (int p = 0; p < pieces.size(); p++) {
+      pieceSegments[p] = pieces.get(p)[0];
+      pieceParks[p] = pieces.get(p)[1];
+    }
+
+    // campsite ranks are a seeded stride permutation of the positions in the park
+    long[] strides = new long[parkSizes.size()];
+    long[] offsets = new long[parkSizes.size()];
+    for (int rank = 0; rank < strides.length; rank++) {
+      int size = parkSizes.get(rank);
+      strides[rank] = IdentityAllocator.stride(size);
+      offsets[rank] = new SplittableRandom(seed * 31 + rank).nextInt(size);
+    }
+    double[] weights = new double[(int) count];
+    double[] parkSums = new double[parkSizes.size()];
+    for (int p = 0; p < pieces.size(); p++) {
+      CampsiteStore store = segments.get(pieceSegments[p]).store;
+      int rank = pieces.get(p)[2];
+      int size = parkSizes.get(rank);
+      int end = p + 1 < pieces.size() ? pieces.get(p + 1)[3] : (int) count;
+      for (int c = pieces.get(p)[3]; c < end; c++) {
+        int campsiteRank = (int) ((positions[c] * strides[rank] + offsets[rank]) % size) + 1;
+        weights[c] = skew.campsiteWeight(campsiteRank) * skew.typeWeight(store.getType((int) campsites[c]));
+        parkSums[rank] += weights[c];
+      }
+    }
+    // each park gets its Zipf share, spread over its campsites by their weights
+    for (int p = 0; p < pieces.size(); p++) {
+      int rank = pieces.get(p)[2];
+      int end = p + 1 < pieces.size() ? pieces.get(p + 1)[3] : (int) count;
+      for (int c = pieces.get(p)[3]; c < end; c++) {
+        if (parkSums[rank] > 0) weights[c] *= skew.parkWeight(rank + 1) / parkSums[rank];
+      }
+    }
+    candidates = count == 0 ? null : new AliasTable(weights);
+
+    nights = new AliasTable[segments.size()];
+    for (int k = 0; k < segments.size(); k++) {
+      Segment segment = segments.get(k);
+      if (segment.days <= 0 || segment.countSelected(segment.to - segment.from) == 0) continue;
+      double[] dayWeights = new double[segment.days];
+      LocalDate date = segment.checkin;
+      for (int night = 0; night < segment.days; night++) {
+        dayWeights[night] = skew.dayWeight(date.getDayOfWeek().getValue());
+        date = date.plusDays(1);
+      }
+      try {
+        nights[k] = new AliasTable(dayWeights);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("No check in day from " + segment.checkin + " for " + segment.days +
+            " nights has a weight");
+      }
+    }
+  }
+
+  /**
+   * @return number of rows of the file
+   */
+  long getRows() {
+    return candidates == null ? 0 : rows;
+  }
+
+  /**
+   * @return random numbers of the rows of a block
+   */
+  SplittableRandom random(long block) {
+    return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + block);
+  }
+
+  /**
+   * Draw a row.
+   *
+   * @param row receives segment index, campsite index in the store, park index in the store, first night relative
+   *            to the check in date of the segment and number of nights
+   */
+  void sample(SplittableRandom random, int[] row) {
+    long campsite = campsites[candidates.sample(random)];
+    int piece = (int) (campsite >>> 32);
+    int k = pieceSegments[piece];
+    int night = nights[k].sample(random);
+    row[0] = k;
+    row[1] = (int) campsite;
+    row[2] = pieceParks[piece];
+    row[3] = night;
+    row[4] = lengths == null ? 1 : Math.min(lengths.draw(random), segments.get(k).days - night);
+  }
+}
@@ -0,0 +1,114 @@
+package net.campspot.generator;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Allocates multi-night stays to the campsites of the segments of a generation. The nights of a campsite in a segment
+ * are filled from the first to the last with stays drawn from the {@link StayLengths}; a stay is shortened when it
+ * would run past the end of the segment or into a night that is already booked.
+ * <p>
+ * Nights already booked are the stays of earlier segments that book the same campsite on overlapping dates, e.g.
+ * overlapping lines of a scenario. They are allocated again, in segment order, into the campsite's
+ * {@link NightInventory} before the stays of a segment, so no two rows of a file book the same campsite-night, and
+ * a campsite gets the same stays whichever thread and chunk writes it.
+ */
+class StayAllocator {
+  private final List<Segment> segments;
+  private final StayLengths lengths;
+  private final int[] offsets; // first night of each segment in the inventory
+  private final int nights; // nights of the inventory
+  private final int[][] earlier; // per segment, earlier segments whose stays can affect its stays, ascending
+
+  StayAllocator(List<Segment> segments, StayLengths lengths) {
+    this.segments = segments;
+    this.lengths = lengths;
+    long first = Long.MAX_VALUE;
+    long last = Long.MIN_VALUE;
+    for (Segment segment : segments) {
+      first = Math.min(first, segment.checkin.toEpochDay());
+      last = Math.max(last, segment.checkin.toEpochDay() + segment.days);
+    }
+    this.nights = segments.isEmpty() ? 0 : (int) (last - first);
+    this.offsets = new int[segments.size()];
+    this.earlier = new int[segments.size()][];
+    for (int k = 0; k < segments.size(); k++) {
+      offsets[k] = (int) (segments.get(k).checkin.toEpochDay() - first);
+      // earlier segments overlapping this one, or overlapping one of those, since their stays shift each other
+      List<Integer> affecting = new ArrayList<>();
+      List<Segment> reached = new ArrayList<>();
+      reached.add(segments.get(k));
+      for (int j = k - 1; j >= 0; j--) {
+        for (Segment segment : reached) {
+          if (overlap(segments.get(j), segment)) {
+            affecting.add(0, j);
+            reached.add(segments.get(j));
+            break;
+          }
+        }
+      }
+      earlier[k] = affecting.stream().mapToInt(Integer::intValue).toArray();
+    }
+  }
+
+  private static boolean overlap(Segment a, Segment b) {
+    LocalDate aEnd = a.checkin.plusDays(a.days);
+    LocalDate bEnd = b.checkin.plusDays(b.days);
+    return a.store == b.store && a.from < b.to && b.from < a.to &&
+        a.checkin.isBefore(bEnd) && b.checkin.isBefore(aEnd);
+  }
+
+  /**
+   * @return inventory large enough for the nights of all segments, one per writer thread
+   */
+  NightInventory newInventory() {
+    return new NightInventory(nights);
+  }
+
+  /**
+   * Allocate the stays of a campsite in a segment.
+   *
+   * @param segment   index of the segment
+   * @param campsite  index of the campsite in the store, selected by the segment
+   * @param inventory inventory of the calling thread
+   * @param stays     receives first night, relative to the check in date of the segment, and length of each stay;
+   *                  2 * days of the segment long; null to only count the stays
+   * @return number of stays
+   */
+  int allocate(int segment, int campsite, NightInventory inventory, int[] stays) {
+    inventory.clear();
+    for (int j : earlier[segment]) {
+      Segment other = segments.get(j);
+      if (campsite >= other.from && campsite < other.to && other.selected(campsite - other.from)) {
+        place(j, campsite, inventory, null);
+      }
+    }
+    return place(segment, campsite, inventory, stays);
+  }
+
+  private int place(int index, int campsite, NightInventory inventory, int[] stays) {
+    Segment segment = segments.get(index);
+    int offset = offsets[index];
+    SplittableRandom random = lengths.random(segment.store.getId(campsite), index);
+    int count = 0;
+    int night = 0;
+    while (night < segment.days) {
+      int free = inventory.freeNights(offset + night, segment.days - night);
+      if (free == 0) {
+        night++;
+        continue;
+      }
+      int length = Math.min(lengths.draw(random), free);
+      inventory.book(offset + night, length);
+      if (stays != null) {
+        stays[2 * count] = night;
+        stays[2 * count + 1] = length;
+      }
+      count++;
+      night += length;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,108 @@
+package net.campspot.generator;
+
+import java.util.Properties;
+import java.util.SplittableRandom;
+
+/**
+ * Distribution of the number of nights of generated stays, e.g. {@code 2:30,3:30,4:15,7:25} for 30% two-night,
+ * 30% three-night, 15% four-night and 25% week-long stays. Draws are seeded, so a file is the same every time.
+ */
+public class StayLengths {
+  private final int[] nights; // stay lengths
+  private final int[] thresholds; // cumulative weights
+  private final long seed;
+
+  /**
+   * @param nights  stay lengths in nights, at least 1
+   * @param weights relative weight of each length
+   * @param seed    seed of the draws
+   */
+  public StayLengths(int[] nights, int[] weights, long seed) {
+    if (nights.length == 0 || nights.length != weights.length) {
+      throw new IllegalArgumentException("Stay lengths need one weight per length");
+    }
+    this.nights = nights.clone();
+    this.thresholds = new int[weights.length];
+    int total = 0;
+    for (int i = 0; i < nights.length; i++) {
+      if (nights[i] < 1) throw new IllegalArgumentException("Stay length must be at least 1 night: " + nights[i]);
+      if (weights[i] < 0) throw new IllegalArgumentException("Weight must not be negative: " + weights[i]);
+      total = Math.addExact(total, weights[i]);
+      thresholds[i] = total;
+    }
+    if (total == 0) throw new IllegalArgumentException("Stay length weights are all 0");
+    this.seed = seed;
+  }
+
+  /**
+   * Parse lengths like {@code 2:30,3:30,7:40}, nights:weight separated by commas; a length without weight has
+   * weight 1.
+   */
+  public static StayLengths parse(String value, long seed) {
+    String[] entries = value.trim().split("\\s*,\\s*");
+    int[] nights = new int[entries.length];
+    int[] weights = new int[entries.length];
+    for (int i = 0; i < entries.length; i++) {
+      String[] parts = entries[i].split("\\s*:\\s*");
+      try {
+        nights[i] = Integer.parseInt(parts[0]);
+        weights[i] = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Stay length is nights:weight: " + entries[i]);
+      }
+    }
+    return new StayLengths(nights, weights, seed);
+  }
+
+  /**
+   * Create the distribution from stayLengths and staySeed of the configuration file.
+   *
+   * @return distribution, null if stayLengths is empty, i.e. one-night stays for every night
+   * @throws IllegalArgumentException if an entry is invalid
+   */
+  public static StayLengths fromConfig(Properties config) {
+    String lengths = config.getProperty("stayLengths", "").trim();
+    if (lengths.isEmpty()) return null;
+    String seed = config.getProperty("staySeed", "").trim();
+    return parse(lengths, seed.isEmpty() ? 0 : Long.parseLong(seed));
+  }
+
+  /**
+   * @return random numbers of one campsite in one segment, independent of the order campsites are generated in
+   */
+  SplittableRandom random(int campsiteId, int segment) {
+    return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + campsiteId * 0xBF58476D1CE4E5B9L + segment);
+  }
+
+  /**
+   * @return a stay length drawn from the distribution
+   */
+  int draw(SplittableRandom random) {
+    int r = random.nextInt(thresholds[thresholds.length - 1]);
+    int i = 0;
+    while (r >= thresholds[i]) i++;
+    return nights[i];
+  }
+
+  public double getMeanNights() {
+    double sum = 0;
+    int previous = 0;
+    for (int i = 0; i < nights.length; i++) {
+      sum += (double) nights[i] * (thresholds[i] - previous);
+      previous = thresholds[i];
+    }
+    return sum / thresholds[thresholds.length - 1];
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    int previous = 0;
+    for (int i = 0; i < nights.length; i++) {
+      if (i > 0) builder.append(',');
+      builder.append(nights[i]).append(':').append(thresholds[i] - previous);
+      previous = thresholds[i];
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,148 @@
+package net.campspot.generator;
+
+import net.campspot.catalog.CampsiteStore;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Hot spots of generated traffic: instead of every campsite and night once, rows book campsites and nights drawn at
+ * random, popular parks, campsites, types and days of the week more often than others.
+ * <ul>
+ *   <li>parks follow a Zipf distribution of exponent {@code parks} by rank, the first park of the file being the
+ *   most popular</li>
+ *   <li>campsites of a park follow a Zipf distribution of exponent {@code campsites}; the ranks are spread over the
+ *   park by the seed, so the most popular campsites are not all of the same type</li>
+ *   <li>campsites are further weighted by type code 0-3</li>
+ *   <li>check in dates are weighted by day of the week, Monday to Sunday</li>
+ * </ul>
+ * An exponent of 0 and equal weights are uniform.
+ */
+public class TrafficSkew {
+  private final double parks;
+  private final double campsites;
+  private final double[] typeWeights; // by index in CampsiteStore.KNOWN_TYPES
+  private final double[] dayWeights; // Monday to Sunday
+  private final long seed;
+
+  /**
+   * @param parks       Zipf exponent of parks
+   * @param campsites   Zipf exponent of campsites of a park
+   * @param typeWeights weight of each type code of {@link CampsiteStore#KNOWN_TYPES}
+   * @param dayWeights  weight of check in on Monday to Sunday
+   * @param seed        seed of the draws and of the campsite ranks
+   */
+  public TrafficSkew(double parks, double campsites, double[] typeWeights, double[] dayWeights, long seed) {
+    if (!(parks >= 0) || !(campsites >= 0)) {
+      throw new IllegalArgumentException("Zipf exponent must not be negative: " + parks + ", " + campsites);
+    }
+    if (typeWeights.length != CampsiteStore.KNOWN_TYPES.length) {
+      throw new IllegalArgumentException("One weight per type is needed");
+    }
+    if (dayWeights.length != 7) throw new IllegalArgumentException("One weight per day of the week is needed");
+    checkWeights(typeWeights, "type");
+    checkWeights(dayWeights, "day");
+    this.parks = parks;
+    this.campsites = campsites;
+    this.typeWeights = typeWeights.clone();
+    this.dayWeights = dayWeights.clone();
+    this.seed = seed;
+  }
+
+  private static void checkWeights(double[] weights, String name) {
+    double sum = 0;
+    for (double weight : weights) {
+      if (!(weight >= 0) || Double.isInfinite(weight)) {
+        throw new IllegalArgumentException("Invalid " + name + " weight: " + weight);
+      }
+      sum += weight;
+    }
+    if (sum == 0) throw new IllegalArgumentException("All " + name + " weights are 0");
+  }
+
+  /**
+   * Create the skew from the skew* entries of the configuration file: skewParks and skewCampsites exponents,
+   * skewTypes as type:weight separated by commas (missing types weigh 1), skewDays as seven weights Monday to Sunday
+   * and skewSeed.
+   *
+   * @return skew, null if skewParks, skewCampsites, skewTypes and skewDays are all empty, i.e. every campsite and
+   * night once
+   * @throws IllegalArgumentException if an entry is invalid
+   */
+  public static TrafficSkew fromConfig(Properties config) {
+    String parks = config.getProperty("skewParks", "").trim();
+    String campsites = config.getProperty("skewCampsites", "").trim();
+    String types = config.getProperty("skewTypes", "").trim();
+    String days = config.getProperty("skewDays", "").trim();
+    if (parks.isEmpty() && campsites.isEmpty() && types.isEmpty() && days.isEmpty()) return null;
+    String seed = config.getProperty("skewSeed", "").trim();
+    return new TrafficSkew(parks.isEmpty() ? 0 : Double.parseDouble(parks),
+        campsites.isEmpty() ? 0 : Double.parseDouble(campsites),
+        types.isEmpty() ? uniform(CampsiteStore.KNOWN_TYPES.length) : parseTypes(types),
+        days.isEmpty() ? uniform(7) : parseDays(days),
+        seed.isEmpty() ? 0 : Long.parseLong(seed));
+  }
+
+  private static double[] uniform(int count) {
+    double[] weights = new double[count];
+    Arrays.fill(weights, 1);
+    return weights;
+  }
+
+  private static double[] parseTypes(String value) {
+    double[] weights = uniform(CampsiteStore.KNOWN_TYPES.length);
+    for (String entry : value.split("\\s*,\\s*")) {
+      String[] parts = entry.split("\\s*:\\s*");
+      int type = Arrays.asList(CampsiteStore.KNOWN_TYPES).indexOf(parts[0]);
+      if (parts.length != 2 || type < 0) throw new IllegalArgumentException("Type weight is type:weight: " + entry);
+      weights[type] = Double.parseDouble(parts[1]);
+    }
+    return weights;
+  }
+
+  private static double[] parseDays(String value) {
+    String[] entries = value.split("\\s*,\\s*");
+    if (entries.length != 7) throw new IllegalArgumentException("skewDays needs 7 weights, Monday to Sunday");
+    double[] weights = new double[7];
+    for (int i = 0; i < 7; i++) {
+      weights[i] = Double.parseDouble(entries[i]);
+    }
+    return weights;
+  }
+
+  /**
+   * @return weight of a park or campsite rank, starting at 1
+   */
+  double parkWeight(int rank) {
+    return Math.pow(rank, -parks);
+  }
+
+  double campsiteWeight(int rank) {
+    return Math.pow(rank, -campsites);
+  }
+
+  /**
+   * @return weight of a type, 1 for types other than 0-3
+   */
+  double typeWeight(String type) {
+    int index = Arrays.asList(CampsiteStore.KNOWN_TYPES).indexOf(type);
+    return index < 0 ? 1 : typeWeights[index];
+  }
+
+  /**
+   * @param dayOfWeek 1 for Monday to 7 for Sunday
+   */
+  double dayWeight(int dayOfWeek) {
+    return dayWeights[dayOfWeek - 1];
+  }
+
+  long getSeed() {
+    return seed;
+  }
+
+  @Override
+  public String toString() {
+    return "parks " + parks + ", campsites " + campsites + ", types " + Arrays.toString(typeWeights) + ", days " +
+        Arrays.toString(dayWeights);
+  }
+}
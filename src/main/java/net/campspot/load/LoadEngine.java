@@ -0,0 +1,245 @@
+package net.campspot.load;
+
+import net.campspot.generator.FieldScanner;
+import net.campspot.results.JtlWriter;
+import net.campspot.results.LatencyHistogram;
+import net.campspot.runner.LogBuffer;
+import net.campspot.runner.RunTask;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Okio;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model HTTP load generator: requests built from the rows of a data file are started at a fixed arrival rate,
+ * whether or not earlier requests have finished.
+ * <p>
+ * Every request has an intended start time on the schedule. Its latency is measured from that time, not from the
+ * time it was actually sent, so a slow server that delays sending, or requests queued in the dispatcher because
+ * {@code maxConcurrency} requests are in flight, show up in the percentiles instead of being hidden (coordinated
+ * omission). The time from sending to response is kept as service time. Samples are written to a result file that
+ * the live dashboard, report and run history read like a JMeter result file.
+ */
+public class LoadEngine implements RunTask {
+  private static final long LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+  private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final long DRAIN_TIMEOUT_SECONDS = 60; // time to wait for requests in flight after the last one
+
+  private final OkHttpClient client;
+  private final Dispatcher dispatcher;
+  private final RequestTemplate template;
+  private final Path dataFile;
+  private final Path resultFile;
+  private final String label;
+  private final double rate;
+  private final long durationSeconds;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicLong completed = new AtomicLong();
+  private final AtomicLong errors = new AtomicLong();
+  private final LatencyHistogram latencies = new LatencyHistogram(); // from intended start
+  private final LatencyHistogram serviceTimes = new LatencyHistogram(); // from sending
+  private volatile boolean cancelled;
+
+  /**
+   * @param client          client whose timeouts are used, it gets its own dispatcher and connection pool
+   * @param template        request template
+   * @param dataFile        data file with a header line, its rows are used in turn and again from the start
+   * @param resultFile      result file samples are appended to
+   * @param label           label of the samples
+   * @param rate            requests started per second
+   * @param durationSeconds how long requests are started
+   * @param maxConcurrency  maximum number of requests in flight, more are queued
+   */
+  public LoadEngine(OkHttpClient client, RequestTemplate template, Path dataFile, Path resultFile, String label,
+                    double rate, long durationSeconds, int maxConcurrency) {
+    if (rate <= 0) throw new IllegalArgumentException("Rate must be positive: " + rate);
+    this.dispatcher = new Dispatcher();
+    dispatcher.setMaxRequests(maxConcurrency);
+    dispatcher.setMaxRequestsPerHost(maxConcurrency);
+    this.client = client.newBuilder()
+        .dispatcher(dispatcher)
+        .addInterceptor(chain -> {
+          // runs when the dispatcher sends the call, after any time queued behind maxConcurrency
+          SampleCallback sample = chain.request().tag(SampleCallback.class);
+          if (sample != null) sample.sent = System.nanoTime();
+          return chain.proceed(chain.request());
+        })
+        .connectionPool(new ConnectionPool(maxConcurrency, 5, TimeUnit.MINUTES))
+        .build();
+    this.template = template;
+    this.dataFile = dataFile;
+    this.resultFile = resultFile;
+    this.label = label;
+    this.rate = rate;
+    this.durationSeconds = durationSeconds;
+  }
+
+  @Override
+  public int run(LogBuffer log) throws IOException, InterruptedException {
+    long total = (long) (rate * durationSeconds);
+    log.append(String.format("Starting %d requests at %.1f/s to %s %s", total, rate, template.getMethod(),
+        template.getUrl()));
+    try (JtlWriter writer = new JtlWriter(resultFile)) {
+      BufferedReader data = Files.newBufferedReader(dataFile, StandardCharsets.UTF_8);
+      try {
+        String header = data.readLine();
+        if (header == null) throw new IOException("Data file is empty: " + dataFile);
+        RequestTemplate.Bound bound = template.bind(FieldScanner.split(header));
+
+        long startNanos = System.nanoTime();
+        long startMillis = System.currentTimeMillis();
+        long nextLog = startNanos + LOG_INTERVAL_NANOS;
+        long nextFlush = startNanos + FLUSH_INTERVAL_NANOS;
+        long sent = 0;
+        for (; sent < total && !cancelled; sent++) {
+          long intended = startNanos + (long) (sent * 1e9 / rate);
+          long now;
+          while ((now = System.nanoTime()) < intended) {
+            LockSupport.parkNanos(intended - now);
+          }
+          String line = data.readLine();
+          if (line == null) {
+            // reuse rows from the start
+            data.close();
+            data = Files.newBufferedReader(dataFile, StandardCharsets.UTF_8);
+            data.readLine();
+            line = data.readLine();
+            if (line == null) throw new IOException("Data file has no rows: " + dataFile);
+          }
+          long intendedMillis = startMillis + (intended - startNanos) / 1_000_000;
+          SampleCallback sample = new SampleCallback(writer, intended, intendedMillis);
+          Request request = bound.render(FieldScanner.split(line)).newBuilder()
+              .tag(SampleCallback.class, sample)
+              .build();
+          inFlight.incrementAndGet();
+          client.newCall(request).enqueue(sample);
+
+          if (now >= nextFlush) {
+            writer.flush();
+            nextFlush = now + FLUSH_INTERVAL_NANOS;
+          }
+          if (now >= nextLog) {
+            log.append(String.format("Sent %d, completed %d, errors %d, in flight %d", sent + 1, completed.get(),
+                errors.get(), inFlight.get()));
+            nextLog = now + LOG_INTERVAL_NANOS;
+          }
+        }
+
+        drain(writer);
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        synchronized (this) {
+          log.append(String.format("Sent %d, completed %d, errors %d in %.1f s (%.1f/s)", sent, completed.get(),
+              errors.get(), seconds, completed.get() / seconds));
+          log.append(String.format("Latency p50 %d, p95 %d, p99 %d, max %d ms", latencies.getPercentile(50),
+              latencies.getPercentile(95), latencies.getPercentile(99), latencies.getMax()));
+          log.append(String.format("Service time p50 %d, p95 %d, p99 %d, max %d ms", serviceTimes.getPercentile(50),
+              serviceTimes.getPercentile(95), serviceTimes.getPercentile(99), serviceTimes.getMax()));
+        }
+      } finally {
+        data.close();
+        dispatcher.cancelAll();
+        dispatcher.executorService().shutdown();
+        client.connectionPool().evictAll();
+      }
+    }
+    return cancelled ? 1 : 0;
+  }
+
+  /**
+   * Wait for requests in flight, flushing results meanwhile.
+   */
+  private void drain(JtlWriter writer) throws IOException, InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DRAIN_TIMEOUT_SECONDS);
+    while (inFlight.get() > 0 && !cancelled && System.nanoTime() < deadline) {
+      writer.flush();
+      synchronized (inFlight) {
+        if (inFlight.get() > 0) inFlight.wait(TimeUnit.NANOSECONDS.toMillis(FLUSH_INTERVAL_NANOS));
+      }
+    }
+    writer.flush();
+  }
+
+  @Override
+  public void cancel() {
+    cancelled = true;
+    dispatcher.cancelAll();
+    synchronized (inFlight) {
+      inFlight.notifyAll();
+    }
+  }
+
+  private void finished(JtlWriter writer, long intended, long intendedMillis, long sent, String responseCode,
+                        boolean success, String failureMessage, long bytes) {
+    long done = System.nanoTime();
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(done - intended);
+    long serviceTime = TimeUnit.NANOSECONDS.toMillis(done - sent);
+    try {
+      if (!cancelled) {
+        synchronized (this) {
+          latencies.record(elapsed);
+          serviceTimes.record(serviceTime);
+        }
+        completed.incrementAndGet();
+        if (!success) errors.incrementAndGet();
+        writer.write(intendedMillis, elapsed, label, responseCode, success, failureMessage, bytes, serviceTime);
+      }
+    } catch (IOException e) {
+      cancel(); // result file is broken, stop the run
+    } finally {
+      if (inFlight.decrementAndGet() == 0) {
+        synchronized (inFlight) {
+          inFlight.notifyAll();
+        }
+      }
+    }
+  }
+
+  private class SampleCallback implements Callback {
+    private final JtlWriter writer;
+    private final long intended;
+    private final long intendedMillis;
+    private volatile long sent; // set when the call leaves the dispatcher queue
+
+    SampleCallback(JtlWriter writer, long intended, long intendedMillis) {
+      this.writer = writer;
+      this.intended = intended;
+      this.intendedMillis = intendedMillis;
+      this.sent = intended;
+    }
+
+    @Override
+    public void onResponse(@NotNull Call call, @NotNull Response response) {
+      long bytes = 0;
+      String failure = null;
+      try (ResponseBody body = response.body()) {
+        if (body != null) bytes = body.source().readAll(Okio.blackhole());
+      } catch (IOException e) {
+        failure = e.toString();
+      }
+      boolean success = failure == null && response.isSuccessful();
+      if (failure == null && !success) failure = response.message();
+      finished(writer, intended, intendedMillis, sent, Integer.toString(response.code()), success, failure, bytes);
+    }
+
+    @Override
+    public void onFailure(@NotNull Call call, @NotNull IOException e) {
+      finished(writer, intended, intendedMillis, sent, e.getClass().getSimpleName(), false, e.toString(), 0);
+    }
+  }
+}
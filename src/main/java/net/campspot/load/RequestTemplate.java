@@ -0,0 +1,125 @@
+package net.campspot.load;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * HTTP request with <code>${column}</code> placeholders that are replaced with values of a data file row.
+ * Values are URL encoded in the URL and inserted as they are in the body.
+ */
+public class RequestTemplate {
+  private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+  private final String method;
+  private final String url;
+  private final String body;
+
+  /**
+   * @param method HTTP method
+   * @param url    URL template
+   * @param body   body template, empty or null for none
+   */
+  public RequestTemplate(String method, String url, String body) {
+    this.method = method.trim().toUpperCase();
+    this.url = url.trim();
+    this.body = body == null || body.trim().isEmpty() ? null : body;
+  }
+
+  public String getMethod() {
+    return method;
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  /**
+   * @param baseUrl scheme, host and port, e.g. of a {@link StubServer}
+   * @return the same request sent to another server
+   */
+  public RequestTemplate withBaseUrl(String baseUrl) {
+    int scheme = url.indexOf("://");
+    int path = scheme < 0 ? -1 : url.indexOf('/', scheme + 3);
+    return new RequestTemplate(method, baseUrl + (path < 0 ? "/" : url.substring(path)), body);
+  }
+
+  /**
+   * Resolve placeholders to column indexes of a data file.
+   *
+   * @param columns header of the data file
+   * @return template ready to render rows
+   * @throws IllegalArgumentException if a placeholder is not a column
+   */
+  public Bound bind(String[] columns) {
+    return new Bound(compile(url, columns), body == null ? null : compile(body, columns));
+  }
+
+  /**
+   * Split a template into literal parts, at even indexes, and column indexes, as Integers at odd indexes.
+   */
+  private static List<Object> compile(String template, String[] columns) {
+    List<String> names = Arrays.asList(columns);
+    List<Object> parts = new ArrayList<>();
+    int position = 0;
+    while (true) {
+      int start = template.indexOf("${", position);
+      int end = start < 0 ? -1 : template.indexOf('}', start);
+      if (end < 0) {
+        parts.add(template.substring(position));
+        return parts;
+      }
+      String name = template.substring(start + 2, end);
+      int column = names.indexOf(name);
+      if (column < 0) throw new IllegalArgumentException("Data file has no column " + name + ": " + names);
+      parts.add(template.substring(position, start));
+      parts.add(column);
+      position = end + 1;
+    }
+  }
+
+  /**
+   * Template bound to the columns of a data file.
+   */
+  public class Bound {
+    private final List<Object> urlParts;
+    private final List<Object> bodyParts;
+
+    private Bound(List<Object> urlParts, List<Object> bodyParts) {
+      this.urlParts = urlParts;
+      this.bodyParts = bodyParts;
+    }
+
+    /**
+     * @param row values of a data file row
+     * @return request for the row
+     */
+    public Request render(String[] row) {
+      String renderedBody = bodyParts == null ? null : render(bodyParts, row, false);
+      return new Request.Builder()
+          .url(render(urlParts, row, true))
+          .method(method, renderedBody == null ? null : RequestBody.create(renderedBody, JSON))
+          .build();
+    }
+
+    private String render(List<Object> parts, String[] row, boolean encode) {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < parts.size(); i++) {
+        if (i % 2 == 0) {
+          sb.append((String) parts.get(i));
+        } else {
+          int column = (Integer) parts.get(i);
+          String value = column < row.length ? row[column] : "";
+          sb.append(encode ? URLEncoder.encode(value, StandardCharsets.UTF_8) : value);
+        }
+      }
+      return sb.toString();
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package net.campspot.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local HTTP server answering every request with 200 and a small JSON body after a fixed delay. Used to try the load
+ * engine and request templates without touching a real booking service.
+ */
+public class StubServer implements Closeable {
+  private static final byte[] RESPONSE = "{\"status\":\"ok\"}".getBytes(StandardCharsets.UTF_8);
+
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "stub-server");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final long delayMillis;
+  private final AtomicLong requests = new AtomicLong();
+
+  /**
+   * Start the server on the loopback address.
+   *
+   * @param port        port, 0 for any free port
+   * @param delayMillis time to wait before answering
+   */
+  public StubServer(int port, long delayMillis) throws IOException {
+    this.delayMillis = delayMillis;
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+    server.createContext("/", this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * @return base URL of the server, without trailing slash
+   */
+  public String getUrl() {
+    return "http://" + server.getAddress().getHostString() + ":" + getPort();
+  }
+
+  /**
+   * @return number of requests answered
+   */
+  public long getRequestCount() {
+    return requests.get();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (InputStream in = exchange.getRequestBody()) {
+      in.transferTo(OutputStream.nullOutputStream());
+    }
+    if (delayMillis > 0) {
+      try {
+        Thread.sleep(delayMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, RESPONSE.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(RESPONSE);
+    }
+    requests.incrementAndGet();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,25 @@
+package net.campspot.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Campsites read at startup, from all-campsites.csv or from its snapshot.
+ */
+@Name("net.campspot.CatalogLoad")
+@Label("Catalog Load")
+@Category("Campspot")
+@Description("Campsites read from the CSV file or its binary snapshot")
+public class CatalogLoadEvent extends jdk.jfr.Event {
+  @Label("File")
+  public String file;
+
+  @Label("Source")
+  @Description("csv when the CSV file was parsed, snapshot when the snapshot was read")
+  public String source;
+
+  @Label("Campsites")
+  public int campsites;
+}
@@ -0,0 +1,25 @@
+package net.campspot.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A call to the remote test server, until its response headers were received.
+ */
+@Name("net.campspot.ControlPlaneCall")
+@Label("Control Plane Call")
+@Category("Campspot")
+@Description("HTTP call to the remote test server")
+public class ControlPlaneCallEvent extends jdk.jfr.Event {
+  @Label("Method")
+  public String method;
+
+  @Label("Page")
+  public String page;
+
+  @Label("Status")
+  @Description("HTTP status code, -1 if no response was received")
+  public int status;
+}
@@ -0,0 +1,29 @@
+package net.campspot.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A data file written by the generator.
+ */
+@Name("net.campspot.Generate")
+@Label("Generate Data File")
+@Category("Campspot")
+@Description("Rows generated into a data file")
+public class GenerateEvent extends jdk.jfr.Event {
+  @Label("File")
+  public String file;
+
+  @Label("Rows")
+  public long rows;
+
+  @Label("Bytes Written")
+  @DataAmount
+  public long bytes;
+
+  @Label("Threads")
+  public int threads;
+}
@@ -0,0 +1,54 @@
+package net.campspot.metrics;
+
+import net.campspot.results.LatencyHistogram;
+
+/**
+ * Count and percentiles of a latency histogram at one moment, shown as one composite attribute of the MBean.
+ */
+public class LatencySnapshot {
+  private final long count;
+  private final double meanMillis;
+  private final long p50Millis;
+  private final long p95Millis;
+  private final long p99Millis;
+  private final long maxMillis;
+
+  LatencySnapshot(LatencyHistogram histogram) {
+    count = histogram.getCount();
+    meanMillis = histogram.getMean();
+    p50Millis = histogram.getPercentile(50);
+    p95Millis = histogram.getPercentile(95);
+    p99Millis = histogram.getPercentile(99);
+    maxMillis = histogram.getMax();
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public double getMeanMillis() {
+    return meanMillis;
+  }
+
+  public long getP50Millis() {
+    return p50Millis;
+  }
+
+  public long getP95Millis() {
+    return p95Millis;
+  }
+
+  public long getP99Millis() {
+    return p99Millis;
+  }
+
+  public long getMaxMillis() {
+    return maxMillis;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d, mean %.1f ms, p50 %d ms, p95 %d ms, p99 %d ms, max %d ms", count, meanMillis, p50Millis,
+        p95Millis, p99Millis, maxMillis);
+  }
+}
@@ -0,0 +1,21 @@
+package net.campspot.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A local run, from the start of its process until it exited.
+ */
+@Name("net.campspot.LocalRun")
+@Label("Local Run")
+@Category("Campspot")
+@Description("JMeter process of a local run")
+public class LocalRunEvent extends jdk.jfr.Event {
+  @Label("Run")
+  public String run;
+
+  @Label("Exit Code")
+  public int exitCode;
+}
@@ -0,0 +1,21 @@
+package net.campspot.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Launch of a JMeter process, until the operating system returned it.
+ */
+@Name("net.campspot.ProcessStart")
+@Label("Process Start")
+@Category("Campspot")
+@Description("Time to launch the process of a local run")
+public class ProcessStartEvent extends jdk.jfr.Event {
+  @Label("Run")
+  public String run;
+
+  @Label("Command")
+  public String command;
+}
@@ -0,0 +1,209 @@
+package net.campspot.metrics;
+
+import net.campspot.results.LatencyHistogram;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of catalog loading, generation, local runs and calls to the remote test server.
+ * Recording takes a few atomic additions and a short lock per operation, and operations are at most a few per
+ * second, so it is always on. The same operations are also recorded as JFR events, which cost nothing unless a
+ * recording is running.
+ */
+public class ToolMetrics implements ToolMetricsMXBean {
+  public static final String OBJECT_NAME = "net.campspot:type=Metrics";
+  private static final ToolMetrics INSTANCE = new ToolMetrics();
+
+  private final LongAdder catalogLoads = new LongAdder();
+  private final AtomicLong campsitesLoaded = new AtomicLong();
+  private final LatencyHistogram catalogLoadTime = new LatencyHistogram();
+  private final LongAdder generations = new LongAdder();
+  private final LongAdder rowsGenerated = new LongAdder();
+  private final LongAdder bytesWritten = new LongAdder();
+  private final LongAdder generationNanos = new LongAdder();
+  private volatile double lastRowsPerSecond;
+  private final LatencyHistogram generationTime = new LatencyHistogram();
+  private final LongAdder localRuns = new LongAdder();
+  private final LongAdder failedLocalRuns = new LongAdder();
+  private final LatencyHistogram processStartLatency = new LatencyHistogram();
+  private final LatencyHistogram localRunTime = new LatencyHistogram();
+  private final LongAdder controlPlaneCalls = new LongAdder();
+  private final LongAdder controlPlaneErrors = new LongAdder();
+  private final LatencyHistogram controlPlaneLatency = new LatencyHistogram();
+
+  private ToolMetrics() {
+  }
+
+  public static ToolMetrics get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Register the metrics with the platform MBean server, so JConsole, VisualVM or a JMX exporter can read them.
+   */
+  public static void register() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      if (!server.isRegistered(name)) server.registerMBean(INSTANCE, name);
+    } catch (JMException | RuntimeException e) {
+      System.err.println("Cannot register metrics MBean: " + e);
+    }
+  }
+
+  public void catalogLoaded(int campsites, long nanos) {
+    catalogLoads.increment();
+    campsitesLoaded.set(campsites);
+    record(catalogLoadTime, nanos);
+  }
+
+  public void generated(long rows, long bytes, long nanos) {
+    generations.increment();
+    rowsGenerated.add(rows);
+    bytesWritten.add(bytes);
+    generationNanos.add(nanos);
+    lastRowsPerSecond = nanos > 0 ? rows * 1e9 / nanos : 0;
+    record(generationTime, nanos);
+  }
+
+  public void processStarted(long nanos) {
+    record(processStartLatency, nanos);
+  }
+
+  public void localRunFinished(boolean succeeded, long nanos) {
+    localRuns.increment();
+    if (!succeeded) failedLocalRuns.increment();
+    record(localRunTime, nanos);
+  }
+
+  public void controlPlaneCalled(boolean succeeded, long nanos) {
+    controlPlaneCalls.increment();
+    if (!succeeded) controlPlaneErrors.increment();
+    record(controlPlaneLatency, nanos);
+  }
+
+  private static void record(LatencyHistogram histogram, long nanos) {
+    long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+    synchronized (histogram) {
+      histogram.record(millis);
+    }
+  }
+
+  private static LatencySnapshot snapshot(LatencyHistogram histogram) {
+    synchronized (histogram) {
+      return new LatencySnapshot(histogram);
+    }
+  }
+
+  private static void reset(LatencyHistogram histogram) {
+    synchronized (histogram) {
+      histogram.reset();
+    }
+  }
+
+  @Override
+  public long getCatalogLoads() {
+    return catalogLoads.sum();
+  }
+
+  @Override
+  public long getCampsitesLoaded() {
+    return campsitesLoaded.get();
+  }
+
+  @Override
+  public LatencySnapshot getCatalogLoadTime() {
+    return snapshot(catalogLoadTime);
+  }
+
+  @Override
+  public long getGenerations() {
+    return generations.sum();
+  }
+
+  @Override
+  public long getRowsGenerated() {
+    return rowsGenerated.sum();
+  }
+
+  @Override
+  public long getBytesWritten() {
+    return bytesWritten.sum();
+  }
+
+  @Override
+  public double getRowsPerSecond() {
+    long nanos = generationNanos.sum();
+    return nanos > 0 ? rowsGenerated.sum() * 1e9 / nanos : 0;
+  }
+
+  @Override
+  public double getLastRowsPerSecond() {
+    return lastRowsPerSecond;
+  }
+
+  @Override
+  public LatencySnapshot getGenerationTime() {
+    return snapshot(generationTime);
+  }
+
+  @Override
+  public long getLocalRuns() {
+    return localRuns.sum();
+  }
+
+  @Override
+  public long getFailedLocalRuns() {
+    return failedLocalRuns.sum();
+  }
+
+  @Override
+  public LatencySnapshot getProcessStartLatency() {
+    return snapshot(processStartLatency);
+  }
+
+  @Override
+  public LatencySnapshot getLocalRunTime() {
+    return snapshot(localRunTime);
+  }
+
+  @Override
+  public long getControlPlaneCalls() {
+    return controlPlaneCalls.sum();
+  }
+
+  @Override
+  public long getControlPlaneErrors() {
+    return controlPlaneErrors.sum();
+  }
+
+  @Override
+  public LatencySnapshot getControlPlaneLatency() {
+    return snapshot(controlPlaneLatency);
+  }
+
+  @Override
+  public void reset() {
+    catalogLoads.reset();
+    campsitesLoaded.set(0);
+    generations.reset();
+    rowsGenerated.reset();
+    bytesWritten.reset();
+    generationNanos.reset();
+    lastRowsPerSecond = 0;
+    localRuns.reset();
+    failedLocalRuns.reset();
+    controlPlaneCalls.reset();
+    controlPlaneErrors.reset();
+    for (LatencyHistogram histogram : new LatencyHistogram[]{catalogLoadTime, generationTime, processStartLatency,
+        localRunTime, controlPlaneLatency}) {
+      reset(histogram);
+    }
+  }
+}
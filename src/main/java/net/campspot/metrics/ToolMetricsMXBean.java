@@ -0,0 +1,58 @@
+package net.campspot.metrics;
+
+/**
+ * Counters and latencies of the tool itself, registered as net.campspot:type=Metrics.
+ */
+public interface ToolMetricsMXBean {
+  long getCatalogLoads();
+
+  /**
+   * @return campsites of the last catalog load
+   */
+  long getCampsitesLoaded();
+
+  LatencySnapshot getCatalogLoadTime();
+
+  long getGenerations();
+
+  long getRowsGenerated();
+
+  long getBytesWritten();
+
+  /**
+   * @return rows per second of all generations together
+   */
+  double getRowsPerSecond();
+
+  /**
+   * @return rows per second of the last generation
+   */
+  double getLastRowsPerSecond();
+
+  LatencySnapshot getGenerationTime();
+
+  long getLocalRuns();
+
+  long getFailedLocalRuns();
+
+  /**
+   * @return time to launch the JMeter process of a local run
+   */
+  LatencySnapshot getProcessStartLatency();
+
+  LatencySnapshot getLocalRunTime();
+
+  long getControlPlaneCalls();
+
+  /**
+   * @return calls that got no response or an error status
+   */
+  long getControlPlaneErrors();
+
+  LatencySnapshot getControlPlaneLatency();
+
+  /**
+   * Set all counters and histograms to zero.
+   */
+  void reset();
+}
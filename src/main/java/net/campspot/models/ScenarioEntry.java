@@ -0,0 +1,27 @@
+package net.campspot.models;
+
+import com.opencsv.bean.CsvBindByName;
+
+/**
+ * One line of a scenario file: which campsites of a park to book and for which dates.
+ */
+public class ScenarioEntry {
+  @CsvBindByName(column = "ParkID", required = true)
+  public String parkId;
+  @CsvBindByName
+  public String type; // campsite type number, empty or -1 for all types
+  @CsvBindByName(required = true)
+  public String checkin; // MM/dd/yyyy
+  @CsvBindByName(required = true)
+  public String checkout; // MM/dd/yyyy, last night to book
+  @CsvBindByName
+  public Integer share; // percentage of matching campsites to book, empty for 100
+
+  public ScenarioEntry() {
+
+  }
+
+  public String toString() {
+    return parkId + " " + type + " " + checkin + "-" + checkout + " " + share + "%";
+  }
+}
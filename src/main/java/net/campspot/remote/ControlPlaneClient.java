@@ -0,0 +1,309 @@
+package net.campspot.remote;
+
+import net.campspot.catalog.CatalogChanges;
+import net.campspot.metrics.ControlPlaneCallEvent;
+import net.campspot.metrics.ToolMetrics;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Client of the remote test server pages: ViewTestList.aspx, RunJMeterTest.aspx, ViewTestStatus.aspx and
+ * CatalogChanges.aspx.
+ * <p>
+ * All calls share one {@link OkHttpClient}, so connections to the server are kept alive and reused by the test list,
+ * test starts and status polls. The test list is cached for a time to live, after that it is fetched again with
+ * If-None-Match / If-Modified-Since, and a 304 answer keeps the cached list. Concurrent requests for the list share
+ * one call.
+ */
+public class ControlPlaneClient {
+  private static final int MAX_REQUESTS_PER_HOST = 8;
+  private static final int MAX_IDLE_CONNECTIONS = 4;
+
+  private final OkHttpClient client;
+  private final HttpUrl baseUrl;
+  private final String accountId;
+  private final long cacheTtlNanos;
+  private final ScheduledExecutorService scheduler;
+  private TestList testList; // last list received, null if none
+  private CompletableFuture<List<String>> pendingTestList; // list request in flight, null if none
+
+  /**
+   * @param client          client used for all calls, see {@link #newHttpClient()}
+   * @param baseUrl         scheme, host and port of the server, e.g. the campspotServer entry of the config file
+   * @param accountId       account of the tests
+   * @param cacheTtlSeconds how long the test list is used without asking the server
+   */
+  public ControlPlaneClient(OkHttpClient client, String baseUrl, String accountId, long cacheTtlSeconds) {
+    HttpUrl url = HttpUrl.parse(baseUrl.trim());
+    if (url == null) throw new IllegalArgumentException("Not an HTTP URL: " + baseUrl);
+    this.client = client.newBuilder().addInterceptor(ControlPlaneClient::timeCall).build(); // same pool and dispatcher
+    this.baseUrl = url;
+    this.accountId = accountId == null ? "" : accountId.trim();
+    this.cacheTtlNanos = TimeUnit.SECONDS.toNanos(cacheTtlSeconds);
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "status-poller");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.setRemoveOnCancelPolicy(true);
+    this.scheduler = executor;
+  }
+
+  /**
+   * @return client with keep-alive connections and a dispatcher sized for a few servers, to be shared by all calls
+   * of the application
+   */
+  public static OkHttpClient newHttpClient() {
+    Dispatcher dispatcher = new Dispatcher();
+    dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+    return new OkHttpClient.Builder()
+        .dispatcher(dispatcher)
+        .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, 5, TimeUnit.MINUTES))
+        .connectTimeout(10, TimeUnit.SECONDS)
+        .writeTimeout(60, TimeUnit.SECONDS)
+        .readTimeout(60, TimeUnit.SECONDS)
+        .retryOnConnectionFailure(true)
+        .build();
+  }
+
+  /**
+   * Record the latency of a call to the server, until its response headers were received.
+   */
+  private static Response timeCall(Interceptor.Chain chain) throws IOException {
+    Request request = chain.request();
+    ControlPlaneCallEvent event = new ControlPlaneCallEvent();
+    event.begin();
+    long start = System.nanoTime();
+    int status = -1;
+    try {
+      Response response = chain.proceed(request);
+      status = response.code();
+      return response;
+    } finally {
+      ToolMetrics.get().controlPlaneCalled(status >= 200 && status < 400, System.nanoTime() - start);
+      event.method = request.method();
+      event.page = request.url().encodedPath();
+      event.status = status;
+      event.commit();
+    }
+  }
+
+  /**
+   * @return URL of a page of the server
+   */
+  public HttpUrl pageUrl(String page) {
+    return baseUrl.newBuilder().addPathSegment("internal").addPathSegment(page).build();
+  }
+
+  /**
+   * Get the names of the tests of the account.
+   *
+   * @param refresh whether to ask the server even if the cached list is younger than the time to live
+   * @return names of the tests, completed on a dispatcher thread
+   */
+  public synchronized CompletableFuture<List<String>> getTests(boolean refresh) {
+    if (!refresh && testList != null && System.nanoTime() - testList.received < cacheTtlNanos) {
+      return CompletableFuture.completedFuture(testList.names);
+    }
+    if (pendingTestList != null) return pendingTestList;
+
+    HttpUrl url = pageUrl("ViewTestList.aspx").newBuilder()
+        .addQueryParameter("tool", "JMeter")
+        .addQueryParameter("a", accountId)
+        .build();
+    Request.Builder request = new Request.Builder().url(url);
+    if (testList != null) {
+      if (testList.etag != null) request.header("If-None-Match", testList.etag);
+      if (testList.lastModified != null) request.header("If-Modified-Since", testList.lastModified);
+    }
+    CompletableFuture<List<String>> future = new CompletableFuture<>();
+    pendingTestList = future;
+    client.newCall(request.build()).enqueue(new Callback() {
+      @Override
+      public void onResponse(@NotNull Call call, @NotNull Response response) {
+        try (ResponseBody body = response.body()) {
+          // read and parse without the lock, getTests is called on the event dispatch thread
+          List<String> parsed = null;
+          if (response.code() != 304) {
+            if (!response.isSuccessful() || body == null) throw new IOException("Unexpected code " + response);
+            parsed = parseTestList(body.string());
+          }
+          List<String> names;
+          synchronized (ControlPlaneClient.this) {
+            if (parsed != null) {
+              testList = new TestList(parsed, response.header("ETag"), response.header("Last-Modified"));
+            } else if (testList != null) {
+              testList = new TestList(testList.names, testList.etag, testList.lastModified);
+            } else {
+              throw new IOException("Unexpected code " + response);
+            }
+            names = testList.names;
+            pendingTestList = null;
+          }
+          future.complete(names);
+        } catch (IOException e) {
+          onFailure(call, e);
+        }
+      }
+
+      @Override
+      public void onFailure(@NotNull Call call, @NotNull IOException e) {
+        synchronized (ControlPlaneClient.this) {
+          pendingTestList = null;
+        }
+        future.completeExceptionally(e);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Ask the server to run a test.
+   *
+   * @return completed on a dispatcher thread when the server accepted the test
+   */
+  public CompletableFuture<Void> runTest(String testName) {
+    HttpUrl url = pageUrl("RunJMeterTest.aspx").newBuilder()
+        .addQueryParameter("name", testName)
+        .addQueryParameter("accountID", accountId)
+        .build();
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    client.newCall(new Request.Builder().url(url).build()).enqueue(new Callback() {
+      @Override
+      public void onResponse(@NotNull Call call, @NotNull Response response) {
+        try {
+          if (response.isSuccessful()) {
+            future.complete(null);
+          } else {
+            future.completeExceptionally(new IOException("Unexpected code " + response));
+          }
+        } finally {
+          response.close();
+        }
+      }
+
+      @Override
+      public void onFailure(@NotNull Call call, @NotNull IOException e) {
+        future.completeExceptionally(e);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Get the changes of the campsite catalog since a catalog version.
+   *
+   * @param since catalog version of the local catalog, 0 for the whole catalog
+   * @return changes, completed on a dispatcher thread; fails if the server no longer has the changes since the
+   * version (410 Gone)
+   */
+  public CompletableFuture<CatalogChanges> getCatalogChanges(long since) {
+    HttpUrl url = pageUrl("CatalogChanges.aspx").newBuilder()
+        .addQueryParameter("a", accountId)
+        .addQueryParameter("since", Long.toString(since))
+        .build();
+    CompletableFuture<CatalogChanges> future = new CompletableFuture<>();
+    client.newCall(new Request.Builder().url(url).build()).enqueue(new Callback() {
+      @Override
+      public void onResponse(@NotNull Call call, @NotNull Response response) {
+        try (ResponseBody body = response.body()) {
+          if (response.code() == 410) {
+            throw new IOException("Server has no catalog changes since version " + since + ", a full sync is needed");
+          }
+          if (!response.isSuccessful() || body == null) throw new IOException("Unexpected code " + response);
+          future.complete(CatalogChanges.parse(textPart(body.string())));
+        } catch (IOException e) {
+          future.completeExceptionally(e);
+        }
+      }
+
+      @Override
+      public void onFailure(@NotNull Call call, @NotNull IOException e) {
+        future.completeExceptionally(e);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Poll ViewTestStatus.aspx until the status is finished or the poller is stopped. Listeners are called on the
+   * poller thread.
+   *
+   * @param finished whether a status is the last one of a run
+   * @param onStatus called with the first status and with every change
+   * @param onError  called with failed polls, polling goes on with a longer interval
+   */
+  public StatusPoller pollStatus(Predicate<String> finished, Consumer<String> onStatus, Consumer<IOException> onError) {
+    HttpUrl url = pageUrl("ViewTestStatus.aspx").newBuilder().addQueryParameter("cancel", "no").build();
+    StatusPoller poller = new StatusPoller(client, scheduler, url, finished, onStatus, onError);
+    poller.start();
+    return poller;
+  }
+
+  /**
+   * The pages answer with comma separated values followed by an HTML page.
+   *
+   * @return text before the HTML part, trimmed
+   */
+  static String textPart(String body) {
+    int index = body.indexOf("<!DOCTYPE");
+    return (index > -1 ? body.substring(0, index) : body).trim();
+  }
+
+  /**
+   * @param body ViewTestList.aspx answer, pairs of id and name separated by commas
+   * @return test names
+   */
+  static List<String> parseTestList(String body) {
+    String text = textPart(body);
+    if (text.isEmpty()) return Collections.emptyList();
+    String[] tokens = text.split(",");
+    List<String> names = new ArrayList<>(tokens.length / 2);
+    for (int i = 0; i < tokens.length / 2; i++) {
+      names.add(tokens[i * 2 + 1].trim());
+    }
+    return Collections.unmodifiableList(names);
+  }
+
+  /**
+   * @param pattern regular expression found in statuses of finished runs, matched ignoring case
+   * @return predicate for {@link #pollStatus}
+   */
+  public static Predicate<String> finishedWhen(String pattern) {
+    return Pattern.compile(pattern, Pattern.CASE_INSENSITIVE).asPredicate();
+  }
+
+  private static class TestList {
+    final List<String> names;
+    final String etag;
+    final String lastModified;
+    final long received = System.nanoTime();
+
+    TestList(List<String> names, String etag, String lastModified) {
+      this.names = names;
+      this.etag = etag;
+      this.lastModified = lastModified;
+    }
+  }
+}
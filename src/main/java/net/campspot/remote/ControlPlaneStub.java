@@ -0,0 +1,169 @@
+package net.campspot.remote;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the remote test server, answering the pages used by {@link ControlPlaneClient} in their format.
+ * The test list has an ETag and is answered with 304 when it did not change. A started test is reported as running
+ * with a progress that grows over a fixed duration, then as finished. Catalog changes are read from a change log
+ * file on every request, so they can be edited while the stub runs. Used to try the remote mode without a server.
+ */
+public class ControlPlaneStub implements Closeable {
+  private static final String HTML = "\n<!DOCTYPE html><html><body>stub</body></html>";
+
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "control-plane-stub");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final List<String> tests;
+  private final long runMillis;
+  private final AtomicLong requests = new AtomicLong();
+  private String runningTest;
+  private long runStart;
+  private volatile Path catalogLog;
+
+  /**
+   * Start the server on the loopback address.
+   *
+   * @param port        port, 0 for any free port
+   * @param tests       names returned by the test list
+   * @param runSeconds  how long a started test runs
+   */
+  public ControlPlaneStub(int port, List<String> tests, long runSeconds) throws IOException {
+    this.tests = tests;
+    this.runMillis = TimeUnit.SECONDS.toMillis(runSeconds);
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 64);
+    server.createContext("/internal/ViewTestList.aspx", this::handleTestList);
+    server.createContext("/internal/RunJMeterTest.aspx", this::handleRun);
+    server.createContext("/internal/ViewTestStatus.aspx", this::handleStatus);
+    server.createContext("/internal/CatalogChanges.aspx", this::handleCatalogChanges);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /**
+   * @return base URL of the server, without trailing slash
+   */
+  public String getUrl() {
+    return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+  }
+
+  /**
+   * @return number of requests answered, including 304 answers
+   */
+  public long getRequestCount() {
+    return requests.get();
+  }
+
+  private void handleTestList(HttpExchange exchange) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < tests.size(); i++) {
+      if (i > 0) sb.append(',');
+      sb.append(i + 1).append(',').append(tests.get(i));
+    }
+    String etag = "\"" + Integer.toHexString(sb.toString().hashCode()) + "\"";
+    exchange.getResponseHeaders().set("ETag", etag);
+    if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+      send(exchange, 304, null);
+    } else {
+      send(exchange, 200, sb + HTML);
+    }
+  }
+
+  private void handleRun(HttpExchange exchange) throws IOException {
+    String name = null;
+    String query = exchange.getRequestURI().getRawQuery();
+    for (String parameter : query == null ? new String[0] : query.split("&")) {
+      if (parameter.startsWith("name=")) name = URLDecoder.decode(parameter.substring(5), StandardCharsets.UTF_8);
+    }
+    if (name == null || !tests.contains(name)) {
+      send(exchange, 404, "No test " + name);
+      return;
+    }
+    synchronized (this) {
+      runningTest = name;
+      runStart = System.currentTimeMillis();
+    }
+    send(exchange, 200, "OK" + HTML);
+  }
+
+  private void handleStatus(HttpExchange exchange) throws IOException {
+    String status;
+    synchronized (this) {
+      if (runningTest == null) {
+        status = "Idle";
+      } else {
+        long elapsed = System.currentTimeMillis() - runStart;
+        status = elapsed >= runMillis ? "Finished " + runningTest :
+            "Running " + runningTest + ": " + (elapsed * 10 / runMillis * 10) + "%";
+      }
+    }
+    send(exchange, 200, status + HTML);
+  }
+
+  /**
+   * Answer CatalogChanges.aspx from a change log: lines of a catalog change preceded by the version it was made in,
+   * e.g. {@code 12,site,4711,"Site 4711",13,0}, in ascending versions. Without log the catalog is at version 0.
+   *
+   * @param log change log file, null for none
+   */
+  public void serveCatalogChanges(Path log) {
+    catalogLog = log;
+  }
+
+  private void handleCatalogChanges(HttpExchange exchange) throws IOException {
+    long since = 0;
+    String query = exchange.getRequestURI().getRawQuery();
+    for (String parameter : query == null ? new String[0] : query.split("&")) {
+      if (parameter.startsWith("since=")) since = Long.parseLong(parameter.substring(6));
+    }
+    Path log = catalogLog;
+    long version = 0;
+    StringBuilder changes = new StringBuilder();
+    if (log != null && Files.exists(log)) {
+      for (String line : Files.readAllLines(log, StandardCharsets.UTF_8)) {
+        int comma = line.indexOf(',');
+        if (comma < 0) continue;
+        long lineVersion = Long.parseLong(line.substring(0, comma).trim());
+        version = Math.max(version, lineVersion);
+        if (lineVersion > since) changes.append(line.substring(comma + 1)).append('\n');
+      }
+    }
+    send(exchange, 200, "version," + Math.max(version, since) + "\n" + changes + HTML);
+  }
+
+  private void send(HttpExchange exchange, int code, String body) throws IOException {
+    exchange.getRequestBody().close();
+    byte[] bytes = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+    exchange.sendResponseHeaders(code, body == null ? -1 : bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+    requests.incrementAndGet();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,178 @@
+package net.campspot.remote;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Polls the status page of a remote run with adaptive backoff: the interval goes back to the minimum when the status
+ * changed, grows while it stays the same and grows faster after errors, so an idle or unreachable server is not
+ * hammered and a moving run is followed closely. Intervals are spread by a random part, so many operators watching
+ * the same server do not poll in step. Created by {@link ControlPlaneClient#pollStatus}.
+ */
+public class StatusPoller {
+  static final long MIN_INTERVAL_MILLIS = 1000;
+  static final long MAX_INTERVAL_MILLIS = 30000;
+  private static final double UNCHANGED_FACTOR = 1.5;
+  private static final double ERROR_FACTOR = 2;
+  static final double JITTER = 0.2;
+
+  private final OkHttpClient client;
+  private final ScheduledExecutorService scheduler;
+  private final HttpUrl url;
+  private final Predicate<String> finished;
+  private final Consumer<String> onStatus;
+  private final Consumer<IOException> onError;
+  private String status; // last status, null before the first answer
+  private String etag;
+  private long intervalMillis = MIN_INTERVAL_MILLIS;
+  private volatile long nextPoll; // epoch milliseconds of the next poll, 0 if stopped
+  private volatile boolean stopped;
+  private ScheduledFuture<?> scheduled;
+  private Call call;
+
+  StatusPoller(OkHttpClient client, ScheduledExecutorService scheduler, HttpUrl url, Predicate<String> finished,
+               Consumer<String> onStatus, Consumer<IOException> onError) {
+    this.client = client;
+    this.scheduler = scheduler;
+    this.url = url;
+    this.finished = finished;
+    this.onStatus = onStatus;
+    this.onError = onError;
+  }
+
+  synchronized void start() {
+    schedule(0);
+  }
+
+  /**
+   * @return time of the next poll in epoch milliseconds, 0 if polling stopped
+   */
+  public long getNextPoll() {
+    return nextPoll;
+  }
+
+  /**
+   * @return interval of the next poll before its random part
+   */
+  synchronized long getIntervalMillis() {
+    return intervalMillis;
+  }
+
+  /**
+   * @return last status, null before the first answer
+   */
+  public synchronized String getStatus() {
+    return status;
+  }
+
+  public boolean isStopped() {
+    return stopped;
+  }
+
+  /**
+   * Stop polling, a poll in flight is cancelled.
+   */
+  public synchronized void stop() {
+    stopped = true;
+    nextPoll = 0;
+    if (scheduled != null) scheduled.cancel(false);
+    if (call != null) call.cancel();
+  }
+
+  private synchronized void schedule(long delayMillis) {
+    if (stopped) return;
+    nextPoll = System.currentTimeMillis() + delayMillis;
+    scheduled = scheduler.schedule(this::poll, delayMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private synchronized void poll() {
+    if (stopped) return;
+    Request.Builder request = new Request.Builder().url(url);
+    if (etag != null) request.header("If-None-Match", etag);
+    call = client.newCall(request.build());
+    call.enqueue(new Callback() {
+      @Override
+      public void onResponse(@NotNull Call call, @NotNull Response response) {
+        String text = null;
+        try (ResponseBody body = response.body()) {
+          if (response.code() != 304) {
+            if (!response.isSuccessful() || body == null) throw new IOException("Unexpected code " + response);
+            text = statusText(body.string());
+          }
+        } catch (IOException e) {
+          onFailure(call, e);
+          return;
+        }
+        received(text, response.header("ETag"));
+      }
+
+      @Override
+      public void onFailure(@NotNull Call call, @NotNull IOException e) {
+        if (stopped) return;
+        onError.accept(e);
+        synchronized (StatusPoller.this) {
+          intervalMillis = Math.min(MAX_INTERVAL_MILLIS, (long) (intervalMillis * ERROR_FACTOR));
+          schedule(jitter(intervalMillis));
+        }
+      }
+    });
+  }
+
+  /**
+   * @param text status, null if not modified
+   */
+  private void received(String text, String newEtag) {
+    boolean changed;
+    boolean done;
+    synchronized (this) {
+      if (stopped) return;
+      changed = text != null && !text.equals(status);
+      if (changed) status = text;
+      if (newEtag != null || text != null) etag = newEtag;
+      done = status != null && finished.test(status);
+      intervalMillis = changed ? MIN_INTERVAL_MILLIS :
+          Math.min(MAX_INTERVAL_MILLIS, (long) (intervalMillis * UNCHANGED_FACTOR));
+      if (done) {
+        stopped = true;
+        nextPoll = 0;
+      } else {
+        schedule(jitter(intervalMillis));
+      }
+    }
+    if (changed) onStatus.accept(text);
+  }
+
+  /**
+   * @return the interval spread by up to {@link #JITTER} of it either way
+   */
+  static long jitter(long millis) {
+    return (long) (millis * (1 - JITTER + 2 * JITTER * ThreadLocalRandom.current().nextDouble()));
+  }
+
+  /**
+   * @return text of a status page: the part before the HTML, or the page without tags if it is all HTML
+   */
+  static String statusText(String body) {
+    String text = ControlPlaneClient.textPart(body);
+    if (!text.startsWith("<")) return text;
+    return text.replaceAll("(?is)<(script|style)[^>]*>.*?</\\1>", " ")
+        .replaceAll("<[^>]*>", " ")
+        .replace("&nbsp;", " ")
+        .replaceAll("\\s+", " ")
+        .trim();
+  }
+}
@@ -0,0 +1,242 @@
+package net.campspot.results;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Builds a {@link JtlReport} of a finished result file.
+ * <p>
+ * The file is split into chunks on line boundaries, each chunk is memory-mapped and parsed by a fork-join task into
+ * its own partial report, and the partial reports are merged. Records are parsed from the mapped bytes, labels and
+ * response codes are resolved to ids, so no String is created per line. A chunk is at most {@link #MAX_CHUNK_SIZE},
+ * so files larger than what one buffer can map are handled too. Line breaks inside quoted fields are assumed not to
+ * fall on a chunk boundary; a record split there is skipped.
+ */
+public class JtlAnalyzer {
+  private static final long MAX_CHUNK_SIZE = 256L << 20;
+  private static final int CHUNKS_PER_THREAD = 4;
+  private static final int SLICE_SIZE = 4 << 20; // bytes parsed between checks for cancellation
+  private static final int SCAN_SIZE = 64 << 10;
+
+  private final Path file;
+  private final long start;
+  private volatile boolean cancelled;
+
+  /**
+   * @param file result (.jtl) file in CSV format
+   */
+  public JtlAnalyzer(Path file) {
+    this(file, 0);
+  }
+
+  /**
+   * Analyze only samples appended to a result file after it had a given size, e.g. by one of several runs
+   * writing to the same file.
+   *
+   * @param file  result (.jtl) file in CSV format
+   * @param start size of the file before the samples to analyze were appended
+   */
+  public JtlAnalyzer(Path file, long start) {
+    this.file = file;
+    this.start = start;
+  }
+
+  /**
+   * Ask a running analysis to stop.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * Analyze the file.
+   *
+   * @param progress    receives number of bytes parsed so far, must be thread safe, may be null
+   * @param parallelism number of threads
+   * @return report of all samples in the file
+   * @throws CancellationException if {@link #cancel()} was called during analysis
+   */
+  public JtlReport analyze(LongConsumer progress, int parallelism) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      JtlReport report = new JtlReport(file);
+      if (size == 0) return report;
+
+      long headerEnd = nextLine(channel, 0, size);
+      String firstLine = read(channel, 0, headerEnd).trim();
+      boolean header = JtlParser.isHeader(firstLine);
+      String columns = header ? firstLine : JtlParser.DEFAULT_HEADER;
+      long from = Math.max(start, header ? headerEnd : 0);
+      if (from > 0 && !isLineStart(channel, from)) from = nextLine(channel, from, size);
+      if (from >= size) return report;
+      long[] bounds = split(channel, from, size, Math.max(parallelism, 1));
+
+      AtomicLong parsed = new AtomicLong();
+      ForkJoinPool pool = new ForkJoinPool(Math.max(parallelism, 1));
+      boolean completed = false;
+      try {
+        List<ForkJoinTask<JtlReport>> tasks = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.length; i++) {
+          long chunkFrom = bounds[i];
+          long chunkTo = bounds[i + 1];
+          tasks.add(pool.submit(() -> analyzeChunk(channel, chunkFrom, chunkTo, columns, parsed, progress)));
+        }
+        for (ForkJoinTask<JtlReport> task : tasks) {
+          report.add(join(task));
+        }
+        completed = true;
+        return report;
+      } finally {
+        cancelled |= !completed; // stop remaining tasks when one of them failed
+        pool.shutdown();
+        try {
+          pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  /**
+   * Split [from, size) into chunks of about the same size starting at line starts.
+   *
+   * @return chunk boundaries, first is from and last is size
+   */
+  private static long[] split(FileChannel channel, long from, long size, int parallelism) throws IOException {
+    long length = size - from;
+    int count = (int) Math.max(parallelism * CHUNKS_PER_THREAD, (length + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+    long chunkSize = Math.max(SCAN_SIZE, (length + count - 1) / count);
+    List<Long> bounds = new ArrayList<>();
+    bounds.add(from);
+    long position = from + chunkSize;
+    while (position < size) {
+      long start = nextLine(channel, position, size);
+      if (start >= size) break;
+      bounds.add(start);
+      position = start + chunkSize;
+    }
+    bounds.add(size);
+    return bounds.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  /**
+   * @return position after the first line end at or after position, or size if there is none
+   */
+  private static long nextLine(FileChannel channel, long position, long size) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(SCAN_SIZE);
+    while (position < size) {
+      buffer.clear();
+      int read = channel.read(buffer, position);
+      if (read <= 0) break;
+      for (int i = 0; i < read; i++) {
+        if (buffer.get(i) == '\n') return position + i + 1;
+      }
+      position += read;
+    }
+    return size;
+  }
+
+  private static boolean isLineStart(FileChannel channel, long position) throws IOException {
+    ByteBuffer previous = ByteBuffer.allocate(1);
+    return channel.read(previous, position - 1) == 1 && previous.get(0) == '\n';
+  }
+
+  private static String read(FileChannel channel, long from, long to) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(to - from, SCAN_SIZE));
+    channel.read(buffer, from);
+    return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+  }
+
+  private JtlReport analyzeChunk(FileChannel channel, long from, long to, String columns, AtomicLong parsed,
+                                 LongConsumer progress) throws IOException {
+    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+    ChunkHandler handler = new ChunkHandler(new JtlReport(file), new JtlParser(columns));
+    int limit = buffer.limit();
+    int position = 0;
+    while (position < limit) {
+      if (cancelled) throw new CancellationException("Result analysis cancelled");
+      int end = Math.min(limit, position + SLICE_SIZE);
+      // a last line without line end is still being written, or damaged, and is skipped
+      int next = handler.parser.parse(buffer, position, end, false, handler);
+      if (next == position && end < limit) {
+        // a record longer than a slice
+        next = handler.parser.parse(buffer, position, limit, false, handler);
+      }
+      if (next == position) break;
+      long total = parsed.addAndGet(next - position);
+      if (progress != null) progress.accept(total);
+      position = next;
+    }
+    return handler.finish();
+  }
+
+  private static JtlReport join(ForkJoinTask<JtlReport> task) throws IOException {
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Result analysis interrupted");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw new IOException(cause);
+    }
+  }
+
+  /**
+   * Collects samples of one chunk, with label statistics and response code counts looked up by parser ids.
+   */
+  private static class ChunkHandler implements JtlParser.SampleHandler {
+    private final JtlReport report;
+    private final JtlParser parser;
+    private JtlReport.LabelStats[] labels = new JtlReport.LabelStats[16];
+    private long[] responseCodes = new long[16];
+
+    ChunkHandler(JtlReport report, JtlParser parser) {
+      this.report = report;
+      this.parser = parser;
+    }
+
+    @Override
+    public void sample(long timeStamp, long elapsed, int label, int responseCode, boolean success) {
+      if (label >= labels.length) labels = Arrays.copyOf(labels, Math.max(labels.length * 2, label + 1));
+      JtlReport.LabelStats stats = labels[label];
+      if (stats == null) {
+        stats = report.labelStats(parser.getLabels().get(label));
+        labels[label] = stats;
+      }
+      report.record(stats, timeStamp, elapsed, success);
+      if (responseCode >= 0) {
+        if (responseCode >= responseCodes.length) {
+          responseCodes = Arrays.copyOf(responseCodes, Math.max(responseCodes.length * 2, responseCode + 1));
+        }
+        responseCodes[responseCode]++;
+      }
+    }
+
+    JtlReport finish() {
+      StringTable codes = parser.getResponseCodes();
+      for (int i = 0; i < codes.size() && i < responseCodes.length; i++) {
+        report.addResponseCode(codes.get(i), responseCodes[i]);
+      }
+      return report;
+    }
+  }
+}
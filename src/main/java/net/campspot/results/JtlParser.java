@@ -0,0 +1,203 @@
+package net.campspot.results;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parser of JMeter CSV result (.jtl) records straight from bytes.
+ * <p>
+ * Only the fields needed for statistics are decoded: time stamp and elapsed as numbers, label and response code as
+ * ids of a {@link StringTable}, success as a flag. Quoted fields, including line breaks inside quotes, are handled.
+ * A parser is not thread safe, parallel readers use one parser each.
+ */
+public class JtlParser {
+  /**
+   * Column order of JMeter's default CSV output, used when the file has no header line.
+   */
+  public static final String DEFAULT_HEADER = "timeStamp,elapsed,label,responseCode,responseMessage,threadName,"
+      + "dataType,success,failureMessage,bytes,sentBytes,grpThreads,allThreads,URL,Latency,IdleTime,Connect";
+
+  /**
+   * Receives decoded samples.
+   */
+  public interface SampleHandler {
+    /**
+     * @param timeStamp    sample start, epoch milliseconds
+     * @param elapsed      response time in milliseconds
+     * @param label        label id in {@link #getLabels()}
+     * @param responseCode response code id in {@link #getResponseCodes()}
+     * @param success      whether the sample succeeded
+     */
+    void sample(long timeStamp, long elapsed, int label, int responseCode, boolean success);
+  }
+
+  private final int timeStampColumn;
+  private final int elapsedColumn;
+  private final int labelColumn;
+  private final int responseCodeColumn;
+  private final int successColumn;
+  private final StringTable labels = new StringTable();
+  private final StringTable responseCodes = new StringTable();
+  private final int[] fieldStarts;
+  private final int[] fieldEnds;
+  private final boolean[] fieldQuoted;
+
+  /**
+   * @param header header line of the result file
+   */
+  public JtlParser(String header) {
+    String[] columns = header.trim().split(",");
+    timeStampColumn = indexOf(columns, "timeStamp");
+    elapsedColumn = indexOf(columns, "elapsed");
+    labelColumn = indexOf(columns, "label");
+    responseCodeColumn = indexOf(columns, "responseCode");
+    successColumn = indexOf(columns, "success");
+    if (timeStampColumn < 0 || elapsedColumn < 0 || labelColumn < 0) {
+      throw new IllegalArgumentException("Result file must have timeStamp, elapsed and label columns: " + header);
+    }
+    int last = Math.max(Math.max(timeStampColumn, elapsedColumn), Math.max(labelColumn,
+        Math.max(responseCodeColumn, successColumn)));
+    fieldStarts = new int[last + 1];
+    fieldEnds = new int[last + 1];
+    fieldQuoted = new boolean[last + 1];
+  }
+
+  /**
+   * @param firstLine first line of a result file
+   * @return whether the line is a header line rather than a record
+   */
+  public static boolean isHeader(String firstLine) {
+    return !firstLine.isEmpty() && !Character.isDigit(firstLine.charAt(0));
+  }
+
+  private static int indexOf(String[] columns, String column) {
+    for (int i = 0; i < columns.length; i++) {
+      if (columns[i].trim().equalsIgnoreCase(column)) return i;
+    }
+    return -1;
+  }
+
+  public StringTable getLabels() {
+    return labels;
+  }
+
+  public StringTable getResponseCodes() {
+    return responseCodes;
+  }
+
+  /**
+   * Parse complete records of buffer [from, to). A record is complete when its line end is in the range.
+   *
+   * @param buffer     bytes of the result file, read with absolute gets
+   * @param from       start of the first record
+   * @param to         end of available bytes
+   * @param endOfInput whether a last record without line end is complete
+   * @param handler    receives the samples
+   * @return position after the last parsed record, where parsing continues when more bytes are available
+   */
+  public int parse(ByteBuffer buffer, int from, int to, boolean endOfInput, SampleHandler handler) {
+    int position = from;
+    while (position < to) {
+      int end = parseRecord(buffer, position, to, endOfInput);
+      if (end < 0) break;
+      emit(buffer, handler);
+      position = end;
+    }
+    return position;
+  }
+
+  /**
+   * Find the fields of one record.
+   *
+   * @return position after the record's line end, or -1 if the record is incomplete
+   */
+  private int parseRecord(ByteBuffer buffer, int from, int to, boolean endOfInput) {
+    for (int i = 0; i < fieldStarts.length; i++) {
+      fieldStarts[i] = -1;
+    }
+    int column = 0;
+    int position = from;
+    int start = from;
+    boolean quoted = false;
+    boolean inQuotes = false;
+    while (position < to) {
+      byte b = buffer.get(position);
+      if (inQuotes) {
+        if (b == '"') {
+          if (position + 1 < to && buffer.get(position + 1) == '"') {
+            position++; // escaped quote
+          } else if (position + 1 < to || endOfInput) {
+            inQuotes = false;
+          } else {
+            return -1; // cannot tell yet whether the quote is escaped
+          }
+        }
+      } else if (b == '"' && position == start) {
+        inQuotes = true;
+        quoted = true;
+      } else if (b == ',' || b == '\n' || b == '\r') {
+        endField(column++, start, position, quoted);
+        if (b != ',') return skipLineEnd(buffer, position, to);
+        start = position + 1;
+        quoted = false;
+      }
+      position++;
+    }
+    if (!endOfInput || position == from) return -1;
+    endField(column, start, position, quoted);
+    return position;
+  }
+
+  private void endField(int column, int start, int end, boolean quoted) {
+    if (column >= fieldStarts.length) return;
+    fieldStarts[column] = quoted ? start + 1 : start;
+    fieldEnds[column] = quoted ? end - 1 : end;
+    fieldQuoted[column] = quoted;
+  }
+
+  private static int skipLineEnd(ByteBuffer buffer, int position, int to) {
+    if (buffer.get(position) == '\r' && position + 1 < to && buffer.get(position + 1) == '\n') return position + 2;
+    return position + 1;
+  }
+
+  private void emit(ByteBuffer buffer, SampleHandler handler) {
+    if (fieldStarts[timeStampColumn] < 0 || fieldStarts[elapsedColumn] < 0 || fieldStarts[labelColumn] < 0) return;
+    long timeStamp = parseLong(buffer, fieldStarts[timeStampColumn], fieldEnds[timeStampColumn]);
+    if (timeStamp < 0) return; // not a record, e.g. a repeated header line
+    long elapsed = parseLong(buffer, fieldStarts[elapsedColumn], fieldEnds[elapsedColumn]);
+    int label = idOf(labels, buffer, labelColumn);
+    int responseCode = responseCodeColumn >= 0 && fieldStarts[responseCodeColumn] >= 0 ?
+        idOf(responseCodes, buffer, responseCodeColumn) : -1;
+    boolean success = successColumn < 0 || fieldStarts[successColumn] < 0 ||
+        (fieldEnds[successColumn] > fieldStarts[successColumn] && buffer.get(fieldStarts[successColumn]) == 't');
+    handler.sample(timeStamp, Math.max(elapsed, 0), label, responseCode, success);
+  }
+
+  private int idOf(StringTable table, ByteBuffer buffer, int column) {
+    int start = fieldStarts[column];
+    int end = fieldEnds[column];
+    if (!fieldQuoted[column]) return table.idOf(buffer, start, end);
+    // quoted values are rare, unescape doubled quotes
+    byte[] bytes = new byte[end - start];
+    int length = 0;
+    for (int i = start; i < end; i++) {
+      byte b = buffer.get(i);
+      bytes[length++] = b;
+      if (b == '"' && i + 1 < end && buffer.get(i + 1) == '"') i++;
+    }
+    return table.idOf(ByteBuffer.wrap(bytes, 0, length), 0, length);
+  }
+
+  /**
+   * @return number in bytes [from, to), or -1 if it is not a number
+   */
+  static long parseLong(ByteBuffer buffer, int from, int to) {
+    if (from >= to) return -1;
+    long value = 0;
+    for (int i = from; i < to; i++) {
+      int digit = buffer.get(i) - '0';
+      if (digit < 0 || digit > 9) return -1;
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+}
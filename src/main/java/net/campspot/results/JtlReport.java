@@ -0,0 +1,157 @@
+package net.campspot.results;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Statistics of a finished result file: per-label latency histograms, a throughput timeline and response codes.
+ * Built by {@link JtlAnalyzer}, which fills one report per chunk of the file and merges them.
+ */
+public class JtlReport {
+  private final Path file;
+  private final Map<String, LabelStats> labels = new TreeMap<>();
+  private final LabelStats total = new LabelStats("TOTAL");
+  private final Map<String, Long> responseCodes = new TreeMap<>();
+  private final Timeline timeline = new Timeline();
+  private long firstTimeStamp = Long.MAX_VALUE;
+  private long lastEnd; // end of the last finished sample, epoch milliseconds
+
+  JtlReport(Path file) {
+    this.file = file;
+  }
+
+  /**
+   * @return statistics of a label, created when the label is new
+   */
+  LabelStats labelStats(String label) {
+    return labels.computeIfAbsent(label, LabelStats::new);
+  }
+
+  void record(LabelStats stats, long timeStamp, long elapsed, boolean success) {
+    stats.record(elapsed, success);
+    total.record(elapsed, success);
+    timeline.record(timeStamp, success);
+    if (timeStamp < firstTimeStamp) firstTimeStamp = timeStamp;
+    if (timeStamp + elapsed > lastEnd) lastEnd = timeStamp + elapsed;
+  }
+
+  void addResponseCode(String responseCode, long count) {
+    responseCodes.merge(responseCode, count, Long::sum);
+  }
+
+  void add(JtlReport other) {
+    for (LabelStats stats : other.labels.values()) {
+      labels.computeIfAbsent(stats.label, LabelStats::new).add(stats);
+    }
+    total.add(other.total);
+    other.responseCodes.forEach((code, count) -> responseCodes.merge(code, count, Long::sum));
+    timeline.add(other.timeline);
+    firstTimeStamp = Math.min(firstTimeStamp, other.firstTimeStamp);
+    lastEnd = Math.max(lastEnd, other.lastEnd);
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * @return statistics per label, sorted by label
+   */
+  public List<LabelStats> getLabels() {
+    return new ArrayList<>(labels.values());
+  }
+
+  /**
+   * @return statistics of all samples
+   */
+  public LabelStats getTotal() {
+    return total;
+  }
+
+  /**
+   * @return number of samples per response code, sorted by code
+   */
+  public Map<String, Long> getResponseCodes() {
+    return Collections.unmodifiableMap(new LinkedHashMap<>(responseCodes));
+  }
+
+  public Timeline getTimeline() {
+    return timeline;
+  }
+
+  /**
+   * @return start of the first sample, epoch milliseconds, 0 if there are no samples
+   */
+  public long getStartTime() {
+    return total.count == 0 ? 0 : firstTimeStamp;
+  }
+
+  /**
+   * @return milliseconds from start of the first sample to end of the last one
+   */
+  public long getDuration() {
+    return total.count == 0 ? 0 : lastEnd - firstTimeStamp;
+  }
+
+  /**
+   * Statistics of one label.
+   */
+  public class LabelStats {
+    private final String label;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private long count;
+    private long errors;
+
+    LabelStats(String label) {
+      this.label = label;
+    }
+
+    void record(long elapsed, boolean success) {
+      histogram.record(elapsed);
+      count++;
+      if (!success) errors++;
+    }
+
+    void add(LabelStats other) {
+      histogram.add(other.histogram);
+      count += other.count;
+      errors += other.errors;
+    }
+
+    public String getLabel() {
+      return label;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getErrors() {
+      return errors;
+    }
+
+    /**
+     * @return percentage of failed samples
+     */
+    public double getErrorRate() {
+      return count == 0 ? 0 : 100.0 * errors / count;
+    }
+
+    /**
+     * @return samples per second over the whole test
+     */
+    public double getThroughput() {
+      long duration = getDuration();
+      return duration == 0 ? count : count * 1000.0 / duration;
+    }
+
+    public LatencyHistogram getHistogram() {
+      return histogram;
+    }
+  }
+}
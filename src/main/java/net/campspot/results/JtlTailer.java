@@ -0,0 +1,119 @@
+package net.campspot.results;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Follows a result file that JMeter is writing and feeds new samples into {@link LiveStats}.
+ * Each poll reads only bytes after the last complete record, at the channel position kept from the previous poll.
+ */
+public class JtlTailer implements Closeable {
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  private final Path file;
+  private final LiveStats stats;
+  private final long startSize; // JMeter appends to an existing file, samples before the run are skipped
+  private FileChannel channel;
+  private JtlParser parser;
+  private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  private long position; // file position of buffer start
+  private int filled; // bytes in buffer not parsed yet
+
+  /**
+   * @param file  result file, may not exist yet
+   * @param stats receives samples
+   */
+  public JtlTailer(Path file, LiveStats stats) throws IOException {
+    this.file = file;
+    this.stats = stats;
+    this.startSize = Files.exists(file) ? Files.size(file) : 0;
+  }
+
+  /**
+   * @return size of the file when the tailer was created, samples before it are skipped
+   */
+  public long getStartSize() {
+    return startSize;
+  }
+
+  public LiveStats getStats() {
+    return stats;
+  }
+
+  /**
+   * Parse records written since the last poll.
+   *
+   * @return number of new samples
+   */
+  public synchronized long poll() throws IOException {
+    if (channel == null) {
+      if (!Files.exists(file)) return 0;
+      channel = FileChannel.open(file, StandardOpenOption.READ);
+    }
+    if (channel.size() < position + filled) {
+      // file was replaced or truncated, start over
+      position = 0;
+      filled = 0;
+      parser = null;
+    }
+    if (parser == null && !readHeader()) return 0;
+
+    long before = stats.getSampleCount();
+    while (true) {
+      buffer.limit(buffer.capacity());
+      buffer.position(filled);
+      int read = channel.read(buffer, position + filled);
+      if (read <= 0) break;
+      filled += read;
+      int consumed = parser.parse(buffer, 0, filled, false, (timeStamp, elapsed, label, responseCode, success) ->
+          stats.add(parser.getLabels().get(label), timeStamp, elapsed, success));
+      if (consumed == 0 && filled == buffer.capacity()) {
+        // a record longer than the buffer
+        ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+        continue;
+      }
+      buffer.limit(filled);
+      buffer.position(consumed);
+      buffer.compact();
+      filled -= consumed;
+      position += consumed;
+    }
+    return stats.getSampleCount() - before;
+  }
+
+  /**
+   * Create parser from the header line, or from JMeter's default columns when the file has no header.
+   *
+   * @return false if the first line is not complete yet
+   */
+  private boolean readHeader() throws IOException {
+    ByteBuffer first = ByteBuffer.allocate(4096);
+    int read = channel.read(first, 0);
+    if (read <= 0) return false;
+    int end = 0;
+    while (end < read && first.get(end) != '\n') {
+      end++;
+    }
+    if (end == read && startSize == 0) return false;
+    String line = new String(first.array(), 0, end, StandardCharsets.UTF_8).trim();
+    boolean header = JtlParser.isHeader(line);
+    parser = new JtlParser(header ? line : JtlParser.DEFAULT_HEADER);
+    position = startSize > 0 ? startSize : (header ? end + 1 : 0);
+    filled = 0;
+    return true;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (channel != null) channel.close();
+  }
+}
@@ -0,0 +1,85 @@
+package net.campspot.results;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes samples as a CSV result (.jtl) file that the JMeter tools and {@link JtlParser} read. Like JMeter, samples
+ * are appended to an existing file. Thread safe.
+ */
+public class JtlWriter implements Closeable {
+  public static final String HEADER = "timeStamp,elapsed,label,responseCode,success,failureMessage,bytes,serviceTime";
+
+  private final Writer writer;
+  private final StringBuilder line = new StringBuilder(128);
+
+  /**
+   * @param file result file, created if it does not exist
+   * @throws IOException if the file exists with other columns
+   */
+  public JtlWriter(Path file) throws IOException {
+    boolean empty = !Files.exists(file) || Files.size(file) == 0;
+    if (!empty) {
+      String first;
+      try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+        first = reader.readLine();
+      }
+      if (!HEADER.equals(first)) throw new IOException("Result file " + file + " has other columns: " + first);
+    }
+    writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND), 1 << 16);
+    if (empty) {
+      writer.write(HEADER);
+      writer.write('\n');
+    }
+  }
+
+  /**
+   * @param timeStamp      sample start, epoch milliseconds
+   * @param elapsed        response time in milliseconds
+   * @param label          sampler label
+   * @param responseCode   HTTP status or error name
+   * @param success        whether the sample succeeded
+   * @param failureMessage reason of a failure, null if none
+   * @param bytes          response size
+   * @param serviceTime    milliseconds from sending the request to the response, without time waiting to be sent
+   */
+  public synchronized void write(long timeStamp, long elapsed, String label, String responseCode, boolean success,
+                                 String failureMessage, long bytes, long serviceTime) throws IOException {
+    line.setLength(0);
+    line.append(timeStamp).append(',').append(elapsed).append(',');
+    appendField(label);
+    line.append(',');
+    appendField(responseCode);
+    line.append(',').append(success).append(',');
+    if (failureMessage != null) appendField(failureMessage);
+    line.append(',').append(bytes).append(',').append(serviceTime).append('\n');
+    writer.append(line);
+  }
+
+  private void appendField(String value) {
+    boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 ||
+        value.indexOf('\r') >= 0;
+    if (!quote) {
+      line.append(value);
+      return;
+    }
+    line.append('"').append(value.replace("\"", "\"\"")).append('"');
+  }
+
+  public synchronized void flush() throws IOException {
+    writer.flush();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    writer.close();
+  }
+}
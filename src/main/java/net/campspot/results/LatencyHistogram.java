@@ -0,0 +1,94 @@
+package net.campspot.results;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-memory log-linear histogram of latencies in milliseconds.
+ * <p>
+ * Values below 64 ms have exact buckets. Above that every power of two is split into 32 buckets, so a percentile is
+ * at most about 3% off. Values of 2^27 ms, about 37 hours, and above are counted in the last bucket.
+ */
+public class LatencyHistogram {
+  private static final int LINEAR_BUCKETS = 64;
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_EXPONENT = 26;
+  static final int BUCKETS = LINEAR_BUCKETS + (MAX_EXPONENT - 6 + 1) * SUB_BUCKETS;
+
+  private final int[] counts = new int[BUCKETS];
+  private long count;
+  private long sum;
+  private long max;
+
+  public void record(long value) {
+    if (value < 0) value = 0;
+    counts[indexOf(value)]++;
+    count++;
+    sum += value;
+    if (value > max) max = value;
+  }
+
+  /**
+   * Add all values of another histogram.
+   */
+  public void add(LatencyHistogram other) {
+    if (other.count == 0) return;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] += other.counts[i];
+    }
+    count += other.count;
+    sum += other.sum;
+    if (other.max > max) max = other.max;
+  }
+
+  public void reset() {
+    if (count == 0) return;
+    Arrays.fill(counts, 0);
+    count = 0;
+    sum = 0;
+    max = 0;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getMax() {
+    return max;
+  }
+
+  public double getMean() {
+    return count == 0 ? 0 : (double) sum / count;
+  }
+
+  /**
+   * @param percentile percentile between 0 and 100
+   * @return upper bound of the bucket holding the percentile, 0 if empty
+   */
+  public long getPercentile(double percentile) {
+    if (count == 0) return 0;
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank) return Math.min(upperBound(i), max);
+    }
+    return max;
+  }
+
+  static int indexOf(long value) {
+    if (value < LINEAR_BUCKETS) return (int) value;
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+    int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return LINEAR_BUCKETS + (exponent - 6) * SUB_BUCKETS + sub;
+  }
+
+  static long upperBound(int index) {
+    if (index < LINEAR_BUCKETS) return index;
+    int exponent = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 6;
+    int sub = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+    long width = 1L << (exponent - SUB_BUCKET_BITS);
+    return (1L << exponent) + (sub + 1) * width - 1;
+  }
+}
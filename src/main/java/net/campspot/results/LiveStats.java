@@ -0,0 +1,145 @@
+package net.campspot.results;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistics of a running test per sampler label, over a sliding window of the last seconds of the clock, so the
+ * window empties when samples stop coming. Memory is fixed per label: one histogram per second of the longest window.
+ * Thread safe.
+ */
+public class LiveStats {
+  public static final String TOTAL = "TOTAL";
+  public static final int MAX_WINDOW_SECONDS = 60;
+
+  private final Map<String, Label> labels = new LinkedHashMap<>();
+  private final Label total = new Label(TOTAL);
+  private long firstSecond = Long.MAX_VALUE; // oldest second seen in samples
+
+  /**
+   * Add a sample.
+   *
+   * @param label     sampler label
+   * @param timeStamp sample start, epoch milliseconds
+   * @param elapsed   response time in milliseconds
+   * @param success   whether the sample succeeded
+   */
+  public synchronized void add(String label, long timeStamp, long elapsed, boolean success) {
+    long second = timeStamp / 1000;
+    if (second < firstSecond) firstSecond = second;
+    labels.computeIfAbsent(label, Label::new).add(second, elapsed, success);
+    total.add(second, elapsed, success);
+  }
+
+  /**
+   * @param windowSeconds window length, at most {@link #MAX_WINDOW_SECONDS}
+   * @return one row per label and a total row last
+   */
+  public List<Row> getRows(int windowSeconds) {
+    return getRows(windowSeconds, System.currentTimeMillis() / 1000);
+  }
+
+  /**
+   * @param windowSeconds window length, at most {@link #MAX_WINDOW_SECONDS}
+   * @param nowSecond     last second of the window, epoch seconds
+   * @return one row per label and a total row last
+   */
+  synchronized List<Row> getRows(int windowSeconds, long nowSecond) {
+    int window = Math.min(windowSeconds, MAX_WINDOW_SECONDS);
+    // a test younger than the window has not had the whole window to make its samples
+    long elapsed = Math.max(1, Math.min(window, nowSecond - firstSecond + 1));
+    List<Row> rows = new ArrayList<>();
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (Label label : labels.values()) {
+      rows.add(label.row(nowSecond, window, elapsed, histogram));
+    }
+    rows.add(total.row(nowSecond, window, elapsed, histogram));
+    return rows;
+  }
+
+  /**
+   * @return number of samples seen
+   */
+  public synchronized long getSampleCount() {
+    return total.samples;
+  }
+
+  /**
+   * Statistics of one label in a window.
+   */
+  public static class Row {
+    public final String label;
+    public final long samples; // all samples since start
+    public final long errors; // all errors since start
+    public final double throughput; // samples per second in window
+    public final double errorRate; // percentage of errors in window
+    public final long p50;
+    public final long p95;
+    public final long p99;
+
+    Row(String label, long samples, long errors, double throughput, double errorRate, long p50, long p95, long p99) {
+      this.label = label;
+      this.samples = samples;
+      this.errors = errors;
+      this.throughput = throughput;
+      this.errorRate = errorRate;
+      this.p50 = p50;
+      this.p95 = p95;
+      this.p99 = p99;
+    }
+  }
+
+  /**
+   * Ring of per second slices of one label.
+   */
+  private static class Label {
+    private final String name;
+    private final long[] seconds = new long[MAX_WINDOW_SECONDS];
+    private final int[] counts = new int[MAX_WINDOW_SECONDS];
+    private final int[] errorCounts = new int[MAX_WINDOW_SECONDS];
+    private final LatencyHistogram[] histograms = new LatencyHistogram[MAX_WINDOW_SECONDS];
+    private long samples;
+    private long errors;
+
+    Label(String name) {
+      this.name = name;
+      for (int i = 0; i < MAX_WINDOW_SECONDS; i++) {
+        histograms[i] = new LatencyHistogram();
+      }
+    }
+
+    void add(long second, long elapsed, boolean success) {
+      samples++;
+      if (!success) errors++;
+      int slot = (int) (second % MAX_WINDOW_SECONDS);
+      if (seconds[slot] != second) {
+        if (seconds[slot] > second) return; // older than the window
+        seconds[slot] = second;
+        counts[slot] = 0;
+        errorCounts[slot] = 0;
+        histograms[slot].reset();
+      }
+      counts[slot]++;
+      if (!success) errorCounts[slot]++;
+      histograms[slot].record(elapsed);
+    }
+
+    Row row(long lastSecond, int window, long elapsed, LatencyHistogram histogram) {
+      histogram.reset();
+      long count = 0;
+      long errorCount = 0;
+      for (int slot = 0; slot < MAX_WINDOW_SECONDS; slot++) {
+        if (seconds[slot] > lastSecond - window && seconds[slot] <= lastSecond) {
+          count += counts[slot];
+          errorCount += errorCounts[slot];
+          histogram.add(histograms[slot]);
+        }
+      }
+      return new Row(name, samples, errors, (double) count / elapsed,
+          count == 0 ? 0 : 100.0 * errorCount / count,
+          histogram.getPercentile(50), histogram.getPercentile(95), histogram.getPercentile(99));
+    }
+  }
+}
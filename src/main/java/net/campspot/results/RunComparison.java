@@ -0,0 +1,103 @@
+package net.campspot.results;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Comparison of a run with a baseline run, label by label. A label regresses when its p95 or p99 grows, or its
+ * throughput drops, by more than a threshold percentage. Latency changes of a few milliseconds are ignored, so fast
+ * requests do not flag noise as regressions.
+ */
+public class RunComparison {
+  public static final double DEFAULT_THRESHOLD = 10;
+  private static final long MIN_LATENCY_CHANGE_MILLIS = 5;
+
+  private final RunSummary baseline;
+  private final RunSummary candidate;
+  private final List<Row> rows = new ArrayList<>();
+
+  /**
+   * @param baseline  run to compare with
+   * @param candidate run to check
+   * @param threshold allowed change in percent
+   */
+  public RunComparison(RunSummary baseline, RunSummary candidate, double threshold) {
+    this.baseline = baseline;
+    this.candidate = candidate;
+    Map<String, RunSummary.LabelSummary> baselineLabels = new LinkedHashMap<>();
+    for (RunSummary.LabelSummary label : baseline.getLabels()) {
+      baselineLabels.put(label.label, label);
+    }
+    for (RunSummary.LabelSummary label : candidate.getLabels()) {
+      rows.add(new Row(label.label, baselineLabels.remove(label.label), label, threshold));
+    }
+    for (RunSummary.LabelSummary label : baselineLabels.values()) {
+      rows.add(new Row(label.label, label, null, threshold));
+    }
+    rows.add(new Row(LiveStats.TOTAL, baseline.getTotal(), candidate.getTotal(), threshold));
+  }
+
+  public RunSummary getBaseline() {
+    return baseline;
+  }
+
+  public RunSummary getCandidate() {
+    return candidate;
+  }
+
+  /**
+   * @return one row per label of either run, total last
+   */
+  public List<Row> getRows() {
+    return rows;
+  }
+
+  /**
+   * @return whether any label regressed
+   */
+  public boolean hasRegression() {
+    for (Row row : rows) {
+      if (row.isRegression()) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Comparison of one label. Summaries are null when the label is missing in a run.
+   */
+  public static class Row {
+    public final String label;
+    public final RunSummary.LabelSummary baseline;
+    public final RunSummary.LabelSummary candidate;
+    public final boolean p95Regression;
+    public final boolean p99Regression;
+    public final boolean throughputRegression;
+
+    Row(String label, RunSummary.LabelSummary baseline, RunSummary.LabelSummary candidate, double threshold) {
+      this.label = label;
+      this.baseline = baseline;
+      this.candidate = candidate;
+      boolean both = baseline != null && candidate != null;
+      p95Regression = both && latencyRegressed(baseline.p95, candidate.p95, threshold);
+      p99Regression = both && latencyRegressed(baseline.p99, candidate.p99, threshold);
+      throughputRegression = both && candidate.throughput < baseline.throughput * (1 - threshold / 100);
+    }
+
+    public boolean isRegression() {
+      return p95Regression || p99Regression || throughputRegression;
+    }
+
+    private static boolean latencyRegressed(long baseline, long candidate, double threshold) {
+      return candidate - baseline > MIN_LATENCY_CHANGE_MILLIS && candidate > baseline * (1 + threshold / 100);
+    }
+  }
+
+  /**
+   * @return change from baseline to candidate in percent, NaN if the baseline is 0
+   */
+  public static double change(double baseline, double candidate) {
+    return baseline == 0 ? Double.NaN : (candidate - baseline) * 100 / baseline;
+  }
+}
@@ -0,0 +1,268 @@
+package net.campspot.results;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only store of {@link RunSummary run summaries}.
+ * <p>
+ * Summaries are appended to a data file as length-prefixed, checksummed records and never rewritten. An index file
+ * holds the offset of every record, so the run with id n is found with one read of the index at (n - 1) * 8. When the
+ * index does not match the data file, e.g. after a crash between the two appends, it is rebuilt from the data file and
+ * a trailing incomplete record is cut off. Baselines chosen per test are kept in a properties file next to them.
+ */
+public class RunHistory {
+  public static final String DATA_FILE = "history.dat";
+  public static final String INDEX_FILE = "history.idx";
+  public static final String BASELINES_FILE = "baselines.properties";
+  private static final int MAGIC = 0x43535248; // "CSRH"
+  private static final int VERSION = 1;
+  private static final int FILE_HEADER_SIZE = 8;
+  private static final int RECORD_HEADER_SIZE = 8; // length and checksum
+  private static final int INDEX_ENTRY_SIZE = 8;
+
+  private final Path dataFile;
+  private final Path indexFile;
+  private final Path baselinesFile;
+  private boolean checked; // whether the index was checked against the data file
+
+  /**
+   * @param directory folder of the history files, usually Results
+   */
+  public RunHistory(Path directory) {
+    this.dataFile = directory.resolve(DATA_FILE);
+    this.indexFile = directory.resolve(INDEX_FILE);
+    this.baselinesFile = directory.resolve(BASELINES_FILE);
+  }
+
+  /**
+   * Store a summary and set its id.
+   *
+   * @return id of the stored run, starting at 1
+   */
+  public synchronized long append(RunSummary summary) throws IOException {
+    check();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      summary.write(out);
+    }
+    byte[] payload = bytes.toByteArray();
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+    record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+
+    long offset;
+    try (FileChannel data = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      if (data.size() == 0) {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+        header.flip();
+        data.write(header, 0);
+      }
+      offset = data.size();
+      writeFully(data, record, offset);
+      data.force(false);
+    }
+    long id;
+    try (FileChannel index = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      id = index.size() / INDEX_ENTRY_SIZE + 1;
+      ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE).putLong(offset);
+      entry.flip();
+      writeFully(index, entry, index.size());
+    }
+    summary.setId(id);
+    return id;
+  }
+
+  /**
+   * @return number of stored runs
+   */
+  public synchronized int size() throws IOException {
+    check();
+    return Files.exists(indexFile) ? (int) (Files.size(indexFile) / INDEX_ENTRY_SIZE) : 0;
+  }
+
+  /**
+   * @param id id of a run
+   * @return summary of the run, null if there is no such run
+   */
+  public synchronized RunSummary get(long id) throws IOException {
+    check();
+    if (id < 1 || id > size()) return null;
+    try (FileChannel index = FileChannel.open(indexFile, StandardOpenOption.READ);
+         FileChannel data = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+      ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+      readFully(index, entry, (id - 1) * INDEX_ENTRY_SIZE);
+      return readRecord(data, entry.getLong(0), id);
+    }
+  }
+
+  /**
+   * @return all stored runs, oldest first
+   */
+  public synchronized List<RunSummary> list() throws IOException {
+    check();
+    List<RunSummary> runs = new ArrayList<>();
+    if (!Files.exists(dataFile)) return runs;
+    try (FileChannel data = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+      long offset = FILE_HEADER_SIZE;
+      long size = data.size();
+      while (offset < size) {
+        RunSummary summary = readRecord(data, offset, runs.size() + 1);
+        runs.add(summary);
+        offset += recordSize(data, offset);
+      }
+    }
+    return runs;
+  }
+
+  /**
+   * @return id of the baseline run of a test, 0 if none was chosen
+   */
+  public synchronized long getBaseline(String testName) throws IOException {
+    String id = readBaselines().getProperty(testName);
+    return id == null ? 0 : Long.parseLong(id);
+  }
+
+  /**
+   * Choose the run that later runs of a test are compared with.
+   */
+  public synchronized void setBaseline(String testName, long id) throws IOException {
+    Properties baselines = readBaselines();
+    baselines.setProperty(testName, Long.toString(id));
+    try (OutputStream out = Files.newOutputStream(baselinesFile)) {
+      baselines.store(out, "Baseline run id per test");
+    }
+  }
+
+  private Properties readBaselines() throws IOException {
+    Properties baselines = new Properties();
+    if (Files.exists(baselinesFile)) {
+      try (InputStream in = Files.newInputStream(baselinesFile)) {
+        baselines.load(in);
+      }
+    }
+    return baselines;
+  }
+
+  /**
+   * Make sure the index matches the data file, rebuild it if not. Done once per instance.
+   */
+  private void check() throws IOException {
+    if (checked) return;
+    checked = true;
+    if (!Files.exists(dataFile)) {
+      Files.deleteIfExists(indexFile);
+      return;
+    }
+    try (FileChannel data = FileChannel.open(dataFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+      if (data.size() < FILE_HEADER_SIZE) {
+        data.truncate(0);
+        Files.deleteIfExists(indexFile);
+        return;
+      }
+      readFully(data, header, 0);
+      if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+        throw new IOException("Not a run history file: " + dataFile);
+      }
+      if (indexMatches(data)) return;
+
+      // scan records, keep the valid prefix
+      List<Long> offsets = new ArrayList<>();
+      long offset = FILE_HEADER_SIZE;
+      long size = data.size();
+      while (offset + RECORD_HEADER_SIZE <= size) {
+        long recordSize = recordSize(data, offset);
+        if (offset + recordSize > size || !checksumMatches(data, offset)) break;
+        offsets.add(offset);
+        offset += recordSize;
+      }
+      data.truncate(offset);
+      ByteBuffer index = ByteBuffer.allocate(offsets.size() * INDEX_ENTRY_SIZE);
+      for (long o : offsets) {
+        index.putLong(o);
+      }
+      index.flip();
+      try (FileChannel indexChannel = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING)) {
+        writeFully(indexChannel, index, 0);
+      }
+    }
+  }
+
+  /**
+   * @return whether the last index entry points at the last record of the data file
+   */
+  private boolean indexMatches(FileChannel data) throws IOException {
+    if (!Files.exists(indexFile)) return data.size() == FILE_HEADER_SIZE;
+    long indexSize = Files.size(indexFile);
+    if (indexSize % INDEX_ENTRY_SIZE != 0) return false;
+    if (indexSize == 0) return data.size() == FILE_HEADER_SIZE;
+    try (FileChannel index = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+      ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+      readFully(index, entry, indexSize - INDEX_ENTRY_SIZE);
+      long last = entry.getLong(0);
+      return last + RECORD_HEADER_SIZE <= data.size() && last + recordSize(data, last) == data.size();
+    }
+  }
+
+  private static long recordSize(FileChannel data, long offset) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    readFully(data, header, offset);
+    return RECORD_HEADER_SIZE + (header.getInt(0) & 0xFFFFFFFFL);
+  }
+
+  private static boolean checksumMatches(FileChannel data, long offset) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    readFully(data, header, offset);
+    ByteBuffer payload = ByteBuffer.allocate(header.getInt(0));
+    readFully(data, payload, offset + RECORD_HEADER_SIZE);
+    CRC32 crc = new CRC32();
+    crc.update(payload.array());
+    return (int) crc.getValue() == header.getInt(4);
+  }
+
+  private static RunSummary readRecord(FileChannel data, long offset, long id) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    readFully(data, header, offset);
+    ByteBuffer payload = ByteBuffer.allocate(header.getInt(0));
+    readFully(data, payload, offset + RECORD_HEADER_SIZE);
+    CRC32 crc = new CRC32();
+    crc.update(payload.array());
+    if ((int) crc.getValue() != header.getInt(4)) throw new IOException("Corrupt run history record " + id);
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload.array()))) {
+      RunSummary summary = RunSummary.read(in);
+      summary.setId(id);
+      return summary;
+    }
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position + buffer.position());
+      if (read < 0) throw new IOException("Unexpected end of run history");
+    }
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    long written = 0;
+    while (buffer.hasRemaining()) {
+      written += channel.write(buffer, position + written);
+    }
+  }
+}
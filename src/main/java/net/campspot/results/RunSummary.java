@@ -0,0 +1,205 @@
+package net.campspot.results;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compact summary of one test run kept in the {@link RunHistory}: what was run with which data, and percentiles and
+ * throughput per label.
+ */
+public class RunSummary {
+  private static final int VERSION = 1;
+
+  private long id;
+  private final String testName;
+  private final String dataFile;
+  private final String selection;
+  private final String state;
+  private final long startTime;
+  private final long duration;
+  private final List<LabelSummary> labels;
+  private final LabelSummary total;
+
+  public RunSummary(String testName, String dataFile, String selection, String state, long startTime, long duration,
+                    List<LabelSummary> labels, LabelSummary total) {
+    this.testName = testName;
+    this.dataFile = dataFile;
+    this.selection = selection;
+    this.state = state;
+    this.startTime = startTime;
+    this.duration = duration;
+    this.labels = labels;
+    this.total = total;
+  }
+
+  /**
+   * Summarize a report.
+   *
+   * @param report    report of the samples of the run
+   * @param testName  jmx file
+   * @param dataFile  data file used by the test
+   * @param selection park and campsite type selected when the test was started
+   * @param state     final state of the run
+   */
+  public static RunSummary of(JtlReport report, String testName, String dataFile, String selection, String state) {
+    List<LabelSummary> labels = new ArrayList<>();
+    for (JtlReport.LabelStats stats : report.getLabels()) {
+      labels.add(LabelSummary.of(stats));
+    }
+    return new RunSummary(testName, dataFile, selection, state, report.getStartTime(), report.getDuration(), labels,
+        LabelSummary.of(report.getTotal()));
+  }
+
+  /**
+   * @return id in the history, 0 if not stored
+   */
+  public long getId() {
+    return id;
+  }
+
+  void setId(long id) {
+    this.id = id;
+  }
+
+  public String getTestName() {
+    return testName;
+  }
+
+  public String getDataFile() {
+    return dataFile;
+  }
+
+  public String getSelection() {
+    return selection;
+  }
+
+  public String getState() {
+    return state;
+  }
+
+  /**
+   * @return start of the first sample, epoch milliseconds
+   */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * @return duration of the run in milliseconds
+   */
+  public long getDuration() {
+    return duration;
+  }
+
+  /**
+   * @return summaries per label, sorted by label
+   */
+  public List<LabelSummary> getLabels() {
+    return Collections.unmodifiableList(labels);
+  }
+
+  /**
+   * @return summary of all samples
+   */
+  public LabelSummary getTotal() {
+    return total;
+  }
+
+  void write(DataOutput out) throws IOException {
+    out.writeByte(VERSION);
+    out.writeUTF(testName);
+    out.writeUTF(dataFile);
+    out.writeUTF(selection);
+    out.writeUTF(state);
+    out.writeLong(startTime);
+    out.writeLong(duration);
+    out.writeInt(labels.size());
+    for (LabelSummary label : labels) {
+      label.write(out);
+    }
+    total.write(out);
+  }
+
+  static RunSummary read(DataInput in) throws IOException {
+    int version = in.readByte();
+    if (version != VERSION) throw new IOException("Unknown run summary version " + version);
+    String testName = in.readUTF();
+    String dataFile = in.readUTF();
+    String selection = in.readUTF();
+    String state = in.readUTF();
+    long startTime = in.readLong();
+    long duration = in.readLong();
+    int count = in.readInt();
+    List<LabelSummary> labels = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      labels.add(LabelSummary.read(in));
+    }
+    return new RunSummary(testName, dataFile, selection, state, startTime, duration, labels, LabelSummary.read(in));
+  }
+
+  /**
+   * Percentiles and throughput of one label.
+   */
+  public static class LabelSummary {
+    public final String label;
+    public final long samples;
+    public final long errors;
+    public final double throughput; // samples per second
+    public final double mean;
+    public final long p50;
+    public final long p90;
+    public final long p95;
+    public final long p99;
+    public final long max;
+
+    public LabelSummary(String label, long samples, long errors, double throughput, double mean, long p50, long p90,
+                        long p95, long p99, long max) {
+      this.label = label;
+      this.samples = samples;
+      this.errors = errors;
+      this.throughput = throughput;
+      this.mean = mean;
+      this.p50 = p50;
+      this.p90 = p90;
+      this.p95 = p95;
+      this.p99 = p99;
+      this.max = max;
+    }
+
+    static LabelSummary of(JtlReport.LabelStats stats) {
+      LatencyHistogram histogram = stats.getHistogram();
+      return new LabelSummary(stats.getLabel(), stats.getCount(), stats.getErrors(), stats.getThroughput(),
+          histogram.getMean(), histogram.getPercentile(50), histogram.getPercentile(90),
+          histogram.getPercentile(95), histogram.getPercentile(99), histogram.getMax());
+    }
+
+    /**
+     * @return percentage of failed samples
+     */
+    public double getErrorRate() {
+      return samples == 0 ? 0 : 100.0 * errors / samples;
+    }
+
+    void write(DataOutput out) throws IOException {
+      out.writeUTF(label);
+      out.writeLong(samples);
+      out.writeLong(errors);
+      out.writeDouble(throughput);
+      out.writeDouble(mean);
+      out.writeLong(p50);
+      out.writeLong(p90);
+      out.writeLong(p95);
+      out.writeLong(p99);
+      out.writeLong(max);
+    }
+
+    static LabelSummary read(DataInput in) throws IOException {
+      return new LabelSummary(in.readUTF(), in.readLong(), in.readLong(), in.readDouble(), in.readDouble(),
+          in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readLong());
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package net.campspot.results;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Maps byte ranges of a buffer to small int ids without creating a String per lookup.
+ * A String is only created the first time a value is seen. Used for labels and response codes of result files.
+ */
+public class StringTable {
+  private byte[][] keys = new byte[64][];
+  private int[] ids = new int[64];
+  private String[] values = new String[16];
+  private int size;
+
+  /**
+   * @return id of bytes [from, to) of buffer, a new id if the value was not seen before
+   */
+  public int idOf(ByteBuffer buffer, int from, int to) {
+    int hash = 1;
+    for (int i = from; i < to; i++) {
+      hash = 31 * hash + buffer.get(i);
+    }
+    int mask = keys.length - 1;
+    int slot = mix(hash) & mask;
+    while (keys[slot] != null) {
+      if (equals(keys[slot], buffer, from, to)) return ids[slot];
+      slot = (slot + 1) & mask;
+    }
+    byte[] key = new byte[to - from];
+    for (int i = from; i < to; i++) {
+      key[i - from] = buffer.get(i);
+    }
+    return add(slot, key, new String(key, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @return id of a value, a new id if the value was not seen before
+   */
+  public int idOf(String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    return idOf(ByteBuffer.wrap(bytes), 0, bytes.length);
+  }
+
+  /**
+   * @return value of an id
+   */
+  public String get(int id) {
+    return values[id];
+  }
+
+  /**
+   * @return number of distinct values
+   */
+  public int size() {
+    return size;
+  }
+
+  private int add(int slot, byte[] key, String value) {
+    int id = size++;
+    keys[slot] = key;
+    ids[slot] = id;
+    if (id == values.length) values = Arrays.copyOf(values, id * 2);
+    values[id] = value;
+    if (size * 2 > keys.length) rehash();
+    return id;
+  }
+
+  private void rehash() {
+    byte[][] oldKeys = keys;
+    int[] oldIds = ids;
+    keys = new byte[oldKeys.length * 2][];
+    ids = new int[oldKeys.length * 2];
+    int mask = keys.length - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] == null) continue;
+      int slot = mix(Arrays.hashCode(oldKeys[i])) & mask;
+      while (keys[slot] != null) {
+        slot = (slot + 1) & mask;
+      }
+      keys[slot] = oldKeys[i];
+      ids[slot] = oldIds[i];
+    }
+  }
+
+  private static int mix(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private static boolean equals(byte[] key, ByteBuffer buffer, int from, int to) {
+    if (key.length != to - from) return false;
+    for (int i = 0; i < key.length; i++) {
+      if (key[i] != buffer.get(from + i)) return false;
+    }
+    return true;
+  }
+}
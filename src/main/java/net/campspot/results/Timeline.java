@@ -0,0 +1,105 @@
+package net.campspot.results;
+
+import java.util.Arrays;
+
+/**
+ * Samples and errors per second of a test. Seconds are kept in arrays starting at the first second seen, which grow
+ * in both directions as samples arrive out of order. Samples more than {@link #MAX_LENGTH} seconds away from the
+ * first one, e.g. from a damaged last line, are not counted.
+ */
+public class Timeline {
+  public static final int MAX_LENGTH = 31 * 24 * 3600;
+
+  private long firstSecond = -1;
+  private int length;
+  private int[] counts = new int[64];
+  private int[] errors = new int[64];
+
+  /**
+   * @param timeStamp sample start, epoch milliseconds
+   * @param success   whether the sample succeeded
+   */
+  public void record(long timeStamp, boolean success) {
+    long second = timeStamp / 1000;
+    if (length > 0 && (second < firstSecond + length - MAX_LENGTH || second >= firstSecond + MAX_LENGTH)) return;
+    int index = indexOf(second);
+    counts[index]++;
+    if (!success) errors[index]++;
+  }
+
+  /**
+   * Add all seconds of another timeline.
+   */
+  public void add(Timeline other) {
+    if (other.length == 0) return;
+    if (length > 0 && (other.firstSecond < firstSecond + length - MAX_LENGTH ||
+        other.firstSecond + other.length > firstSecond + MAX_LENGTH)) return;
+    indexOf(other.firstSecond);
+    indexOf(other.firstSecond + other.length - 1);
+    int offset = (int) (other.firstSecond - firstSecond);
+    for (int i = 0; i < other.length; i++) {
+      counts[offset + i] += other.counts[i];
+      errors[offset + i] += other.errors[i];
+    }
+  }
+
+  /**
+   * @return first second with samples, epoch seconds, -1 if empty
+   */
+  public long getFirstSecond() {
+    return firstSecond;
+  }
+
+  /**
+   * @return number of seconds from first to last sample
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * @param index seconds since the first second
+   * @return number of samples started in that second
+   */
+  public int getCount(int index) {
+    return counts[index];
+  }
+
+  /**
+   * @param index seconds since the first second
+   * @return number of failed samples started in that second
+   */
+  public int getErrors(int index) {
+    return errors[index];
+  }
+
+  private int indexOf(long second) {
+    if (length == 0) {
+      firstSecond = second;
+      length = 1;
+      return 0;
+    }
+    if (second < firstSecond) {
+      int shift = (int) (firstSecond - second);
+      int[] newCounts = new int[Math.max(counts.length, length + shift)];
+      int[] newErrors = new int[newCounts.length];
+      System.arraycopy(counts, 0, newCounts, shift, length);
+      System.arraycopy(errors, 0, newErrors, shift, length);
+      counts = newCounts;
+      errors = newErrors;
+      firstSecond = second;
+      length += shift;
+      return 0;
+    }
+    int index = (int) (second - firstSecond);
+    if (index >= length) {
+      if (index >= counts.length) {
+        int capacity = Math.max(counts.length * 2, index + 1);
+        counts = Arrays.copyOf(counts, capacity);
+        errors = Arrays.copyOf(errors, capacity);
+      }
+      length = index + 1;
+    }
+    return index;
+  }
+}
@@ -0,0 +1,164 @@
+package net.campspot.runner;
+
+import net.campspot.generator.DataSharder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a test plan on several JMeter engines with <code>jmeter -R</code>.
+ * <p>
+ * Engines are either <code>jmeter-server</code> processes started on this machine, one per working folder under
+ * <code>Results/engines</code>, or servers already running on the hosts of a list. The data file is split into one
+ * disjoint shard per engine with {@link DataSharder}: a local engine reads its shard as
+ * <code>Data/campsites.csv</code> of its working folder, shards for remote hosts are written to
+ * <code>Data/shards</code> to be copied to the hosts. The controller streams the samples of all engines into one
+ * result file.
+ */
+public class DistributedRun implements RunTask {
+  private static final long START_TIMEOUT_SECONDS = 60;
+  private static final String ENGINES_FOLDER = "engines";
+  private static final String RMI_OPTIONS = "-Jserver.rmi.ssl.disable=true";
+
+  private final String jmeterHome;
+  private final String jmxFile;
+  private final Path dataFile;
+  private final Path resultFile;
+  private final int localEngines;
+  private final List<String> remoteHosts;
+  private final int basePort;
+  private final List<Process> processes = new ArrayList<>();
+  private volatile boolean cancelled;
+
+  /**
+   * @param jmeterHome   bin folder of JMeter
+   * @param jmxFile      test plan in the Tests folder
+   * @param dataFile     data file to split
+   * @param resultFile   result file of the controller
+   * @param localEngines number of engines to start on this machine, used when there are no remote hosts
+   * @param remoteHosts  host:port of running jmeter-server engines, empty to start local engines
+   * @param basePort     first RMI port of local engines, each engine uses two ports
+   */
+  public DistributedRun(String jmeterHome, String jmxFile, Path dataFile, Path resultFile, int localEngines,
+                        List<String> remoteHosts, int basePort) {
+    this.jmeterHome = jmeterHome;
+    this.jmxFile = jmxFile;
+    this.dataFile = dataFile;
+    this.resultFile = resultFile;
+    this.localEngines = localEngines;
+    this.remoteHosts = remoteHosts;
+    this.basePort = basePort;
+  }
+
+  /**
+   * @return number of engines the test runs on
+   */
+  public int getEngineCount() {
+    return remoteHosts.isEmpty() ? localEngines : remoteHosts.size();
+  }
+
+  @Override
+  public int run(LogBuffer log) throws IOException, InterruptedException {
+    int engines = getEngineCount();
+    String separator = System.getProperty("file.separator");
+    try {
+      List<Path> shards = new ArrayList<>();
+      String base = dataFile.getFileName().toString().replaceAll("\\.csv$", "");
+      for (int i = 0; i < engines; i++) {
+        shards.add(remoteHosts.isEmpty() ?
+            engineFolder(i).resolve("Data").resolve("campsites.csv") :
+            Paths.get("Data", "shards", base + "-" + (i + 1) + ".csv"));
+      }
+      long[] rows = DataSharder.shard(dataFile, shards);
+      for (int i = 0; i < engines; i++) {
+        log.append("Shard " + (i + 1) + ": " + rows[i] + " rows in " + shards.get(i) +
+            (remoteHosts.isEmpty() ? "" : ", copy it to Data/campsites.csv of " + remoteHosts.get(i)));
+      }
+
+      List<String> hosts = new ArrayList<>(remoteHosts);
+      if (hosts.isEmpty()) {
+        for (int i = 0; i < engines && !cancelled; i++) {
+          int port = basePort + 2 * i;
+          String command = jmeterHome + separator + "jmeter-server -Dserver_port=" + port +
+              " -Jserver.rmi.localport=" + (port + 1) + " " + RMI_OPTIONS;
+          log.append("Starting engine " + (i + 1) + ": " + command);
+          start(command, engineFolder(i), log, "[engine " + (i + 1) + "] ");
+          hosts.add("127.0.0.1:" + port);
+        }
+        for (int i = 0; i < hosts.size() && !cancelled; i++) {
+          awaitPort(basePort + 2 * i, processes.get(i));
+        }
+      }
+      if (cancelled) return 1;
+
+      String command = jmeterHome + separator + "jmeter -n -t Tests" + separator + jmxFile +
+          " -R " + String.join(",", hosts) + " -l " + resultFile + " " + RMI_OPTIONS + " -X";
+      log.append("Running controller: " + command);
+      Process controller = start(command, null, log, "");
+      return controller.waitFor();
+    } finally {
+      stopAll();
+    }
+  }
+
+  private Path engineFolder(int index) {
+    return resultFile.toAbsolutePath().getParent().resolve(ENGINES_FOLDER).resolve("engine-" + (index + 1));
+  }
+
+  private synchronized Process start(String command, Path directory, LogBuffer log, String prefix)
+      throws IOException {
+    if (cancelled) throw new IOException("Run cancelled");
+    ProcessBuilder builder = new ProcessBuilder(RunManager.shellCommand(command)).redirectErrorStream(true);
+    if (directory != null) builder.directory(directory.toFile());
+    Process process = builder.start();
+    processes.add(process);
+    Thread pump = new Thread(() -> RunManager.pump(process.getInputStream(), log, prefix), "engine-output");
+    pump.setDaemon(true);
+    pump.start();
+    return process;
+  }
+
+  /**
+   * Wait until a local engine accepts connections.
+   */
+  private void awaitPort(int port, Process engine) throws IOException, InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(START_TIMEOUT_SECONDS);
+    while (!cancelled) {
+      try (Socket socket = new Socket()) {
+        socket.connect(new InetSocketAddress("127.0.0.1", port), 1000);
+        return;
+      } catch (IOException e) {
+        if (!engine.isAlive()) throw new IOException("Engine on port " + port + " exited with " + engine.exitValue());
+        if (System.nanoTime() > deadline) throw new IOException("Engine on port " + port + " did not start");
+        Thread.sleep(500);
+      }
+    }
+  }
+
+  @Override
+  public synchronized List<ProcessHandle> getProcesses() {
+    List<ProcessHandle> handles = new ArrayList<>(processes.size());
+    for (Process process : processes) {
+      handles.add(process.toHandle());
+    }
+    return handles;
+  }
+
+  private synchronized void stopAll() {
+    for (Process process : processes) {
+      if (process.isAlive()) LocalRun.killTree(process.toHandle());
+    }
+  }
+
+  @Override
+  public void cancel() {
+    cancelled = true;
+    stopAll();
+  }
+}
@@ -0,0 +1,374 @@
+package net.campspot.runner;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Samples the use of the host and of the process trees of a run while it is active, so a run with poor throughput
+ * can be told apart from a load generator that ran out of CPU, memory or sockets. Linux only: a sample reads
+ * /proc/stat, /proc/meminfo and /proc/net/sockstat, then the stat, status and open files of each process of the trees.
+ * The GC time of the JVMs of the tree comes from the hsperfdata file each JVM keeps up to date in /tmp, the counters
+ * jstat reads, so nothing is attached to JMeter.
+ * <p>
+ * Samples are appended to a timeline file whose time stamps are epoch milliseconds like those of the result file, and
+ * the run log gets a warning when the generator stays saturated for {@link #SUSTAINED} samples.
+ */
+public class HostMonitor implements Closeable {
+  public static final long INTERVAL_MILLIS = 1000;
+  private static final Path PROC = Paths.get("/proc");
+  private static final Path PERF_DATA = Paths.get("/tmp"); // HotSpot ignores java.io.tmpdir for hsperfdata
+  private static final int CLOCK_TICKS = 100; // USER_HZ of /proc/<pid>/stat, 100 on all Linux platforms
+  // saturated when one of these is reached for SUSTAINED samples in a row
+  private static final double CPU_LIMIT = 90;
+  private static final double GC_LIMIT = 20;
+  private static final double MEMORY_LIMIT = 95;
+  private static final double PORTS_LIMIT = 90; // TCP sockets of the host, percentage of the local port range
+  private static final int SUSTAINED = 3;
+  private static final int JVM_LOOKUPS = 5; // samples a process is looked up as a JVM, its counters exist by then
+
+  private final Supplier<List<ProcessHandle>> roots;
+  private final LogBuffer log;
+  private final Writer writer;
+  private final int ports; // size of the local port range
+  private final Map<Long, Long> cpuTicks = new HashMap<>(); // utime + stime of each process at the last sample
+  private final Map<Long, GcCounters> jvms = new HashMap<>();
+  private final Map<Long, Integer> jvmLookups = new HashMap<>(); // processes not found as JVMs yet, by pid
+  private long lastNanos;
+  private long lastHostBusy;
+  private long lastHostTotal;
+  private int saturatedSamples;
+  private boolean failed; // a sample failed, logged once
+  private boolean closed;
+  // peaks, logged when the run ends
+  private double maxHostCpu;
+  private double maxGc;
+  private long maxRss;
+  private int maxSockets;
+  private volatile HostSample latest;
+
+  /**
+   * @return true if this OS has the /proc files the monitor reads
+   */
+  public static boolean isSupported() {
+    return Files.isReadable(PROC.resolve("self/stat")) && Files.isReadable(PROC.resolve("stat"));
+  }
+
+  /**
+   * @return timeline file of a result file, e.g. Results/Booking-host.csv for Results/Booking.jtl
+   */
+  public static Path timelineFor(Path resultFile) {
+    String name = resultFile.getFileName().toString();
+    int dot = name.lastIndexOf('.');
+    return resultFile.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + "-host.csv");
+  }
+
+  /**
+   * @return true for a timeline file, which is not a result file although it is a CSV file
+   */
+  public static boolean isTimeline(Path file) {
+    return file.getFileName().toString().endsWith("-host.csv");
+  }
+
+  /**
+   * Take a first sample, whose counters the next sample starts from.
+   *
+   * @param roots    roots of the process trees, asked on every sample, e.g. the shell running JMeter or the engines
+   *                 and controller of a distributed run as they are started
+   * @param timeline timeline file, samples are appended like JMeter appends to result files
+   * @param log      log of the run, gets the saturation warnings
+   */
+  public HostMonitor(Supplier<List<ProcessHandle>> roots, Path timeline, LogBuffer log) throws IOException {
+    this.roots = roots;
+    this.log = log;
+    boolean empty = !Files.exists(timeline) || Files.size(timeline) == 0;
+    writer = new BufferedWriter(Files.newBufferedWriter(timeline, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND));
+    if (empty) writer.write(HostSample.HEADER + "\n");
+    ports = readPortRange();
+    sample();
+    log.append("Monitoring load generator to " + timeline);
+  }
+
+  /**
+   * @return last sample, null before the second sample
+   */
+  public HostSample getLatest() {
+    return latest;
+  }
+
+  /**
+   * Sample the host and the process tree, called every {@link #INTERVAL_MILLIS}. Does nothing once closed.
+   */
+  public synchronized void sample() {
+    if (closed) return;
+    try {
+      HostSample sample = read();
+      if (sample == null) return;
+      latest = sample;
+      writer.write(sample.toCsv());
+      writer.write('\n');
+      writer.flush();
+    } catch (IOException | RuntimeException e) {
+      if (!failed) log.append("Cannot monitor load generator: " + e);
+      failed = true;
+    }
+  }
+
+  private HostSample read() throws IOException {
+    long nanos = System.nanoTime();
+    long timeStamp = System.currentTimeMillis();
+    boolean first = lastNanos == 0;
+    double seconds = (nanos - lastNanos) / 1e9;
+    lastNanos = nanos;
+
+    // host: CPU of all cores, memory available, TCP sockets
+    String[] cpu = firstLine(PROC.resolve("stat"), "cpu ").trim().split("\\s+");
+    long total = 0;
+    for (int i = 1; i <= 8 && i < cpu.length; i++) {
+      total += Long.parseLong(cpu[i]); // user to steal, guest time is counted in user already
+    }
+    long busy = total - Long.parseLong(cpu[4]) - (cpu.length > 5 ? Long.parseLong(cpu[5]) : 0); // idle, iowait
+    double hostCpu = total > lastHostTotal ? 100.0 * (busy - lastHostBusy) / (total - lastHostTotal) : 0;
+    lastHostBusy = busy;
+    lastHostTotal = total;
+    Map<String, Long> memory = new HashMap<>();
+    for (String line : Files.readAllLines(PROC.resolve("meminfo"), StandardCharsets.US_ASCII)) {
+      String[] parts = line.split(":?\\s+");
+      if (parts[0].equals("MemTotal") || parts[0].equals("MemAvailable")) {
+        memory.put(parts[0], Long.parseLong(parts[1]));
+      }
+    }
+    long memoryTotal = memory.getOrDefault("MemTotal", 0L);
+    double memoryUsed = memoryTotal > 0 ?
+        100.0 * (memoryTotal - memory.getOrDefault("MemAvailable", memoryTotal)) / memoryTotal : 0;
+    String[] tcp = firstLine(PROC.resolve("net/sockstat"), "TCP:").split("\\s+");
+    int tcpInUse = 0;
+    int tcpTimeWait = 0;
+    for (int i = 1; i + 1 < tcp.length; i += 2) {
+      if (tcp[i].equals("inuse")) tcpInUse = Integer.parseInt(tcp[i + 1]);
+      if (tcp[i].equals("tw")) tcpTimeWait = Integer.parseInt(tcp[i + 1]);
+    }
+
+    // process trees: CPU, memory, threads and sockets of each process, GC time of each JVM
+    Map<Long, ProcessHandle> tree = new LinkedHashMap<>();
+    for (ProcessHandle root : roots.get()) {
+      Stream.concat(Stream.of(root), root.descendants()).forEach(process -> tree.putIfAbsent(process.pid(), process));
+    }
+    Map<Long, Long> ticks = new HashMap<>();
+    long treeTicks = 0;
+    long rss = 0;
+    int threads = 0;
+    int sockets = 0;
+    double gcSeconds = 0;
+    for (long pid : tree.keySet()) {
+      String[] stat;
+      long processRss;
+      try {
+        String text = new String(Files.readAllBytes(PROC.resolve(pid + "/stat")), StandardCharsets.US_ASCII);
+        // fields from the state on, after the name that may have spaces
+        stat = text.substring(text.lastIndexOf(')') + 2).split(" ");
+        processRss = readRss(pid);
+        sockets += countSockets(pid);
+      } catch (IOException e) {
+        continue; // exited meanwhile
+      }
+      long processTicks = Long.parseLong(stat[11]) + Long.parseLong(stat[12]); // utime, stime
+      ticks.put(pid, processTicks);
+      Long before = cpuTicks.get(pid);
+      if (!first) treeTicks += processTicks - (before == null ? 0 : before); // a new process started meanwhile
+      threads += Integer.parseInt(stat[17]);
+      rss += processRss;
+      GcCounters jvm = jvms.get(pid);
+      if (jvm == null && jvmLookups.merge(pid, 1, Integer::sum) <= JVM_LOOKUPS) {
+        jvm = GcCounters.open(pid);
+        if (jvm != null) jvms.put(pid, jvm);
+      }
+      if (jvm != null) gcSeconds += jvm.sinceLast();
+    }
+    cpuTicks.keySet().retainAll(ticks.keySet());
+    cpuTicks.putAll(ticks);
+    jvms.keySet().retainAll(ticks.keySet());
+    jvmLookups.keySet().retainAll(ticks.keySet());
+    if (first) return null;
+
+    int cores = Runtime.getRuntime().availableProcessors();
+    double treeCpu = 100.0 * treeTicks / CLOCK_TICKS / seconds / cores;
+    double gc = 100.0 * gcSeconds / seconds;
+    List<String> reasons = new ArrayList<>();
+    if (hostCpu >= CPU_LIMIT) reasons.add(String.format("host CPU %.0f%%", hostCpu));
+    if (gc >= GC_LIMIT) reasons.add(String.format("GC %.0f%% of the time", gc));
+    if (memoryUsed >= MEMORY_LIMIT) reasons.add(String.format("memory %.0f%% used", memoryUsed));
+    if (ports > 0 && 100.0 * (tcpInUse + tcpTimeWait) / ports >= PORTS_LIMIT) {
+      reasons.add((tcpInUse + tcpTimeWait) + " TCP sockets for " + ports + " local ports");
+    }
+    saturatedSamples = reasons.isEmpty() ? 0 : saturatedSamples + 1;
+    String saturated = saturatedSamples >= SUSTAINED ? String.join(", ", reasons) : null;
+    if (saturatedSamples == SUSTAINED) {
+      log.append("WARNING: load generator saturated (" + saturated + "), response times and throughput now " +
+          "measure this host rather than the server");
+    } else if (saturatedSamples == 0 && latest != null && latest.saturated != null) {
+      log.append("Load generator no longer saturated");
+    }
+    maxHostCpu = Math.max(maxHostCpu, hostCpu);
+    maxGc = Math.max(maxGc, gc);
+    maxRss = Math.max(maxRss, rss);
+    maxSockets = Math.max(maxSockets, sockets);
+    return new HostSample(timeStamp, hostCpu, memoryUsed, tcpInUse, tcpTimeWait, tree.size(), treeCpu, rss, gc,
+        sockets, threads, saturated);
+  }
+
+  private static String firstLine(Path file, String prefix) throws IOException {
+    for (String line : Files.readAllLines(file, StandardCharsets.US_ASCII)) {
+      if (line.startsWith(prefix)) return line;
+    }
+    throw new IOException("No " + prefix.trim() + " line in " + file);
+  }
+
+  /**
+   * @return resident memory of a process in bytes, from its status file as its stat file counts in pages of a size
+   * that depends on the platform
+   */
+  private static long readRss(long pid) throws IOException {
+    for (String line : Files.readAllLines(PROC.resolve(pid + "/status"), StandardCharsets.US_ASCII)) {
+      if (line.startsWith("VmRSS:")) return Long.parseLong(line.substring(6).trim().split("\\s+")[0]) << 10; // kB
+    }
+    return 0; // zombie
+  }
+
+  private static int countSockets(long pid) throws IOException {
+    int count = 0;
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(PROC.resolve(pid + "/fd"))) {
+      for (Path file : files) {
+        try {
+          if (Files.readSymbolicLink(file).toString().startsWith("socket:")) count++;
+        } catch (IOException e) {
+          // closed meanwhile
+        }
+      }
+    }
+    return count;
+  }
+
+  private static int readPortRange() {
+    try {
+      String[] range = new String(Files.readAllBytes(PROC.resolve("sys/net/ipv4/ip_local_port_range")),
+          StandardCharsets.US_ASCII).trim().split("\\s+");
+      return Integer.parseInt(range[1]) - Integer.parseInt(range[0]) + 1;
+    } catch (IOException | RuntimeException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Log the peaks of the run and close the timeline file.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (latest != null) {
+      log.append(String.format("Load generator peaks: host CPU %.0f%%, GC %.0f%%, RSS %d MB, %d sockets", maxHostCpu,
+          maxGc, maxRss >> 20, maxSockets));
+    }
+    closed = true;
+    jvms.clear();
+    writer.close();
+  }
+
+  /**
+   * GC time counters of one JVM, read from its hsperfdata file: a header, then entries with a name and a value, in
+   * the byte order given by the header.
+   */
+  private static class GcCounters {
+    private static final int MAGIC = 0xcafec0c0;
+
+    private final MappedByteBuffer buffer;
+    private final int[] offsets; // values of sun.gc.collector.<n>.time, in ticks
+    private final double frequency; // ticks per second
+    private long lastTicks;
+
+    private GcCounters(MappedByteBuffer buffer, int[] offsets, double frequency) {
+      this.buffer = buffer;
+      this.offsets = offsets;
+      this.frequency = frequency;
+      this.lastTicks = ticks();
+    }
+
+    /**
+     * @return counters of a JVM, null if the process is not a JVM or keeps no counters yet
+     */
+    static GcCounters open(long pid) {
+      try (DirectoryStream<Path> folders = Files.newDirectoryStream(PERF_DATA, "hsperfdata_*")) {
+        for (Path folder : folders) {
+          Path file = folder.resolve(Long.toString(pid));
+          if (Files.isRegularFile(file)) return open(file);
+        }
+      } catch (IOException | RuntimeException e) {
+        // not readable, no GC time for this process
+      }
+      return null;
+    }
+
+    private static GcCounters open(Path file) throws IOException {
+      MappedByteBuffer buffer;
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+      if (buffer.getInt(0) != MAGIC) return null;
+      buffer.order(buffer.get(4) == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+      int entry = buffer.getInt(24);
+      int entries = buffer.getInt(28);
+      List<Integer> offsets = new ArrayList<>();
+      double frequency = 0;
+      for (int i = 0; i < entries; i++) {
+        int length = buffer.getInt(entry);
+        int name = entry + buffer.getInt(entry + 4);
+        int value = entry + buffer.getInt(entry + 16);
+        StringBuilder sb = new StringBuilder();
+        for (int k = name; buffer.get(k) != 0; k++) {
+          sb.append((char) buffer.get(k));
+        }
+        String counter = sb.toString();
+        if (counter.startsWith("sun.gc.collector.") && counter.endsWith(".time")) offsets.add(value);
+        if (counter.equals("sun.os.hrt.frequency")) frequency = buffer.getLong(value);
+        entry += length;
+      }
+      if (offsets.isEmpty() || frequency <= 0) return null; // the JVM is still starting
+      return new GcCounters(buffer, offsets.stream().mapToInt(Integer::intValue).toArray(), frequency);
+    }
+
+    private long ticks() {
+      long ticks = 0;
+      for (int offset : offsets) {
+        ticks += buffer.getLong(offset);
+      }
+      return ticks;
+    }
+
+    /**
+     * @return seconds spent collecting garbage since the last call
+     */
+    double sinceLast() {
+      long ticks = ticks();
+      double seconds = (ticks - lastTicks) / frequency;
+      lastTicks = ticks;
+      return seconds;
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package net.campspot.runner;
+
+import java.util.Locale;
+
+/**
+ * Use of the load generator over one interval of the {@link HostMonitor}: the host, and the process tree of a run.
+ * CPU is a percentage of all cores of the host, so 100 means the host has no CPU left.
+ */
+public class HostSample {
+  public static final String HEADER =
+      "timeStamp,hostCpu,memoryUsed,tcpInUse,tcpTimeWait,processes,cpu,rssBytes,gc,sockets,threads,saturated";
+
+  public final long timeStamp; // end of the interval, epoch milliseconds like the timeStamp of result files
+  public final double hostCpu;
+  public final double memoryUsed; // percentage of host memory not available
+  public final int tcpInUse; // TCP sockets of the host
+  public final int tcpTimeWait;
+  public final int processes; // processes of the tree
+  public final double cpu;
+  public final long rssBytes;
+  public final double gc; // percentage of the interval JVMs of the tree spent collecting garbage
+  public final int sockets; // open sockets of the tree
+  public final int threads;
+  public final String saturated; // why the generator is saturated, null if it is not
+
+  HostSample(long timeStamp, double hostCpu, double memoryUsed, int tcpInUse, int tcpTimeWait, int processes,
+             double cpu, long rssBytes, double gc, int sockets, int threads, String saturated) {
+    this.timeStamp = timeStamp;
+    this.hostCpu = hostCpu;
+    this.memoryUsed = memoryUsed;
+    this.tcpInUse = tcpInUse;
+    this.tcpTimeWait = tcpTimeWait;
+    this.processes = processes;
+    this.cpu = cpu;
+    this.rssBytes = rssBytes;
+    this.gc = gc;
+    this.sockets = sockets;
+    this.threads = threads;
+    this.saturated = saturated;
+  }
+
+  /**
+   * @return line of the timeline file, in the columns of {@link #HEADER}
+   */
+  public String toCsv() {
+    return String.format(Locale.ROOT, "%d,%.1f,%.1f,%d,%d,%d,%.1f,%d,%.1f,%d,%d,%s", timeStamp, hostCpu, memoryUsed,
+        tcpInUse, tcpTimeWait, processes, cpu, rssBytes, gc, sockets, threads, saturated != null);
+  }
+
+  /**
+   * @return short summary shown next to the run
+   */
+  @Override
+  public String toString() {
+    return String.format(Locale.ROOT, "%sCPU %.0f%% (host %.0f%%), RSS %d MB, GC %.0f%%, %d sockets, %d threads",
+        saturated != null ? "SATURATED " : "", cpu, hostCpu, rssBytes >> 20, gc, sockets, threads);
+  }
+}
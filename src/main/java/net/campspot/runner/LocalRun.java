@@ -0,0 +1,196 @@
+package net.campspot.runner;
+
+import net.campspot.results.LiveStats;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * One JMeter process, or {@link RunTask} of this JVM, started by the {@link RunManager}.
+ */
+public class LocalRun {
+  private static final int LOG_LINES = 5000;
+  private static final long KILL_TIMEOUT_SECONDS = 10; // time to stop gracefully before the process tree is killed
+
+  public enum State {STARTING, RUNNING, SUCCEEDED, FAILED, CANCELLED}
+
+  private final int id;
+  private final String name;
+  private final List<String> command;
+  private final Path resultFile;
+  private final LiveStats stats = new LiveStats();
+  private final CompletableFuture<LocalRun> completion = new CompletableFuture<>();
+  private volatile long resultOffset;
+  private final LogBuffer log = new LogBuffer(LOG_LINES);
+  private final long startTime = System.currentTimeMillis();
+  private volatile Process process;
+  private volatile RunTask task;
+  private volatile State state = State.STARTING;
+  private volatile long endTime;
+  private volatile int exitCode = -1;
+  private volatile boolean cancelRequested;
+  private volatile HostSample hostSample;
+
+  LocalRun(int id, String name, List<String> command, Path resultFile) {
+    this.id = id;
+    this.name = name;
+    this.command = command;
+    this.resultFile = resultFile;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public List<String> getCommand() {
+    return command;
+  }
+
+  /**
+   * @return result file written by the run, null if unknown
+   */
+  public Path getResultFile() {
+    return resultFile;
+  }
+
+  /**
+   * @return live statistics of the samples in the result file, empty if there is none
+   */
+  public LiveStats getStats() {
+    return stats;
+  }
+
+  /**
+   * @return size of the result file before the run, JMeter appends the samples of the run after it
+   */
+  public long getResultOffset() {
+    return resultOffset;
+  }
+
+  void setResultOffset(long resultOffset) {
+    this.resultOffset = resultOffset;
+  }
+
+  /**
+   * @return future completed when the run has finished and its result file is fully read
+   */
+  public CompletableFuture<LocalRun> getCompletion() {
+    return completion;
+  }
+
+  public LogBuffer getLog() {
+    return log;
+  }
+
+  /**
+   * @return last use of the load generator while the process runs, null if it is not monitored
+   */
+  public HostSample getHostSample() {
+    return hostSample;
+  }
+
+  void setHostSample(HostSample hostSample) {
+    this.hostSample = hostSample;
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  public boolean isActive() {
+    return state == State.STARTING || state == State.RUNNING;
+  }
+
+  /**
+   * @return exit code of the process, -1 while running
+   */
+  public int getExitCode() {
+    return exitCode;
+  }
+
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * @return milliseconds since start, or run duration when finished
+   */
+  public long getElapsed() {
+    return (endTime > 0 ? endTime : System.currentTimeMillis()) - startTime;
+  }
+
+  /**
+   * @return process id, or -1 before the process is started
+   */
+  public long getPid() {
+    Process p = process;
+    return p == null ? -1 : p.pid();
+  }
+
+  Process getProcess() {
+    return process;
+  }
+
+  synchronized void started(Process process) {
+    this.process = process;
+    this.state = State.RUNNING;
+    if (cancelRequested) killTree();
+  }
+
+  synchronized void started(RunTask task) {
+    this.task = task;
+    this.state = State.RUNNING;
+    if (cancelRequested) task.cancel();
+  }
+
+  void finished(State state, int exitCode) {
+    this.exitCode = exitCode;
+    this.endTime = System.currentTimeMillis();
+    this.state = cancelRequested ? State.CANCELLED : state;
+  }
+
+  /**
+   * Stop the run: the whole process tree (shell, JMeter script, JVM) is asked to stop and killed if it is still
+   * alive after a timeout. A task is asked to stop.
+   */
+  public synchronized void cancel() {
+    if (!isActive()) return;
+    cancelRequested = true;
+    if (process != null) {
+      log.append("Cancelling run " + name);
+      killTree();
+    } else if (task != null) {
+      log.append("Cancelling run " + name);
+      task.cancel();
+    }
+  }
+
+  private void killTree() {
+    killTree(process.toHandle());
+  }
+
+  /**
+   * Ask a process and its descendants to stop, kill the ones still alive after a timeout.
+   */
+  static void killTree(ProcessHandle root) {
+    // collect the tree before stopping anything, children are re-parented once the shell is gone
+    List<ProcessHandle> tree = root.descendants().collect(Collectors.toList());
+    tree.forEach(ProcessHandle::destroy);
+    root.destroy();
+    root.onExit().completeOnTimeout(null, KILL_TIMEOUT_SECONDS, TimeUnit.SECONDS).thenRun(() -> {
+      tree.stream().filter(ProcessHandle::isAlive).forEach(ProcessHandle::destroyForcibly);
+      if (root.isAlive()) root.destroyForcibly();
+    });
+  }
+
+  public String toString() {
+    return "#" + id + " " + name;
+  }
+}
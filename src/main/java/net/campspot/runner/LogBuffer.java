@@ -0,0 +1,56 @@
+package net.campspot.runner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded ring buffer of log lines. When full, the oldest lines are dropped.
+ * Every line gets a sequence number so readers can fetch only lines they have not seen yet.
+ */
+public class LogBuffer {
+  private final String[] lines;
+  private long next; // sequence number of the next line
+
+  /**
+   * @param capacity maximum number of lines kept
+   */
+  public LogBuffer(int capacity) {
+    this.lines = new String[capacity];
+  }
+
+  public synchronized void append(String line) {
+    lines[(int) (next % lines.length)] = line;
+    next++;
+  }
+
+  /**
+   * @return sequence number the next appended line will get
+   */
+  public synchronized long getNextSequence() {
+    return next;
+  }
+
+  /**
+   * Copy lines appended since a sequence number. Lines already dropped from the buffer are skipped.
+   *
+   * @param sequence sequence number of the first wanted line
+   * @param target   receives the lines
+   * @return sequence number to pass on the next call
+   */
+  public synchronized long linesSince(long sequence, List<String> target) {
+    long first = Math.max(sequence, next - lines.length);
+    for (long i = first; i < next; i++) {
+      target.add(lines[(int) (i % lines.length)]);
+    }
+    return next;
+  }
+
+  /**
+   * @return all lines in the buffer, oldest first
+   */
+  public List<String> getLines() {
+    List<String> result = new ArrayList<>();
+    linesSince(0, result);
+    return result;
+  }
+}
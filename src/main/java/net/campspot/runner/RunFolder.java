@@ -0,0 +1,118 @@
+package net.campspot.runner;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Working folder of one local JMeter run, {@code Results/runs/<test>-<time>}, in which {@code Data/campsites.csv} is a
+ * link to the data file selected for the run. Creating a link takes the same time for any size of file and uses no
+ * disk space, and since every run has its own folder, runs started at the same time with different data files do
+ * not overwrite each other's file. JMeter also writes its jmeter.log into the folder.
+ * <p>
+ * The link is a symbolic link, or a hard link where symbolic links cannot be created, e.g. on Windows without the
+ * privilege. Only if neither works the file is copied.
+ */
+public class RunFolder {
+  public static final String RUNS_FOLDER = "runs";
+  public static final String DATA_LINK = "campsites.csv";
+  private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+  public enum Binding {
+    SYMBOLIC_LINK, HARD_LINK, COPY,
+    /**
+     * The data file does not exist, the test runs without it.
+     */
+    NONE
+  }
+
+  private final Path directory;
+  private final Path dataFile;
+  private final Binding binding;
+
+  private RunFolder(Path directory, Path dataFile, Binding binding) {
+    this.directory = directory;
+    this.dataFile = dataFile;
+    this.binding = binding;
+  }
+
+  /**
+   * Create the working folder of a run and bind its data file.
+   *
+   * @param resultsFolder folder holding the runs folder
+   * @param jmxFile       name of the jmx file of the test
+   * @param dataFile      data file the test reads
+   */
+  public static RunFolder create(Path resultsFolder, String jmxFile, Path dataFile) throws IOException {
+    String name = jmxFile.replaceAll("\\.jmx$", "") + "-" + TIME_FORMAT.format(LocalDateTime.now());
+    Path runs = resultsFolder.resolve(RUNS_FOLDER).toAbsolutePath();
+    Path directory = runs.resolve(name);
+    for (int i = 2; ; i++) {
+      try {
+        Files.createDirectories(runs);
+        Files.createDirectory(directory);
+        break;
+      } catch (FileAlreadyExistsException e) {
+        directory = runs.resolve(name + "-" + i); // another run of the same test started in the same millisecond
+      }
+    }
+    Path target = dataFile.toAbsolutePath().normalize();
+    Path data = Files.createDirectory(directory.resolve("Data"));
+    return new RunFolder(directory, target, bind(data.resolve(DATA_LINK), target));
+  }
+
+  private static Binding bind(Path link, Path target) throws IOException {
+    if (!Files.isRegularFile(target)) return Binding.NONE;
+    try {
+      Files.createSymbolicLink(link, target);
+      return Binding.SYMBOLIC_LINK;
+    } catch (IOException | UnsupportedOperationException | SecurityException e) {
+      // not allowed or not supported by the file system
+    }
+    try {
+      Files.createLink(link, target);
+      return Binding.HARD_LINK;
+    } catch (IOException | UnsupportedOperationException | SecurityException e) {
+      // e.g. folders on different volumes
+    }
+    Files.copy(target, link);
+    return Binding.COPY;
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @return absolute path of the data file of the run
+   */
+  public Path getDataFile() {
+    return dataFile;
+  }
+
+  public Binding getBinding() {
+    return binding;
+  }
+
+  /**
+   * Remove the data link after the run, so a hard link or copy does not keep the data on disk once the data file is
+   * deleted. The folder and the JMeter log in it are kept.
+   */
+  public void release() {
+    try {
+      Path data = directory.resolve("Data");
+      Files.deleteIfExists(data.resolve(DATA_LINK));
+      Files.deleteIfExists(data);
+    } catch (IOException e) {
+      System.err.println("Cannot remove data link of " + directory + ": " + e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return directory + " (" + binding.name().toLowerCase().replace('_', ' ') + " to " + dataFile + ")";
+  }
+}
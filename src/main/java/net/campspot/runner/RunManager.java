@@ -0,0 +1,313 @@
+package net.campspot.runner;
+
+import net.campspot.metrics.LocalRunEvent;
+import net.campspot.metrics.ProcessStartEvent;
+import net.campspot.metrics.ToolMetrics;
+import net.campspot.results.JtlTailer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Owns the JMeter processes started from this tool. Every run is launched on a dedicated executor, its stdout and
+ * stderr are pumped asynchronously into the run's {@link LogBuffer}, and any number of runs can be active at once.
+ * Load generated inside this JVM runs the same way as a {@link RunTask}.
+ * When a run writes a result file, the file is tailed into the run's live statistics while the run is active, and a
+ * process run is watched by a {@link HostMonitor} whose timeline sits next to the result file.
+ */
+public class RunManager {
+  private static final long TAIL_INTERVAL_MILLIS = 500;
+
+  private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "run-manager");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final ScheduledExecutorService tailExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "run-tailer");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final List<LocalRun> runs = new CopyOnWriteArrayList<>();
+  private final List<Consumer<LocalRun>> listeners = new CopyOnWriteArrayList<>();
+  private final AtomicInteger nextId = new AtomicInteger(1);
+
+  /**
+   * Build the command line to run a command through the shell of the current OS.
+   *
+   * @param command command line
+   * @return program and arguments
+   */
+  public static List<String> shellCommand(String command) {
+    String os = System.getProperty("os.name").toLowerCase();
+    if (os.contains("win")) {
+      return Arrays.asList("cmd.exe", "/c", command);
+    }
+    return Arrays.asList("bash", "-c", command);
+  }
+
+  /**
+   * Start a process in background.
+   *
+   * @param name      name shown for the run, usually the jmx file
+   * @param command   program and arguments
+   * @param directory working directory, null for the current directory
+   * @return the run, in state STARTING
+   */
+  public LocalRun start(String name, List<String> command, File directory) {
+    return start(name, command, directory, null);
+  }
+
+  /**
+   * Start a process in background and follow the result file it writes.
+   *
+   * @param name       name shown for the run, usually the jmx file
+   * @param command    program and arguments
+   * @param directory  working directory, null for the current directory
+   * @param resultFile result (.jtl) file written by the process, null if none
+   * @return the run, in state STARTING
+   */
+  public LocalRun start(String name, List<String> command, File directory, Path resultFile) {
+    LocalRun run = new LocalRun(nextId.getAndIncrement(), name, command, resultFile);
+    runs.add(run);
+    fireChanged(run);
+    executor.submit(() -> follow(run, () -> executeProcess(run, directory)));
+    return run;
+  }
+
+  /**
+   * Run a task of this JVM in background, like a process, and follow the result file it writes.
+   *
+   * @param name        name shown for the run
+   * @param description description shown in the log, e.g. target and rate
+   * @param task        task to run
+   * @param resultFile  result (.jtl) file written by the task, null if none
+   * @return the run, in state STARTING
+   */
+  public LocalRun startTask(String name, List<String> description, RunTask task, Path resultFile) {
+    LocalRun run = new LocalRun(nextId.getAndIncrement(), name, description, resultFile);
+    runs.add(run);
+    fireChanged(run);
+    executor.submit(() -> follow(run, () -> executeTask(run, task)));
+    return run;
+  }
+
+  /**
+   * Execute a run while its result file is tailed into its live statistics.
+   */
+  private void follow(LocalRun run, Runnable execution) {
+    LogBuffer log = run.getLog();
+    JtlTailer tailer = null;
+    ScheduledFuture<?> tailing = null;
+    try {
+      if (run.getResultFile() != null) {
+        // created before the run starts, so samples already in the file are skipped
+        tailer = new JtlTailer(run.getResultFile(), run.getStats());
+        run.setResultOffset(tailer.getStartSize());
+        JtlTailer t = tailer;
+        tailing = tailExecutor.scheduleWithFixedDelay(() -> poll(t, log), TAIL_INTERVAL_MILLIS, TAIL_INTERVAL_MILLIS,
+            TimeUnit.MILLISECONDS);
+      }
+      execution.run();
+    } catch (IOException e) {
+      log.append("Cannot read result file: " + e);
+      run.finished(LocalRun.State.FAILED, -1);
+    } finally {
+      if (tailer != null) {
+        tailing.cancel(false);
+        poll(tailer, log);
+        try {
+          tailer.close();
+        } catch (IOException e) {
+          log.append("Cannot close result file: " + e.getMessage());
+        }
+      }
+    }
+    fireChanged(run);
+    run.getCompletion().complete(run);
+  }
+
+  private void executeProcess(LocalRun run, File directory) {
+    LogBuffer log = run.getLog();
+    log.append("Running command: " + String.join(" ", run.getCommand()));
+    try {
+      ProcessStartEvent startEvent = new ProcessStartEvent();
+      startEvent.begin();
+      long start = System.nanoTime();
+      Process process = new ProcessBuilder(run.getCommand()).directory(directory).start();
+      long started = System.nanoTime();
+      startEvent.end();
+      ToolMetrics.get().processStarted(started - start);
+      startEvent.run = run.getName();
+      startEvent.command = String.join(" ", run.getCommand());
+      startEvent.commit();
+      LocalRunEvent runEvent = new LocalRunEvent();
+      runEvent.begin();
+      run.started(process);
+      fireChanged(run);
+      HostMonitor monitor = startMonitor(run, () -> List.of(process.toHandle()));
+      ScheduledFuture<?> monitoring = scheduleMonitor(run, monitor);
+      Future<?> stdout = executor.submit(() -> pump(process.getInputStream(), log, ""));
+      Future<?> stderr = executor.submit(() -> pump(process.getErrorStream(), log, "[stderr] "));
+      int exitVal;
+      try {
+        exitVal = process.waitFor();
+      } finally {
+        stopMonitor(monitor, monitoring, log);
+      }
+      stdout.get();
+      stderr.get();
+      ToolMetrics.get().localRunFinished(exitVal == 0, System.nanoTime() - started);
+      runEvent.run = run.getName();
+      runEvent.exitCode = exitVal;
+      runEvent.commit();
+      run.finished(exitVal == 0 ? LocalRun.State.SUCCEEDED : LocalRun.State.FAILED, exitVal);
+      log.append(exitVal == 0 ? "Success!" : "Abnormal! Exit code " + exitVal);
+    } catch (IOException | ExecutionException e) {
+      log.append("Cannot run command: " + e);
+      run.finished(LocalRun.State.FAILED, -1);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      run.cancel();
+      run.finished(LocalRun.State.CANCELLED, -1);
+    }
+  }
+
+  /**
+   * @param roots roots of the process trees of the run, asked on every sample
+   * @return monitor of the host and process trees of a run that writes a result file, null if the run is not
+   * monitored
+   */
+  private static HostMonitor startMonitor(LocalRun run, Supplier<List<ProcessHandle>> roots) {
+    if (run.getResultFile() == null || !HostMonitor.isSupported()) return null;
+    try {
+      return new HostMonitor(roots, HostMonitor.timelineFor(run.getResultFile()), run.getLog());
+    } catch (IOException e) {
+      run.getLog().append("Cannot monitor load generator: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * @return sampling of a monitor, null if there is no monitor
+   */
+  private ScheduledFuture<?> scheduleMonitor(LocalRun run, HostMonitor monitor) {
+    if (monitor == null) return null;
+    return tailExecutor.scheduleAtFixedRate(() -> {
+      monitor.sample();
+      run.setHostSample(monitor.getLatest());
+    }, HostMonitor.INTERVAL_MILLIS, HostMonitor.INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stop sampling and close the monitor before the run is reported finished, so its peaks are logged first.
+   */
+  private static void stopMonitor(HostMonitor monitor, ScheduledFuture<?> monitoring, LogBuffer log) {
+    if (monitor == null) return;
+    monitoring.cancel(false);
+    try {
+      monitor.close();
+    } catch (IOException e) {
+      log.append("Cannot close load generator timeline: " + e.getMessage());
+    }
+  }
+
+  private void executeTask(LocalRun run, RunTask task) {
+    LogBuffer log = run.getLog();
+    log.append("Running: " + String.join(" ", run.getCommand()));
+    try {
+      run.started(task);
+      fireChanged(run);
+      HostMonitor monitor = startMonitor(run, task::getProcesses);
+      ScheduledFuture<?> monitoring = scheduleMonitor(run, monitor);
+      int exitVal;
+      try {
+        exitVal = task.run(log);
+      } finally {
+        stopMonitor(monitor, monitoring, log);
+      }
+      run.finished(exitVal == 0 ? LocalRun.State.SUCCEEDED : LocalRun.State.FAILED, exitVal);
+      log.append(exitVal == 0 ? "Success!" : "Abnormal! Exit code " + exitVal);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      run.cancel();
+      run.finished(LocalRun.State.CANCELLED, -1);
+    } catch (Exception e) {
+      log.append("Run failed: " + e);
+      run.finished(LocalRun.State.FAILED, -1);
+    }
+  }
+
+  private static void poll(JtlTailer tailer, LogBuffer log) {
+    try {
+      tailer.poll();
+    } catch (IOException | RuntimeException e) {
+      log.append("Cannot read result file: " + e.getMessage());
+    }
+  }
+
+  static void pump(InputStream stream, LogBuffer log, String prefix) {
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        log.append(prefix + line);
+      }
+    } catch (IOException e) {
+      log.append(prefix + "Output closed: " + e.getMessage());
+    }
+  }
+
+  /**
+   * @return all runs started by this manager, oldest first
+   */
+  public List<LocalRun> getRuns() {
+    return new ArrayList<>(runs);
+  }
+
+  /**
+   * Remove finished runs from the list.
+   */
+  public void clearFinished() {
+    runs.removeIf(run -> !run.isActive());
+  }
+
+  /**
+   * Cancel all active runs, used when the tool exits.
+   */
+  public void cancelAll() {
+    for (LocalRun run : runs) {
+      run.cancel();
+    }
+  }
+
+  /**
+   * Add listener called when a run is added or changes state. Listeners are called from background threads.
+   */
+  public void addListener(Consumer<LocalRun> listener) {
+    listeners.add(listener);
+  }
+
+  private void fireChanged(LocalRun run) {
+    for (Consumer<LocalRun> listener : listeners) {
+      listener.accept(run);
+    }
+  }
+}
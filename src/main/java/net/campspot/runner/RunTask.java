@@ -0,0 +1,30 @@
+package net.campspot.runner;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Work run by the {@link RunManager} inside this JVM instead of as a process, e.g. the native load engine.
+ */
+public interface RunTask {
+  /**
+   * Run until done or cancelled.
+   *
+   * @param log receives progress messages
+   * @return exit code, 0 on success
+   */
+  int run(LogBuffer log) throws Exception;
+
+  /**
+   * Ask the running task to stop soon. Called from another thread.
+   */
+  void cancel();
+
+  /**
+   * @return processes started by the task so far, whose trees are monitored with the host, empty if the task works
+   * inside this JVM. Called from another thread.
+   */
+  default List<ProcessHandle> getProcesses() {
+    return Collections.emptyList();
+  }
+}
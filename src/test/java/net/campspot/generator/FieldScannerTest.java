@@ -0,0 +1,45 @@
+package net.campspot.generator;
+
+import com.opencsv.CSVWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FieldScannerTest {
+  private static final String[] FIELDS = {"o\"brien@example.com", "4711", "Pine, Lake", "\"", "", "12"};
+
+  @Test
+  void readsFieldsAsRowWriterWritesThem() {
+    byte[] line = RowWriter.encode(FIELDS);
+    assertArrayEquals(FIELDS, FieldScanner.split(new String(line, StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  void readsFieldsAsCsvWriterWritesThem() {
+    StringWriter out = new StringWriter();
+    CSVWriter writer = new CSVWriter(out, ',', CSVWriter.NO_QUOTE_CHARACTER, CSVWriter.DEFAULT_ESCAPE_CHARACTER, "");
+    writer.writeNext(FIELDS, false);
+    assertArrayEquals(FIELDS, FieldScanner.split(out.toString()));
+  }
+
+  @Test
+  void findsFieldsWithoutDecoding() {
+    byte[] line = RowWriter.encode(FIELDS);
+    int start = FieldScanner.fieldStart(line, 0, line.length, 5);
+    assertEquals(12, FieldScanner.number(line, start, FieldScanner.fieldEnd(line, start, line.length)));
+
+    start = FieldScanner.fieldStart(line, 0, line.length, 2);
+    int end = FieldScanner.fieldEnd(line, start, line.length);
+    assertTrue(FieldScanner.matches(line, start, end, "Pine, Lake".getBytes(StandardCharsets.UTF_8)));
+    assertFalse(FieldScanner.matches(line, start, end, "Pine".getBytes(StandardCharsets.UTF_8)));
+    assertEquals("Pine, Lake", FieldScanner.decode(line, start, end));
+
+    assertEquals(-1, FieldScanner.fieldStart(line, 0, line.length, 6));
+  }
+}
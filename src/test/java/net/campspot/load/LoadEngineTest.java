@@ -0,0 +1,137 @@
+package net.campspot.load;
+
+import net.campspot.generator.RowWriter;
+import net.campspot.results.JtlWriter;
+import net.campspot.runner.LogBuffer;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadEngineTest {
+  private static final long DELAY_MILLIS = 100;
+
+  @TempDir
+  Path dir;
+  private StubServer server;
+  private Path dataFile;
+  private Path resultFile;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = new StubServer(0, DELAY_MILLIS);
+    dataFile = dir.resolve("data.csv");
+    Files.write(dataFile, List.of("campsiteId", "1", "2", "3"), StandardCharsets.UTF_8);
+    resultFile = dir.resolve("result.jtl");
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.close();
+  }
+
+  @Test
+  void sendsAtTargetRate() throws Exception {
+    LoadEngine engine = engine(50, 1, 20);
+    long start = System.nanoTime();
+    assertEquals(0, engine.run(new LogBuffer(100)));
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    List<Sample> samples = samples();
+    assertEquals(50, samples.size());
+    assertEquals(50, server.getRequestCount());
+    // 49 intervals of 20 ms before the last request, then its delay
+    assertTrue(seconds >= 0.98 + DELAY_MILLIS / 1000.0, "finished too early: " + seconds);
+    assertTrue(seconds < 3, "finished too late: " + seconds);
+    for (int i = 0; i < samples.size(); i++) {
+      Sample sample = samples.get(i);
+      assertTrue(sample.success);
+      assertEquals(samples.get(0).timeStamp + i * 20, sample.timeStamp, 1);
+      assertTrue(sample.elapsed >= DELAY_MILLIS, "elapsed below server delay: " + sample.elapsed);
+    }
+  }
+
+  @Test
+  void latencyIncludesQueueing() throws Exception {
+    // one request in flight at a time: 20 requests of 100 ms take 2 s although the last is due after 0.95 s
+    LoadEngine engine = engine(20, 1, 1);
+    assertEquals(0, engine.run(new LogBuffer(100)));
+
+    List<Sample> samples = samples();
+    assertEquals(20, samples.size());
+    Sample last = samples.get(samples.size() - 1);
+    long due = last.timeStamp - samples.get(0).timeStamp;
+    assertEquals(950, due, 1);
+    assertTrue(last.elapsed >= 20 * DELAY_MILLIS - due - 50, "queueing missing from latency: " + last.elapsed);
+    for (Sample sample : samples) {
+      assertTrue(sample.serviceTime >= DELAY_MILLIS);
+      assertTrue(sample.serviceTime < 4 * DELAY_MILLIS, "queueing counted as service time: " + sample.serviceTime);
+      assertTrue(sample.elapsed >= sample.serviceTime);
+    }
+  }
+
+  @Test
+  void readsEscapedSeparators() throws Exception {
+    Files.write(dataFile, List.of(line("campsiteId", "name"), line("7", "Pine, Lake")), StandardCharsets.UTF_8);
+    List<String> urls = new CopyOnWriteArrayList<>();
+    OkHttpClient client = new OkHttpClient.Builder()
+        .addNetworkInterceptor(chain -> {
+          urls.add(chain.request().url().toString());
+          return chain.proceed(chain.request());
+        })
+        .build();
+    RequestTemplate template = new RequestTemplate("GET", server.getUrl() + "/campsites/${campsiteId}?name=${name}",
+        null);
+    assertEquals(0, new LoadEngine(client, template, dataFile, resultFile, "test", 10, 1, 1).run(new LogBuffer(100)));
+
+    assertEquals(10, urls.size());
+    for (String url : urls) {
+      assertEquals(server.getUrl() + "/campsites/7?name=Pine%2C+Lake", url);
+    }
+  }
+
+  private LoadEngine engine(double rate, long durationSeconds, int maxConcurrency) {
+    RequestTemplate template = new RequestTemplate("GET", server.getUrl() + "/campsites/${campsiteId}", null);
+    return new LoadEngine(new OkHttpClient(), template, dataFile, resultFile, "test", rate, durationSeconds,
+        maxConcurrency);
+  }
+
+  private static String line(String... fields) {
+    return new String(RowWriter.encode(fields), StandardCharsets.UTF_8);
+  }
+
+  private List<Sample> samples() throws IOException {
+    List<String> lines = Files.readAllLines(resultFile, StandardCharsets.UTF_8);
+    assertEquals(JtlWriter.HEADER, lines.get(0));
+    return lines.stream().skip(1).map(Sample::new)
+        .sorted((a, b) -> Long.compare(a.timeStamp, b.timeStamp))
+        .collect(Collectors.toList());
+  }
+
+  private static class Sample {
+    final long timeStamp;
+    final long elapsed;
+    final boolean success;
+    final long serviceTime;
+
+    Sample(String line) {
+      String[] fields = line.split(",", -1);
+      timeStamp = Long.parseLong(fields[0]);
+      elapsed = Long.parseLong(fields[1]);
+      success = Boolean.parseBoolean(fields[4]);
+      serviceTime = Long.parseLong(fields[7]);
+    }
+  }
+}
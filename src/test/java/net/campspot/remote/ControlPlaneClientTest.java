@@ -0,0 +1,116 @@
+package net.campspot.remote;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ControlPlaneClientTest {
+  private final List<String> tests = new CopyOnWriteArrayList<>(List.of("Search", "Book"));
+  private final List<String> ifNoneMatch = new CopyOnWriteArrayList<>(); // header of each request, "" for none
+  private final List<Integer> codes = new CopyOnWriteArrayList<>();
+  private volatile CountDownLatch gate; // holds requests until opened, null for none
+  private ControlPlaneStub stub;
+  private OkHttpClient http;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    stub = new ControlPlaneStub(0, tests, 1);
+    http = ControlPlaneClient.newHttpClient().newBuilder()
+        .addNetworkInterceptor(chain -> {
+          String header = chain.request().header("If-None-Match");
+          ifNoneMatch.add(header == null ? "" : header);
+          passGate();
+          Response response = chain.proceed(chain.request());
+          codes.add(response.code());
+          return response;
+        })
+        .build();
+  }
+
+  private void passGate() throws InterruptedIOException {
+    CountDownLatch latch = gate;
+    try {
+      if (latch != null && !latch.await(5, TimeUnit.SECONDS)) throw new AssertionError("gate not opened");
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException();
+    }
+  }
+
+  @AfterEach
+  void tearDown() {
+    stub.close();
+  }
+
+  @Test
+  void usesCachedListWithinTimeToLive() throws Exception {
+    ControlPlaneClient client = new ControlPlaneClient(http, stub.getUrl(), "42", 60);
+    assertEquals(List.of("Search", "Book"), client.getTests(false).get(5, TimeUnit.SECONDS));
+    assertEquals(List.of("Search", "Book"), client.getTests(false).get(5, TimeUnit.SECONDS));
+    assertEquals(1, codes.size());
+  }
+
+  @Test
+  void revalidatesExpiredListWithEtag() throws Exception {
+    ControlPlaneClient client = new ControlPlaneClient(http, stub.getUrl(), "42", 0);
+    List<String> first = client.getTests(false).get(5, TimeUnit.SECONDS);
+    List<String> second = client.getTests(false).get(5, TimeUnit.SECONDS);
+
+    assertSame(first, second);
+    assertEquals(List.of(200, 304), codes);
+    assertEquals("", ifNoneMatch.get(0));
+    assertFalse(ifNoneMatch.get(1).isEmpty());
+
+    tests.add("Cancel");
+    assertEquals(List.of("Search", "Book", "Cancel"), client.getTests(false).get(5, TimeUnit.SECONDS));
+    assertEquals(List.of(200, 304, 200), codes);
+  }
+
+  @Test
+  void sharesListRequestInFlight() throws Exception {
+    ControlPlaneClient client = new ControlPlaneClient(http, stub.getUrl(), "42", 60);
+    gate = new CountDownLatch(1);
+    CompletableFuture<List<String>> first = client.getTests(true);
+    CompletableFuture<List<String>> second = client.getTests(true);
+    CompletableFuture<List<String>> third = client.getTests(false);
+    assertSame(first, second);
+    assertSame(first, third);
+    gate.countDown();
+
+    assertEquals(List.of("Search", "Book"), third.get(5, TimeUnit.SECONDS));
+    assertEquals(1, codes.size());
+
+    // a new request once the shared one is done
+    gate = null;
+    CompletableFuture<List<String>> next = client.getTests(true);
+    assertNotSame(first, next);
+    next.get(5, TimeUnit.SECONDS);
+    assertEquals(2, codes.size());
+  }
+
+  @Test
+  void failedListRequestIsNotShared() throws Exception {
+    String url = stub.getUrl();
+    stub.close();
+    ControlPlaneClient client = new ControlPlaneClient(http, url, "42", 60);
+    CompletableFuture<List<String>> failed = client.getTests(true);
+    assertNotNull(failed.handle((names, e) -> e).get(5, TimeUnit.SECONDS));
+    assertNotSame(failed, client.getTests(true));
+    assertTrue(codes.isEmpty());
+  }
+}
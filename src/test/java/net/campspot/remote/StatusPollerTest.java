@@ -0,0 +1,169 @@
+package net.campspot.remote;
+
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatusPollerTest {
+  private final List<String> polls = new CopyOnWriteArrayList<>(); // URL of each poll sent
+  private final List<String> statuses = new CopyOnWriteArrayList<>();
+  private final List<IOException> errors = new CopyOnWriteArrayList<>();
+  // polls the poller scheduled, run by the test instead of after their delay
+  private final BlockingQueue<Long> delays = new LinkedBlockingQueue<>();
+  private final BlockingQueue<Runnable> scheduled = new LinkedBlockingQueue<>();
+  private ScheduledThreadPoolExecutor scheduler;
+  private ControlPlaneStub stub;
+  private OkHttpClient http;
+  private StatusPoller poller;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    stub = new ControlPlaneStub(0, List.of("Search"), 1);
+    http = ControlPlaneClient.newHttpClient().newBuilder()
+        .addNetworkInterceptor(chain -> {
+          polls.add(chain.request().url().toString());
+          return chain.proceed(chain.request());
+        })
+        .build();
+    scheduler = new ScheduledThreadPoolExecutor(1) {
+      @Override
+      public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        scheduled.add(command);
+        delays.add(unit.toMillis(delay));
+        return super.schedule(() -> { }, 1, TimeUnit.DAYS); // only cancelled by the poller
+      }
+    };
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (poller != null) poller.stop();
+    scheduler.shutdownNow();
+    stub.close();
+  }
+
+  @Test
+  void backsOffWhileStatusIsUnchanged() throws Exception {
+    poller = start(stub.getUrl(), status -> false);
+
+    assertEquals(0, nextDelay());
+    runPoll();
+    // Idle: the first status, polled again after the minimum interval
+    assertJittered(StatusPoller.MIN_INTERVAL_MILLIS, nextDelay());
+    assertEquals(StatusPoller.MIN_INTERVAL_MILLIS, poller.getIntervalMillis());
+    runPoll();
+    // Idle again: 1.5 times the interval
+    assertJittered(StatusPoller.MIN_INTERVAL_MILLIS * 3 / 2, nextDelay());
+    assertEquals(StatusPoller.MIN_INTERVAL_MILLIS * 3 / 2, poller.getIntervalMillis());
+    assertEquals(2, polls.size());
+    assertEquals(List.of("Idle"), statuses);
+    assertTrue(errors.isEmpty());
+  }
+
+  @Test
+  void backsOffFasterAfterErrors() throws Exception {
+    String url = stub.getUrl();
+    stub.close();
+    poller = start(url, status -> false);
+
+    assertEquals(0, nextDelay());
+    runPoll();
+    assertJittered(StatusPoller.MIN_INTERVAL_MILLIS * 2, nextDelay());
+    assertEquals(StatusPoller.MIN_INTERVAL_MILLIS * 2, poller.getIntervalMillis());
+    runPoll();
+    assertJittered(StatusPoller.MIN_INTERVAL_MILLIS * 4, nextDelay());
+    assertEquals(StatusPoller.MIN_INTERVAL_MILLIS * 4, poller.getIntervalMillis());
+    assertEquals(2, errors.size());
+    assertTrue(statuses.isEmpty());
+    assertFalse(poller.isStopped());
+  }
+
+  @Test
+  void jitterStaysWithinBounds() {
+    long min = (long) (StatusPoller.MAX_INTERVAL_MILLIS * (1 - StatusPoller.JITTER));
+    long max = (long) (StatusPoller.MAX_INTERVAL_MILLIS * (1 + StatusPoller.JITTER));
+    for (int i = 0; i < 10_000; i++) {
+      long delay = StatusPoller.jitter(StatusPoller.MAX_INTERVAL_MILLIS);
+      assertTrue(delay >= min && delay <= max, "delay " + delay + " not in " + min + " to " + max);
+    }
+  }
+
+  @Test
+  void stopsOnFinishedStatus() throws Exception {
+    ControlPlaneClient client = client(stub.getUrl());
+    client.runTest("Search").get(5, TimeUnit.SECONDS);
+    poller = client.pollStatus(ControlPlaneClient.finishedWhen("^finished"), statuses::add, errors::add);
+
+    await(poller::isStopped, 5000);
+    assertEquals("Finished Search", poller.getStatus());
+    assertEquals("Finished Search", statuses.get(statuses.size() - 1));
+    assertTrue(statuses.get(0).startsWith("Running Search"));
+    assertEquals(0, poller.getNextPoll());
+
+    int count = polls.size();
+    Thread.sleep(StatusPoller.MIN_INTERVAL_MILLIS * 3 / 2);
+    assertEquals(count, polls.size());
+  }
+
+  private ControlPlaneClient client(String url) {
+    return new ControlPlaneClient(http, url, "42", 60);
+  }
+
+  /**
+   * Start a poller on the test scheduler, {@link #runPoll} sends each poll it schedules.
+   */
+  private StatusPoller start(String url, Predicate<String> finished) {
+    StatusPoller started = new StatusPoller(http, scheduler, client(url).pageUrl("ViewTestStatus.aspx"), finished,
+        statuses::add, errors::add);
+    started.start();
+    return started;
+  }
+
+  /**
+   * @return delay of the next poll the poller scheduled, once it handled the answer to the previous one
+   */
+  private long nextDelay() throws InterruptedException {
+    Long delay = delays.poll(5, TimeUnit.SECONDS);
+    assertNotNull(delay, "no poll scheduled");
+    return delay;
+  }
+
+  private void runPoll() {
+    scheduled.remove().run();
+  }
+
+  private static void assertJittered(long interval, long delay) {
+    long min = (long) (interval * (1 - StatusPoller.JITTER));
+    long max = (long) (interval * (1 + StatusPoller.JITTER));
+    assertTrue(delay >= min && delay <= max, "delay " + delay + " not in " + min + " to " + max);
+  }
+
+  private static void await(BooleanSupplier condition, long timeoutMillis) {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    while (!condition.getAsBoolean()) {
+      if (System.currentTimeMillis() > deadline) throw new AssertionError("timed out");
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+        throw new AssertionError(e);
+      }
+    }
+  }
+}